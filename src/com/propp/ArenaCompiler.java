@@ -0,0 +1,183 @@
+package com.propp;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.propp.TokenType.*;
+
+//copies a resolved parse tree into an AstArena, after which the Lexeme tree is no longer needed to run the program
+//layout of the nodes, children in order:
+//  PROGRAM, STATEMENT_LIST   the statements, a STATEMENT_LIST points to a node holding the Scope of its Environment
+//  FUNCTION_DECL             the body, points to the identifier (with its parameters)
+//  ASSIGN                    an EXPRESSION_LIST of the values, then one IDENTIFIER per target
+//                            with a GLUE child pointing to its indices if the target is an array element
+//  WHILE                     the condition and the body
+//  IF                        condition, block, the condition and block of each elif, then the else block if there is one
+//  RETURN, EXPRESSION_LIST   the expressions
+//  VARIADIC_OPERATION        the operands, points to its OperatorChain
+//  UNARY_OPERATION           the operand, points to the operator
+//  ARRAY_ACCESS              the array, points to the indices (null where the position is not an integer literal)
+//  FUNC_CALL                 the arguments, points to the identifier
+//  VARIABLE, values          no children, point to the identifier or the value
+//anything else is added without children and reported as unsupported when it is run
+public class ArenaCompiler {
+    private AstArena.Builder builder;
+
+    public AstArena compile(Lexeme program) {
+        this.builder = new AstArena.Builder();
+        int root = this.builder.add(PROGRAM, program.getLineNumber());
+        statements(root, program);
+        return this.builder.build();
+    }
+
+    //statement chains end at the first node without a statement, like they do for the other engines
+    private void statements(int parent, Lexeme statementList) {
+        for (Lexeme node = statementList; node != null && node.getLeft() != null; node = node.getRight()) {
+            this.builder.append(parent, statement(node.getLeft()));
+        }
+    }
+
+    private int block(Lexeme statementList) {
+        return block(statementList, scope(statementList));
+    }
+
+    private int block(Lexeme statementList, Lexeme scope) {
+        int node = this.builder.add(STATEMENT_LIST, statementList.getLineNumber(), scope);
+        statements(node, statementList);
+        return node;
+    }
+
+    //an empty STATEMENT_LIST holding the Scope of a block, for functions it is also the value they are stored as
+    private static Lexeme scope(Lexeme statementList) {
+        Lexeme scope = new Node(STATEMENT_LIST, statementList.getLineNumber());
+        scope.setScope(statementList.getScope());
+        return scope;
+    }
+
+    private int statement(Lexeme tree) {
+        int node;
+        switch (tree.getType()) {
+            case FUNCTION_DECL:
+                node = this.builder.add(FUNCTION_DECL, tree.getLineNumber(), declaration(tree.getLeft()));
+                Lexeme value = scope(tree.getRight());
+                int body = block(tree.getRight(), value);
+                this.builder.append(node, body);
+                this.builder.function(value, body);
+                return node;
+            case ASSIGN:
+                node = this.builder.add(ASSIGN, tree.getLineNumber());
+                this.builder.append(node, expressionList(EXPRESSION_LIST, tree.getRight().getLineNumber(), tree.getRight()));
+                for (Lexeme target = tree.getLeft(); target != null; target = target.getRight()) {
+                    if (target.getLeft() != null) this.builder.append(node, target(target.getLeft()));
+                }
+                return node;
+            case WHILE:
+                node = this.builder.add(WHILE, tree.getLineNumber());
+                this.builder.append(node, expression(tree.getLeft()));
+                this.builder.append(node, block(tree.getRight()));
+                return node;
+            case IF:
+                node = this.builder.add(IF, tree.getLineNumber());
+                for (Lexeme branch = tree; branch != null; branch = branch.getRight().getRight()) {
+                    if (branch.getType() == ELSE) {
+                        this.builder.append(node, block(branch.getLeft()));
+                        break;
+                    }
+                    this.builder.append(node, expression(branch.getLeft()));
+                    this.builder.append(node, block(branch.getRight().getLeft()));
+                }
+                return node;
+            case RETURN:
+                return expressionList(RETURN, tree.getLineNumber(), tree.getLeft());
+            case EXPRESSION_LIST:
+                return expressionList(EXPRESSION_LIST, tree.getLineNumber(), tree);
+            default:
+                return this.builder.add(tree.getType(), tree.getLineNumber());
+        }
+    }
+
+    private int expressionList(TokenType kind, int lineNumber, Lexeme expressionList) {
+        int node = this.builder.add(kind, lineNumber);
+        for (Lexeme element = expressionList; element != null; element = element.getRight()) {
+            if (element.getLeft() != null) this.builder.append(node, expression(element.getLeft()));
+        }
+        return node;
+    }
+
+    private int expression(Lexeme tree) {
+        int node;
+        switch (tree.getType()) {
+            case INTEGER:
+            case FLOAT:
+            case STRING:
+            case BOOLEAN:
+            case CHARACTER:
+                return this.builder.add(tree.getType(), tree.getLineNumber(), tree);
+            case VARIABLE:
+                return this.builder.add(VARIABLE, tree.getLineNumber(), leaf(tree.getLeft()));
+            case VARIADIC_OPERATION:
+                node = this.builder.add(VARIADIC_OPERATION, tree.getLineNumber(), OperatorChain.of(tree));
+                for (Lexeme operand = tree.getRight(); operand != null; operand = operand.getRight()) {
+                    if (operand.getLeft() != null) this.builder.append(node, expression(operand.getLeft()));
+                }
+                return node;
+            case UNARY_OPERATION:
+                node = this.builder.add(UNARY_OPERATION, tree.getLineNumber(), tree.getLeft());
+                this.builder.append(node, expression(tree.getRight()));
+                return node;
+            case ARRAY_ACCESS:
+                List<Lexeme> indices = new ArrayList<Lexeme>();
+                for (Lexeme index = tree.getRight(); index != null; index = index.getRight()) {
+                    indices.add((index.getLeft() == null || index.getLeft().getType() != INTEGER) ? null : index.getLeft());
+                }
+                node = this.builder.add(ARRAY_ACCESS, tree.getLineNumber(), indices.toArray(new Lexeme[0]));
+                this.builder.append(node, expression(tree.getLeft()));
+                return node;
+            case FUNC_CALL:
+                Lexeme identifier = tree.getLeft();
+                //print reports with the line of its arguments
+                int lineNumber = identifier.getLineNumber();
+                if (identifier.stringValue().equals("print") && identifier.getLeft() != null) lineNumber = identifier.getLeft().getLineNumber();
+                node = this.builder.add(FUNC_CALL, lineNumber, leaf(identifier));
+                for (Lexeme argument = identifier.getLeft(); argument != null; argument = argument.getRight()) {
+                    if (argument.getLeft() != null) this.builder.append(node, expression(argument.getLeft()));
+                }
+                return node;
+            default:
+                return this.builder.add(tree.getType(), tree.getLineNumber());
+        }
+    }
+
+    private int target(Lexeme identifier) {
+        int node = this.builder.add(IDENTIFIER, identifier.getLineNumber(), leaf(identifier));
+        if (identifier.getLeft() == null) return node;
+        List<Lexeme> indices = new ArrayList<Lexeme>();
+        for (Lexeme index = identifier.getLeft(); index != null; index = index.getLeft()) indices.add(index.getRight());
+        this.builder.append(node, this.builder.add(GLUE, identifier.getLineNumber(), indices.toArray(new Lexeme[0])));
+        return node;
+    }
+
+    //the declared identifier keeps its parameters, calls read them from the identifier a function is stored under
+    private static Lexeme declaration(Lexeme identifier) {
+        Lexeme copy = leaf(identifier);
+        if (identifier.getLeft() == null) return copy;
+        Lexeme last = null;
+        for (Lexeme node = identifier.getLeft(); node != null; node = node.getRight()) {
+            if (node.getLeft() == null) continue;
+            Lexeme parameter = new Node(PARAMETER_LIST, node.getLineNumber());
+            parameter.setLeft(leaf(node.getLeft()));
+            if (last == null) copy.setLeft(parameter);
+            else last.setRight(parameter);
+            last = parameter;
+        }
+        return copy;
+    }
+
+    //identifiers with children are copied without them, so the arena does not keep parts of the tree alive
+    private static Lexeme leaf(Lexeme identifier) {
+        if (identifier.getLeft() == null && identifier.getRight() == null) return identifier;
+        Lexeme copy = new Node(identifier.getType(), identifier.stringValue(), identifier.getLineNumber());
+        if (identifier.isResolved()) copy.resolve(identifier.getDepth(), identifier.getSlot());
+        return copy;
+    }
+}
@@ -0,0 +1,369 @@
+package com.propp;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static com.propp.TokenType.*;
+
+//walks an AstArena built by the ArenaCompiler, behaves the same as the other engines
+//operands and arguments are evaluated onto one value stack instead of into a list per operation
+public class ArenaEvaluator {
+    private static final Lexeme TRUE = new BooleanValue(true, 0);
+
+    private final AstArena arena;
+    private int functionCounter;
+    private boolean returning;
+    private Lexeme[] stack;
+    private int top;
+
+    public ArenaEvaluator(AstArena arena) {
+        this.arena = arena;
+        this.functionCounter = 0;
+        this.returning = false;
+        this.stack = new Lexeme[64];
+        this.top = 0;
+    }
+
+    public List<Lexeme> run(Environment environment) {
+        List<Lexeme> values = new ArrayList<Lexeme>();
+        for (int node = this.arena.firstChild(this.arena.root()); node != AstArena.NONE; node = this.arena.nextSibling(node)) {
+            List<Lexeme> temp = statement(node, environment, true);
+            if (temp != null) values.addAll(temp);
+        }
+        return values;
+    }
+
+    // statements
+
+    private List<Lexeme> block(int block, Environment environment) {
+        for (int node = this.arena.firstChild(block); node != AstArena.NONE; node = this.arena.nextSibling(node)) {
+            List<Lexeme> temp = statement(node, environment, false);
+            if (this.returning) return temp;
+        }
+        return null;
+    }
+
+    //returns the values produced, only used at the top level and by return statements
+    private List<Lexeme> statement(int node, Environment environment, boolean topLevel) {
+        switch (this.arena.kind(node)) {
+            case FUNCTION_DECL:
+                return functionDeclaration(node, environment);
+            case ASSIGN:
+                assign(node, environment);
+                return null;
+            case WHILE:
+                return whileStatement(node, environment);
+            case IF:
+                return ifStatement(node, environment);
+            case RETURN:
+                return returnStatement(node, environment);
+            case EXPRESSION_LIST:
+                if (!topLevel) {
+                    for (int child = this.arena.firstChild(node); child != AstArena.NONE; child = this.arena.nextSibling(child)) {
+                        if (isSingle(child)) evaluate(child, environment);
+                        else collect(child, environment, null);
+                    }
+                    return null;
+                }
+                List<Lexeme> values = new ArrayList<Lexeme>();
+                collectChildren(node, environment, values);
+                return values;
+            default:
+                Forest.error(this.arena.lineNumber(node), "unsupported Token " + this.arena.kind(node));
+                return null;
+        }
+    }
+
+    private List<Lexeme> functionDeclaration(int node, Environment environment) {
+        Lexeme identifier = this.arena.literal(node);
+        Lexeme body = this.arena.literal(this.arena.firstChild(node));
+        if (identifier.stringValue().equals("print")) {
+            Forest.error(this.arena.lineNumber(node), " can not declare function with name print");
+            return null;
+        }
+        environment.addVariable(identifier, body);
+        return Collections.singletonList(body);
+    }
+
+    private void assign(int node, Environment environment) {
+        int values = this.arena.firstChild(node);
+        int first = this.arena.nextSibling(values);
+        int targets = 0;
+        for (int target = first; target != AstArena.NONE; target = this.arena.nextSibling(target)) targets++;
+        int expression = this.arena.firstChild(values);
+        //one value to one target, the common case, needs no stack
+        if (targets == 1 && expression != AstArena.NONE && this.arena.nextSibling(expression) == AstArena.NONE && isSingle(expression)) {
+            Lexeme value = evaluate(expression, environment);
+            if (value != null || keepsNull(expression)) assignTarget(first, environment, value);
+            else mismatch(node, 0, 1);
+            return;
+        }
+        int base = this.top;
+        pushChildren(values, environment);
+        int size = this.top - base;
+        if (size != targets) {
+            this.top = base;
+            mismatch(node, size, targets);
+            return;
+        }
+        int i = base;
+        for (int target = first; target != AstArena.NONE; target = this.arena.nextSibling(target)) {
+            if (!assignTarget(target, environment, this.stack[i++])) break;
+        }
+        this.top = base;
+    }
+
+    private boolean assignTarget(int target, Environment environment, Lexeme value) {
+        Lexeme identifier = this.arena.literal(target);
+        int indices = this.arena.firstChild(target);
+        if (indices == AstArena.NONE) {
+            environment.addVariable(identifier, value);
+            return true;
+        }
+        return Expressions.assignElement(environment, identifier, this.arena.indices(indices), value);
+    }
+
+    private void mismatch(int node, int found, int targets) {
+        Forest.error(this.arena.lineNumber(node), " mismatching number of expressions and variables. Expressions:" + found + " Variables:" + targets);
+    }
+
+    private List<Lexeme> whileStatement(int node, Environment environment) {
+        int condition = this.arena.firstChild(node);
+        int body = this.arena.nextSibling(condition);
+        Environment loopEnvir = new Environment(environment, this.arena.literal(body).getScope());
+        while (isTrue(condition, environment)) {
+            List<Lexeme> temp = block(body, loopEnvir);
+            if (this.returning) return temp;
+        }
+        return null;
+    }
+
+    private List<Lexeme> ifStatement(int node, Environment environment) {
+        int child = this.arena.firstChild(node);
+        while (child != AstArena.NONE) {
+            int block = this.arena.nextSibling(child);
+            if (block == AstArena.NONE) { //no condition before it, the else block
+                List<Lexeme> temp = block(child, new Environment(environment, this.arena.literal(child).getScope()));
+                return this.returning ? temp : null;
+            }
+            if (isTrue(child, environment)) {
+                List<Lexeme> temp = block(block, new Environment(environment, this.arena.literal(block).getScope()));
+                return this.returning ? temp : null;
+            }
+            child = this.arena.nextSibling(block);
+        }
+        return null;
+    }
+
+    private List<Lexeme> returnStatement(int node, Environment environment) {
+        if (this.functionCounter == 0) {
+            Forest.error(this.arena.lineNumber(node), " return statement outside of a function");
+        }
+        List<Lexeme> values = new ArrayList<Lexeme>();
+        collectChildren(node, environment, values);
+        this.returning = true;
+        return values;
+    }
+
+    //the condition values compared with == against true, a single boolean is its own answer
+    private boolean isTrue(int condition, Environment environment) {
+        if (isSingle(condition)) {
+            Lexeme value = evaluate(condition, environment);
+            if (value != null && value.getType() == BOOLEAN) return value.booleanValue();
+            int size = (value == null && !keepsNull(condition)) ? 0 : 1;
+            return Expressions.isTrue(new Lexeme[]{value, TRUE}, size, this.arena.lineNumber(condition));
+        }
+        List<Lexeme> values = new ArrayList<Lexeme>();
+        collect(condition, environment, values);
+        return Expressions.isTrue(values.toArray(new Lexeme[values.size() + 1]), values.size(), this.arena.lineNumber(condition));
+    }
+
+    // expressions
+
+    //expressions that produce at most one value
+    private boolean isSingle(int node) {
+        return this.arena.kind(node) != FUNC_CALL;
+    }
+
+    //undeclared variables still take up a place in expression lists
+    private boolean keepsNull(int node) {
+        return this.arena.kind(node) == VARIABLE;
+    }
+
+    //null if no value was produced, only called for nodes isSingle accepts
+    private Lexeme evaluate(int node, Environment environment) {
+        switch (this.arena.kind(node)) {
+            case INTEGER:
+            case FLOAT:
+            case STRING:
+            case BOOLEAN:
+            case CHARACTER:
+                return this.arena.literal(node);
+            case VARIABLE:
+                return environment.getVariableValue(this.arena.literal(node));
+            case VARIADIC_OPERATION:
+                return variadicOperation(node, environment);
+            case UNARY_OPERATION:
+                return unaryOperation(node, environment);
+            case ARRAY_ACCESS:
+                return arrayAccess(node, environment);
+            default:
+                Forest.error(this.arena.lineNumber(node), "unsupported Token " + this.arena.kind(node));
+                return null;
+        }
+    }
+
+    //adds the values of node to values, or drops them if values is null
+    private void collect(int node, Environment environment, List<Lexeme> values) {
+        if (isSingle(node)) {
+            Lexeme value = evaluate(node, environment);
+            if (values != null && (value != null || keepsNull(node))) values.add(value);
+            return;
+        }
+        List<Lexeme> temp = functionCall(node, environment);
+        if (values != null && temp != null) values.addAll(temp);
+    }
+
+    private void collectChildren(int node, Environment environment, List<Lexeme> values) {
+        for (int child = this.arena.firstChild(node); child != AstArena.NONE; child = this.arena.nextSibling(child)) {
+            collect(child, environment, values);
+        }
+    }
+
+    //pushes the values of the children of node onto the stack
+    private void pushChildren(int node, Environment environment) {
+        for (int child = this.arena.firstChild(node); child != AstArena.NONE; child = this.arena.nextSibling(child)) {
+            if (isSingle(child)) {
+                Lexeme value = evaluate(child, environment);
+                if (value != null || keepsNull(child)) push(value);
+            } else {
+                List<Lexeme> temp = functionCall(child, environment);
+                if (temp != null) {
+                    for (Lexeme value : temp) push(value);
+                }
+            }
+        }
+    }
+
+    private void push(Lexeme value) {
+        if (this.top == this.stack.length) this.stack = Arrays.copyOf(this.stack, this.top * 2);
+        this.stack[this.top++] = value;
+    }
+
+    private Lexeme variadicOperation(int node, Environment environment) {
+        OperatorChain chain = this.arena.chain(node);
+        int first = this.arena.firstChild(node);
+        int second = (first == AstArena.NONE) ? AstArena.NONE : this.arena.nextSibling(first);
+        //one operator between two single values needs no stack
+        if (chain.length() == 1 && chain.getCount(0) < 0 && chain.getOperator(0) != ARRAY_CREATION && second != AstArena.NONE
+                && this.arena.nextSibling(second) == AstArena.NONE && isSingle(first) && isSingle(second)) {
+            Lexeme a = evaluate(first, environment);
+            Lexeme b = evaluate(second, environment);
+            if (a != null && b != null) return Operators.binary(chain.getOperator(0), a, b, this.arena.lineNumber(node));
+            //a missing operand changes the arity, let the chain sort it out
+            int base = this.top;
+            if (a != null || keepsNull(first)) push(a);
+            if (b != null || keepsNull(second)) push(b);
+            return apply(chain, base);
+        }
+        int base = this.top;
+        pushChildren(node, environment);
+        return apply(chain, base);
+    }
+
+    private Lexeme apply(OperatorChain chain, int base) {
+        Lexeme result = chain.apply(this.stack, base, this.top);
+        Arrays.fill(this.stack, base, this.top, null);
+        this.top = base;
+        return result;
+    }
+
+    private Lexeme unaryOperation(int node, Environment environment) {
+        Lexeme operator = this.arena.literal(node);
+        int operand = this.arena.firstChild(node);
+        Lexeme value;
+        if (isSingle(operand)) {
+            value = evaluate(operand, environment);
+            if (value == null && !keepsNull(operand)) return wrongCount(node, operator, 0);
+        } else {
+            List<Lexeme> values = functionCall(operand, environment);
+            int size = (values == null) ? 0 : values.size();
+            if (size != 1) wrongCount(node, operator, size);
+            if (size == 0) return null;
+            value = values.get(0);
+        }
+        if (value == null) return null;
+        return Evaluator.unaryOperation(operator, value, this.arena.lineNumber(node), this.arena.lineNumber(operand));
+    }
+
+    private Lexeme wrongCount(int node, Lexeme operator, int found) {
+        Forest.error(this.arena.lineNumber(node), "invalid number of arguments for operator " + operator.getType() + " expected 1 founnd " + found);
+        return null;
+    }
+
+    private Lexeme arrayAccess(int node, Environment environment) {
+        int array = this.arena.firstChild(node);
+        Lexeme arr;
+        if (isSingle(array)) arr = evaluate(array, environment);
+        else {
+            List<Lexeme> values = functionCall(array, environment);
+            if (values == null || values.size() != 1) {
+                Forest.error(this.arena.lineNumber(node), "not single variable for array");
+                return null;
+            }
+            arr = values.get(0);
+        }
+        return Expressions.arrayElement(arr, this.arena.indices(node), this.arena.lineNumber(node));
+    }
+
+    private List<Lexeme> functionCall(int node, Environment environment) {
+        Lexeme identifier = this.arena.literal(node);
+        int lineNumber = this.arena.lineNumber(node);
+        if (identifier.stringValue().equals("print")) {
+            List<Lexeme> values = new ArrayList<Lexeme>();
+            collectChildren(node, environment, values);
+            Evaluator.printValues(values, lineNumber);
+            return null;
+        }
+        if (!environment.variableExists(identifier)) {
+            Forest.error(lineNumber, "function " + identifier.stringValue() + " not declared");
+            return null;
+        }
+        Lexeme body = environment.getVariableValue(identifier);
+        Lexeme parameters = environment.getIdentifier(identifier).getLeft();
+        int block = (body == null) ? AstArena.NONE : this.arena.function(body);
+        if (block == AstArena.NONE) {
+            Forest.error(lineNumber, identifier.stringValue() + " is not a function");
+            return null;
+        }
+        Environment newEnvir = new Environment(environment, body.getScope());
+        int base = this.top;
+        pushChildren(node, environment);
+        int size = this.top - base;
+        int count = 0;
+        for (Lexeme parameter = parameters; parameter != null; parameter = parameter.getRight()) {
+            if (parameter.getLeft() != null) count++;
+        }
+        if (size != count) {
+            Arrays.fill(this.stack, base, this.top, null);
+            this.top = base;
+            Forest.error(lineNumber, "wrong number of parameters for function " + identifier.stringValue() + " expected " + count + " but found " + size);
+            return null;
+        }
+        int i = base;
+        for (Lexeme parameter = parameters; parameter != null; parameter = parameter.getRight()) {
+            if (parameter.getLeft() != null) newEnvir.addVariable(parameter.getLeft(), this.stack[i++]);
+        }
+        Arrays.fill(this.stack, base, this.top, null);
+        this.top = base;
+        this.functionCounter++;
+        Object event = ForestEvents.recording() ? ForestEvents.beginCall() : null;
+        List<Lexeme> temp = block(block, newEnvir);
+        if (event != null) ForestEvents.endCall(event, identifier.stringValue(), lineNumber);
+        this.returning = false;
+        this.functionCounter--;
+        return temp;
+    }
+}
@@ -0,0 +1,19 @@
+package com.propp;
+
+//elements can be any value, including other arrays
+public final class ArrayValue extends Value {
+    private final Lexeme[] value;
+
+    public ArrayValue(Lexeme[] value, int lineNumber) {
+        super(lineNumber);
+        this.value = value;
+    }
+
+    public TokenType getType() {
+        return TokenType.ARRAY;
+    }
+
+    public Lexeme[] arrayValue() {
+        return this.value;
+    }
+}
@@ -0,0 +1,174 @@
+package com.propp;
+
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+
+//parse tree stored in parallel arrays, a node is an index and its children are a first child / next sibling list
+//the GLUE, EXPRESSION_LIST and PARAMETER_LIST chains of the Lexeme tree become plain child lists, values,
+//identifiers, operator chains and array indices are kept in one constants array that nodes point into
+public final class AstArena {
+    private static final TokenType[] KINDS = TokenType.values();
+    public static final int NONE = -1;
+
+    private final byte[] kinds;
+    private final int[] firstChildren;
+    private final int[] nextSiblings;
+    private final int[] constantIndices;
+    private final int[] lineNumbers;
+    private final Object[] constants;
+    private final IdentityHashMap<Lexeme, Integer> functions; //function bodies by the value they are stored as
+
+    private AstArena(Builder builder) {
+        this.kinds = Arrays.copyOf(builder.kinds, builder.size);
+        this.firstChildren = Arrays.copyOf(builder.firstChildren, builder.size);
+        this.nextSiblings = Arrays.copyOf(builder.nextSiblings, builder.size);
+        this.constantIndices = Arrays.copyOf(builder.constantIndices, builder.size);
+        this.lineNumbers = Arrays.copyOf(builder.lineNumbers, builder.size);
+        this.constants = Arrays.copyOf(builder.constants, builder.constantCount);
+        this.functions = builder.functions;
+    }
+
+    // reading
+
+    //the first node added, PROGRAM for arenas built by the ArenaCompiler
+    public int root() {
+        return 0;
+    }
+
+    public int size() {
+        return this.kinds.length;
+    }
+
+    public TokenType kind(int node) {
+        return KINDS[this.kinds[node]];
+    }
+
+    public int firstChild(int node) {
+        return this.firstChildren[node];
+    }
+
+    public int nextSibling(int node) {
+        return this.nextSiblings[node];
+    }
+
+    public int lineNumber(int node) {
+        return this.lineNumbers[node];
+    }
+
+    public int childCount(int node) {
+        int count = 0;
+        for (int child = this.firstChildren[node]; child != NONE; child = this.nextSiblings[child]) count++;
+        return count;
+    }
+
+    //the value, identifier or operator of a node, null if it has none
+    public Lexeme literal(int node) {
+        return (Lexeme) constant(node);
+    }
+
+    public OperatorChain chain(int node) {
+        return (OperatorChain) constant(node);
+    }
+
+    public Lexeme[] indices(int node) {
+        return (Lexeme[]) constant(node);
+    }
+
+    private Object constant(int node) {
+        int index = this.constantIndices[node];
+        return (index == NONE) ? null : this.constants[index];
+    }
+
+    //the STATEMENT_LIST node of the function whose value is body, NONE if body is not a function of this arena
+    public int function(Lexeme body) {
+        Integer node = this.functions.get(body);
+        return (node == null) ? NONE : node;
+    }
+
+    // building
+
+    //nodes are added with add and linked to their parent with append, children keep the order they are appended in
+    public static class Builder {
+        private byte[] kinds;
+        private int[] firstChildren;
+        private int[] nextSiblings;
+        private int[] lastChildren; //only needed while building
+        private int[] constantIndices;
+        private int[] lineNumbers;
+        private int size;
+        private Object[] constants;
+        private int constantCount;
+        private final IdentityHashMap<Lexeme, Integer> functions;
+
+        public Builder() {
+            this.kinds = new byte[64];
+            this.firstChildren = new int[64];
+            this.nextSiblings = new int[64];
+            this.lastChildren = new int[64];
+            this.constantIndices = new int[64];
+            this.lineNumbers = new int[64];
+            this.size = 0;
+            this.constants = new Object[16];
+            this.constantCount = 0;
+            this.functions = new IdentityHashMap<Lexeme, Integer>();
+        }
+
+        public int add(TokenType kind, int lineNumber) {
+            return add(kind, lineNumber, (Object) null);
+        }
+
+        public int add(TokenType kind, int lineNumber, Lexeme literal) {
+            return add(kind, lineNumber, (Object) literal);
+        }
+
+        public int add(TokenType kind, int lineNumber, OperatorChain chain) {
+            return add(kind, lineNumber, (Object) chain);
+        }
+
+        public int add(TokenType kind, int lineNumber, Lexeme[] indices) {
+            return add(kind, lineNumber, (Object) indices);
+        }
+
+        private int add(TokenType kind, int lineNumber, Object constant) {
+            if (this.size == this.kinds.length) grow();
+            int node = this.size++;
+            this.kinds[node] = (byte) kind.ordinal();
+            this.firstChildren[node] = NONE;
+            this.nextSiblings[node] = NONE;
+            this.lastChildren[node] = NONE;
+            this.lineNumbers[node] = lineNumber;
+            this.constantIndices[node] = NONE;
+            if (constant != null) {
+                if (this.constantCount == this.constants.length) this.constants = Arrays.copyOf(this.constants, this.constantCount * 2);
+                this.constantIndices[node] = this.constantCount;
+                this.constants[this.constantCount++] = constant;
+            }
+            return node;
+        }
+
+        public void append(int parent, int child) {
+            if (this.lastChildren[parent] == NONE) this.firstChildren[parent] = child;
+            else this.nextSiblings[this.lastChildren[parent]] = child;
+            this.lastChildren[parent] = child;
+        }
+
+        //body is the value a declared function is stored as, block the STATEMENT_LIST node it runs
+        public void function(Lexeme body, int block) {
+            this.functions.put(body, block);
+        }
+
+        public AstArena build() {
+            return new AstArena(this);
+        }
+
+        private void grow() {
+            int capacity = this.kinds.length * 2;
+            this.kinds = Arrays.copyOf(this.kinds, capacity);
+            this.firstChildren = Arrays.copyOf(this.firstChildren, capacity);
+            this.nextSiblings = Arrays.copyOf(this.nextSiblings, capacity);
+            this.lastChildren = Arrays.copyOf(this.lastChildren, capacity);
+            this.constantIndices = Arrays.copyOf(this.constantIndices, capacity);
+            this.lineNumbers = Arrays.copyOf(this.lineNumbers, capacity);
+        }
+    }
+}
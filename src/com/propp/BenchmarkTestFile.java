@@ -0,0 +1,249 @@
+package com.propp;
+
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static com.propp.TokenType.*;
+
+//benchmarks of the hot paths, Lexer.lex, Parser.program, Environment lookups at different depths, every operator on
+//every pair of operand types it is defined for, function calls and whole scripts on every engine
+//a benchmark is warmed up and then measured over timed iterations, it reports the mean operations per second,
+//how far the iterations spread around it and the bytes the measuring thread allocated per operation
+//java com.propp.BenchmarkTestFile [--warmup=n] [--iterations=n] [--time=ms] [part of a benchmark name ...]
+public class BenchmarkTestFile {
+    private static final String[] SCRIPTS = {
+            "loop", "0->i;\n0->s;\nwhile(<(i,10000)) {\n    +(s,*(i,i))->s;\n    +(i,1)->i;\n};\ns;\n",
+            "calls", "func sq(x) { return *(x,x); };\n0->i;\n0->s;\nwhile(<(i,10000)) {\n    +(s,sq(i))->s;\n    +(i,1)->i;\n};\ns;\n",
+            "branches", "func pick(n) { if(>(n,3)) { return 1; } elif(==(n,2)) { return 2; } else { return 3; }; };\n" +
+                    "0->i;\n0->s;\nwhile(<(i,10000)) {\n    +(s,pick(i))->s;\n    +(i,1)->i;\n};\ns;\n",
+            "floats", "0.0->x;\n0->i;\nwhile(<(i,10000)) {\n    +(x,/(*(i,1.5),2.0))->x;\n    +(i,1)->i;\n};\nx;\n",
+            "strings", "\"\"->t;\n0->i;\nwhile(<(i,1000)) {\n    +(t,\"ab\")->t;\n    +(i,1)->i;\n};\nt;\n",
+            "arrays", "[](4)->a;\n0->i;\n0->s;\nwhile(<(i,1000)) {\n    i->a[0];\n    +(a[0],1)->a[3];\n    +(s,a[3])->s;\n    +(i,1)->i;\n};\ns;\n",
+            "print", "0->i;\nwhile(<(i,1000)) {\n    print(\"line\", i, 2.5);\n    +(i,1)->i;\n};\n",
+    };
+    private static final String[] OPERATORS = {"+", "-", "*", "/", "**", ">", ">=", "<", "<=", "==", "&&", "||"};
+    private static final Object[][] OPERANDS = {
+            {7, 3}, {2.5, 1.5}, {7, 1.5}, {'a', 'b'}, {true, false}, {"ab", "cd"}, {"ab", 7}
+    };
+    private static final int[] DEPTHS = {0, 1, 4, 16};
+    private static final int CALLS = 1000; //loop iterations in one run of the function call scripts
+    private static final int OPERATIONS = 100; //copies of the operation in one program of the operator benchmarks
+
+    private static volatile Object sink; //every result is stored here so the JIT can not drop the work that made it
+
+    private static int warmup = 3;
+    private static int iterations = 5;
+    private static long time = 200; //milliseconds per iteration
+    private static final List<String> filters = new ArrayList<String>();
+
+    private interface Operation {
+        Object run() throws Exception;
+    }
+
+    public static void main(String[] args) throws Exception {
+        for (String arg : args) {
+            if (arg.startsWith("--warmup=")) warmup = Integer.parseInt(arg.substring(9));
+            else if (arg.startsWith("--iterations=")) iterations = Integer.parseInt(arg.substring(13));
+            else if (arg.startsWith("--time=")) time = Long.parseLong(arg.substring(7));
+            else filters.add(arg);
+        }
+        System.out.println(System.getProperty("java.vm.name") + " " + System.getProperty("java.version") + ", "
+                + Runtime.getRuntime().availableProcessors() + " cores, " + warmup + " warmup and " + iterations + " measured iterations of " + time + " ms");
+        OutputSink discard = OutputSink.writer(Writer.nullWriter(), OutputSink.FlushPolicy.SIZE, OutputSink.DEFAULT_SIZE);
+        OutputSink.use(discard);
+        front();
+        environments();
+        operators();
+        calls(discard);
+        scripts(discard);
+    }
+
+    private static void front() throws Exception {
+        for (int functions : new int[]{10, 1000}) {
+            String source = source(functions);
+            byte[] bytes = source.getBytes(StandardCharsets.UTF_8);
+            String size = (bytes.length >= 1024) ? (bytes.length / 1024) + "KB" : bytes.length + "B";
+            TokenStream tokens = new ByteScanner(bytes).scan();
+            benchmark("Lexer.lex " + size, 1, () -> new Lexer(source).lex());
+            benchmark("ByteScanner.scan " + size, 1, () -> new ByteScanner(bytes).scan());
+            benchmark("Parser.program " + size, 1, () -> new Parser(tokens).program());
+            benchmark("Parser.program from Lexer " + size, 1, () -> new Parser(new Lexer(source)).program());
+        }
+    }
+
+    //a little of everything the Lexer and Parser know, functions times over
+    private static String source(int functions) {
+        StringBuilder source = new StringBuilder();
+        for (int i = 0; i < functions; i++) {
+            source.append("func f").append(i).append("(a,b) {\n");
+            source.append("    +(a,*(b,2))->c; //scaled\n");
+            source.append("    if(>(c,10)) { return -(c,1); } else { return c; };\n");
+            source.append("};\n");
+            source.append("\"label ").append(i).append("\"->s;\n");
+            source.append("3.25->x;\n'c'->ch;\n[](4)->arr;\n");
+            source.append("f").append(i).append("(").append(i).append(",x)->r;\n");
+            source.append("while(<(r,5)) { +(r,1)->r; };\n");
+        }
+        return source.toString();
+    }
+
+    //a variable in the outermost of depth + 1 Environments read from the innermost, resolved to its slot and by name
+    private static void environments() {
+        for (int depth : DEPTHS) {
+            Scope scope = new Scope(null, null);
+            int slot = scope.declare("x");
+            Lexeme resolved = new Node(IDENTIFIER, "x", 0);
+            resolved.resolve(0, slot);
+            Lexeme named = new Node(IDENTIFIER, "y", 0);
+            Environment global = new Environment(null, scope);
+            global.addVariable(resolved, new IntegerValue(1, 0));
+            global.addVariable(named, new IntegerValue(2, 0));
+            Environment environment = global;
+            for (int i = 0; i < depth; i++) environment = new Environment(environment, new Scope(null, null));
+            Lexeme identifier = new Node(IDENTIFIER, "x", 0);
+            identifier.resolve(depth, slot);
+            Environment innermost = environment;
+            benchmark("Environment resolved depth " + depth, 1, () -> innermost.getVariableValue(identifier));
+            benchmark("Environment by name depth " + depth, 1, () -> innermost.getVariableValue(named));
+        }
+    }
+
+    //the Evaluator's variadicOperation, a program of the same operation on two variables over and over,
+    //pairs of operand types an operator does not take are left out
+    private static void operators() {
+        for (String operator : OPERATORS) {
+            for (Object[] operands : OPERANDS) {
+                StringBuilder source = new StringBuilder();
+                for (int i = 0; i < OPERATIONS; i++) source.append(operator).append("(a,b);\n");
+                Lexeme root = new Optimizer().optimize(new Parser(new Lexer(source.toString())).program());
+                Environment environment = new Environment(null, new Resolver().resolve(root));
+                environment.addVariable(new Node(IDENTIFIER, "a", 0), ForestEngine.value(operands[0]));
+                environment.addVariable(new Node(IDENTIFIER, "b", 0), ForestEngine.value(operands[1]));
+                Diagnostics diagnostics = new Diagnostics();
+                Diagnostics previous = Diagnostics.use(diagnostics);
+                List<Lexeme> values;
+                try {
+                    values = new Evaluator().eval(root, environment);
+                } finally {
+                    Diagnostics.use(previous);
+                }
+                if (diagnostics.hasErrors() || values.size() != OPERATIONS || values.get(0) == null) continue;
+                String name = "variadicOperation " + operator + " " + ForestEngine.value(operands[0]).getType() + "," + ForestEngine.value(operands[1]).getType();
+                benchmark(name, OPERATIONS, () -> new Evaluator().eval(root, environment));
+            }
+        }
+    }
+
+    //one call of a function that returns its argument, against the same loop without the call
+    private static void calls(OutputSink discard) {
+        String loop = "0->i;\nwhile(<(i," + CALLS + ")) {\n    i->r;\n    +(i,1)->i;\n};\n";
+        String call = "func id(x) { return x; };\n0->i;\nwhile(<(i," + CALLS + ")) {\n    id(i)->r;\n    +(i,1)->i;\n};\n";
+        for (Engine engine : Engine.values()) {
+            ForestEngine forest = new ForestEngine(engine);
+            ForestEngine.Program withoutCall = compile(forest, "loop", loop);
+            ForestEngine.Program withCall = compile(forest, "call", call);
+            if (withoutCall == null || withCall == null) continue;
+            Map<String, Object> bindings = new HashMap<String, Object>();
+            benchmark("loop iteration " + engine, CALLS, () -> forest.execute(withoutCall, bindings, discard));
+            benchmark("loop iteration with call " + engine, CALLS, () -> forest.execute(withCall, bindings, discard));
+        }
+    }
+
+    //whole scripts compiled once and run on every engine, and compiled from source every time on the Evaluator
+    private static void scripts(OutputSink discard) {
+        Map<String, Object> bindings = new HashMap<String, Object>();
+        for (int i = 0; i < SCRIPTS.length; i += 2) {
+            String name = SCRIPTS[i];
+            String source = SCRIPTS[i + 1];
+            for (Engine engine : Engine.values()) {
+                ForestEngine forest = new ForestEngine(engine);
+                ForestEngine.Program program = compile(forest, name, source);
+                if (program == null) continue;
+                benchmark("script " + name + " " + engine, 1, () -> forest.execute(program, bindings, discard));
+            }
+            ForestEngine forest = new ForestEngine();
+            benchmark("script " + name + " from source", 1, () -> forest.execute(forest.compile(source), bindings, discard));
+        }
+    }
+
+    //null if source has errors, a program with errors can run forever
+    private static ForestEngine.Program compile(ForestEngine forest, String name, String source) {
+        Diagnostics diagnostics = new Diagnostics();
+        Diagnostics previous = Diagnostics.use(diagnostics);
+        try {
+            ForestEngine.Program program = forest.compile(source);
+            if (!diagnostics.hasErrors()) return program;
+            System.out.println(String.format("%-48s not compiled: %s", "script " + name, diagnostics.getDiagnostics().get(0)));
+            return null;
+        } finally {
+            Diagnostics.use(previous);
+        }
+    }
+
+    //runs operation in batches until an iteration is over, the batch grows during warmup until it takes a millisecond,
+    //so reading the clock costs nothing next to the work, operations is how many operations one run of operation does
+    private static void benchmark(String name, int operations, Operation operation) {
+        if (!selected(name)) return;
+        Diagnostics diagnostics = new Diagnostics();
+        Diagnostics previous = Diagnostics.use(diagnostics);
+        try {
+            long batch = 1;
+            for (int i = 0; i < warmup; i++) {
+                long end = System.nanoTime() + time * 1_000_000;
+                while (true) {
+                    long start = System.nanoTime();
+                    for (long j = 0; j < batch; j++) sink = operation.run();
+                    long now = System.nanoTime();
+                    if (now - start < 1_000_000) batch *= 2;
+                    if (now >= end) break;
+                }
+            }
+            double[] rates = new double[iterations];
+            long runs = 0;
+            long allocated = 0;
+            for (int i = 0; i < iterations; i++) {
+                long startAllocation = Timings.allocated();
+                long start = System.nanoTime();
+                long end = start + time * 1_000_000;
+                long count = 0;
+                long now;
+                do {
+                    for (long j = 0; j < batch; j++) sink = operation.run();
+                    count += batch;
+                    now = System.nanoTime();
+                } while (now < end);
+                long allocation = Timings.allocated();
+                allocated = (allocated < 0 || startAllocation < 0) ? -1 : allocated + allocation - startAllocation;
+                rates[i] = count * operations / ((now - start) / 1e9);
+                runs += count;
+            }
+            report(name, rates, (allocated < 0) ? -1 : (double) allocated / (runs * operations), diagnostics);
+        } catch (Exception e) {
+            System.out.println(String.format("%-48s failed: %s", name, e));
+        } finally {
+            Diagnostics.use(previous);
+        }
+    }
+
+    private static boolean selected(String name) {
+        if (filters.isEmpty()) return true;
+        for (String filter : filters) {
+            if (name.contains(filter)) return true;
+        }
+        return false;
+    }
+
+    private static void report(String name, double[] rates, double bytes, Diagnostics diagnostics) {
+        double mean = 0;
+        for (double rate : rates) mean += rate / rates.length;
+        double variance = 0;
+        for (double rate : rates) variance += (rate - mean) * (rate - mean) / rates.length;
+        String allocated = (bytes < 0) ? "n/a" : String.format("%.1f", bytes);
+        String errors = diagnostics.hasErrors() ? "  errors: " + diagnostics.getDiagnostics().get(0) : "";
+        System.out.println(String.format("%-48s %16.1f ops/s +-%5.1f%% %12s B/op%s", name, mean, 100 * Math.sqrt(variance) / mean, allocated, errors));
+    }
+}
@@ -0,0 +1,22 @@
+package com.propp;
+
+public final class BooleanValue extends Value {
+    private final boolean value;
+
+    public BooleanValue(boolean value, int lineNumber) {
+        super(lineNumber);
+        this.value = value;
+    }
+
+    public TokenType getType() {
+        return TokenType.BOOLEAN;
+    }
+
+    public boolean booleanValue() {
+        return this.value;
+    }
+
+    public String getValueString() {
+        return Boolean.toString(this.value);
+    }
+}
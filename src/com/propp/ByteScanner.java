@@ -0,0 +1,412 @@
+package com.propp;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+
+import static com.propp.TokenType.*;
+
+//scans UTF-8 or US-ASCII source straight from its bytes, producing the same tokens as the Lexer
+//numbers are parsed where they are, keywords are matched on their bytes and identifiers are interned,
+//so the only strings made are one per distinct identifier and one per string literal
+//everything outside string and character literals and comments is ASCII, anything else is reported like the Lexer does
+public class ByteScanner implements TokenSource {
+    private static final double[] POWERS_OF_TEN = {
+            1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10,
+            1e11, 1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+
+    private final ByteBuffer source;
+    private final Charset charset;
+    private final int end;
+    private int currentPosition, startOfCurrentLexeme, lineNumber;
+    private boolean fileEnded;
+    private int value; //the integer, boolean or character of the last token scanned
+    private Object literal; //the float, string or identifier name of the last token scanned, null for other tokens
+    private char danglingSurrogate; //second half of a character a character literal ended in the middle of, 0 if none
+    private String[] identifiers; //open addressing table of the identifiers seen so far
+    private int identifierCount;
+
+    public ByteScanner(byte[] source) {
+        this(ByteBuffer.wrap(source), StandardCharsets.UTF_8);
+    }
+
+    //scans from the buffer's position to its limit, the buffer itself is not moved
+    public ByteScanner(ByteBuffer source, Charset charset) {
+        if (!supports(charset)) throw new IllegalArgumentException("cannot scan " + charset + " as bytes");
+        this.source = source;
+        this.charset = charset;
+        this.end = source.limit();
+        this.currentPosition = source.position();
+        this.startOfCurrentLexeme = this.currentPosition;
+        this.lineNumber = 1;
+        this.fileEnded = false;
+        this.value = 0;
+        this.literal = null;
+        this.danglingSurrogate = 0;
+        this.identifiers = new String[256];
+        this.identifierCount = 0;
+    }
+
+    public static boolean supports(Charset charset) {
+        return charset.equals(StandardCharsets.UTF_8) || charset.equals(StandardCharsets.US_ASCII);
+    }
+
+    @Override
+    public Lexeme next() {
+        TokenType type = nextType();
+        return TokenStream.lexeme(type, this.lineNumber, this.value, this.literal);
+    }
+
+    //the whole source as a packed TokenStream, no Lexeme is made at all
+    public TokenStream scan() {
+        TokenStream tokens = new TokenStream();
+        TokenType type;
+        do {
+            type = nextType();
+            tokens.add(type, this.startOfCurrentLexeme, this.currentPosition - this.startOfCurrentLexeme, this.lineNumber, this.value, this.literal);
+        } while (type != FILE_END);
+        tokens.trim();
+        return tokens;
+    }
+
+    private TokenType nextType() {
+        this.value = 0;
+        this.literal = null;
+        while (!this.fileEnded && (this.currentPosition < this.end || this.danglingSurrogate != 0)) {
+            if (this.danglingSurrogate != 0) {
+                Forest.error(this.lineNumber, "Unexpected character: " + this.danglingSurrogate);
+                this.danglingSurrogate = 0;
+                continue;
+            }
+            this.startOfCurrentLexeme = this.currentPosition;
+            TokenType type = this.scanToken();
+            if (type != null) return type;
+        }
+        this.fileEnded = true;
+        this.startOfCurrentLexeme = this.currentPosition;
+        return FILE_END;
+    }
+
+    //the cases fall through where the Lexer's do
+    private TokenType scanToken() {
+        byte c = this.source.get(this.currentPosition++);
+        switch (c) {
+            //ignore whitespace
+            case ' ':
+            case '\t':
+                return null;
+            case '\n':
+            case '\r':
+                this.lineNumber++;
+                return null;
+            //single character tokens
+            case '(':
+                return O_OPREN;
+            case ')':
+                return C_OPREN;
+            case '{':
+                return O_CURLY;
+            case '}':
+                return C_CURLY;
+            case '[':
+                if (match(']')) return ARRAY_CREATION;
+                return O_SQUARE;
+            case ']':
+                return C_SQUARE;
+            case '_':
+                return UNDERSCORE;
+            case ',':
+                return COMMA;
+            case '$':
+                return DOLLAR_SIGN;
+            case '+':
+                return PLUS;
+            case ';':
+                return SEMICOLON;
+            //one or two character tokens
+            case '-':
+                return match('>') ? ASSIGN : MINUS;
+            case '*':
+                return match('*') ? POWER : TIMES;
+            case '/':
+                if (match('/')) return scanComment();
+                return DIVIDE;
+            case '!':
+                return match('=') ? NOT_EQUAL : NOT;
+            case '>':
+                return match('=') ? GREATER_THAN_OR_EQUAL : GREATER_THAN;
+            case '<':
+                return match('=') ? LESS_THAN_OR_EQUAL : LESS_THAN;
+            //two character tokens
+            case '=':
+                if (match('=')) return EQUALS;
+                return EQUAL;
+            case '|':
+                if (match('|')) return OR;
+                Forest.error(this.lineNumber, "Missing second '|'");
+                return null;
+            case '&':
+                if (match('&')) return AND;
+                Forest.error(this.lineNumber, "Missing second '&'");
+                return null;
+            case '"':
+                return scanString();
+            case '\'':
+                return scanChar();
+            default:
+                if (isDigit(c)) return scanNumber();
+                if (isAlpha(c)) return scanIdentifierOrKeyword();
+                unexpected();
+        }
+        return null;
+    }
+
+    private boolean match(char expected) {
+        if (this.currentPosition >= this.end || this.source.get(this.currentPosition) != expected) return false;
+        this.currentPosition++;
+        return true;
+    }
+
+    private byte peek() {
+        if (this.currentPosition >= this.end) return 0;
+        return this.source.get(this.currentPosition);
+    }
+
+    private static boolean isDigit(byte c) {
+        return c >= '0' && c <= '9';
+    }
+
+    private static boolean isAlpha(byte c) {
+        return (c >= 'a' && c <= 'z') ||
+                (c >= 'A' && c <= 'Z');
+    }
+
+    private static boolean isAlphaNumeric(byte c) {
+        return isAlpha(c) || isDigit(c);
+    }
+
+    private TokenType value(TokenType type, int value) {
+        this.value = value;
+        return type;
+    }
+
+    private TokenType literal(TokenType type, Object literal) {
+        this.literal = literal;
+        return type;
+    }
+
+    private TokenType scanNumber() {
+        long mantissa = this.source.get(this.startOfCurrentLexeme) - '0';
+        int digits = 1;
+        while (isDigit(peek())) {
+            mantissa = mantissa * 10 + (this.source.get(this.currentPosition++) - '0');
+            digits++;
+        }
+        if (peek() != '.') {
+            //more digits than an int always has are parsed from text, so they fail like they did in the Lexer
+            if (digits > 9) return value(INTEGER, Integer.parseInt(text()));
+            return value(INTEGER, (int) mantissa);
+        }
+        //ensure there is digit following the decimal point
+        if (this.currentPosition + 1 >= this.end || !isDigit(this.source.get(this.currentPosition + 1))) {
+            Forest.error(this.lineNumber, "Malformed real number (ends in decimal point).");
+        }
+        this.currentPosition++;
+        int fractionDigits = 0;
+        while (isDigit(peek())) {
+            mantissa = mantissa * 10 + (this.source.get(this.currentPosition++) - '0');
+            fractionDigits++;
+        }
+        //up to 15 digits the mantissa and the power of ten are exact doubles, so one division rounds correctly
+        if (digits + fractionDigits <= 15) return literal(FLOAT, mantissa / POWERS_OF_TEN[fractionDigits]);
+        return literal(FLOAT, Double.parseDouble(text()));
+    }
+
+    private TokenType scanString() {
+        boolean ascii = true;
+        while (this.currentPosition < this.end) {
+            byte c = this.source.get(this.currentPosition++);
+            if (c == '"') {
+                int length = this.currentPosition - this.startOfCurrentLexeme;
+                byte[] bytes = new byte[length];
+                this.source.get(this.startOfCurrentLexeme, bytes);
+                String text = new String(bytes, ascii ? StandardCharsets.ISO_8859_1 : this.charset);
+                return literal(STRING, text);
+            }
+            if (c == '\n' || c == '\r') this.lineNumber++;
+            if (c < 0) ascii = false;
+        }
+        Forest.error(this.lineNumber, "No closing \"");
+        return null;
+    }
+
+    //a character that needs two chars in UTF-16 is read like the Lexer reads it, as its first half followed by its second
+    private TokenType scanChar() {
+        int codePoint = codePointAt(this.currentPosition);
+        if (codePoint < 0) {
+            Forest.error(this.lineNumber, "Missing closing '");
+            return value(CHARACTER, '\0');
+        }
+        int width = width(this.currentPosition);
+        char character;
+        char following;
+        if (Character.isSupplementaryCodePoint(codePoint)) {
+            character = Character.highSurrogate(codePoint);
+            following = Character.lowSurrogate(codePoint);
+        } else {
+            character = (char) codePoint;
+            int next = codePointAt(this.currentPosition + width);
+            following = (next < 0) ? '\0' : Character.toChars(next)[0];
+        }
+        if (following != '\'') Forest.error(this.lineNumber, "Missing closing '");
+        skipCharacter();
+        if (!Character.isSupplementaryCodePoint(codePoint)) {
+            //the Lexer stops after the first half of a following character that needs two
+            int next = codePointAt(this.currentPosition);
+            if (Character.isSupplementaryCodePoint(next)) this.danglingSurrogate = Character.lowSurrogate(next);
+            skipCharacter();
+        }
+        return value(CHARACTER, character);
+    }
+
+    private TokenType scanComment() {
+        while (this.currentPosition < this.end) {
+            byte c = this.source.get(this.currentPosition);
+            if (c == '\r' || c == '\n') break;
+            this.currentPosition++;
+        }
+        return null;
+    }
+
+    private TokenType scanIdentifierOrKeyword() {
+        int hash = this.source.get(this.startOfCurrentLexeme);
+        while (isAlphaNumeric(peek())) hash = 31 * hash + this.source.get(this.currentPosition++);
+        TokenType type = keyword();
+        if (type == BOOLEAN) return value(BOOLEAN, (this.currentPosition - this.startOfCurrentLexeme == 4) ? 1 : 0);
+        if (type == IDENTIFIER) return literal(IDENTIFIER, intern(hash));
+        return type;
+    }
+
+    //the keyword the current lexeme spells, IDENTIFIER if it is none
+    private TokenType keyword() {
+        int start = this.startOfCurrentLexeme;
+        switch (this.currentPosition - start) {
+            case 2:
+                return is(start, "if") ? IF : IDENTIFIER;
+            case 4:
+                switch (this.source.get(start)) {
+                    case 'f':
+                        return is(start, "func") ? FUNCTION_DECL : IDENTIFIER;
+                    case 'e':
+                        if (is(start, "elif")) return ELIF;
+                        return is(start, "else") ? ELSE : IDENTIFIER;
+                    case 't':
+                        return is(start, "true") ? BOOLEAN : IDENTIFIER;
+                    default:
+                        return IDENTIFIER;
+                }
+            case 5:
+                if (is(start, "while")) return WHILE;
+                return is(start, "false") ? BOOLEAN : IDENTIFIER;
+            case 6:
+                return is(start, "return") ? RETURN : IDENTIFIER;
+            default:
+                return IDENTIFIER;
+        }
+    }
+
+    private boolean is(int start, String word) {
+        for (int i = 0; i < word.length(); i++) {
+            if (this.source.get(start + i) != word.charAt(i)) return false;
+        }
+        return true;
+    }
+
+    //identifiers are ASCII, so the hash of their bytes is the hash of their String and equal names share one String
+    private String intern(int hash) {
+        int length = this.currentPosition - this.startOfCurrentLexeme;
+        int mask = this.identifiers.length - 1;
+        int index = hash & mask;
+        for (String name = this.identifiers[index]; name != null; name = this.identifiers[index]) {
+            if (name.hashCode() == hash && name.length() == length && is(this.startOfCurrentLexeme, name)) return name;
+            index = (index + 1) & mask;
+        }
+        String name = text();
+        this.identifiers[index] = name;
+        if (++this.identifierCount * 2 > this.identifiers.length) growIdentifiers();
+        return name;
+    }
+
+    private void growIdentifiers() {
+        String[] old = this.identifiers;
+        this.identifiers = new String[old.length * 2];
+        int mask = this.identifiers.length - 1;
+        for (String name : old) {
+            if (name == null) continue;
+            int index = name.hashCode() & mask;
+            while (this.identifiers[index] != null) index = (index + 1) & mask;
+            this.identifiers[index] = name;
+        }
+    }
+
+    //the current lexeme as a String, only for identifiers and numbers that are parsed from text
+    private String text() {
+        byte[] bytes = new byte[this.currentPosition - this.startOfCurrentLexeme];
+        this.source.get(this.startOfCurrentLexeme, bytes);
+        return new String(bytes, StandardCharsets.ISO_8859_1);
+    }
+
+    //reports a character that starts no token once for each UTF-16 char of it, like the Lexer does
+    private void unexpected() {
+        this.currentPosition = this.startOfCurrentLexeme;
+        int codePoint = codePointAt(this.currentPosition);
+        skipCharacter();
+        for (char c : Character.toChars(codePoint)) Forest.error(this.lineNumber, "Unexpected character: " + c);
+    }
+
+    private void skipCharacter() {
+        if (this.currentPosition >= this.end) return;
+        byte c = this.source.get(this.currentPosition);
+        if (c == '\n' || c == '\r') this.lineNumber++;
+        this.currentPosition += width(this.currentPosition);
+    }
+
+    //how many bytes the character at position takes, a malformed sequence is one character made of the bytes
+    //that could still have started a valid one, which is how the charset decoders read it
+    private int width(int position) {
+        int length = sequenceLength(this.source.get(position) & 0xff);
+        if (length == 1) return 1;
+        int lead = this.source.get(position) & 0xff;
+        int low = (lead == 0xe0) ? 0xa0 : (lead == 0xf0) ? 0x90 : 0x80;
+        int high = (lead == 0xf4) ? 0x8f : 0xbf;
+        int width = 1;
+        while (width < length && position + width < this.end) {
+            int b = this.source.get(position + width) & 0xff;
+            if (b < low || b > high) break;
+            low = 0x80;
+            high = 0xbf;
+            width++;
+        }
+        return width;
+    }
+
+    //how many bytes a sequence starting with lead takes, 1 for ASCII, for bytes that start none and for all of US-ASCII
+    private int sequenceLength(int lead) {
+        if (this.charset != StandardCharsets.UTF_8 || lead < 0xc2 || lead > 0xf4) return 1;
+        return (lead < 0xe0) ? 2 : (lead < 0xf0) ? 3 : 4;
+    }
+
+    //the code point at position, -1 at the end and U+FFFD for malformed bytes, which is what US-ASCII decodes them to
+    private int codePointAt(int position) {
+        if (position >= this.end) return -1;
+        int lead = this.source.get(position) & 0xff;
+        if (lead < 0x80) return lead;
+        int width = width(position);
+        if (width == 1 || width != sequenceLength(lead)) return 0xfffd;
+        int codePoint = lead & (0xff >> (width + 1));
+        for (int i = 1; i < width; i++) codePoint = (codePoint << 6) | (this.source.get(position + i) & 0x3f);
+        //an encoded surrogate is read whole and replaced
+        return (codePoint >= Character.MIN_SURROGATE && codePoint <= Character.MAX_SURROGATE) ? 0xfffd : codePoint;
+    }
+}
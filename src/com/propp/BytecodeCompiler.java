@@ -0,0 +1,671 @@
+package com.propp;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+
+import static com.propp.ClassFileWriter.*;
+import static com.propp.Expressions.*;
+import static com.propp.TokenType.*;
+
+//translates a resolved program into a JVM class defined at runtime as a hidden class so HotSpot can JIT it
+//every function declaration becomes a static method, control flow becomes jumps, operations on values that can only
+//be typed at runtime call BytecodeRuntime which has the same semantics as the Evaluator
+//programs with shapes the compiler does not handle (a return outside of a function) are not compiled, compile returns
+//null and the caller falls back to the Evaluator
+public class BytecodeCompiler {
+    private static final boolean debug = false;
+
+    private static final String CLASS = "com/propp/ForestProgram";
+    private static final String LEXEME = "com/propp/Lexeme";
+    private static final String ENVIRONMENT = "com/propp/Environment";
+    private static final String RUNTIME = "com/propp/BytecodeRuntime";
+    private static final String EXPRESSIONS = "com/propp/Expressions";
+    private static final String CALL_SITE = "com/propp/BytecodeRuntime$CallSite";
+    private static final String LIST = "java/util/List";
+    private static final String ARRAY_LIST = "java/util/ArrayList";
+    private static final String L_LEXEME = "L" + LEXEME + ";";
+    private static final String L_ENVIRONMENT = "L" + ENVIRONMENT + ";";
+    private static final String L_LIST = "L" + LIST + ";";
+    private static final String L_ARRAY_LIST = "L" + ARRAY_LIST + ";";
+    private static final String L_CHAIN = "Lcom/propp/OperatorChain;";
+    private static final String FUNCTION = "(" + L_ENVIRONMENT + ")" + L_LIST;
+
+    //constants of the class being initialized, read by its static initializer
+    private static final ThreadLocal<Object[]> pendingConstants = new ThreadLocal<Object[]>();
+
+    public interface CompiledProgram {
+        List<Lexeme> run(Environment environment);
+    }
+
+    //finds the method of a function body for calls that are not linked directly
+    static final class Linkage {
+        private final IdentityHashMap<Lexeme, Integer> indices;
+
+        private Linkage(IdentityHashMap<Lexeme, Integer> indices) {
+            this.indices = indices;
+        }
+
+        int indexOf(Lexeme body) {
+            Integer index = this.indices.get(body);
+            return (index == null) ? -1 : index;
+        }
+    }
+
+    private final ClassFileWriter writer;
+    private final List<Object> constants;
+    private final IdentityHashMap<Object, Integer> constantIndices;
+    private final List<Lexeme> functions; //function bodies, the body at index i is compiled to method f<i>
+    private final IdentityHashMap<Lexeme, Integer> functionIndices;
+    private final HashMap<String, Lexeme> uniqueFunctions; //names declared by exactly one function declaration
+
+    public BytecodeCompiler() {
+        this.writer = new ClassFileWriter();
+        this.constants = new ArrayList<Object>();
+        this.constantIndices = new IdentityHashMap<Object, Integer>();
+        this.functions = new ArrayList<Lexeme>();
+        this.functionIndices = new IdentityHashMap<Lexeme, Integer>();
+        this.uniqueFunctions = new HashMap<String, Lexeme>();
+    }
+
+    static Object[] pendingConstants() {
+        return pendingConstants.get();
+    }
+
+    public CompiledProgram compile(Lexeme program) {
+        byte[] bytes;
+        try {
+            bytes = generate(program);
+        } catch (IllegalStateException e) {
+            if (debug) System.out.println("not compiled: " + e.getMessage());
+            return null;
+        }
+        try {
+            pendingConstants.set(this.constants.toArray());
+            MethodHandles.Lookup lookup = MethodHandles.lookup().defineHiddenClass(bytes, true);
+            return (CompiledProgram) lookup.findConstructor(lookup.lookupClass(), MethodType.methodType(void.class)).invoke();
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new IllegalStateException(e);
+        } finally {
+            pendingConstants.remove();
+        }
+    }
+
+    private byte[] generate(Lexeme program) {
+        HashMap<String, Integer> declarations = new HashMap<String, Integer>();
+        for (Lexeme node = program; node != null; node = node.getRight()) findFunctions(node.getLeft(), declarations, false);
+        if (debug) System.out.println("compiling " + this.functions.size() + " functions");
+        this.constants.add(new Linkage(this.functionIndices));
+
+        this.writer.addField(ACC_PRIVATE | ACC_STATIC | ACC_FINAL, "K", "[Ljava/lang/Object;");
+        generateStaticInitializer();
+        generateConstructor();
+
+        Code run = new Code(2);
+        int output = run.newLocal();
+        newList(run, output);
+        for (Lexeme node = program; node != null; node = node.getRight()) {
+            if (node.getLeft() != null) statement(run, node.getLeft(), 1, output);
+        }
+        run.varInsn(ALOAD, output);
+        run.terminate(ARETURN);
+        this.writer.addMethod(ACC_PUBLIC, "run", FUNCTION, run);
+
+        for (int i = 0; i < this.functions.size(); i++) {
+            Code function = new Code(1);
+            block(function, this.functions.get(i), 0);
+            if (function.reachable()) {
+                function.insn(ACONST_NULL, 1);
+                function.terminate(ARETURN);
+            }
+            this.writer.addMethod(ACC_STATIC, "f" + i, FUNCTION, function);
+        }
+        generateDispatch();
+        return this.writer.toByteArray(ACC_PUBLIC | ACC_FINAL | ACC_SUPER, CLASS, "java/lang/Object",
+                new String[]{"com/propp/BytecodeCompiler$CompiledProgram"});
+    }
+
+    //gives every function declaration its method, also rejects returns outside of functions
+    private void findFunctions(Lexeme statement, HashMap<String, Integer> declarations, boolean inFunction) {
+        if (statement == null) return;
+        switch (statement.getType()) {
+            case RETURN:
+                if (!inFunction) throw new IllegalStateException("return statement outside of a function");
+                break;
+            case FUNCTION_DECL:
+                Lexeme body = statement.getRight();
+                this.functionIndices.put(body, this.functions.size());
+                this.functions.add(body);
+                String name = statement.getLeft().stringValue();
+                declarations.put(name, declarations.getOrDefault(name, 0) + 1);
+                if (declarations.get(name) == 1) this.uniqueFunctions.put(name, body);
+                else this.uniqueFunctions.remove(name);
+                findFunctionsInBlock(body, declarations, true);
+                break;
+            case WHILE:
+                findFunctionsInBlock(statement.getRight(), declarations, inFunction);
+                break;
+            case IF:
+                for (Lexeme node = statement; node != null; node = node.getRight().getRight()) {
+                    if (node.getType() == ELSE) {
+                        findFunctionsInBlock(node.getLeft(), declarations, inFunction);
+                        break;
+                    }
+                    findFunctionsInBlock(node.getRight().getLeft(), declarations, inFunction);
+                }
+                break;
+            default:
+                break;
+        }
+    }
+
+    private void findFunctionsInBlock(Lexeme statementList, HashMap<String, Integer> declarations, boolean inFunction) {
+        for (Lexeme node = statementList; node != null && node.getLeft() != null; node = node.getRight()) {
+            findFunctions(node.getLeft(), declarations, inFunction);
+        }
+    }
+
+    private void generateStaticInitializer() {
+        Code code = new Code(0);
+        code.poolInsn(INVOKESTATIC, this.writer.methodRef("com/propp/BytecodeCompiler", "pendingConstants", "()[Ljava/lang/Object;"), 1);
+        code.poolInsn(PUTSTATIC, this.writer.fieldRef(CLASS, "K", "[Ljava/lang/Object;"), -1);
+        code.terminate(RETURN_VOID);
+        this.writer.addMethod(ACC_STATIC, "<clinit>", "()V", code);
+    }
+
+    private void generateConstructor() {
+        Code code = new Code(1);
+        code.varInsn(ALOAD, 0);
+        code.poolInsn(INVOKESPECIAL, this.writer.methodRef("java/lang/Object", "<init>", "()V"), -1);
+        code.terminate(RETURN_VOID);
+        this.writer.addMethod(ACC_PUBLIC, "<init>", "()V", code);
+    }
+
+    //call(index, environment) runs function body f<index>, used when the body is only known at runtime
+    private void generateDispatch() {
+        Code code = new Code(2);
+        if (!this.functions.isEmpty()) {
+            Label fallback = code.newLabel();
+            Label[] cases = new Label[this.functions.size()];
+            for (int i = 0; i < cases.length; i++) cases[i] = code.newLabel();
+            code.varInsn(ILOAD, 0);
+            code.tableSwitch(fallback, cases);
+            for (int i = 0; i < cases.length; i++) {
+                code.mark(cases[i]);
+                code.varInsn(ALOAD, 1);
+                code.poolInsn(INVOKESTATIC, this.writer.methodRef(CLASS, "f" + i, FUNCTION), 0);
+                code.terminate(ARETURN);
+            }
+            code.mark(fallback);
+        }
+        code.insn(ACONST_NULL, 1);
+        code.terminate(ARETURN);
+        this.writer.addMethod(ACC_STATIC, "call", "(I" + L_ENVIRONMENT + ")" + L_LIST, code);
+    }
+
+    // statements
+
+    private void block(Code code, Lexeme statementList, int environment) {
+        for (Lexeme node = statementList; node != null && node.getLeft() != null; node = node.getRight()) {
+            if (!code.reachable()) return; //statements after a return are never run
+            statement(code, node.getLeft(), environment, -1);
+        }
+    }
+
+    //output is the local holding the list of top level values, -1 inside blocks
+    private void statement(Code code, Lexeme tree, int environment, int output) {
+        int mark = code.localMark();
+        switch (tree.getType()) {
+            case FUNCTION_DECL:
+                if (output >= 0) code.varInsn(ALOAD, output);
+                code.varInsn(ALOAD, environment);
+                constant(code, tree.getLeft(), L_LEXEME);
+                constant(code, tree.getRight(), L_LEXEME);
+                code.pushInt(this.writer, tree.getLineNumber());
+                invokeRuntime(code, "declare", "(" + L_ENVIRONMENT + L_LEXEME + L_LEXEME + "I)" + L_LIST, -3);
+                if (output >= 0) invokeRuntime(code, "addAll", "(" + L_ARRAY_LIST + L_LIST + ")V", -2);
+                else code.insn(POP, -1);
+                break;
+            case ASSIGN:
+                assign(code, tree, environment);
+                break;
+            case WHILE:
+                loop(code, tree, environment);
+                break;
+            case IF:
+                conditional(code, tree, environment);
+                break;
+            case RETURN:
+                int values = code.newLocal();
+                newList(code, values);
+                for (Lexeme node = tree.getLeft(); node != null; node = node.getRight()) {
+                    if (node.getLeft() != null) collect(code, node.getLeft(), environment, values);
+                }
+                code.varInsn(ALOAD, values);
+                code.terminate(ARETURN);
+                break;
+            case EXPRESSION_LIST:
+                for (Lexeme node = tree; node != null; node = node.getRight()) {
+                    if (node.getLeft() == null) continue;
+                    if (output >= 0) collect(code, node.getLeft(), environment, output);
+                    else discard(code, node.getLeft(), environment);
+                }
+                break;
+            default:
+                throw new IllegalStateException("unsupported Token " + tree.getType());
+        }
+        code.freeLocals(mark);
+    }
+
+    private void assign(Code code, Lexeme tree, int environment) {
+        List<Lexeme> targets = new ArrayList<Lexeme>();
+        for (Lexeme node = tree.getLeft(); node != null; node = node.getRight()) {
+            if (node.getLeft() != null) targets.add(node.getLeft());
+        }
+        List<Lexeme> expressions = new ArrayList<Lexeme>();
+        for (Lexeme node = tree.getRight(); node != null; node = node.getRight()) {
+            if (node.getLeft() != null) expressions.add(node.getLeft());
+        }
+        Label end = code.newLabel();
+        if (targets.size() == 1 && expressions.size() == 1 && isSingle(expressions.get(0))) {
+            int value = code.newLocal();
+            single(code, expressions.get(0), environment);
+            code.varInsn(ASTORE, value);
+            if (!keepsNull(expressions.get(0))) {
+                Label present = code.newLabel();
+                code.varInsn(ALOAD, value);
+                code.jump(IFNONNULL, present);
+                code.pushInt(this.writer, 0);
+                code.pushInt(this.writer, 1);
+                code.pushInt(this.writer, tree.getLineNumber());
+                invokeRuntime(code, "mismatch", "(III)V", -3);
+                code.jump(GOTO, end);
+                code.mark(present);
+            }
+            store(code, targets.get(0), value, environment, end);
+        } else {
+            int values = code.newLocal();
+            newList(code, values);
+            for (Lexeme expression : expressions) collect(code, expression, environment, values);
+            code.varInsn(ALOAD, values);
+            code.pushInt(this.writer, targets.size());
+            code.pushInt(this.writer, tree.getLineNumber());
+            invokeRuntime(code, "checkCount", "(" + L_ARRAY_LIST + "II)Z", -2);
+            code.jump(IFEQ, end);
+            int value = code.newLocal();
+            for (int i = 0; i < targets.size(); i++) {
+                code.varInsn(ALOAD, values);
+                code.pushInt(this.writer, i);
+                code.poolInsn(INVOKEVIRTUAL, this.writer.methodRef(ARRAY_LIST, "get", "(I)Ljava/lang/Object;"), -1);
+                code.poolInsn(CHECKCAST, this.writer.classRef(LEXEME), 0);
+                code.varInsn(ASTORE, value);
+                store(code, targets.get(i), value, environment, end);
+            }
+        }
+        code.mark(end);
+    }
+
+    //assigns the value in local value to target, jumps to failed if an array element could not be set
+    private void store(Code code, Lexeme target, int value, int environment, Label failed) {
+        code.varInsn(ALOAD, environment);
+        constant(code, target, L_LEXEME);
+        if (target.getLeft() == null) {
+            code.varInsn(ALOAD, value);
+            code.poolInsn(INVOKEVIRTUAL, this.writer.methodRef(ENVIRONMENT, "addVariable", "(" + L_LEXEME + L_LEXEME + ")V"), -3);
+            return;
+        }
+        List<Lexeme> indices = new ArrayList<Lexeme>();
+        for (Lexeme index = target.getLeft(); index != null; index = index.getLeft()) indices.add(index.getRight());
+        constant(code, indices.toArray(new Lexeme[0]), "[" + L_LEXEME);
+        code.varInsn(ALOAD, value);
+        code.poolInsn(INVOKESTATIC, this.writer.methodRef(EXPRESSIONS, "assignElement",
+                "(" + L_ENVIRONMENT + L_LEXEME + "[" + L_LEXEME + L_LEXEME + ")Z"), -3);
+        code.jump(IFEQ, failed);
+    }
+
+    //the condition is evaluated in the outer Environment, the body runs in one Environment for the whole loop
+    private void loop(Code code, Lexeme tree, int environment) {
+        int loopEnvir = code.newLocal();
+        newEnvironment(code, environment, tree.getRight().getScope(), loopEnvir);
+        Label top = code.newLabel();
+        Label end = code.newLabel();
+        code.mark(top);
+        condition(code, tree.getLeft(), environment);
+        code.jump(IFEQ, end);
+        block(code, tree.getRight(), loopEnvir);
+        if (code.reachable()) code.jump(GOTO, top);
+        code.mark(end);
+    }
+
+    private void conditional(Code code, Lexeme tree, int environment) {
+        Label end = code.newLabel();
+        for (Lexeme node = tree; node != null; node = node.getRight().getRight()) {
+            int mark = code.localMark();
+            int blockEnvir = code.newLocal();
+            if (node.getType() == ELSE) {
+                newEnvironment(code, environment, node.getLeft().getScope(), blockEnvir);
+                block(code, node.getLeft(), blockEnvir);
+                code.freeLocals(mark);
+                break;
+            }
+            Label next = code.newLabel();
+            condition(code, node.getLeft(), environment);
+            code.jump(IFEQ, next);
+            newEnvironment(code, environment, node.getRight().getLeft().getScope(), blockEnvir);
+            block(code, node.getRight().getLeft(), blockEnvir);
+            if (code.reachable()) code.jump(GOTO, end);
+            code.mark(next);
+            code.freeLocals(mark);
+        }
+        code.mark(end);
+    }
+
+    //pushes whether the expression compares equal to true
+    private void condition(Code code, Lexeme expression, int environment) {
+        if (isSingle(expression)) {
+            single(code, expression, environment);
+            code.pushInt(this.writer, keepsNull(expression) ? 1 : 0);
+            code.pushInt(this.writer, lineNumber(expression));
+            invokeRuntime(code, "isTrue", "(" + L_LEXEME + "ZI)Z", -2);
+            return;
+        }
+        int values = code.newLocal();
+        newList(code, values);
+        collect(code, expression, environment, values);
+        code.varInsn(ALOAD, values);
+        code.pushInt(this.writer, lineNumber(expression));
+        invokeRuntime(code, "isTrue", "(" + L_ARRAY_LIST + "I)Z", -1);
+    }
+
+    // expressions
+
+    //appends the values of the expression to the ArrayList in local list
+    private void collect(Code code, Lexeme expression, int environment, int list) {
+        if (isSingle(expression)) {
+            code.varInsn(ALOAD, list);
+            single(code, expression, environment);
+            if (keepsNull(expression)) {
+                code.poolInsn(INVOKEVIRTUAL, this.writer.methodRef(ARRAY_LIST, "add", "(Ljava/lang/Object;)Z"), -1);
+                code.insn(POP, -1);
+            } else {
+                invokeRuntime(code, "add", "(" + L_ARRAY_LIST + L_LEXEME + ")V", -2);
+            }
+        } else if (isPrint(expression)) {
+            print(code, expression, environment);
+        } else {
+            code.varInsn(ALOAD, list);
+            call(code, expression, environment);
+            invokeRuntime(code, "addAll", "(" + L_ARRAY_LIST + L_LIST + ")V", -2);
+        }
+    }
+
+    //runs the expression for its side effects only
+    private void discard(Code code, Lexeme expression, int environment) {
+        if (isSingle(expression)) {
+            if (isLiteral(expression)) return;
+            single(code, expression, environment);
+            code.insn(POP, -1);
+        } else if (isPrint(expression)) {
+            print(code, expression, environment);
+        } else {
+            call(code, expression, environment);
+            code.insn(POP, -1);
+        }
+    }
+
+    //pushes the single value of the expression, null if it produced none
+    private void single(Code code, Lexeme expression, int environment) {
+        int mark = code.localMark();
+        switch (expression.getType()) {
+            case INTEGER:
+            case FLOAT:
+            case STRING:
+            case BOOLEAN:
+            case CHARACTER:
+                constant(code, expression, L_LEXEME);
+                break;
+            case VARIABLE:
+                code.varInsn(ALOAD, environment);
+                constant(code, expression.getLeft(), L_LEXEME);
+                code.poolInsn(INVOKEVIRTUAL, this.writer.methodRef(ENVIRONMENT, "getVariableValue", "(" + L_LEXEME + ")" + L_LEXEME), -1);
+                break;
+            case VARIADIC_OPERATION:
+                variadicOperation(code, expression, environment);
+                break;
+            case UNARY_OPERATION:
+                constant(code, expression, L_LEXEME);
+                Lexeme operand = expression.getRight();
+                if (isSingle(operand)) {
+                    single(code, operand, environment);
+                    code.pushInt(this.writer, keepsNull(operand) ? 1 : 0);
+                    invokeRuntime(code, "unary", "(" + L_LEXEME + L_LEXEME + "Z)" + L_LEXEME, -2);
+                } else {
+                    code.varInsn(ALOAD, listOf(code, operand, environment));
+                    invokeRuntime(code, "unary", "(" + L_LEXEME + L_ARRAY_LIST + ")" + L_LEXEME, -1);
+                }
+                break;
+            case ARRAY_ACCESS:
+                arrayAccess(code, expression, environment);
+                break;
+            default:
+                throw new IllegalStateException("unsupported Token " + expression.getType());
+        }
+        code.freeLocals(mark);
+    }
+
+    private void variadicOperation(Code code, Lexeme expression, int environment) {
+        OperatorChain chain = OperatorChain.of(expression);
+        List<Lexeme> operands = new ArrayList<Lexeme>();
+        boolean allSingle = true;
+        for (Lexeme node = expression.getRight(); node != null; node = node.getRight()) {
+            if (node.getLeft() == null) continue;
+            operands.add(node.getLeft());
+            allSingle &= isSingle(node.getLeft());
+        }
+        constant(code, chain, L_CHAIN);
+        if (allSingle && operands.size() == 2 && chain.length() == 1 && chain.getCount(0) < 0 && chain.getOperator(0) != ARRAY_CREATION) {
+            single(code, operands.get(0), environment);
+            single(code, operands.get(1), environment);
+            code.pushInt(this.writer, keepsNull(operands.get(0)) ? 1 : 0);
+            code.pushInt(this.writer, keepsNull(operands.get(1)) ? 1 : 0);
+            invokeRuntime(code, "binary", "(" + L_CHAIN + L_LEXEME + L_LEXEME + "ZZ)" + L_LEXEME, -4);
+        } else if (allSingle) {
+            boolean[] keepsNull = new boolean[operands.size()];
+            code.pushInt(this.writer, operands.size());
+            code.poolInsn(ANEWARRAY, this.writer.classRef(LEXEME), 0);
+            for (int i = 0; i < operands.size(); i++) {
+                keepsNull[i] = keepsNull(operands.get(i));
+                code.insn(DUP, 1);
+                code.pushInt(this.writer, i);
+                single(code, operands.get(i), environment);
+                code.insn(AASTORE, -3);
+            }
+            constant(code, keepsNull, "[Z");
+            invokeRuntime(code, "apply", "(" + L_CHAIN + "[" + L_LEXEME + "[Z)" + L_LEXEME, -2);
+        } else {
+            int values = code.newLocal();
+            newList(code, values);
+            for (Lexeme operand : operands) collect(code, operand, environment, values);
+            code.varInsn(ALOAD, values);
+            invokeRuntime(code, "apply", "(" + L_CHAIN + L_ARRAY_LIST + ")" + L_LEXEME, -1);
+        }
+    }
+
+    private void arrayAccess(Code code, Lexeme expression, int environment) {
+        List<Lexeme> indices = new ArrayList<Lexeme>();
+        for (Lexeme node = expression.getRight(); node != null; node = node.getRight()) {
+            indices.add((node.getLeft() == null || node.getLeft().getType() != INTEGER) ? null : node.getLeft());
+        }
+        Lexeme array = expression.getLeft();
+        if (isSingle(array)) {
+            single(code, array, environment);
+            constant(code, indices.toArray(new Lexeme[0]), "[" + L_LEXEME);
+            code.pushInt(this.writer, expression.getLineNumber());
+            code.poolInsn(INVOKESTATIC, this.writer.methodRef(EXPRESSIONS, "arrayElement",
+                    "(" + L_LEXEME + "[" + L_LEXEME + "I)" + L_LEXEME), -2);
+        } else {
+            code.varInsn(ALOAD, listOf(code, array, environment));
+            constant(code, indices.toArray(new Lexeme[0]), "[" + L_LEXEME);
+            code.pushInt(this.writer, expression.getLineNumber());
+            invokeRuntime(code, "arrayElement", "(" + L_ARRAY_LIST + "[" + L_LEXEME + "I)" + L_LEXEME, -2);
+        }
+    }
+
+    //collects the values of the expression into a new ArrayList and returns its local
+    private int listOf(Code code, Lexeme expression, int environment) {
+        int values = code.newLocal();
+        newList(code, values);
+        collect(code, expression, environment, values);
+        return values;
+    }
+
+    private void print(Code code, Lexeme expression, int environment) {
+        int mark = code.localMark();
+        int values = code.newLocal();
+        newList(code, values);
+        for (Lexeme node = expression.getLeft().getLeft(); node != null; node = node.getRight()) {
+            if (node.getLeft() != null) collect(code, node.getLeft(), environment, values);
+        }
+        code.varInsn(ALOAD, values);
+        code.pushInt(this.writer, lineNumber(expression));
+        invokeRuntime(code, "print", "(" + L_ARRAY_LIST + "I)V", -2);
+        code.freeLocals(mark);
+    }
+
+    //pushes the List returned by the function, null if there was none or an error was reported
+    private void call(Code code, Lexeme expression, int environment) {
+        int mark = code.localMark();
+        Lexeme identifier = expression.getLeft();
+        BytecodeRuntime.CallSite site = new BytecodeRuntime.CallSite(identifier);
+        String lCallSite = "L" + CALL_SITE + ";";
+        Label end = code.newLabel();
+        Label found = code.newLabel();
+        Label entered = code.newLabel();
+        int body = code.newLocal();
+        int callEnvir = code.newLocal();
+
+        constant(code, site, lCallSite);
+        code.varInsn(ALOAD, environment);
+        code.poolInsn(INVOKEVIRTUAL, this.writer.methodRef(CALL_SITE, "lookup", "(" + L_ENVIRONMENT + ")" + L_LEXEME), -1);
+        code.varInsn(ASTORE, body);
+        code.varInsn(ALOAD, body);
+        code.jump(IFNONNULL, found);
+        code.insn(ACONST_NULL, 1);
+        code.jump(GOTO, end);
+        code.mark(found);
+
+        //arguments are evaluated in the calling Environment once the function is known to exist
+        List<Lexeme> arguments = new ArrayList<Lexeme>();
+        boolean allSingle = true;
+        for (Lexeme node = identifier.getLeft(); node != null; node = node.getRight()) {
+            if (node.getLeft() == null) continue;
+            arguments.add(node.getLeft());
+            allSingle &= isSingle(node.getLeft());
+        }
+        constant(code, site, lCallSite);
+        code.varInsn(ALOAD, environment);
+        code.varInsn(ALOAD, body);
+        if (allSingle) {
+            boolean[] keepsNull = new boolean[arguments.size()];
+            code.pushInt(this.writer, arguments.size());
+            code.poolInsn(ANEWARRAY, this.writer.classRef(LEXEME), 0);
+            for (int i = 0; i < arguments.size(); i++) {
+                keepsNull[i] = keepsNull(arguments.get(i));
+                code.insn(DUP, 1);
+                code.pushInt(this.writer, i);
+                single(code, arguments.get(i), environment);
+                code.insn(AASTORE, -3);
+            }
+            constant(code, keepsNull, "[Z");
+            code.poolInsn(INVOKEVIRTUAL, this.writer.methodRef(CALL_SITE, "enter",
+                    "(" + L_ENVIRONMENT + L_LEXEME + "[" + L_LEXEME + "[Z)" + L_ENVIRONMENT), -4);
+        } else {
+            int values = code.newLocal();
+            newList(code, values);
+            for (Lexeme argument : arguments) collect(code, argument, environment, values);
+            code.varInsn(ALOAD, values);
+            code.poolInsn(INVOKEVIRTUAL, this.writer.methodRef(CALL_SITE, "enter",
+                    "(" + L_ENVIRONMENT + L_LEXEME + L_ARRAY_LIST + ")" + L_ENVIRONMENT), -3);
+        }
+        code.varInsn(ASTORE, callEnvir);
+        code.varInsn(ALOAD, callEnvir);
+        code.jump(IFNONNULL, entered);
+        code.insn(ACONST_NULL, 1);
+        code.jump(GOTO, end);
+        code.mark(entered);
+
+        //the site and the FunctionCall event stay on the stack under the call and end the event once it returns
+        Label called = code.newLabel();
+        constant(code, site, lCallSite);
+        constant(code, site, lCallSite);
+        code.poolInsn(INVOKEVIRTUAL, this.writer.methodRef(CALL_SITE, "begin", "()Ljava/lang/Object;"), 0);
+
+        //a name with a single declaration is called directly when the Environment still holds that function
+        Lexeme unique = this.uniqueFunctions.get(identifier.stringValue());
+        if (unique != null) {
+            Label indirect = code.newLabel();
+            code.varInsn(ALOAD, body);
+            constant(code, unique, L_LEXEME);
+            code.jump(IF_ACMPNE, indirect);
+            code.varInsn(ALOAD, callEnvir);
+            code.poolInsn(INVOKESTATIC, this.writer.methodRef(CLASS, "f" + this.functionIndices.get(unique), FUNCTION), 0);
+            code.jump(GOTO, called);
+            code.mark(indirect);
+        }
+        constant(code, this.constants.get(0), "Lcom/propp/BytecodeCompiler$Linkage;");
+        code.varInsn(ALOAD, body);
+        code.poolInsn(INVOKEVIRTUAL, this.writer.methodRef("com/propp/BytecodeCompiler$Linkage", "indexOf", "(" + L_LEXEME + ")I"), -1);
+        code.varInsn(ALOAD, callEnvir);
+        code.poolInsn(INVOKESTATIC, this.writer.methodRef(CLASS, "call", "(I" + L_ENVIRONMENT + ")" + L_LIST), -1);
+        code.mark(called);
+        code.poolInsn(INVOKEVIRTUAL, this.writer.methodRef(CALL_SITE, "end", "(Ljava/lang/Object;" + L_LIST + ")" + L_LIST), -2);
+        code.mark(end);
+        code.freeLocals(mark);
+    }
+
+    // helpers
+
+    //pushes a value from the constant array of the class
+    private void constant(Code code, Object value, String descriptor) {
+        if (value == null) {
+            code.insn(ACONST_NULL, 1);
+            return;
+        }
+        Integer index = this.constantIndices.get(value);
+        if (index == null) {
+            index = this.constants.size();
+            this.constants.add(value);
+            this.constantIndices.put(value, index);
+        }
+        code.poolInsn(GETSTATIC, this.writer.fieldRef(CLASS, "K", "[Ljava/lang/Object;"), 1);
+        code.pushInt(this.writer, index);
+        code.insn(AALOAD, -1);
+        String type = descriptor.startsWith("[") ? descriptor : descriptor.substring(1, descriptor.length() - 1);
+        code.poolInsn(CHECKCAST, this.writer.classRef(type), 0);
+    }
+
+    private void newList(Code code, int local) {
+        code.poolInsn(NEW, this.writer.classRef(ARRAY_LIST), 1);
+        code.insn(DUP, 1);
+        code.poolInsn(INVOKESPECIAL, this.writer.methodRef(ARRAY_LIST, "<init>", "()V"), -1);
+        code.varInsn(ASTORE, local);
+    }
+
+    private void newEnvironment(Code code, int parent, Scope scope, int local) {
+        code.poolInsn(NEW, this.writer.classRef(ENVIRONMENT), 1);
+        code.insn(DUP, 1);
+        code.varInsn(ALOAD, parent);
+        constant(code, scope, "Lcom/propp/Scope;");
+        code.poolInsn(INVOKESPECIAL, this.writer.methodRef(ENVIRONMENT, "<init>", "(" + L_ENVIRONMENT + "Lcom/propp/Scope;)V"), -3);
+        code.varInsn(ASTORE, local);
+    }
+
+    private void invokeRuntime(Code code, String name, String descriptor, int stackChange) {
+        code.poolInsn(INVOKESTATIC, this.writer.methodRef(RUNTIME, name, descriptor), stackChange);
+    }
+}
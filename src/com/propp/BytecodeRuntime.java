@@ -0,0 +1,196 @@
+package com.propp;
+
+import java.util.ArrayList;
+import java.util.List;
+
+//static helpers called from the classes generated by the BytecodeCompiler
+//anything that depends on the runtime type of a value is done here with the same semantics as the Evaluator
+final class BytecodeRuntime {
+    private BytecodeRuntime() {
+    }
+
+    //two single operands of a chain without a count, null operands that are not kept change the arity
+    static Lexeme binary(OperatorChain chain, Lexeme first, Lexeme second, boolean firstKeepsNull, boolean secondKeepsNull) {
+        if (first != null && second != null) return Operators.binary(chain.getOperator(0), first, second, chain.getLineNumber());
+        Lexeme[] values = new Lexeme[2];
+        int size = 0;
+        if (first != null || firstKeepsNull) values[size++] = first;
+        if (second != null || secondKeepsNull) values[size++] = second;
+        return chain.apply(values, size);
+    }
+
+    static Lexeme apply(OperatorChain chain, Lexeme[] values, boolean[] keepsNull) {
+        return chain.apply(values, compact(values, keepsNull));
+    }
+
+    static Lexeme apply(OperatorChain chain, ArrayList<Lexeme> values) {
+        return chain.apply(values.toArray(new Lexeme[0]), values.size());
+    }
+
+    static boolean isTrue(Lexeme value, boolean keepsNull, int lineNumber) {
+        if (value != null && value.getType() == TokenType.BOOLEAN) return value.booleanValue();
+        return Expressions.isTrue(new Lexeme[]{value, null}, (value == null && !keepsNull) ? 0 : 1, lineNumber);
+    }
+
+    static boolean isTrue(ArrayList<Lexeme> values, int lineNumber) {
+        return Expressions.isTrue(values.toArray(new Lexeme[values.size() + 1]), values.size(), lineNumber);
+    }
+
+    static Lexeme unary(Lexeme tree, Lexeme value, boolean keepsNull) {
+        if (value == null) {
+            if (!keepsNull) wrongUnaryCount(tree, 0);
+            return null;
+        }
+        return Evaluator.unaryOperation(tree.getLeft(), value, tree.getLineNumber(), tree.getRight().getLineNumber());
+    }
+
+    static Lexeme unary(Lexeme tree, ArrayList<Lexeme> values) {
+        if (values.size() != 1) wrongUnaryCount(tree, values.size());
+        if (values.isEmpty() || values.get(0) == null) return null;
+        return Evaluator.unaryOperation(tree.getLeft(), values.get(0), tree.getLineNumber(), tree.getRight().getLineNumber());
+    }
+
+    private static void wrongUnaryCount(Lexeme tree, int found) {
+        Forest.error(tree.getLineNumber(), "invalid number of arguments for operator " + tree.getLeft().getType() + " expected 1 founnd " + found);
+    }
+
+    static Lexeme arrayElement(ArrayList<Lexeme> values, Lexeme[] indices, int lineNumber) {
+        if (values.size() != 1) {
+            Forest.error(lineNumber, "not single variable for array");
+            return null;
+        }
+        return Expressions.arrayElement(values.get(0), indices, lineNumber);
+    }
+
+    static void mismatch(int found, int variables, int lineNumber) {
+        Forest.error(lineNumber, " mismatching number of expressions and variables. Expressions:" + found + " Variables:" + variables);
+    }
+
+    static boolean checkCount(ArrayList<Lexeme> values, int variables, int lineNumber) {
+        if (values.size() == variables) return true;
+        mismatch(values.size(), variables, lineNumber);
+        return false;
+    }
+
+    static void add(ArrayList<Lexeme> list, Lexeme value) {
+        if (value != null) list.add(value);
+    }
+
+    static void addAll(ArrayList<Lexeme> list, List<Lexeme> values) {
+        if (values != null) list.addAll(values);
+    }
+
+    static void print(ArrayList<Lexeme> values, int lineNumber) {
+        Evaluator.printValues(values, lineNumber);
+    }
+
+    static List<Lexeme> declare(Environment environment, Lexeme identifier, Lexeme body, int lineNumber) {
+        if (identifier.stringValue().equals("print")) {
+            Forest.error(lineNumber, " can not declare function with name print");
+            return null;
+        }
+        environment.addVariable(identifier, body);
+        List<Lexeme> values = new ArrayList<Lexeme>(1);
+        values.add(body);
+        return values;
+    }
+
+    //removes the nulls that do not take up a place, returns the new size
+    private static int compact(Lexeme[] values, boolean[] keepsNull) {
+        int size = 0;
+        for (int i = 0; i < values.length; i++) {
+            if (values[i] != null || keepsNull[i]) values[size++] = values[i];
+        }
+        return size;
+    }
+
+    //one call to a function name, the function itself is looked up at runtime because scoping is dynamic
+    static final class CallSite {
+        private final Lexeme identifier;
+        private final int lineNumber;
+        private Parameters parameters; //parameters of the identifier the function was last found under
+
+        CallSite(Lexeme identifier) {
+            this.identifier = identifier;
+            this.lineNumber = identifier.getLineNumber();
+            this.parameters = null;
+        }
+
+        String getName() {
+            return this.identifier.stringValue();
+        }
+
+        int getLineNumber() {
+            return this.lineNumber;
+        }
+
+        //the STATEMENT_LIST of the function or null after reporting an error
+        Lexeme lookup(Environment environment) {
+            if (!environment.variableExists(this.identifier)) {
+                Forest.error(this.lineNumber, "function " + this.identifier.stringValue() + " not declared");
+                return null;
+            }
+            Lexeme body = environment.getVariableValue(this.identifier);
+            if (body == null || body.getType() != TokenType.STATEMENT_LIST) {
+                Forest.error(this.lineNumber, this.identifier.stringValue() + " is not a function");
+                return null;
+            }
+            return body;
+        }
+
+        //the FunctionCall event of a call that was entered, null unless a recording wants it
+        Object begin() {
+            return ForestEvents.recording() ? ForestEvents.beginCall() : null;
+        }
+
+        //ends the event begin gave and passes on what the function returned
+        List<Lexeme> end(Object event, List<Lexeme> values) {
+            if (event != null) ForestEvents.endCall(event, this.identifier.stringValue(), this.lineNumber);
+            return values;
+        }
+
+        //the Environment of the call with the parameters bound, null after reporting an error
+        Environment enter(Environment environment, Lexeme body, Lexeme[] values, boolean[] keepsNull) {
+            return enter(environment, body, values, 0, compact(values, keepsNull));
+        }
+
+        Environment enter(Environment environment, Lexeme body, ArrayList<Lexeme> values) {
+            return enter(environment, body, values.toArray(new Lexeme[0]), 0, values.size());
+        }
+
+        //the arguments are values[from..end)
+        Environment enter(Environment environment, Lexeme body, Lexeme[] values, int from, int end) {
+            Lexeme[] params = parameters(environment.getIdentifier(this.identifier).getLeft());
+            int size = end - from;
+            if (size != params.length) {
+                Forest.error(this.lineNumber, "wrong number of parameters for function " + this.identifier.stringValue() + " expected " + params.length + " but found " + size);
+                return null;
+            }
+            Environment newEnvir = new Environment(environment, body.getScope());
+            for (int i = 0; i < size; i++) newEnvir.addVariable(params[i], values[from + i]);
+            return newEnvir;
+        }
+
+        private Lexeme[] parameters(Lexeme paramListNode) {
+            Parameters cached = this.parameters;
+            if (cached != null && cached.node == paramListNode) return cached.list;
+            List<Lexeme> paramList = new ArrayList<Lexeme>();
+            for (Lexeme node = paramListNode; node != null; node = node.getRight()) {
+                if (node.getLeft() != null) paramList.add(node.getLeft());
+            }
+            cached = new Parameters(paramListNode, paramList.toArray(new Lexeme[0]));
+            this.parameters = cached; //read once, the class is shared by every thread running the program
+            return cached.list;
+        }
+    }
+
+    private static final class Parameters {
+        private final Lexeme node;
+        private final Lexeme[] list;
+
+        private Parameters(Lexeme node, Lexeme[] list) {
+            this.node = node;
+            this.list = list;
+        }
+    }
+}
@@ -0,0 +1,22 @@
+package com.propp;
+
+public final class CharacterValue extends Value {
+    private final char value;
+
+    public CharacterValue(char value, int lineNumber) {
+        super(lineNumber);
+        this.value = value;
+    }
+
+    public TokenType getType() {
+        return TokenType.CHARACTER;
+    }
+
+    public char characterValue() {
+        return this.value;
+    }
+
+    public String getValueString() {
+        return String.valueOf(this.value);
+    }
+}
@@ -0,0 +1,24 @@
+package com.propp;
+
+//compiled code of one function body (or the top level of a program) for the VirtualMachine
+public class Chunk {
+    final String name;
+    final int[] code;
+    final Object[] constants;
+    final int registers;
+    final int marks;
+    final int environments; //Environment slots, slot 0 holds the Environment the chunk was called with
+
+    Chunk(String name, int[] code, Object[] constants, int registers, int marks, int environments) {
+        this.name = name;
+        this.code = code;
+        this.constants = constants;
+        this.registers = registers;
+        this.marks = marks;
+        this.environments = environments;
+    }
+
+    public String getName() {
+        return this.name;
+    }
+}
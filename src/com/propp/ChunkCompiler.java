@@ -0,0 +1,468 @@
+package com.propp;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.List;
+
+import static com.propp.Expressions.*;
+import static com.propp.Opcodes.*;
+import static com.propp.TokenType.*;
+
+//compiles a resolved program into Chunks for the VirtualMachine, one for the top level and one per function body
+//returns null for programs with a return outside of a function or tokens it does not handle, those are left to the
+//Evaluator
+public class ChunkCompiler {
+    private final IdentityHashMap<Lexeme, Chunk> functions; //compiled function bodies by their STATEMENT_LIST
+
+    //state of the chunk being compiled
+    private int[] code;
+    private int length;
+    private List<Object> constants;
+    private IdentityHashMap<Object, Integer> constantIndices;
+    private int nextRegister, maxRegister;
+    private int nextMark, maxMark;
+    private int maxEnvironment;
+
+    public ChunkCompiler() {
+        this.functions = new IdentityHashMap<Lexeme, Chunk>();
+    }
+
+    public static class CompiledProgram {
+        private final Chunk main;
+        private final IdentityHashMap<Lexeme, Chunk> functions;
+
+        private CompiledProgram(Chunk main, IdentityHashMap<Lexeme, Chunk> functions) {
+            this.main = main;
+            this.functions = functions;
+        }
+
+        public Chunk getMain() {
+            return this.main;
+        }
+
+        public List<Chunk> getFunctions() {
+            return new ArrayList<Chunk>(this.functions.values());
+        }
+
+        Chunk functionFor(Lexeme body) {
+            return this.functions.get(body);
+        }
+    }
+
+    public CompiledProgram compile(Lexeme program) {
+        for (Lexeme node = program; node != null; node = node.getRight()) {
+            if (hasTopLevelReturn(node.getLeft())) return null;
+        }
+        try {
+            begin();
+            for (Lexeme node = program; node != null; node = node.getRight()) {
+                if (node.getLeft() != null) statement(node.getLeft(), 0, true);
+            }
+            emit(RET0);
+        } catch (IllegalStateException e) {
+            return null;
+        }
+        return new CompiledProgram(end("main"), this.functions);
+    }
+
+    private static boolean hasTopLevelReturn(Lexeme statement) {
+        if (statement == null) return false;
+        switch (statement.getType()) {
+            case RETURN:
+                return true;
+            case WHILE:
+                return blockHasReturn(statement.getRight());
+            case IF:
+                for (Lexeme node = statement; node != null; node = node.getRight().getRight()) {
+                    if (node.getType() == ELSE) return blockHasReturn(node.getLeft());
+                    if (blockHasReturn(node.getRight().getLeft())) return true;
+                }
+                return false;
+            default:
+                return false;
+        }
+    }
+
+    private static boolean blockHasReturn(Lexeme statementList) {
+        for (Lexeme node = statementList; node != null && node.getLeft() != null; node = node.getRight()) {
+            if (hasTopLevelReturn(node.getLeft())) return true;
+        }
+        return false;
+    }
+
+    //function bodies are compiled on their own, the state of the enclosing chunk is put aside meanwhile
+    private void function(Lexeme identifier, Lexeme body) {
+        if (this.functions.containsKey(body)) return;
+        int[] code = this.code;
+        int length = this.length;
+        List<Object> constants = this.constants;
+        IdentityHashMap<Object, Integer> constantIndices = this.constantIndices;
+        int nextRegister = this.nextRegister, maxRegister = this.maxRegister;
+        int nextMark = this.nextMark, maxMark = this.maxMark;
+        int maxEnvironment = this.maxEnvironment;
+
+        begin();
+        block(body, 0);
+        emit(RET0);
+        this.functions.put(body, end(identifier.stringValue()));
+
+        this.code = code;
+        this.length = length;
+        this.constants = constants;
+        this.constantIndices = constantIndices;
+        this.nextRegister = nextRegister;
+        this.maxRegister = maxRegister;
+        this.nextMark = nextMark;
+        this.maxMark = maxMark;
+        this.maxEnvironment = maxEnvironment;
+    }
+
+    private void begin() {
+        this.code = new int[64];
+        this.length = 0;
+        this.constants = new ArrayList<Object>();
+        this.constantIndices = new IdentityHashMap<Object, Integer>();
+        this.nextRegister = 0;
+        this.maxRegister = 0;
+        this.nextMark = 0;
+        this.maxMark = 0;
+        this.maxEnvironment = 0;
+    }
+
+    private Chunk end(String name) {
+        return new Chunk(name, Arrays.copyOf(this.code, this.length), this.constants.toArray(), this.maxRegister, this.maxMark, this.maxEnvironment + 1);
+    }
+
+    // statements
+
+    private void block(Lexeme statementList, int environment) {
+        for (Lexeme node = statementList; node != null && node.getLeft() != null; node = node.getRight()) {
+            statement(node.getLeft(), environment, false);
+            if (node.getLeft().getType() == TokenType.RETURN) return; //the rest of the block is never run
+        }
+    }
+
+    private void statement(Lexeme tree, int environment, boolean topLevel) {
+        int registers = this.nextRegister;
+        int marks = this.nextMark;
+        switch (tree.getType()) {
+            case FUNCTION_DECL:
+                function(tree.getLeft(), tree.getRight());
+                emit(DECLARE, constant(tree.getLeft()), constant(tree.getRight()), tree.getLineNumber(), topLevel ? 1 : 0);
+                break;
+            case ASSIGN:
+                assign(tree, environment);
+                break;
+            case WHILE:
+                loop(tree, environment);
+                break;
+            case IF:
+                conditional(tree, environment);
+                break;
+            case RETURN:
+                int values = newMark();
+                for (Lexeme node = tree.getLeft(); node != null; node = node.getRight()) {
+                    if (node.getLeft() != null) collect(node.getLeft());
+                }
+                emit(RET, values);
+                break;
+            case EXPRESSION_LIST:
+                int output = topLevel ? newMark() : -1;
+                for (Lexeme node = tree; node != null; node = node.getRight()) {
+                    if (node.getLeft() == null) continue;
+                    if (topLevel) collect(node.getLeft());
+                    else discard(node.getLeft());
+                }
+                if (topLevel) emit(OUTPUT, output);
+                break;
+            default:
+                throw new IllegalStateException("unsupported Token " + tree.getType());
+        }
+        this.nextRegister = registers;
+        this.nextMark = marks;
+    }
+
+    private void assign(Lexeme tree, int environment) {
+        List<Lexeme> targets = new ArrayList<Lexeme>();
+        for (Lexeme node = tree.getLeft(); node != null; node = node.getRight()) {
+            if (node.getLeft() != null) targets.add(node.getLeft());
+        }
+        List<Lexeme> expressions = new ArrayList<Lexeme>();
+        for (Lexeme node = tree.getRight(); node != null; node = node.getRight()) {
+            if (node.getLeft() != null) expressions.add(node.getLeft());
+        }
+        List<Integer> exits = new ArrayList<Integer>();
+        if (targets.size() == 1 && expressions.size() == 1 && isSingle(expressions.get(0))) {
+            int value = single(expressions.get(0));
+            if (!keepsNull(expressions.get(0)) && !isLiteral(expressions.get(0))) exits.add(emit(NOVALUE, value, 1, tree.getLineNumber(), -1) + 4);
+            store(targets.get(0), value, exits);
+            for (int exit : exits) patch(exit);
+            return;
+        }
+        int values = newMark();
+        for (Lexeme expression : expressions) collect(expression);
+        exits.add(emit(CHECKCOUNT, values, targets.size(), tree.getLineNumber(), -1) + 4);
+        int value = newRegister();
+        for (int i = 0; i < targets.size(); i++) {
+            emit(GETLIST, value, values, i);
+            store(targets.get(i), value, exits);
+        }
+        for (int exit : exits) patch(exit);
+        emit(POP, values);
+    }
+
+    //exits collects the jumps taken when an array element could not be set
+    private void store(Lexeme target, int value, List<Integer> exits) {
+        if (target.getLeft() == null) {
+            emit(SETVAR, value, constant(target));
+            return;
+        }
+        List<Lexeme> indices = new ArrayList<Lexeme>();
+        for (Lexeme index = target.getLeft(); index != null; index = index.getLeft()) indices.add(index.getRight());
+        exits.add(emit(SETELEM, value, constant(target), constant(indices.toArray(new Lexeme[0])), -1) + 4);
+    }
+
+    //the condition is evaluated in the outer Environment, the body runs in one Environment for the whole loop
+    private void loop(Lexeme tree, int environment) {
+        int loopEnvir = environment + 1;
+        this.maxEnvironment = Math.max(this.maxEnvironment, loopEnvir);
+        emit(ENVNEW, loopEnvir, constant(tree.getRight().getScope()));
+        int top = this.length;
+        int exit = condition(tree.getLeft());
+        emit(ENVSET, loopEnvir);
+        block(tree.getRight(), loopEnvir);
+        emit(ENVSET, environment);
+        emit(JUMP, top);
+        patch(exit);
+    }
+
+    private void conditional(Lexeme tree, int environment) {
+        int blockEnvir = environment + 1;
+        this.maxEnvironment = Math.max(this.maxEnvironment, blockEnvir);
+        List<Integer> ends = new ArrayList<Integer>();
+        for (Lexeme node = tree; node != null; node = node.getRight().getRight()) {
+            if (node.getType() == ELSE) {
+                emit(ENVNEW, blockEnvir, constant(node.getLeft().getScope()));
+                emit(ENVSET, blockEnvir);
+                block(node.getLeft(), blockEnvir);
+                emit(ENVSET, environment);
+                break;
+            }
+            int next = condition(node.getLeft());
+            emit(ENVNEW, blockEnvir, constant(node.getRight().getLeft().getScope()));
+            emit(ENVSET, blockEnvir);
+            block(node.getRight().getLeft(), blockEnvir);
+            emit(ENVSET, environment);
+            ends.add(emit(JUMP, -1) + 1);
+            patch(next);
+        }
+        for (int end : ends) patch(end);
+    }
+
+    //emits the test of a condition, returns the position of the jump taken when it is not true
+    private int condition(Lexeme expression) {
+        int registers = this.nextRegister;
+        int marks = this.nextMark;
+        int jump;
+        if (isSingle(expression)) {
+            int value = single(expression);
+            jump = emit(TEST, value, keepsNull(expression) ? 1 : 0, lineNumber(expression), -1) + 4;
+        } else {
+            int values = newMark();
+            collect(expression);
+            jump = emit(TESTL, values, lineNumber(expression), -1) + 3;
+        }
+        this.nextRegister = registers;
+        this.nextMark = marks;
+        return jump;
+    }
+
+    // expressions
+
+    //pushes the values of the expression onto the list being built at the top of the value stack
+    private void collect(Lexeme expression) {
+        int registers = this.nextRegister;
+        if (isSingle(expression)) {
+            emit(keepsNull(expression) ? PUSH : PUSHV, single(expression));
+        } else if (isPrint(expression)) {
+            print(expression);
+        } else {
+            call(expression, newMark());
+        }
+        this.nextRegister = registers;
+    }
+
+    //runs the expression for its side effects only
+    private void discard(Lexeme expression) {
+        int registers = this.nextRegister;
+        int marks = this.nextMark;
+        if (isSingle(expression)) {
+            if (isLiteral(expression)) return;
+            single(expression);
+        } else if (isPrint(expression)) {
+            print(expression);
+        } else {
+            int results = newMark();
+            call(expression, results);
+            emit(POP, results);
+        }
+        this.nextRegister = registers;
+        this.nextMark = marks;
+    }
+
+    //computes the single value of the expression into a new register and returns it, null if it produced none
+    private int single(Lexeme expression) {
+        int marks = this.nextMark;
+        int target;
+        switch (expression.getType()) {
+            case INTEGER:
+            case FLOAT:
+            case STRING:
+            case BOOLEAN:
+            case CHARACTER:
+                target = newRegister();
+                emit(LOADK, target, constant(expression));
+                break;
+            case VARIABLE:
+                target = newRegister();
+                emit(GETVAR, target, constant(expression.getLeft()));
+                break;
+            case VARIADIC_OPERATION:
+                target = variadicOperation(expression);
+                break;
+            case UNARY_OPERATION:
+                Lexeme operand = expression.getRight();
+                if (isSingle(operand)) {
+                    int value = single(operand);
+                    target = value;
+                    emit(UNARY, target, value, constant(expression), keepsNull(operand) ? 1 : 0);
+                } else {
+                    int values = newMark();
+                    collect(operand);
+                    target = newRegister();
+                    emit(UNARYL, target, constant(expression), values);
+                }
+                break;
+            case ARRAY_ACCESS:
+                target = arrayAccess(expression);
+                break;
+            default:
+                throw new IllegalStateException("unsupported Token " + expression.getType());
+        }
+        this.nextMark = marks;
+        return target;
+    }
+
+    private int variadicOperation(Lexeme expression) {
+        OperatorChain chain = OperatorChain.of(expression);
+        List<Lexeme> operands = new ArrayList<Lexeme>();
+        boolean allSingle = true;
+        for (Lexeme node = expression.getRight(); node != null; node = node.getRight()) {
+            if (node.getLeft() == null) continue;
+            operands.add(node.getLeft());
+            allSingle &= isSingle(node.getLeft());
+        }
+        if (allSingle && operands.size() == 2 && chain.length() == 1 && chain.getCount(0) < 0 && chain.getOperator(0) != ARRAY_CREATION) {
+            int first = single(operands.get(0));
+            int second = single(operands.get(1));
+            int flags = (keepsNull(operands.get(0)) ? 1 : 0) | (keepsNull(operands.get(1)) ? 2 : 0);
+            emit(BINARY, first, first, second, constant(chain), flags);
+            this.nextRegister = first + 1;
+            return first;
+        }
+        int values = newMark();
+        for (Lexeme operand : operands) collect(operand);
+        int target = newRegister();
+        emit(APPLY, target, constant(chain), values);
+        return target;
+    }
+
+    private int arrayAccess(Lexeme expression) {
+        List<Lexeme> indices = new ArrayList<Lexeme>();
+        for (Lexeme node = expression.getRight(); node != null; node = node.getRight()) {
+            indices.add((node.getLeft() == null || node.getLeft().getType() != INTEGER) ? null : node.getLeft());
+        }
+        Lexeme array = expression.getLeft();
+        int k = constant(indices.toArray(new Lexeme[0]));
+        if (isSingle(array)) {
+            int value = single(array);
+            emit(INDEX, value, value, k, expression.getLineNumber());
+            return value;
+        }
+        int values = newMark();
+        collect(array);
+        int target = newRegister();
+        emit(INDEXL, target, values, k, expression.getLineNumber());
+        return target;
+    }
+
+    private void print(Lexeme expression) {
+        int marks = this.nextMark;
+        int values = newMark();
+        for (Lexeme node = expression.getLeft().getLeft(); node != null; node = node.getRight()) {
+            if (node.getLeft() != null) collect(node.getLeft());
+        }
+        emit(PRINT, values, lineNumber(expression));
+        this.nextMark = marks;
+    }
+
+    //the results of the call replace list results, the arguments are only evaluated once the function is found
+    private void call(Lexeme expression, int results) {
+        int registers = this.nextRegister;
+        int marks = this.nextMark;
+        Lexeme identifier = expression.getLeft();
+        int site = constant(new BytecodeRuntime.CallSite(identifier));
+        int body = newRegister();
+        int notFound = emit(LOOKUP, body, site, -1) + 3;
+        for (Lexeme node = identifier.getLeft(); node != null; node = node.getRight()) {
+            if (node.getLeft() != null) collect(node.getLeft());
+        }
+        emit(CALL, body, site, results);
+        patch(notFound);
+        this.nextRegister = registers;
+        this.nextMark = marks;
+    }
+
+    // helpers
+
+    private int newRegister() {
+        int register = this.nextRegister++;
+        if (this.nextRegister > this.maxRegister) this.maxRegister = this.nextRegister;
+        return register;
+    }
+
+    private int newMark() {
+        int mark = this.nextMark++;
+        if (this.nextMark > this.maxMark) this.maxMark = this.nextMark;
+        emit(MARK, mark);
+        return mark;
+    }
+
+    private int constant(Object value) {
+        if (value == null) value = NO_CONSTANT;
+        Integer index = this.constantIndices.get(value);
+        if (index == null) {
+            index = this.constants.size();
+            this.constants.add((value == NO_CONSTANT) ? null : value);
+            this.constantIndices.put(value, index);
+        }
+        return index;
+    }
+
+    private static final Object NO_CONSTANT = new Object(); //stands in for null in the constant indices
+
+    //returns the position of the instruction
+    private int emit(int opcode, int... operands) {
+        if (this.length + operands.length + 1 > this.code.length) this.code = Arrays.copyOf(this.code, this.code.length * 2 + operands.length);
+        int position = this.length;
+        this.code[this.length++] = opcode;
+        for (int operand : operands) this.code[this.length++] = operand;
+        return position;
+    }
+
+    //points the jump operand at position to the next instruction
+    private void patch(int position) {
+        this.code[position] = this.length;
+    }
+}
@@ -0,0 +1,353 @@
+package com.propp;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+
+//minimal class file writer used by the BytecodeCompiler
+//writes version 49 class files, those are checked by the type inferencing verifier so no stack map frames are needed
+class ClassFileWriter {
+    static final int ACC_PUBLIC = 0x0001, ACC_PRIVATE = 0x0002, ACC_STATIC = 0x0008, ACC_FINAL = 0x0010, ACC_SUPER = 0x0020;
+
+    //opcodes used by the compiler
+    static final int ACONST_NULL = 0x01, ICONST_0 = 0x03, BIPUSH = 0x10, SIPUSH = 0x11, LDC_W = 0x13;
+    static final int ILOAD = 0x15, ALOAD = 0x19, ISTORE = 0x36, ASTORE = 0x3a;
+    static final int AALOAD = 0x32, BALOAD = 0x33, AASTORE = 0x53;
+    static final int POP = 0x57, DUP = 0x59, SWAP = 0x5f;
+    static final int IFEQ = 0x99, IFNE = 0x9a, IF_ACMPNE = 0xa6, GOTO = 0xa7, TABLESWITCH = 0xaa;
+    static final int ARETURN = 0xb0, RETURN_VOID = 0xb1;
+    static final int GETSTATIC = 0xb2, PUTSTATIC = 0xb3;
+    static final int INVOKEVIRTUAL = 0xb6, INVOKESPECIAL = 0xb7, INVOKESTATIC = 0xb8, INVOKEINTERFACE = 0xb9;
+    static final int NEW = 0xbb, ANEWARRAY = 0xbd, CHECKCAST = 0xc0, IFNULL = 0xc6, IFNONNULL = 0xc7;
+
+    private final ByteArrayOutputStream poolBytes;
+    private final DataOutputStream pool;
+    private final HashMap<String, Integer> poolEntries;
+    private int poolCount;
+    private final List<byte[]> fields;
+    private final List<byte[]> methods;
+
+    ClassFileWriter() {
+        this.poolBytes = new ByteArrayOutputStream();
+        this.pool = new DataOutputStream(this.poolBytes);
+        this.poolEntries = new HashMap<String, Integer>();
+        this.poolCount = 1;
+        this.fields = new ArrayList<byte[]>();
+        this.methods = new ArrayList<byte[]>();
+    }
+
+    // constant pool
+
+    int utf8(String value) {
+        Integer index = this.poolEntries.get("U" + value);
+        if (index != null) return index;
+        try {
+            this.pool.writeByte(1);
+            this.pool.writeUTF(value);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        return newEntry("U" + value, 1);
+    }
+
+    int integer(int value) {
+        Integer index = this.poolEntries.get("I" + value);
+        if (index != null) return index;
+        try {
+            this.pool.writeByte(3);
+            this.pool.writeInt(value);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        return newEntry("I" + value, 1);
+    }
+
+    int classRef(String internalName) {
+        return reference("C" + internalName, 7, utf8(internalName), -1);
+    }
+
+    int fieldRef(String owner, String name, String descriptor) {
+        return reference("F" + owner + "." + name + ":" + descriptor, 9, classRef(owner), nameAndType(name, descriptor));
+    }
+
+    int methodRef(String owner, String name, String descriptor) {
+        return reference("M" + owner + "." + name + descriptor, 10, classRef(owner), nameAndType(name, descriptor));
+    }
+
+    int interfaceMethodRef(String owner, String name, String descriptor) {
+        return reference("N" + owner + "." + name + descriptor, 11, classRef(owner), nameAndType(name, descriptor));
+    }
+
+    private int nameAndType(String name, String descriptor) {
+        return reference("T" + name + ":" + descriptor, 12, utf8(name), utf8(descriptor));
+    }
+
+    //an entry made of one or two other pool indices
+    private int reference(String key, int tag, int first, int second) {
+        Integer index = this.poolEntries.get(key);
+        if (index != null) return index;
+        try {
+            this.pool.writeByte(tag);
+            this.pool.writeShort(first);
+            if (second >= 0) this.pool.writeShort(second);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        return newEntry(key, 1);
+    }
+
+    private int newEntry(String key, int size) {
+        int index = this.poolCount;
+        this.poolCount += size;
+        if (this.poolCount > 0xffff) throw new IllegalStateException("constant pool too large");
+        this.poolEntries.put(key, index);
+        return index;
+    }
+
+    // members
+
+    void addField(int access, String name, String descriptor) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        try {
+            out.writeShort(access);
+            out.writeShort(utf8(name));
+            out.writeShort(utf8(descriptor));
+            out.writeShort(0);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        this.fields.add(bytes.toByteArray());
+    }
+
+    void addMethod(int access, String name, String descriptor, Code code) {
+        byte[] instructions = code.toByteArray();
+        if (instructions.length > 0xffff) throw new IllegalStateException("method " + name + " too large");
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        try {
+            out.writeShort(access);
+            out.writeShort(utf8(name));
+            out.writeShort(utf8(descriptor));
+            out.writeShort(1);
+            out.writeShort(utf8("Code"));
+            out.writeInt(12 + instructions.length);
+            out.writeShort(code.maxStack);
+            out.writeShort(code.maxLocals);
+            out.writeInt(instructions.length);
+            out.write(instructions);
+            out.writeShort(0); //exception table
+            out.writeShort(0); //attributes
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        this.methods.add(bytes.toByteArray());
+    }
+
+    byte[] toByteArray(int access, String name, String superName, String[] interfaces) {
+        int thisClass = classRef(name);
+        int superClass = classRef(superName);
+        int[] interfaceIndices = new int[interfaces.length];
+        for (int i = 0; i < interfaces.length; i++) interfaceIndices[i] = classRef(interfaces[i]);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        try {
+            out.writeInt(0xcafebabe);
+            out.writeShort(0);
+            out.writeShort(49);
+            out.writeShort(this.poolCount);
+            out.write(this.poolBytes.toByteArray());
+            out.writeShort(access);
+            out.writeShort(thisClass);
+            out.writeShort(superClass);
+            out.writeShort(interfaceIndices.length);
+            for (int index : interfaceIndices) out.writeShort(index);
+            out.writeShort(this.fields.size());
+            for (byte[] field : this.fields) out.write(field);
+            out.writeShort(this.methods.size());
+            for (byte[] method : this.methods) out.write(method);
+            out.writeShort(0);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    static class Label {
+        private int position = -1;
+        private int stack = -1; //operand stack height expected at the label
+        private final List<int[]> references = new ArrayList<int[]>(); //{instruction start, offset position}
+    }
+
+    //the instructions of one method, keeps track of the operand stack height to find max_stack
+    static class Code {
+        private byte[] bytes = new byte[256];
+        private int length = 0;
+        private int stack = 0;
+        private int maxStack = 0;
+        private int nextLocal;
+        private int maxLocals;
+        private final List<Label> labels = new ArrayList<Label>();
+
+        Code(int parameterSlots) {
+            this.nextLocal = parameterSlots;
+            this.maxLocals = parameterSlots;
+        }
+
+        Label newLabel() {
+            Label label = new Label();
+            this.labels.add(label);
+            return label;
+        }
+
+        //locals are handed out like a stack, freeLocals(mark) releases everything allocated after mark
+        int newLocal() {
+            if (this.nextLocal > 0xff) throw new IllegalStateException("too many locals");
+            int local = this.nextLocal++;
+            if (this.nextLocal > this.maxLocals) this.maxLocals = this.nextLocal;
+            return local;
+        }
+
+        int localMark() {
+            return this.nextLocal;
+        }
+
+        void freeLocals(int mark) {
+            this.nextLocal = mark;
+        }
+
+        boolean reachable() {
+            return this.stack >= 0;
+        }
+
+        void insn(int opcode, int stackChange) {
+            writeByte(opcode);
+            changeStack(stackChange);
+        }
+
+        void pushInt(ClassFileWriter writer, int value) {
+            if (value >= -1 && value <= 5) writeByte(ICONST_0 + value);
+            else if (value >= Byte.MIN_VALUE && value <= Byte.MAX_VALUE) {
+                writeByte(BIPUSH);
+                writeByte(value);
+            } else if (value >= Short.MIN_VALUE && value <= Short.MAX_VALUE) {
+                writeByte(SIPUSH);
+                writeShort(value);
+            } else {
+                writeByte(LDC_W);
+                writeShort(writer.integer(value));
+            }
+            changeStack(1);
+        }
+
+        void varInsn(int opcode, int local) {
+            writeByte(opcode);
+            writeByte(local);
+            changeStack((opcode == ALOAD || opcode == ILOAD) ? 1 : -1);
+        }
+
+        //field, method and type instructions taking a constant pool index
+        void poolInsn(int opcode, int index, int stackChange) {
+            writeByte(opcode);
+            writeShort(index);
+            changeStack(stackChange);
+        }
+
+        void invokeInterface(int index, int argumentSlots, int stackChange) {
+            writeByte(INVOKEINTERFACE);
+            writeShort(index);
+            writeByte(argumentSlots + 1);
+            writeByte(0);
+            changeStack(stackChange);
+        }
+
+        void jump(int opcode, Label label) {
+            int start = this.length;
+            writeByte(opcode);
+            changeStack((opcode == GOTO) ? 0 : (opcode == IF_ACMPNE) ? -2 : -1);
+            reference(label, start);
+            writeShort(0);
+            if (opcode == GOTO) this.stack = -1; //unreachable until the next label
+        }
+
+        void tableSwitch(Label fallback, Label[] cases) {
+            int start = this.length;
+            writeByte(TABLESWITCH);
+            changeStack(-1);
+            while (this.length % 4 != 0) writeByte(0);
+            reference(fallback, start);
+            writeInt(0);
+            writeInt(0);
+            writeInt(cases.length - 1);
+            for (Label label : cases) {
+                reference(label, start);
+                writeInt(0);
+            }
+            this.stack = -1;
+        }
+
+        void terminate(int opcode) {
+            insn(opcode, (opcode == RETURN_VOID) ? 0 : -1);
+            this.stack = -1;
+        }
+
+        void mark(Label label) {
+            label.position = this.length;
+            if (this.stack < 0) this.stack = label.stack;
+            else if (label.stack >= 0 && label.stack != this.stack) throw new IllegalStateException("stack height mismatch at label");
+            label.stack = this.stack;
+        }
+
+        private void reference(Label label, int start) {
+            if (label.stack >= 0 && label.stack != this.stack) throw new IllegalStateException("stack height mismatch at jump");
+            label.stack = this.stack;
+            label.references.add(new int[]{start, this.length});
+        }
+
+        private void changeStack(int change) {
+            if (this.stack < 0) throw new IllegalStateException("unreachable instruction");
+            this.stack += change;
+            if (this.stack > this.maxStack) this.maxStack = this.stack;
+        }
+
+        private byte[] toByteArray() {
+            byte[] code = Arrays.copyOf(this.bytes, this.length);
+            for (Label label : this.labels) {
+                for (int[] reference : label.references) {
+                    int offset = label.position - reference[0];
+                    boolean wide = code[reference[0]] == (byte) TABLESWITCH;
+                    if (wide) {
+                        code[reference[1]] = (byte) (offset >>> 24);
+                        code[reference[1] + 1] = (byte) (offset >>> 16);
+                        code[reference[1] + 2] = (byte) (offset >>> 8);
+                        code[reference[1] + 3] = (byte) offset;
+                    } else {
+                        if (offset < Short.MIN_VALUE || offset > Short.MAX_VALUE) throw new IllegalStateException("branch too far");
+                        code[reference[1]] = (byte) (offset >>> 8);
+                        code[reference[1] + 1] = (byte) offset;
+                    }
+                }
+            }
+            return code;
+        }
+
+        private void writeByte(int value) {
+            if (this.length == this.bytes.length) this.bytes = Arrays.copyOf(this.bytes, this.length * 2);
+            this.bytes[this.length++] = (byte) value;
+        }
+
+        private void writeShort(int value) {
+            writeByte(value >>> 8);
+            writeByte(value);
+        }
+
+        private void writeInt(int value) {
+            writeShort(value >>> 16);
+            writeShort(value);
+        }
+    }
+}
@@ -0,0 +1,712 @@
+package com.propp;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+
+import static com.propp.TokenType.*;
+
+//compiles the parse tree once into a tree of small executable nodes, so running a program no longer dispatches on
+//TokenType or re-reads OPERATOR_LIST/GLUE shapes for every node, behaves the same as the Evaluator
+public class ClosureCompiler {
+    private static final Lexeme TRUE = new BooleanValue(true, 0);
+
+    private final IdentityHashMap<Lexeme, Function> functions; //function bodies by their STATEMENT_LIST
+
+    public ClosureCompiler() {
+        this.functions = new IdentityHashMap<Lexeme, Function>();
+    }
+
+    public Program compile(Lexeme program) {
+        List<Statement> statements = new ArrayList<Statement>();
+        for (Lexeme node = program; node != null; node = node.getRight()) {
+            if (node.getLeft() != null) statements.add(compileStatement(node.getLeft(), true));
+        }
+        return new Program(statements.toArray(new Statement[0]));
+    }
+
+    //state of one run, takes the place of the functionCounter and returning fields of the Evaluator
+    static class State {
+        private int functionCounter;
+        private boolean returning;
+    }
+
+    public static class Program {
+        private final Statement[] statements;
+
+        private Program(Statement[] statements) {
+            this.statements = statements;
+        }
+
+        public List<Lexeme> run(Environment environment) {
+            State state = new State();
+            List<Lexeme> values = new ArrayList<Lexeme>();
+            for (Statement statement : this.statements) {
+                List<Lexeme> temp = statement.execute(state, environment);
+                if (temp != null) values.addAll(temp);
+            }
+            return values;
+        }
+    }
+
+    private static class Function {
+        private final Lexeme body;
+        private final Statement[] statements;
+
+        private Function(Lexeme body, Statement[] statements) {
+            this.body = body;
+            this.statements = statements;
+        }
+    }
+
+    // compiling
+
+    private Statement compileStatement(Lexeme tree, boolean topLevel) {
+        switch (tree.getType()) {
+            case FUNCTION_DECL:
+                return compileFunctionDeclaration(tree);
+            case ASSIGN:
+                return new Assign(tree.getLineNumber(), compileExpressionList(tree.getRight()), compileTargets(tree.getLeft()));
+            case WHILE:
+                return new While(compileExpression(tree.getLeft()), compileBlock(tree.getRight()), tree.getRight());
+            case IF:
+                return compileIf(tree);
+            case RETURN:
+                return new Return(tree.getLineNumber(), compileExpressionList(tree.getLeft()));
+            case EXPRESSION_LIST:
+                return new ExpressionStatement(compileExpressionList(tree), topLevel);
+            default:
+                return new UnsupportedStatement(tree);
+        }
+    }
+
+    private Statement[] compileBlock(Lexeme statementList) {
+        List<Statement> statements = new ArrayList<Statement>();
+        for (Lexeme node = statementList; node != null && node.getLeft() != null; node = node.getRight()) {
+            statements.add(compileStatement(node.getLeft(), false));
+        }
+        return statements.toArray(new Statement[0]);
+    }
+
+    private Statement compileFunctionDeclaration(Lexeme tree) {
+        Lexeme body = tree.getRight();
+        this.functions.put(body, new Function(body, compileBlock(body)));
+        return new FunctionDeclaration(tree.getLineNumber(), tree.getLeft(), body);
+    }
+
+    private Statement compileIf(Lexeme tree) {
+        List<Expression> conditions = new ArrayList<Expression>();
+        List<Statement[]> blocks = new ArrayList<Statement[]>();
+        List<Lexeme> blockLists = new ArrayList<Lexeme>();
+        Lexeme elseBlock = null;
+        for (Lexeme node = tree; node != null; node = node.getRight().getRight()) {
+            if (node.getType() == ELSE) {
+                elseBlock = node.getLeft();
+                break;
+            }
+            conditions.add(compileExpression(node.getLeft()));
+            blocks.add(compileBlock(node.getRight().getLeft()));
+            blockLists.add(node.getRight().getLeft());
+        }
+        return new If(conditions.toArray(new Expression[0]), blocks.toArray(new Statement[0][]),
+                blockLists.toArray(new Lexeme[0]), (elseBlock == null) ? null : compileBlock(elseBlock), elseBlock);
+    }
+
+    private Target[] compileTargets(Lexeme parameterList) {
+        List<Target> targets = new ArrayList<Target>();
+        for (Lexeme node = parameterList; node != null; node = node.getRight()) {
+            Lexeme identifier = node.getLeft();
+            if (identifier == null) continue;
+            if (identifier.getLeft() == null) {
+                targets.add(new Target(identifier, null));
+                continue;
+            }
+            List<Lexeme> indices = new ArrayList<Lexeme>();
+            for (Lexeme index = identifier.getLeft(); index != null; index = index.getLeft()) indices.add(index.getRight());
+            targets.add(new Target(identifier, indices.toArray(new Lexeme[0])));
+        }
+        return targets.toArray(new Target[0]);
+    }
+
+    private Expression[] compileExpressionList(Lexeme expressionList) {
+        List<Expression> expressions = new ArrayList<Expression>();
+        for (Lexeme node = expressionList; node != null; node = node.getRight()) {
+            if (node.getLeft() != null) expressions.add(compileExpression(node.getLeft()));
+        }
+        return expressions.toArray(new Expression[0]);
+    }
+
+    private Expression compileExpression(Lexeme tree) {
+        switch (tree.getType()) {
+            case INTEGER:
+            case FLOAT:
+            case STRING:
+            case BOOLEAN:
+            case CHARACTER:
+                return new Literal(tree);
+            case VARIABLE:
+                return new Variable(tree.getLeft());
+            case VARIADIC_OPERATION:
+                return compileVariadicOperation(tree);
+            case UNARY_OPERATION:
+                return new UnaryOperation(tree, compileExpression(tree.getRight()));
+            case ARRAY_ACCESS:
+                return compileArrayAccess(tree);
+            case FUNC_CALL:
+                Lexeme identifier = tree.getLeft();
+                Expression[] arguments = compileExpressionList(identifier.getLeft());
+                if (identifier.stringValue().equals("print")) {
+                    return new Print((identifier.getLeft() == null) ? identifier.getLineNumber() : identifier.getLeft().getLineNumber(), arguments);
+                }
+                return new FunctionCall(identifier, arguments, this.functions);
+            default:
+                return new UnsupportedExpression(tree);
+        }
+    }
+
+    private Expression compileVariadicOperation(Lexeme tree) {
+        OperatorChain chain = OperatorChain.of(tree);
+        Expression[] operands = compileExpressionList(tree.getRight());
+        boolean allSingle = true;
+        for (Expression operand : operands) allSingle &= operand.isSingle();
+        if (chain.length() == 1 && chain.getCount(0) < 0 && operands.length == 2 && allSingle && chain.getOperator(0) != ARRAY_CREATION) {
+            return new BinaryOperation(chain, operands[0], operands[1]);
+        }
+        return new VariadicOperation(chain, operands, allSingle);
+    }
+
+    private Expression compileArrayAccess(Lexeme tree) {
+        List<Lexeme> indices = new ArrayList<Lexeme>();
+        for (Lexeme node = tree.getRight(); node != null; node = node.getRight()) {
+            indices.add((node.getLeft() == null || node.getLeft().getType() != INTEGER) ? null : node.getLeft());
+        }
+        return new ArrayAccess(tree.getLineNumber(), compileExpression(tree.getLeft()), indices.toArray(new Lexeme[0]));
+    }
+
+    // running
+
+    private static List<Lexeme> executeBlock(Statement[] statements, State state, Environment environment) {
+        for (Statement statement : statements) {
+            List<Lexeme> temp = statement.execute(state, environment);
+            if (state.returning) return temp;
+        }
+        return null;
+    }
+
+    //same test as the Evaluator, the condition values compared with == against true
+    private static boolean isTrue(Expression condition, State state, Environment environment) {
+        Lexeme[] values;
+        int size;
+        if (condition.isSingle()) {
+            Lexeme value = condition.evaluate(state, environment);
+            if (value != null && value.getType() == BOOLEAN) return value.booleanValue();
+            values = new Lexeme[]{value, TRUE};
+            size = (value == null && !condition.keepsNull()) ? 0 : 1;
+        } else {
+            List<Lexeme> list = new ArrayList<Lexeme>();
+            condition.collect(state, environment, list);
+            values = list.toArray(new Lexeme[list.size() + 1]);
+            size = list.size();
+        }
+        return Expressions.isTrue(values, size, condition.lineNumber);
+    }
+
+    abstract static class Statement {
+        //returns the values produced, only used at the top level and by return statements
+        abstract List<Lexeme> execute(State state, Environment environment);
+    }
+
+    abstract static class Expression {
+        final int lineNumber;
+
+        Expression(int lineNumber) {
+            this.lineNumber = lineNumber;
+        }
+
+        //null if no value was produced
+        abstract Lexeme evaluate(State state, Environment environment);
+
+        void collect(State state, Environment environment, List<Lexeme> values) {
+            Lexeme value = evaluate(state, environment);
+            if (value != null || keepsNull()) values.add(value);
+        }
+
+        //false for expressions that can produce any number of values
+        boolean isSingle() {
+            return true;
+        }
+
+        //undeclared variables still take up a place in expression lists
+        boolean keepsNull() {
+            return false;
+        }
+    }
+
+    private static Lexeme[] evaluateAll(Expression[] expressions, boolean allSingle, State state, Environment environment, int[] size) {
+        if (allSingle) {
+            Lexeme[] values = new Lexeme[expressions.length];
+            int count = 0;
+            for (Expression expression : expressions) {
+                Lexeme value = expression.evaluate(state, environment);
+                if (value != null || expression.keepsNull()) values[count++] = value;
+            }
+            size[0] = count;
+            return values;
+        }
+        List<Lexeme> list = new ArrayList<Lexeme>();
+        for (Expression expression : expressions) expression.collect(state, environment, list);
+        size[0] = list.size();
+        return list.toArray(new Lexeme[0]);
+    }
+
+    private static boolean allSingle(Expression[] expressions) {
+        for (Expression expression : expressions) {
+            if (!expression.isSingle()) return false;
+        }
+        return true;
+    }
+
+    // statements
+
+    private static class ExpressionStatement extends Statement {
+        private final Expression[] expressions;
+        private final boolean keepValues;
+
+        private ExpressionStatement(Expression[] expressions, boolean keepValues) {
+            this.expressions = expressions;
+            this.keepValues = keepValues;
+        }
+
+        List<Lexeme> execute(State state, Environment environment) {
+            List<Lexeme> values = new ArrayList<Lexeme>(this.expressions.length);
+            for (Expression expression : this.expressions) expression.collect(state, environment, values);
+            return (this.keepValues || state.returning) ? values : null;
+        }
+    }
+
+    private static class Target {
+        private final Lexeme identifier;
+        private final Lexeme[] indices; //null for a plain variable
+
+        private Target(Lexeme identifier, Lexeme[] indices) {
+            this.identifier = identifier;
+            this.indices = indices;
+        }
+
+        private boolean assign(Environment environment, Lexeme value) {
+            if (this.indices == null) {
+                environment.addVariable(this.identifier, value);
+                return true;
+            }
+            return Expressions.assignElement(environment, this.identifier, this.indices, value);
+        }
+    }
+
+    private static class Assign extends Statement {
+        private final int lineNumber;
+        private final Expression[] values;
+        private final Target[] targets;
+        private final boolean allSingle;
+
+        private Assign(int lineNumber, Expression[] values, Target[] targets) {
+            this.lineNumber = lineNumber;
+            this.values = values;
+            this.targets = targets;
+            this.allSingle = ClosureCompiler.allSingle(values);
+        }
+
+        List<Lexeme> execute(State state, Environment environment) {
+            if (this.allSingle && this.values.length == 1 && this.targets.length == 1) {
+                Lexeme value = this.values[0].evaluate(state, environment);
+                if (value != null || this.values[0].keepsNull()) this.targets[0].assign(environment, value);
+                else mismatch(0);
+                return null;
+            }
+            int[] size = new int[1];
+            Lexeme[] expressionVals = evaluateAll(this.values, this.allSingle, state, environment, size);
+            if (size[0] != this.targets.length) {
+                mismatch(size[0]);
+                return null;
+            }
+            for (int i = 0; i < this.targets.length; i++) {
+                if (!this.targets[i].assign(environment, expressionVals[i])) return null;
+            }
+            return null;
+        }
+
+        private void mismatch(int found) {
+            Forest.error(this.lineNumber, " mismatching number of expressions and variables. Expressions:" + found + " Variables:" + this.targets.length);
+        }
+    }
+
+    private static class FunctionDeclaration extends Statement {
+        private final int lineNumber;
+        private final Lexeme identifier;
+        private final Lexeme body;
+
+        private FunctionDeclaration(int lineNumber, Lexeme identifier, Lexeme body) {
+            this.lineNumber = lineNumber;
+            this.identifier = identifier;
+            this.body = body;
+        }
+
+        List<Lexeme> execute(State state, Environment environment) {
+            if (this.identifier.stringValue().equals("print")) {
+                Forest.error(this.lineNumber, " can not declare function with name print");
+                return null;
+            }
+            environment.addVariable(this.identifier, this.body);
+            return Collections.singletonList(this.body);
+        }
+    }
+
+    private static class If extends Statement {
+        private final Expression[] conditions;
+        private final Statement[][] blocks;
+        private final Lexeme[] blockLists;
+        private final Statement[] elseBlock;
+        private final Lexeme elseList;
+
+        private If(Expression[] conditions, Statement[][] blocks, Lexeme[] blockLists, Statement[] elseBlock, Lexeme elseList) {
+            this.conditions = conditions;
+            this.blocks = blocks;
+            this.blockLists = blockLists;
+            this.elseBlock = elseBlock;
+            this.elseList = elseList;
+        }
+
+        List<Lexeme> execute(State state, Environment environment) {
+            for (int i = 0; i < this.conditions.length; i++) {
+                if (isTrue(this.conditions[i], state, environment)) {
+                    Environment ifEnvir = new Environment(environment, this.blockLists[i].getScope());
+                    List<Lexeme> temp = executeBlock(this.blocks[i], state, ifEnvir);
+                    return state.returning ? temp : null;
+                }
+            }
+            if (this.elseBlock == null) return null;
+            List<Lexeme> temp = executeBlock(this.elseBlock, state, new Environment(environment, this.elseList.getScope()));
+            return state.returning ? temp : null;
+        }
+    }
+
+    private static class While extends Statement {
+        private final Expression condition;
+        private final Statement[] body;
+        private final Lexeme bodyList;
+
+        private While(Expression condition, Statement[] body, Lexeme bodyList) {
+            this.condition = condition;
+            this.body = body;
+            this.bodyList = bodyList;
+        }
+
+        List<Lexeme> execute(State state, Environment environment) {
+            Environment loopEnvir = new Environment(environment, this.bodyList.getScope());
+            while (isTrue(this.condition, state, environment)) {
+                List<Lexeme> temp = executeBlock(this.body, state, loopEnvir);
+                if (state.returning) return temp;
+            }
+            return null;
+        }
+    }
+
+    private static class Return extends Statement {
+        private final int lineNumber;
+        private final Expression[] values;
+
+        private Return(int lineNumber, Expression[] values) {
+            this.lineNumber = lineNumber;
+            this.values = values;
+        }
+
+        List<Lexeme> execute(State state, Environment environment) {
+            if (state.functionCounter == 0) {
+                Forest.error(this.lineNumber, " return statement outside of a function");
+            }
+            List<Lexeme> temp = new ArrayList<Lexeme>(this.values.length);
+            for (Expression value : this.values) value.collect(state, environment, temp);
+            state.returning = true;
+            return temp;
+        }
+    }
+
+    private static class UnsupportedStatement extends Statement {
+        private final Lexeme tree;
+
+        private UnsupportedStatement(Lexeme tree) {
+            this.tree = tree;
+        }
+
+        List<Lexeme> execute(State state, Environment environment) {
+            Forest.error(this.tree.getLineNumber(), "unsupported Token " + this.tree.getType());
+            return null;
+        }
+    }
+
+    // expressions
+
+    private static class Literal extends Expression {
+        private final Lexeme value;
+
+        private Literal(Lexeme value) {
+            super(value.getLineNumber());
+            this.value = value;
+        }
+
+        Lexeme evaluate(State state, Environment environment) {
+            return this.value;
+        }
+    }
+
+    private static class Variable extends Expression {
+        private final Lexeme identifier;
+
+        private Variable(Lexeme identifier) {
+            super(identifier.getLineNumber());
+            this.identifier = identifier;
+        }
+
+        Lexeme evaluate(State state, Environment environment) {
+            return environment.getVariableValue(this.identifier);
+        }
+
+        boolean keepsNull() {
+            return true;
+        }
+    }
+
+    private static class BinaryOperation extends Expression {
+        private final OperatorChain chain;
+        private final TokenType operator;
+        private final Expression left, right;
+
+        private BinaryOperation(OperatorChain chain, Expression left, Expression right) {
+            super(chain.getLineNumber());
+            this.chain = chain;
+            this.operator = chain.getOperator(0);
+            this.left = left;
+            this.right = right;
+        }
+
+        Lexeme evaluate(State state, Environment environment) {
+            Lexeme first = this.left.evaluate(state, environment);
+            Lexeme second = this.right.evaluate(state, environment);
+            if (first != null && second != null) return Operators.binary(this.operator, first, second, this.lineNumber);
+            //a missing operand changes the arity, let the general path sort it out
+            Lexeme[] values = new Lexeme[2];
+            int size = 0;
+            if (first != null || this.left.keepsNull()) values[size++] = first;
+            if (second != null || this.right.keepsNull()) values[size++] = second;
+            return this.chain.apply(values, size);
+        }
+    }
+
+    private static class VariadicOperation extends Expression {
+        private final OperatorChain chain;
+        private final Expression[] operands;
+        private final boolean allSingle;
+
+        private VariadicOperation(OperatorChain chain, Expression[] operands, boolean allSingle) {
+            super(chain.getLineNumber());
+            this.chain = chain;
+            this.operands = operands;
+            this.allSingle = allSingle;
+        }
+
+        Lexeme evaluate(State state, Environment environment) {
+            int[] size = new int[1];
+            Lexeme[] values = evaluateAll(this.operands, this.allSingle, state, environment, size);
+            return this.chain.apply(values, size[0]);
+        }
+    }
+
+    private static class UnaryOperation extends Expression {
+        private final Lexeme operator;
+        private final int operandLineNumber;
+        private final Expression operand;
+
+        private UnaryOperation(Lexeme tree, Expression operand) {
+            super(tree.getLineNumber());
+            this.operator = tree.getLeft();
+            this.operandLineNumber = tree.getRight().getLineNumber();
+            this.operand = operand;
+        }
+
+        Lexeme evaluate(State state, Environment environment) {
+            Lexeme value;
+            if (this.operand.isSingle()) {
+                value = this.operand.evaluate(state, environment);
+                if (value == null && !this.operand.keepsNull()) return wrongCount(0);
+            } else {
+                List<Lexeme> values = new ArrayList<Lexeme>();
+                this.operand.collect(state, environment, values);
+                if (values.size() != 1) wrongCount(values.size());
+                if (values.isEmpty()) return null;
+                value = values.get(0);
+            }
+            if (value == null) return null;
+            return Evaluator.unaryOperation(this.operator, value, this.lineNumber, this.operandLineNumber);
+        }
+
+        private Lexeme wrongCount(int found) {
+            Forest.error(this.lineNumber, "invalid number of arguments for operator " + this.operator.getType() + " expected 1 founnd " + found);
+            return null;
+        }
+    }
+
+    private static class ArrayAccess extends Expression {
+        private final Expression array;
+        private final Lexeme[] indices; //null where the position is not an integer literal
+
+        private ArrayAccess(int lineNumber, Expression array, Lexeme[] indices) {
+            super(lineNumber);
+            this.array = array;
+            this.indices = indices;
+        }
+
+        Lexeme evaluate(State state, Environment environment) {
+            Lexeme arr;
+            if (this.array.isSingle()) arr = this.array.evaluate(state, environment);
+            else {
+                List<Lexeme> values = new ArrayList<Lexeme>();
+                this.array.collect(state, environment, values);
+                if (values.size() != 1) {
+                    Forest.error(this.lineNumber, "not single variable for array");
+                    return null;
+                }
+                arr = values.get(0);
+            }
+            return Expressions.arrayElement(arr, this.indices, this.lineNumber);
+        }
+    }
+
+    private static class Print extends Expression {
+        private final Expression[] arguments;
+
+        private Print(int lineNumber, Expression[] arguments) {
+            super(lineNumber);
+            this.arguments = arguments;
+        }
+
+        Lexeme evaluate(State state, Environment environment) {
+            List<Lexeme> values = new ArrayList<Lexeme>(this.arguments.length);
+            for (Expression argument : this.arguments) argument.collect(state, environment, values);
+            Evaluator.printValues(values, this.lineNumber);
+            return null;
+        }
+
+        boolean isSingle() {
+            return false;
+        }
+
+        void collect(State state, Environment environment, List<Lexeme> values) {
+            evaluate(state, environment);
+        }
+    }
+
+    private static class FunctionCall extends Expression {
+        private final Lexeme identifier;
+        private final Expression[] arguments;
+        private final boolean allSingle;
+        private final IdentityHashMap<Lexeme, Function> functions;
+        //both caches are replaced whole and read once per call, so a Program can be run by several threads at once
+        private Function cache; //the function called last time, checked against the body found in the Environment
+        private Parameters cachedParams; //parameters come from the identifier the function is stored under
+
+        private FunctionCall(Lexeme identifier, Expression[] arguments, IdentityHashMap<Lexeme, Function> functions) {
+            super(identifier.getLineNumber());
+            this.identifier = identifier;
+            this.arguments = arguments;
+            this.allSingle = ClosureCompiler.allSingle(arguments);
+            this.functions = functions;
+            this.cache = null;
+            this.cachedParams = null;
+        }
+
+        boolean isSingle() {
+            return false;
+        }
+
+        Lexeme evaluate(State state, Environment environment) {
+            List<Lexeme> values = call(state, environment);
+            return (values == null || values.isEmpty()) ? null : values.get(0);
+        }
+
+        void collect(State state, Environment environment, List<Lexeme> values) {
+            List<Lexeme> temp = call(state, environment);
+            if (temp != null) values.addAll(temp);
+        }
+
+        private List<Lexeme> call(State state, Environment environment) {
+            if (!environment.variableExists(this.identifier)) {
+                Forest.error(this.lineNumber, "function " + this.identifier.stringValue() + " not declared");
+                return null;
+            }
+            Lexeme body = environment.getVariableValue(this.identifier);
+            Lexeme[] parameters = parameters(environment.getIdentifier(this.identifier).getLeft());
+            if (body == null || body.getType() != STATEMENT_LIST) {
+                Forest.error(this.lineNumber, this.identifier.stringValue() + " is not a function");
+                return null;
+            }
+            Function function = this.cache;
+            if (function == null || function.body != body) {
+                function = this.functions.get(body);
+                this.cache = function;
+            }
+            Environment newEnvir = new Environment(environment, body.getScope());
+            int[] size = new int[1];
+            Lexeme[] expressionList = evaluateAll(this.arguments, this.allSingle, state, environment, size);
+            if (size[0] != parameters.length) {
+                Forest.error(this.lineNumber, "wrong number of parameters for function " + this.identifier.stringValue() + " expected " + parameters.length + " but found " + size[0]);
+                return null;
+            }
+            for (int i = 0; i < size[0]; i++) {
+                newEnvir.addVariable(parameters[i], expressionList[i]);
+            }
+            state.functionCounter++;
+            Object event = ForestEvents.recording() ? ForestEvents.beginCall() : null;
+            List<Lexeme> temp = executeBlock(function.statements, state, newEnvir);
+            if (event != null) ForestEvents.endCall(event, this.identifier.stringValue(), this.lineNumber);
+            state.returning = false;
+            state.functionCounter--;
+            return temp;
+        }
+
+        private Lexeme[] parameters(Lexeme paramListNode) {
+            Parameters cached = this.cachedParams;
+            if (cached != null && cached.node == paramListNode) return cached.list;
+            List<Lexeme> paramList = new ArrayList<Lexeme>();
+            for (Lexeme node = paramListNode; node != null; node = node.getRight()) {
+                if (node.getLeft() != null) paramList.add(node.getLeft());
+            }
+            cached = new Parameters(paramListNode, paramList.toArray(new Lexeme[0]));
+            this.cachedParams = cached;
+            return cached.list;
+        }
+    }
+
+    private static final class Parameters {
+        private final Lexeme node;
+        private final Lexeme[] list;
+
+        private Parameters(Lexeme node, Lexeme[] list) {
+            this.node = node;
+            this.list = list;
+        }
+    }
+
+    private static class UnsupportedExpression extends Expression {
+        private final Lexeme tree;
+
+        private UnsupportedExpression(Lexeme tree) {
+            super(tree.getLineNumber());
+            this.tree = tree;
+        }
+
+        Lexeme evaluate(State state, Environment environment) {
+            Forest.error(this.tree.getLineNumber(), "unsupported Token " + this.tree.getType());
+            return null;
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package com.propp;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+//where the errors Forest.error reports go, like OutputSink each thread reports to the Diagnostics it last chose with use,
+//which is System.err until it chooses one, any other Diagnostics keeps the errors of its run in order
+public class Diagnostics {
+    private static final Diagnostics STANDARD = new Diagnostics(true);
+    private static final ThreadLocal<Diagnostics> current = ThreadLocal.withInitial(() -> STANDARD);
+
+    //one reported error, printed the way Forest always printed its errors
+    public static final class Diagnostic {
+        private final int lineNumber;
+        private final String message;
+
+        private Diagnostic(int lineNumber, String message) {
+            this.lineNumber = lineNumber;
+            this.message = message;
+        }
+
+        public int getLineNumber() {
+            return this.lineNumber;
+        }
+
+        public String getMessage() {
+            return this.message;
+        }
+
+        public String toString() {
+            return "line:" + this.lineNumber + " " + this.message;
+        }
+    }
+
+    private final boolean standardError;
+    private final List<Diagnostic> diagnostics; //empty for System.err
+
+    public Diagnostics() {
+        this(false);
+    }
+
+    private Diagnostics(boolean standardError) {
+        this.standardError = standardError;
+        this.diagnostics = new ArrayList<Diagnostic>();
+    }
+
+    public static Diagnostics current() {
+        return current.get();
+    }
+
+    //makes diagnostics the one this thread reports to and returns the one it reported to before
+    public static Diagnostics use(Diagnostics diagnostics) {
+        Diagnostics previous = current.get();
+        current.set(diagnostics);
+        return previous;
+    }
+
+    public void report(int lineNumber, String message) {
+        Diagnostic diagnostic = new Diagnostic(lineNumber, message);
+        if (this.standardError) {
+            System.err.println(diagnostic);
+            return;
+        }
+        synchronized (this) {
+            this.diagnostics.add(diagnostic);
+        }
+    }
+
+    public synchronized List<Diagnostic> getDiagnostics() {
+        return Collections.unmodifiableList(new ArrayList<Diagnostic>(this.diagnostics));
+    }
+
+    public synchronized boolean hasErrors() {
+        return !this.diagnostics.isEmpty();
+    }
+}
@@ -0,0 +1,93 @@
+package com.propp;
+
+import java.util.Arrays;
+
+import static com.propp.Opcodes.*;
+
+//prints the instructions of Chunks in a readable form
+public class Disassembler {
+
+    public static String disassemble(ChunkCompiler.CompiledProgram program) {
+        StringBuilder str = new StringBuilder(disassemble(program.getMain()));
+        for (Chunk function : program.getFunctions()) str.append(disassemble(function));
+        return str.toString();
+    }
+
+    public static String disassemble(Chunk chunk) {
+        StringBuilder str = new StringBuilder();
+        str.append("== ").append(chunk.name).append(" registers:").append(chunk.registers).append(" marks:").append(chunk.marks)
+                .append(" environments:").append(chunk.environments).append(" ==\n");
+        for (int pc = 0; pc < chunk.code.length; pc += OPERANDS[chunk.code[pc]] + 1) {
+            str.append(instruction(chunk, pc)).append('\n');
+        }
+        return str.toString();
+    }
+
+    public static String instruction(Chunk chunk, int pc) {
+        int[] code = chunk.code;
+        int opcode = code[pc];
+        StringBuilder str = new StringBuilder(String.format("%04d %-10s", pc, NAMES[opcode]));
+        for (int i = 1; i <= OPERANDS[opcode]; i++) str.append(' ').append(code[pc + i]);
+        Object constant = null;
+        switch (opcode) {
+            case LOADK:
+            case GETVAR:
+            case SETVAR:
+            case SETELEM:
+            case ENVNEW:
+            case LOOKUP:
+            case CALL:
+            case APPLY:
+            case UNARYL:
+                constant = chunk.constants[code[pc + 2]];
+                break;
+            case BINARY:
+                constant = chunk.constants[code[pc + 4]];
+                break;
+            case UNARY:
+            case INDEX:
+            case INDEXL:
+                constant = chunk.constants[code[pc + 3]];
+                break;
+            case DECLARE:
+                constant = chunk.constants[code[pc + 1]];
+                break;
+            default:
+                break;
+        }
+        if (constant != null) str.append("    ; ").append(describe(constant));
+        return str.toString();
+    }
+
+    private static String describe(Object constant) {
+        if (constant instanceof Lexeme) {
+            Lexeme lex = (Lexeme) constant;
+            switch (lex.getType()) {
+                case IDENTIFIER:
+                    return lex.stringValue();
+                case UNARY_OPERATION:
+                    return lex.getLeft().getType().toString();
+                default:
+                    return lex.getType() + ":" + lex.getValueString();
+            }
+        }
+        if (constant instanceof OperatorChain) {
+            OperatorChain chain = (OperatorChain) constant;
+            StringBuilder str = new StringBuilder();
+            for (int i = 0; i < chain.length(); i++) {
+                if (i > 0) str.append(" $");
+                str.append(' ').append(chain.getOperator(i));
+                if (chain.getCount(i) >= 0) str.append(' ').append(chain.getCount(i));
+            }
+            return str.toString().trim();
+        }
+        if (constant instanceof Lexeme[]) {
+            StringBuilder str = new StringBuilder();
+            for (Lexeme index : (Lexeme[]) constant) str.append('[').append((index == null) ? "?" : index.getValueString()).append(']');
+            return str.toString();
+        }
+        if (constant instanceof BytecodeRuntime.CallSite) return "call " + ((BytecodeRuntime.CallSite) constant).getName();
+        if (constant instanceof Scope) return "scope of " + ((Scope) constant).size() + " slots";
+        return Arrays.deepToString(new Object[]{constant});
+    }
+}
@@ -0,0 +1,10 @@
+package com.propp;
+
+//how a parsed program is executed
+public enum Engine {
+    EVALUATOR, //walks the Lexeme tree directly
+    CLOSURE,   //compiles the tree once with the ClosureCompiler then runs the compiled nodes
+    BYTECODE,  //compiles the tree to a JVM class with the BytecodeCompiler, falls back to the Evaluator if it can not
+    VM,        //compiles the tree to Chunks run by the VirtualMachine, falls back to the Evaluator if it can not
+    ARENA      //copies the tree into an AstArena with the ArenaCompiler then walks it with the ArenaEvaluator
+}
@@ -1,61 +1,71 @@
 package com.propp;
 
-import java.util.HashMap;
-
 public class Environment {
 
     private Environment parent;
-    private HashMap<Lexeme, Lexeme> variables;
+    private Frame variables;
 
     public Environment(Environment parent) {
+        this(parent, null);
+    }
+
+    public Environment(Environment parent, Scope scope) {
         this.parent = parent;
-        this.variables = new HashMap<Lexeme, Lexeme>();
+        this.variables = new Frame(scope);
     }
 
     //not instatation, modifying and creating are the same statement so 1 method for both
     public void addVariable(Lexeme identifier, Lexeme value) {
-        if (!variableExists(identifier) || variables.containsKey(identifier)) {
-            variables.put(identifier, value);
-        } else {
-            this.parent.addVariable(identifier, value);
+        if (identifier.isResolved()) {
+            ancestor(identifier.getDepth()).variables.set(identifier.getSlot(), identifier, value);
+            return;
         }
+        Environment envir = this;
+        while (envir != null && !envir.variables.contains(identifier)) envir = envir.parent;
+        if (envir == null) envir = this;
+        envir.variables.put(identifier, value);
     }
 
     public boolean variableExists(Lexeme identifier) {
-        return variables.containsKey(identifier) || (this.parent != null && this.parent.variableExists(identifier));
+        if (identifier.isResolved()) return ancestor(identifier.getDepth()).variables.isSet(identifier.getSlot());
+        for (Environment envir = this; envir != null; envir = envir.parent) {
+            if (envir.variables.contains(identifier)) return true;
+        }
+        return false;
     }
 
     public Lexeme getVariableValue(Lexeme identifier) {
-        if (!variables.containsKey(identifier)) {
-            if (this.parent == null) return variableNotFound(identifier);
-            Lexeme val = this.parent.getVariableValue(identifier);
-            if (val == null) return variableNotFound(identifier);
-            return val;
+        if (identifier.isResolved()) {
+            Frame frame = ancestor(identifier.getDepth()).variables;
+            if (!frame.isSet(identifier.getSlot())) return variableNotFound(identifier);
+            return frame.get(identifier.getSlot());
         }
-        return variables.get(identifier);
+        for (Environment envir = this; envir != null; envir = envir.parent) {
+            if (envir.variables.contains(identifier)) return envir.variables.get(identifier);
+        }
+        return variableNotFound(identifier);
     }
 
-    public Lexeme getIdentifier(Lexeme identifier) { //TODO make this more time efficient
-        if (!variableExists(identifier)) return null;
-        if (this.variables.containsKey(identifier)) {
-            for (Lexeme key : this.variables.keySet()) {
-                if (key.equals(identifier)) return key;
-            }
-        } else {
-            return this.parent.getIdentifier(identifier);
+    public Lexeme getIdentifier(Lexeme identifier) {
+        for (Environment envir = this; envir != null; envir = envir.parent) {
+            if (envir.variables.contains(identifier)) return envir.variables.getIdentifier(identifier);
         }
         return null;
     }
 
+    private Environment ancestor(int depth) {
+        Environment envir = this;
+        for (int i = 0; i < depth; i++) envir = envir.parent;
+        return envir;
+    }
+
     private static Lexeme variableNotFound(Lexeme identifier) {
-        Forest.error(identifier.getLineNumber(), "Variable " + identifier.stringValue + " not declared");
+        Forest.error(identifier.getLineNumber(), "Variable " + identifier.stringValue() + " not declared");
         return null;
     }
 
     public void printEnvironment() {
         System.out.println("Environment:" + this);
-        for (Lexeme lex : variables.keySet()) {
-            System.out.println(lex.stringValue + ":" + variables.get(lex));
-        }
+        variables.print();
     }
 }
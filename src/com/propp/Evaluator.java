@@ -5,13 +5,23 @@ import java.util.List;
 
 import static com.propp.TokenType.*;
 
+//walks the parse tree, single valued expressions (literals, variables, operations, array accesses) are evaluated to a
+//Lexeme with evalSingle, lists are only built for expression lists, function calls and return values
 public class Evaluator {
+    private static final Lexeme TRUE = new BooleanValue(true, 0);
+
     private int functionCounter;
     private boolean returning;
+    private Lexeme tailCall; //the call a return is leaving for its function's caller to make, null if none
+    private Environment tailEnvironment;
+    private Environment tailParent; //where that call's Environment goes when its caller's are dropped, else null
 
     public Evaluator() {
         functionCounter = 0;
         returning = false;
+        tailCall = null;
+        tailEnvironment = null;
+        tailParent = null;
     }
 
     public List<Lexeme> eval(Lexeme tree, Environment environment) {
@@ -19,25 +29,29 @@ public class Evaluator {
         if (tree == null) return valueList;
         switch (tree.getType()) {
             case PROGRAM:
-                combineList(valueList, eval(tree.getLeft(), environment));
-                combineList(valueList, eval(tree.getRight(), environment)); //might be null be handled in function call
+                for (Lexeme statement : tree.getStatements()) {
+                    if (statement != null) statement(statement, environment, valueList);
+                }
                 break;
             case FUNCTION_DECL:
                 return functionDeclaration(tree, environment);
             case FUNC_CALL:
-                return functionCall(tree, environment);
+                return trampoline(functionCall(tree, environment));
             case RETURN:
                 return evalReturnStatement(tree, environment);
             case EXPRESSION_LIST:
                 return evalExpressionList(tree, environment);
             case VARIADIC_OPERATION:
-                return variadicOperation(tree, environment, null);
             case UNARY_OPERATION:
-                return evalUnaryOperation(tree, environment);
             case ARRAY_ACCESS:
-                return arrayAccess(tree, environment);
             case VARIABLE:
-                return evalVariable(tree, environment);
+            case INTEGER:
+            case FLOAT:
+            case STRING:
+            case BOOLEAN:
+            case CHARACTER:
+                Lexeme value = evalSingle(tree, environment);
+                return (value == null && !keepsNull(tree)) ? null : createSingleList(value);
             case ASSIGN:
                 return assignVariable(tree, environment);
             case IF:
@@ -47,12 +61,6 @@ public class Evaluator {
                 return evalElse(tree, environment);
             case WHILE:
                 return evalWhile(tree, environment);
-            case INTEGER:
-            case FLOAT:
-            case STRING:
-            case BOOLEAN:
-            case CHARACTER:
-                return createSingleList(tree);
             default:
                 Forest.error(tree.getLineNumber(), "unsupported Token " + tree.getType());
                 break;
@@ -60,23 +68,78 @@ public class Evaluator {
         return valueList;
     }
 
-    private static List<Lexeme> createSingleList(Lexeme lex) {
-        List<Lexeme> array = new ArrayList<Lexeme>();
-        array.add(lex);
-        return array;
+    //null if no value was produced, only called for trees isSingle accepts
+    private Lexeme evalSingle(Lexeme tree, Environment environment) {
+        switch (tree.getType()) {
+            case VARIADIC_OPERATION:
+                return variadicOperation(tree, environment);
+            case UNARY_OPERATION:
+                return evalUnaryOperation(tree, environment);
+            case ARRAY_ACCESS:
+                return arrayAccess(tree, environment);
+            case VARIABLE:
+                return environment.getVariableValue(tree.getLeft()); //TODO add variable chains
+            default:
+                return tree;
+        }
+    }
+
+    //expressions that produce at most one value
+    private static boolean isSingle(Lexeme tree) {
+        switch (tree.getType()) {
+            case VARIADIC_OPERATION:
+            case UNARY_OPERATION:
+            case ARRAY_ACCESS:
+            case VARIABLE:
+                return true;
+            default:
+                return tree instanceof Value;
+        }
     }
 
-    private List<Lexeme> combineList(List<Lexeme> valList, List<Lexeme> addList) {
-        if (addList != null) {
-            for (Lexeme val : addList) {
-                valList.add(val);
+    //undeclared variables still take up a place in expression lists
+    private static boolean keepsNull(Lexeme tree) {
+        return tree.getType() == VARIABLE;
+    }
+
+    //adds the values of tree to values without building a list for them
+    private void collect(Lexeme tree, Environment environment, List<Lexeme> values) {
+        if (tree.getType() == EXPRESSION_LIST) {
+            for (Lexeme node = tree; node != null; node = node.getRight()) {
+                if (node.getLeft() != null) collect(node.getLeft(), environment, values);
             }
+        } else if (isSingle(tree)) {
+            Lexeme value = evalSingle(tree, environment);
+            if (value != null || keepsNull(tree)) values.add(value);
+        } else {
+            List<Lexeme> temp = eval(tree, environment);
+            if (temp != null) values.addAll(temp);
         }
-        return valList;
+    }
+
+    //runs a statement whose values are not used
+    private List<Lexeme> execute(Lexeme tree, Environment environment) {
+        if (tree.getType() == EXPRESSION_LIST) {
+            for (Lexeme node = tree; node != null; node = node.getRight()) {
+                if (node.getLeft() != null) execute(node.getLeft(), environment);
+            }
+            return null;
+        }
+        if (isSingle(tree)) {
+            evalSingle(tree, environment);
+            return null;
+        }
+        return eval(tree, environment);
+    }
+
+    private static List<Lexeme> createSingleList(Lexeme lex) {
+        List<Lexeme> array = new ArrayList<Lexeme>();
+        array.add(lex);
+        return array;
     }
 
     private List<Lexeme> functionDeclaration(Lexeme root, Environment environment) {
-        if (root.getLeft().stringValue.equals("print")) {
+        if (root.getLeft().stringValue().equals("print")) {
             Forest.error(root.getLineNumber(), " can not declare function with name print");
             return null;
         }
@@ -84,22 +147,24 @@ public class Evaluator {
         return createSingleList(root.getRight());
     }
 
-    private List<Lexeme> functionCall(Lexeme root, Environment environment) {
-        if (root.getLeft().stringValue.equals("print")) {
+    List<Lexeme> functionCall(Lexeme root, Environment environment) {
+        Environment parent = (this.tailParent == null) ? environment : this.tailParent;
+        this.tailParent = null;
+        if (root.getLeft().stringValue().equals("print")) {
             print(root.getLeft().getLeft(), environment);
             return null;
         }
         if (!environment.variableExists(root.getLeft())) {
-            Forest.error(root.getLineNumber(), "function " + root.getLeft().stringValue + " not declared");
+            Forest.error(root.getLineNumber(), "function " + root.getLeft().stringValue() + " not declared");
             return null;
         }
         Lexeme statementList = environment.getVariableValue(root.getLeft());
         Lexeme paramListNode = environment.getIdentifier(root.getLeft()).getLeft();
         if (statementList.getType() != STATEMENT_LIST) {
-            Forest.error(root.getLineNumber(), root.getLeft().stringValue + " is not a function");
+            Forest.error(root.getLineNumber(), root.getLeft().stringValue() + " is not a function");
             return null;
         }
-        Environment newEnvir = new Environment(environment);
+        Environment newEnvir = new Environment(parent, statementList.getScope());
         List<Lexeme> expressionList = eval(root.getLeft().getLeft(), environment);
         List<Lexeme> paramList = new ArrayList<Lexeme>();
         while (paramListNode != null) {
@@ -107,86 +172,123 @@ public class Evaluator {
             paramListNode = paramListNode.getRight();
         }
         if (expressionList.size() != paramList.size()) {
-            Forest.error(root.getLineNumber(), "wrong number of parameters for function " + root.getLeft().stringValue + " expected " + paramList.size() + " but found " + expressionList.size());
+            Forest.error(root.getLineNumber(), "wrong number of parameters for function " + root.getLeft().stringValue() + " expected " + paramList.size() + " but found " + expressionList.size());
             return null;
         }
         for (int i = 0; i < expressionList.size(); i++) {
             newEnvir.addVariable(paramList.get(i), expressionList.get(i));
         }
         functionCounter++;
+        Object event = ForestEvents.recording() ? ForestEvents.beginCall() : null;
         List<Lexeme> temp = evalStatementList(statementList, newEnvir);
+        if (event != null) ForestEvents.endCall(event, root.getLeft().stringValue(), root.getLineNumber());
+        if (this.tailCall != null && replacedByTailCalls(statementList)) this.tailParent = parent;
         returning = false;
         functionCounter--;
         return temp;
     }
 
+    //runs a function body in an Environment its parameters are already bound in, for calls made from outside a program
+    List<Lexeme> call(Lexeme statementList, Environment environment) {
+        functionCounter++;
+        List<Lexeme> temp = evalStatementList(statementList, environment);
+        returning = false;
+        functionCounter--;
+        return trampoline(temp);
+    }
+
+    //a function ending in return f(...) returns without making the call, it is made here, after the function is over,
+    //so a chain of tail calls, recursive or not, runs in one Java frame however long it is
+    //the arguments are evaluated in the Environment of the return, scoping is dynamic, and the callee's Environment
+    //goes under it too unless the Resolver found nothing could read what the caller wrote in its Environments,
+    //then it takes their place and a chain of tail calls keeps the Environments of one call
+    private List<Lexeme> trampoline(List<Lexeme> values) {
+        while (this.tailCall != null) {
+            Lexeme root = this.tailCall;
+            Environment environment = this.tailEnvironment;
+            this.tailCall = null;
+            this.tailEnvironment = null;
+            values = functionCall(root, environment);
+        }
+        return values;
+    }
+
     private void print(Lexeme root, Environment environment) {
-        String str = "";
-        List<Lexeme> expressionList = eval(root, environment);
-        for (int i = 0; i < expressionList.size(); i++) {
-            if (expressionList.get(i) == null) return;
-            switch (expressionList.get(i).getType()) {
-                case INTEGER:
-                    str += expressionList.get(i).intValue;
-                    break;
-                case FLOAT:
-                    str += expressionList.get(i).doubleValue;
-                    break;
-                case STRING:
-                    str += expressionList.get(i).stringValue;
-                    break;
-                case BOOLEAN:
-                    str += expressionList.get(i).booleanValue;
-                    break;
-                case CHARACTER:
-                    str += expressionList.get(i).characterValue;
-                    break;
-                default:
-                    Forest.error(root.getLineNumber(), "unsupported type " + expressionList.get(i).getType() + "for print statement");
-            }
-            if (i < expressionList.size() - 1) {
-                str += ",";
-            }
-        }
-        System.out.println(str);
+        printValues(eval(root, environment), root.getLineNumber());
+    }
+
+    //every engine prints through here
+    static void printValues(List<Lexeme> expressionList, int lineNumber) {
+        OutputSink.current().printValues(expressionList, lineNumber);
     }
 
     private List<Lexeme> evalStatementList(Lexeme statementList, Environment environment) {
         if (statementList == null) return null;
-        if (statementList.getLeft() == null) return null;
-        if (statementList.getLeft().getType() == RETURN) {
-            return eval(statementList.getLeft(), environment); //evaluating return function
+        for (Lexeme statement : statementList.getStatements()) {
+            if (statement == null) return null;
+            if (statement.getType() == RETURN) {
+                return statement(statement, environment, null); //evaluating return function
+            }
+            List<Lexeme> temp = statement(statement, environment, null);
+            if (returning) return temp;
         }
-        List<Lexeme> temp = eval(statementList.getLeft(), environment);
-        if (returning) return temp;
-        return evalStatementList(statementList.getRight(), environment);
+        return null;
+    }
+
+    //one statement of a program or a statement list, the values of a top level statement are added to values,
+    //the statements of a statement list have none but those of a return
+    List<Lexeme> statement(Lexeme statement, Environment environment, List<Lexeme> values) {
+        if (values == null) return execute(statement, environment);
+        collect(statement, environment, values);
+        return null;
     }
 
     private List<Lexeme> evalReturnStatement(Lexeme root, Environment environment) {
         if (this.functionCounter == 0) {
             Forest.error(root.getLineNumber(), " return statement outside of a function");
+        } else if (isTailCall(root.getLeft())) {
+            this.tailCall = root.getLeft().getLeft();
+            this.tailEnvironment = environment;
+            this.returning = true;
+            return null;
         }
         List<Lexeme> temp = eval(root.getLeft(), environment);
         this.returning = true;
         return temp;
     }
 
+    private static boolean replacedByTailCalls(Lexeme statementList) {
+        Scope scope = statementList.getScope();
+        return scope != null && scope.getFunction() != null && scope.getFunction().replacedByTailCalls();
+    }
+
+    //a return of nothing but one call, print returns nothing so it is not one
+    private static boolean isTailCall(Lexeme expressionList) {
+        if (expressionList == null || expressionList.getRight() != null) return false;
+        Lexeme call = expressionList.getLeft();
+        return call != null && call.getType() == FUNC_CALL && !call.getLeft().stringValue().equals("print");
+    }
+
     private List<Lexeme> evalExpressionList(Lexeme root, Environment environment) {
         List<Lexeme> expressionsVals = new ArrayList<Lexeme>();
-        while (root != null) {
-            if (root.getLeft() != null) {
-                combineList(expressionsVals, eval(root.getLeft(), environment));
-            }
-            root = root.getRight();
-        }
+        collect(root, environment, expressionsVals);
         return expressionsVals;
     }
 
-    private List<Lexeme> evalVariable(Lexeme root, Environment environment) {
-        return createSingleList(environment.getVariableValue(root.getLeft())); //TODO add variable chains
-    }
-
     private List<Lexeme> assignVariable(Lexeme root, Environment environment) {
+        Lexeme expression = root.getRight().getLeft();
+        Lexeme target = root.getLeft().getLeft();
+        //one value to one plain variable, the common case, needs no lists
+        if (expression != null && root.getRight().getRight() == null && isSingle(expression)
+                && target != null && target.getLeft() == null && root.getLeft().getRight() == null) {
+            Lexeme value = evalSingle(expression, environment);
+            if (value == null && !keepsNull(expression)) {
+                Forest.error(root.getLineNumber(), " mismatching number of expressions and variables. Expressions:0 Variables:1");
+                return null;
+            }
+            environment.addVariable(target, value);
+            return null;
+        }
         List<Lexeme> expressionVals = eval(root.getRight(), environment);
         Lexeme variableListNode = root.getLeft();
         List<Lexeme> variables = new ArrayList<Lexeme>();
@@ -202,8 +304,8 @@ public class Evaluator {
             if (variables.get(i).getLeft() != null) {
                 Lexeme identifier = variables.get(i);
                 Lexeme temp = identifier.getLeft();
-                if (temp.getType() != INTEGER) {
-                    Forest.error(temp.getLineNumber(), "expected Integer for array location found " + variables.get(i).getLeft().getType());
+                if (temp.getRight().getType() != INTEGER) {
+                    Forest.error(temp.getRight().getLineNumber(), "expected Integer for array location found " + temp.getRight().getType());
                     return null;
                 }
                 if (!environment.variableExists(identifier)) {
@@ -213,16 +315,17 @@ public class Evaluator {
                 Lexeme array = environment.getVariableValue(identifier);
                 while (temp != null) {
                     if (array.getType() != ARRAY) {
-                        Forest.error(identifier.getLineNumber(), identifier.stringValue + " is not an array of required dimension");
+                        Forest.error(identifier.getLineNumber(), identifier.stringValue() + " is not an array of required dimension");
                     }
+                    int index = temp.getRight().intValue();
                     if (temp.getLeft() == null) {//no more dimensions of the array
-                        if (array.arrayValue.length <= temp.intValue) {
-                            Forest.error(identifier.getLineNumber(), "Array index out of bounds. Length:" + array.arrayValue.length + " Value:" + temp.intValue);
+                        if (array.arrayValue().length <= index) {
+                            Forest.error(identifier.getLineNumber(), "Array index out of bounds. Length:" + array.arrayValue().length + " Value:" + index);
                             return null;
                         }
-                        array.arrayValue[temp.intValue] = expressionVals.get(i);
+                        array.arrayValue()[index] = expressionVals.get(i);
                     } else {
-                        array = array.arrayValue[temp.intValue];
+                        array = array.arrayValue()[index];
                     }
                     temp = temp.getLeft();
                 }
@@ -233,35 +336,31 @@ public class Evaluator {
         return null;
     }
 
-    private List<Lexeme> arrayAccess(Lexeme root, Environment environment) {
-        List<Lexeme> array = eval(root.getLeft(), environment);
-        if (array.size() != 1) {
-            Forest.error(root.getLineNumber(), "not single variable for array");
-            return null;
-        }
-        Lexeme arr = array.get(0);
-        Lexeme temp = root.getRight();
-        while (temp != null) {
-            if (arr.getType() != ARRAY) {
-                Forest.error(root.getLineNumber(), "not enough dimensions for array");
+    private Lexeme arrayAccess(Lexeme root, Environment environment) {
+        Lexeme arr;
+        if (isSingle(root.getLeft())) {
+            arr = evalSingle(root.getLeft(), environment);
+            if (arr == null && !keepsNull(root.getLeft())) {
+                Forest.error(root.getLineNumber(), "not single variable for array");
                 return null;
             }
-            if (temp.getLeft() == null || temp.getLeft().getType() != INTEGER) {
-                Forest.error(root.getLineNumber(), "must have integer position for array");
-                return null;
-            }
-            if (arr.arrayValue.length <= temp.getLeft().intValue) {
-                Forest.error(root.getLineNumber(), "Array index out of bounds. Length:" + arr.arrayValue.length + " Value:" + temp.getLeft().intValue);
+        } else {
+            List<Lexeme> array = eval(root.getLeft(), environment);
+            if (array == null || array.size() != 1) {
+                Forest.error(root.getLineNumber(), "not single variable for array");
                 return null;
             }
-            arr = arr.arrayValue[temp.getLeft().intValue];
-            temp = temp.getRight();
+            arr = array.get(0);
+        }
+        for (Lexeme temp = root.getRight(); temp != null; temp = temp.getRight()) {
+            if (!Expressions.canIndex(arr, temp.getLeft(), root.getLineNumber())) return null;
+            arr = arr.arrayValue()[temp.getLeft().intValue()];
         }
-        return createSingleList(arr);
+        return arr;
     }
 
-    private List<Lexeme> evalWhile(Lexeme root, Environment environment) {
-        Environment loopEnvir = new Environment(environment);
+    List<Lexeme> evalWhile(Lexeme root, Environment environment) {
+        Environment loopEnvir = new Environment(environment, root.getRight().getScope());
         while (checkIfReturnsTrue(root.getLeft(), environment)) {
             List<Lexeme> temp = evalStatementList(root.getRight(), loopEnvir);
             if (this.returning) {
@@ -272,8 +371,8 @@ public class Evaluator {
     }
 
     private List<Lexeme> evalIf(Lexeme root, Environment environment) {
-        Environment ifEnvir = new Environment(environment);
         if (checkIfReturnsTrue(root.getLeft(), environment)) {
+            Environment ifEnvir = new Environment(environment, root.getRight().getLeft().getScope());
             List<Lexeme> temp = evalStatementList(root.getRight().getLeft(), ifEnvir);
             if (this.returning) {
                 return temp;
@@ -287,84 +386,123 @@ public class Evaluator {
     }
 
     private List<Lexeme> evalElse(Lexeme root, Environment environment) {
-        Environment elseEnvir = new Environment(environment);
-        List<Lexeme> temp = evalStatementList(root.getRight().getLeft(), elseEnvir);
+        Environment elseEnvir = new Environment(environment, root.getLeft().getScope());
+        List<Lexeme> temp = evalStatementList(root.getLeft(), elseEnvir);
         if (this.returning) {
             return temp;
         }
         return null;
     }
 
+    //the condition values compared with == against true, a single boolean is its own answer
     private boolean checkIfReturnsTrue(Lexeme expression, Environment environment) {
-        Lexeme root = new Lexeme(VARIADIC_OPERATION, 0);
-        root.setLeft(new Lexeme(OPERATOR_LIST, 0));
-        root.getLeft().setLeft(new Lexeme(EQUALS, 0));
-        root.setRight(new Lexeme(EXPRESSION_LIST, 0));
-        root.getRight().setLeft(expression);
-        root.getRight().setRight(new Lexeme(EXPRESSION_LIST, 0));
-        root.getRight().getRight().setLeft(new Lexeme(BOOLEAN, true, 0));
-        List<Lexeme> result = variadicOperation(root, environment, null);
-        if (result.size() == 0) {
-            Forest.error(expression.getLineNumber(), " found no value in conditional");
-            return false;
-        }
-        if (result.get(0).getType() != BOOLEAN) {
-            Forest.error(expression.getLineNumber(), " invalid expression in conditional (did not return type boolean)");
-        }
-        return result.get(0).booleanValue;
+        if (isSingle(expression)) {
+            Lexeme value = evalSingle(expression, environment);
+            if (value != null && value.getType() == BOOLEAN) return value.booleanValue();
+            int size = (value == null && !keepsNull(expression)) ? 0 : 1;
+            return Expressions.isTrue(new Lexeme[]{value, TRUE}, size, expression.getLineNumber());
+        }
+        List<Lexeme> values = eval(expression, environment);
+        if (values == null) values = new ArrayList<Lexeme>();
+        return Expressions.isTrue(values.toArray(new Lexeme[values.size() + 1]), values.size(), expression.getLineNumber());
     }
 
-    private List<Lexeme> createArray(List<Lexeme> expressionValues, Environment environment) {
+    static Lexeme createArray(List<Lexeme> expressionValues) {
         if (expressionValues.size() == 0) {
             Forest.error(0, "empty expressions for array creation");
             return null;
         }
-        Lexeme array = new Lexeme(ARRAY, new Lexeme[expressionValues.get(0).intValue], expressionValues.get(0).getLineNumber());
-        arrayCreationHelper(array, expressionValues, environment);
-        return createSingleList(array);
+        Lexeme array = new ArrayValue(new Lexeme[expressionValues.get(0).intValue()], expressionValues.get(0).getLineNumber());
+        arrayCreationHelper(array, expressionValues);
+        return array;
     }
 
-    private void arrayCreationHelper(Lexeme array, List<Lexeme> expressionValues, Environment environment) {
+    private static void arrayCreationHelper(Lexeme array, List<Lexeme> expressionValues) {
         if (expressionValues.size() == 0) return;
         if (expressionValues.get(0).getType() != INTEGER) {
             Forest.error(array.getLineNumber(), "array size must be an integer. Found a " + expressionValues.get(0).getType());
         }
-        for (int i = 0; i < expressionValues.get(0).intValue; i++) {
+        for (int i = 0; i < expressionValues.get(0).intValue(); i++) {
             if (expressionValues.size() == 1) {
-                array.arrayValue[i] = new Lexeme(INTEGER, 0, array.getLineNumber());
+                array.arrayValue()[i] = new IntegerValue(0, array.getLineNumber());
             } else {
                 if (expressionValues.get(1).getType() != INTEGER) {
                     Forest.error(array.getLineNumber(), "array size must be an integer. Found a " + expressionValues.get(0).getType());
                 }
-                array.arrayValue[i] = new Lexeme(ARRAY, new Lexeme[expressionValues.get(1).intValue], array.getLineNumber());
-                arrayCreationHelper(array.arrayValue[i], expressionValues.subList(1, expressionValues.size()), environment);
+                array.arrayValue()[i] = new ArrayValue(new Lexeme[expressionValues.get(1).intValue()], array.getLineNumber());
+                arrayCreationHelper(array.arrayValue()[i], expressionValues.subList(1, expressionValues.size()));
             }
         }
     }
 
-    private List<Lexeme> evalUnaryOperation(Lexeme root, Environment environment) {
+    Lexeme evalUnaryOperation(Lexeme root, Environment environment) {
         Lexeme operator = root.getLeft();
-        List<Lexeme> expressionVals = eval(root.getRight(), environment);
-        if (expressionVals.size() != 1) {
-            Forest.error(root.getLineNumber(), "invalid number of arguments for operator " + operator.getType() + " expected 1 founnd " + expressionVals.size());
+        Lexeme operand;
+        if (isSingle(root.getRight())) {
+            operand = evalSingle(root.getRight(), environment);
+            if (operand == null && !keepsNull(root.getRight())) {
+                Forest.error(root.getLineNumber(), "invalid number of arguments for operator " + operator.getType() + " expected 1 founnd 0");
+                return null;
+            }
+        } else {
+            List<Lexeme> expressionVals = eval(root.getRight(), environment);
+            int size = (expressionVals == null) ? 0 : expressionVals.size();
+            if (size != 1) {
+                Forest.error(root.getLineNumber(), "invalid number of arguments for operator " + operator.getType() + " expected 1 founnd " + size);
+            }
+            if (size == 0) return null;
+            operand = expressionVals.get(0);
         }
+        if (operand == null) return null;
+        return unaryOperation(operator, operand, root.getLineNumber(), root.getRight().getLineNumber());
+    }
+
+    static Lexeme unaryOperation(Lexeme operator, Lexeme operand, int lineNumber, int operandLineNumber) {
         switch (operator.getType()) {
             case NOT:
-                switch (expressionVals.get(0).getType()) {
+                switch (operand.getType()) {
                     case BOOLEAN:
-                        return createSingleList(new Lexeme(BOOLEAN, !(expressionVals.get(0).booleanValue), root.getRight().getLineNumber()));
+                        return new BooleanValue(!(operand.booleanValue()), operandLineNumber);
                     default:
-                        Forest.error(root.getLineNumber(), "invalid operation: " + operator.getType() + " for type " + expressionVals.get(0).getType());
+                        Forest.error(lineNumber, "invalid operation: " + operator.getType() + " for type " + operand.getType());
                         return null;
                 }
             case EQUAL:
-                return createSingleList(expressionVals.get(0));
+                return operand;
             default:
                 Forest.error(operator.getLineNumber(), "operator " + operator.getType() + " not supported");
                 return null;
         }
     }
 
+    Lexeme variadicOperation(Lexeme root, Environment environment) {
+        Lexeme opList = root.getLeft();
+        Lexeme first = root.getRight().getLeft();
+        Lexeme rest = root.getRight().getRight();
+        //one operator on one or two single values is computed without lists
+        if (opList.getRight().getLeft() == null && opList.getRight().getRight() == null && opList.getLeft().getType() != ARRAY_CREATION && first != null && isSingle(first)
+                && (rest == null || (rest.getRight() == null && rest.getLeft() != null && isSingle(rest.getLeft())))) {
+            Lexeme firstOperand = evalSingle(first, environment);
+            Lexeme secondOperand = (rest == null) ? null : evalSingle(rest.getLeft(), environment);
+            if (firstOperand != null && rest == null) {
+                return (opList.getLeft().getType() == MINUS) ? Operators.negate(firstOperand) : firstOperand;
+            }
+            if (firstOperand != null && secondOperand != null) {
+                return Operators.binary(opList.getLeft().getType(), firstOperand, secondOperand, root.getLineNumber());
+            }
+            //a missing operand changes the arity, let the general path sort it out
+            List<Lexeme> values = new ArrayList<Lexeme>();
+            if (firstOperand != null || keepsNull(first)) values.add(firstOperand);
+            if (rest != null && (secondOperand != null || keepsNull(rest.getLeft()))) values.add(secondOperand);
+            return single(variadicOperation(root, environment, values));
+        }
+        return single(variadicOperation(root, environment, null));
+    }
+
+    private static Lexeme single(List<Lexeme> values) {
+        return (values == null) ? null : values.get(0);
+    }
+
     private List<Lexeme> variadicOperation(Lexeme root, Environment environment, List<Lexeme> expressionValues) {
         Lexeme opList = root.getLeft();
         Lexeme operator = opList.getLeft();
@@ -376,13 +514,13 @@ public class Evaluator {
         int numOfExpressions;
         if (opList.getRight() != null && opList.getRight().getLeft() != null) { //if there is another operator
             if (opList.getRight().getRight() == null) numOfExpressions = 2; //if there is no specified number
-            else numOfExpressions = opList.getRight().getRight().intValue + 1;
+            else numOfExpressions = opList.getRight().getRight().intValue() + 1;
             nextOpList = opList.getRight().getLeft();
         } else {
             numOfExpressions = expressionValues.size();
             if (opList.getRight() != null && opList.getRight().getRight() != null) {
-                if (numOfExpressions != opList.getRight().getRight().intValue + 1) {
-                    Forest.error(root.getRight().getLineNumber(), "wrong number of operands for given operation, expected:" + (opList.getRight().getRight().intValue + 1) + " found:" + numOfExpressions);
+                if (numOfExpressions != opList.getRight().getRight().intValue() + 1) {
+                    Forest.error(root.getRight().getLineNumber(), "wrong number of operands for given operation, expected:" + (opList.getRight().getRight().intValue() + 1) + " found:" + numOfExpressions);
                 }
             }
         }
@@ -394,901 +532,42 @@ public class Evaluator {
         Lexeme firstOperand = expressionValues.get(0);
         Lexeme secondOperand;
         if (operator.getType() == ARRAY_CREATION) {
-            return createArray(expressionValues, environment);
+            Lexeme array = createArray(expressionValues);
+            return (array == null) ? null : createSingleList(array);
         }
         if (firstOperand != null && operator.getType() == MINUS && numOfExpressions == 1) {
-            switch (firstOperand.getType()) {
-                case INTEGER:
-                    firstOperand = new Lexeme(INTEGER, -firstOperand.intValue, firstOperand.getLineNumber());
-                    break;
-                case FLOAT:
-                    firstOperand = new Lexeme(FLOAT, -firstOperand.doubleValue, firstOperand.getLineNumber());
-                    break;
-                case BOOLEAN:
-                    firstOperand = new Lexeme(INTEGER, -((firstOperand.getLeft().booleanValue) ? 1 : 0), firstOperand.getLineNumber());
-                case CHARACTER:
-                    firstOperand = new Lexeme(INTEGER, -((int) firstOperand.characterValue), firstOperand.getLineNumber());
-                    break;
-                default:
-                    Forest.error(firstOperand.getLineNumber(), "invalid operation: " + operator.getType() + " between types " + firstOperand.getType());
-                    return null;
-            }
-            return createSingleList(firstOperand);
+            firstOperand = Operators.negate(firstOperand);
+            return (firstOperand == null) ? null : createSingleList(firstOperand);
         }
         for (int i = 1; i < numOfExpressions; i++) {
+            if (i >= expressionValues.size()) {
+                Forest.error(root.getLineNumber(), " not enough expression values");
+                return null;
+            }
             secondOperand = expressionValues.get(i);
             if (secondOperand == null) {
                 Forest.error(firstOperand.getLineNumber(), "not enough operands for given operation, found null value");
                 return null;
             }
-            switch (operator.getType()) {
-                case PLUS:
-                    switch (firstOperand.getType()) {
-                        case INTEGER:
-                            switch (secondOperand.getType()) {
-                                case INTEGER:
-                                    firstOperand = new Lexeme(INTEGER, firstOperand.intValue + secondOperand.intValue, root.getLineNumber());
-                                    break;
-                                case FLOAT:
-                                    firstOperand = new Lexeme(FLOAT, firstOperand.intValue + secondOperand.doubleValue, root.getLineNumber());
-                                    break;
-                                case STRING:
-                                    firstOperand = new Lexeme(STRING, firstOperand.intValue + secondOperand.stringValue, root.getLineNumber());
-                                    break;
-                                case BOOLEAN:
-                                    firstOperand = new Lexeme(INTEGER, firstOperand.intValue + ((secondOperand.booleanValue) ? 1 : 0), root.getLineNumber());
-                                    break;
-                                case CHARACTER:
-                                    firstOperand = new Lexeme(INTEGER, firstOperand.intValue + (int) (secondOperand.characterValue), root.getLineNumber());
-                                    break;
-                                default:
-                                    Forest.error(root.getLineNumber(), "invalid operation: " + operator.getType() + " between types " + firstOperand.getType() + " and " + secondOperand.getType());
-                                    return null;
-                            }
-                            break;
-                        case FLOAT:
-                            switch (secondOperand.getType()) {
-                                case INTEGER:
-                                    firstOperand = new Lexeme(FLOAT, firstOperand.doubleValue + secondOperand.intValue, root.getLineNumber());
-                                    break;
-                                case FLOAT:
-                                    firstOperand = new Lexeme(FLOAT, firstOperand.doubleValue + secondOperand.doubleValue, root.getLineNumber());
-                                    break;
-                                case STRING:
-                                    firstOperand = new Lexeme(STRING, firstOperand.doubleValue + secondOperand.stringValue, root.getLineNumber());
-                                    break;
-                                case BOOLEAN:
-                                    firstOperand = new Lexeme(FLOAT, firstOperand.doubleValue + ((secondOperand.booleanValue) ? 1 : 0), root.getLineNumber());
-                                    break;
-                                case CHARACTER:
-                                    firstOperand = new Lexeme(FLOAT, firstOperand.doubleValue + (int) (secondOperand.characterValue), root.getLineNumber());
-                                    break;
-                                default:
-                                    Forest.error(root.getLineNumber(), "invalid operation: " + operator.getType() + " between types " + firstOperand.getType() + " and " + secondOperand.getType());
-                                    return null;
-                            }
-                            break;
-                        case STRING:
-                            switch (secondOperand.getType()) {
-                                case INTEGER:
-                                    firstOperand = new Lexeme(STRING, firstOperand.stringValue + secondOperand.intValue, root.getLineNumber());
-                                    break;
-                                case FLOAT:
-                                    firstOperand = new Lexeme(STRING, firstOperand.stringValue + secondOperand.doubleValue, root.getLineNumber());
-                                    break;
-                                case STRING:
-                                    firstOperand = new Lexeme(STRING, firstOperand.stringValue + secondOperand.stringValue, root.getLineNumber());
-                                    break;
-                                case BOOLEAN:
-                                    firstOperand = new Lexeme(STRING, firstOperand.stringValue + secondOperand.booleanValue, root.getLineNumber());
-                                    break;
-                                case CHARACTER:
-                                    firstOperand = new Lexeme(STRING, firstOperand.stringValue + (int) (secondOperand.characterValue), root.getLineNumber());
-                                    break;
-                                default:
-                                    Forest.error(root.getLineNumber(), "invalid operation: " + operator.getType() + " between types " + firstOperand.getType() + " and " + secondOperand.getType());
-                                    return null;
-                            }
-                            break;
-                        case BOOLEAN:
-                            switch (secondOperand.getType()) {
-                                case INTEGER:
-                                    firstOperand = new Lexeme(INTEGER, ((firstOperand.booleanValue) ? 1 : 0) + secondOperand.intValue, root.getLineNumber());
-                                    break;
-                                case FLOAT:
-                                    firstOperand = new Lexeme(FLOAT, ((firstOperand.booleanValue) ? 1 : 0) + secondOperand.doubleValue, root.getLineNumber());
-                                    break;
-                                case STRING:
-                                    firstOperand = new Lexeme(STRING, firstOperand.booleanValue + secondOperand.stringValue, root.getLineNumber());
-                                    break;
-                                case BOOLEAN:
-                                    firstOperand = new Lexeme(BOOLEAN, firstOperand.booleanValue ^ secondOperand.booleanValue, root.getLineNumber());
-                                    break;
-                                case CHARACTER:
-                                    firstOperand = new Lexeme(INTEGER, ((firstOperand.booleanValue) ? 1 : 0) + (int) (secondOperand.characterValue), root.getLineNumber());
-                                    break;
-                                default:
-                                    Forest.error(root.getLineNumber(), "invalid operation: " + operator.getType() + " between types " + firstOperand.getType() + " and " + secondOperand.getType());
-                                    return null;
-                            }
-                            break;
-                        case CHARACTER:
-                            switch (secondOperand.getType()) {
-                                case INTEGER:
-                                    firstOperand = new Lexeme(INTEGER, (int) (firstOperand.characterValue) + secondOperand.intValue, root.getLineNumber());
-                                    break;
-                                case FLOAT:
-                                    firstOperand = new Lexeme(FLOAT, (int) (firstOperand.characterValue) + secondOperand.doubleValue, root.getLineNumber());
-                                    break;
-                                case STRING:
-                                    firstOperand = new Lexeme(STRING, firstOperand.characterValue + secondOperand.stringValue, root.getLineNumber());
-                                    break;
-                                case BOOLEAN:
-                                    firstOperand = new Lexeme(INTEGER, (int) firstOperand.characterValue + ((firstOperand.booleanValue) ? 1 : 0), root.getLineNumber());
-                                    break;
-                                case CHARACTER:
-                                    firstOperand = new Lexeme(INTEGER, (char) ((int) (firstOperand.characterValue) + (int) (secondOperand.characterValue)), root.getLineNumber());
-                                    break;
-                                default:
-                                    Forest.error(root.getLineNumber(), "invalid operation: " + operator.getType() + " between types " + firstOperand.getType() + " and " + secondOperand.getType());
-                                    return null;
-                            }
-                            break;
-                        default:
-                            Forest.error(root.getLineNumber(), "invalid operation: " + operator.getType() + " between types " + firstOperand.getType() + " and " + secondOperand.getType());
-                            return null;
-                    }
-                    break;
-                case MINUS:
-                    switch (firstOperand.getType()) {
-                        case INTEGER:
-                            switch (secondOperand.getType()) {
-                                case INTEGER:
-                                    firstOperand = new Lexeme(INTEGER, firstOperand.intValue - secondOperand.intValue, root.getLineNumber());
-                                    break;
-                                case FLOAT:
-                                    firstOperand = new Lexeme(FLOAT, firstOperand.intValue - secondOperand.doubleValue, root.getLineNumber());
-                                    break;
-                                case BOOLEAN:
-                                    firstOperand = new Lexeme(INTEGER, firstOperand.intValue - ((secondOperand.booleanValue) ? 1 : 0), root.getLineNumber());
-                                    break;
-                                case CHARACTER:
-                                    firstOperand = new Lexeme(INTEGER, firstOperand.intValue - (int) (secondOperand.characterValue), root.getLineNumber());
-                                    break;
-                                default:
-                                    Forest.error(root.getLineNumber(), "invalid operation: " + operator.getType() + " between types " + firstOperand.getType() + " and " + secondOperand.getType());
-                                    return null;
-                            }
-                            break;
-                        case FLOAT:
-                            switch (secondOperand.getType()) {
-                                case INTEGER:
-                                    firstOperand = new Lexeme(FLOAT, firstOperand.doubleValue - secondOperand.intValue, root.getLineNumber());
-                                    break;
-                                case FLOAT:
-                                    firstOperand = new Lexeme(FLOAT, firstOperand.doubleValue - secondOperand.doubleValue, root.getLineNumber());
-                                    break;
-                                case BOOLEAN:
-                                    firstOperand = new Lexeme(FLOAT, firstOperand.doubleValue - ((secondOperand.booleanValue) ? 1 : 0), root.getLineNumber());
-                                    break;
-                                case CHARACTER:
-                                    firstOperand = new Lexeme(FLOAT, firstOperand.doubleValue - (int) (secondOperand.characterValue), root.getLineNumber());
-                                    break;
-                                default:
-                                    Forest.error(root.getLineNumber(), "invalid operation: " + operator.getType() + " between types " + firstOperand.getType() + " and " + secondOperand.getType());
-                                    return null;
-                            }
-                            break;
-                        case BOOLEAN:
-                            switch (secondOperand.getType()) {
-                                case INTEGER:
-                                    firstOperand = new Lexeme(INTEGER, ((firstOperand.booleanValue) ? 1 : 0) - secondOperand.intValue, root.getLineNumber());
-                                    break;
-                                case FLOAT:
-                                    firstOperand = new Lexeme(FLOAT, ((firstOperand.booleanValue) ? 1 : 0) - secondOperand.doubleValue, root.getLineNumber());
-                                    break;
-                                case BOOLEAN:
-                                    firstOperand = new Lexeme(BOOLEAN, firstOperand.booleanValue ^ secondOperand.booleanValue, root.getLineNumber());
-                                    break;
-                                case CHARACTER:
-                                    firstOperand = new Lexeme(INTEGER, ((firstOperand.booleanValue) ? 1 : 0) - (int) (secondOperand.characterValue), root.getLineNumber());
-                                    break;
-                                default:
-                                    Forest.error(root.getLineNumber(), "invalid operation: " + operator.getType() + " between types " + firstOperand.getType() + " and " + secondOperand.getType());
-                                    return null;
-                            }
-                            break;
-                        case CHARACTER:
-                            switch (secondOperand.getType()) {
-                                case INTEGER:
-                                    firstOperand = new Lexeme(INTEGER, (int) (firstOperand.characterValue) - secondOperand.intValue, root.getLineNumber());
-                                    break;
-                                case FLOAT:
-                                    firstOperand = new Lexeme(FLOAT, (int) (firstOperand.characterValue) - secondOperand.doubleValue, root.getLineNumber());
-                                    break;
-                                case BOOLEAN:
-                                    firstOperand = new Lexeme(INTEGER, (int) firstOperand.characterValue - ((firstOperand.booleanValue) ? 1 : 0), root.getLineNumber());
-                                    break;
-                                case CHARACTER:
-                                    firstOperand = new Lexeme(STRING, (char) (byte) ((int) (firstOperand.characterValue) - (int) (secondOperand.characterValue)), root.getLineNumber());
-                                    break;
-                                default:
-                                    Forest.error(root.getLineNumber(), "invalid operation: " + operator.getType() + " between types " + firstOperand.getType() + " and " + secondOperand.getType());
-                                    return null;
-                            }
-                            break;
-                        default:
-                            Forest.error(root.getLineNumber(), "invalid operation: " + operator.getType() + " between types " + firstOperand.getType() + " and " + secondOperand.getType());
-                            return null;
-                    }
-                    break;
-                case TIMES:
-                    switch (firstOperand.getType()) {
-                        case INTEGER:
-                            switch (secondOperand.getType()) {
-                                case INTEGER:
-                                    firstOperand = new Lexeme(INTEGER, firstOperand.intValue * secondOperand.intValue, root.getLineNumber());
-                                    break;
-                                case FLOAT:
-                                    firstOperand = new Lexeme(FLOAT, firstOperand.intValue * secondOperand.doubleValue, root.getLineNumber());
-                                    break;
-                                case BOOLEAN:
-                                    firstOperand = new Lexeme(INTEGER, firstOperand.intValue * ((secondOperand.booleanValue) ? 1 : 0), root.getLineNumber());
-                                    break;
-                                case CHARACTER:
-                                    firstOperand = new Lexeme(INTEGER, firstOperand.intValue * (int) (secondOperand.characterValue), root.getLineNumber());
-                                    break;
-                                default:
-                                    Forest.error(root.getLineNumber(), "invalid operation: " + operator.getType() + " between types " + firstOperand.getType() + " and " + secondOperand.getType());
-                                    return null;
-                            }
-                            break;
-                        case FLOAT:
-                            switch (secondOperand.getType()) {
-                                case INTEGER:
-                                    firstOperand = new Lexeme(FLOAT, firstOperand.doubleValue * secondOperand.intValue, root.getLineNumber());
-                                    break;
-                                case FLOAT:
-                                    firstOperand = new Lexeme(FLOAT, firstOperand.doubleValue * secondOperand.doubleValue, root.getLineNumber());
-                                    break;
-                                case BOOLEAN:
-                                    firstOperand = new Lexeme(FLOAT, firstOperand.doubleValue * ((secondOperand.booleanValue) ? 1 : 0), root.getLineNumber());
-                                    break;
-                                case CHARACTER:
-                                    firstOperand = new Lexeme(FLOAT, firstOperand.doubleValue * (int) (secondOperand.characterValue), root.getLineNumber());
-                                    break;
-                                default:
-                                    Forest.error(root.getLineNumber(), "invalid operation: " + operator.getType() + " between types " + firstOperand.getType() + " and " + secondOperand.getType());
-                                    return null;
-                            }
-                            break;
-                        case BOOLEAN:
-                            switch (secondOperand.getType()) {
-                                case INTEGER:
-                                    firstOperand = new Lexeme(FLOAT, ((secondOperand.booleanValue) ? 1 : 0) * secondOperand.intValue, root.getLineNumber());
-                                    break;
-                                case FLOAT:
-                                    firstOperand = new Lexeme(FLOAT, ((secondOperand.booleanValue) ? 1 : 0) * secondOperand.doubleValue, root.getLineNumber());
-                                    break;
-                                case BOOLEAN:
-                                    firstOperand = new Lexeme(FLOAT, firstOperand.booleanValue && secondOperand.booleanValue, root.getLineNumber());
-                                    break;
-                                case CHARACTER:
-                                    firstOperand = new Lexeme(FLOAT, ((secondOperand.booleanValue) ? 1 : 0) * (int) (secondOperand.characterValue), root.getLineNumber());
-                                    break;
-                                default:
-                                    Forest.error(root.getLineNumber(), "invalid operation: " + operator.getType() + " between types " + firstOperand.getType() + " and " + secondOperand.getType());
-                                    return null;
-                            }
-                            break;
-                        case CHARACTER:
-                            switch (secondOperand.getType()) {
-                                case INTEGER:
-                                    firstOperand = new Lexeme(INTEGER, ((int) firstOperand.characterValue) * secondOperand.intValue, root.getLineNumber());
-                                    break;
-                                case FLOAT:
-                                    firstOperand = new Lexeme(FLOAT, ((int) firstOperand.characterValue) * secondOperand.doubleValue, root.getLineNumber());
-                                    break;
-                                case BOOLEAN:
-                                    firstOperand = new Lexeme(INTEGER, ((int) firstOperand.characterValue) * ((secondOperand.booleanValue) ? 1 : 0), root.getLineNumber());
-                                    break;
-                                case CHARACTER:
-                                    firstOperand = new Lexeme(INTEGER, ((int) firstOperand.characterValue) * (int) (secondOperand.characterValue), root.getLineNumber());
-                                    break;
-                                default:
-                                    Forest.error(root.getLineNumber(), "invalid operation: " + operator.getType() + " between types " + firstOperand.getType() + " and " + secondOperand.getType());
-                                    return null;
-                            }
-                            break;
-                        default:
-                            Forest.error(root.getLineNumber(), "invalid operation: " + operator.getType() + " between types " + firstOperand.getType() + " and " + secondOperand.getType());
-                            return null;
-                    }
-                    break;
-                case DIVIDE:
-                    switch (secondOperand.getType()) {
-                        case INTEGER:
-                            if (secondOperand.intValue == 0) {
-                                Forest.error(root.getLineNumber(), "divide by 0");
-                                return null;
-                            }
-                            break;
-                        case FLOAT:
-                            if (secondOperand.doubleValue == 0.0) {
-                                Forest.error(root.getLineNumber(), "divide by 0");
-                                return null;
-                            }
-                            break;
-                        case BOOLEAN:
-                            if (secondOperand.booleanValue == false) {
-                                Forest.error(root.getLineNumber(), "divide by 0");
-                                return null;
-                            }
-                            break;
-                        case CHARACTER:
-                            if ((int) secondOperand.characterValue == 0) {
-                                Forest.error(root.getLineNumber(), "divide by 0");
-                                return null;
-                            }
-                            break;
-                    }
-                    switch (firstOperand.getType()) {
-                        case INTEGER:
-                            switch (secondOperand.getType()) {
-                                case INTEGER:
-                                    firstOperand = intDivision(firstOperand, secondOperand);
-                                    break;
-                                case FLOAT:
-                                    firstOperand = new Lexeme(FLOAT, firstOperand.intValue / secondOperand.doubleValue, root.getLineNumber());
-                                    break;
-                                case BOOLEAN:
-                                    firstOperand = new Lexeme(INTEGER, firstOperand.intValue / ((secondOperand.booleanValue) ? 1 : 0), root.getLineNumber());
-                                    break;
-                                case CHARACTER:
-                                    firstOperand = intDivision(firstOperand, new Lexeme(INTEGER, (int) (secondOperand.characterValue), secondOperand.getLineNumber()));
-                                    break;
-                                default:
-                                    Forest.error(root.getLineNumber(), "invalid operation: " + operator.getType() + " between types " + firstOperand.getType() + " and " + secondOperand.getType());
-                                    return null;
-                            }
-                            break;
-                        case FLOAT:
-                            switch (secondOperand.getType()) {
-                                case INTEGER:
-                                    firstOperand = new Lexeme(FLOAT, firstOperand.doubleValue / secondOperand.intValue, root.getLineNumber());
-                                    break;
-                                case FLOAT:
-                                    firstOperand = new Lexeme(FLOAT, firstOperand.doubleValue / secondOperand.doubleValue, root.getLineNumber());
-                                    break;
-                                case BOOLEAN:
-                                    firstOperand = new Lexeme(FLOAT, firstOperand.doubleValue / ((secondOperand.booleanValue) ? 1 : 0), root.getLineNumber());
-                                    break;
-                                case CHARACTER:
-                                    firstOperand = new Lexeme(FLOAT, firstOperand.doubleValue / (int) (secondOperand.characterValue), root.getLineNumber());
-                                    break;
-                                default:
-                                    Forest.error(root.getLineNumber(), "invalid operation: " + operator.getType() + " between types " + firstOperand.getType() + " and " + secondOperand.getType());
-                                    return null;
-                            }
-                            break;
-                        case BOOLEAN:
-                            switch (secondOperand.getType()) {
-                                case INTEGER:
-                                    firstOperand = intDivision(new Lexeme(INTEGER, (firstOperand.booleanValue) ? 1 : 0, firstOperand.getLineNumber()), secondOperand);
-                                    break;
-                                case FLOAT:
-                                    firstOperand = new Lexeme(FLOAT, ((firstOperand.booleanValue) ? 1 : 0) / secondOperand.doubleValue, root.getLineNumber());
-                                    break;
-                                case BOOLEAN:
-                                    break;
-                                case CHARACTER:
-                                    firstOperand = intDivision(new Lexeme(INTEGER, (firstOperand.booleanValue) ? 1 : 0, firstOperand.getLineNumber()), new Lexeme(INTEGER, (int) (secondOperand.characterValue), secondOperand.getLineNumber()));
-                                    break;
-                                default:
-                                    Forest.error(root.getLineNumber(), "invalid operation: " + operator.getType() + " between types " + firstOperand.getType() + " and " + secondOperand.getType());
-                                    return null;
-                            }
-                            break;
-                        case CHARACTER:
-                            switch (secondOperand.getType()) {
-                                case INTEGER:
-                                    firstOperand = new Lexeme(FLOAT, ((int) (firstOperand.characterValue)) / secondOperand.intValue, root.getLineNumber());
-                                    break;
-                                case FLOAT:
-                                    firstOperand = new Lexeme(FLOAT, ((int) (firstOperand.characterValue)) / secondOperand.doubleValue, root.getLineNumber());
-                                    break;
-                                case BOOLEAN:
-                                    firstOperand = new Lexeme(FLOAT, ((int) (firstOperand.characterValue)) / ((secondOperand.booleanValue) ? 1 : 0), root.getLineNumber());
-                                    break;
-                                case CHARACTER:
-                                    firstOperand = new Lexeme(FLOAT, ((int) (firstOperand.characterValue)) / (int) (secondOperand.characterValue), root.getLineNumber());
-                                    break;
-                                default:
-                                    Forest.error(root.getLineNumber(), "invalid operation: " + operator.getType() + " between types " + firstOperand.getType() + " and " + secondOperand.getType());
-                                    return null;
-                            }
-                            break;
-                        default:
-                            Forest.error(root.getLineNumber(), "invalid operation: " + operator.getType() + " between types " + firstOperand.getType() + " and " + secondOperand.getType());
-                            return null;
-                    }
-                    break;
-                case GREATER_THAN:
-                    switch (firstOperand.getType()) {
-                        case INTEGER:
-                            switch (secondOperand.getType()) {
-                                case INTEGER:
-                                    firstOperand = new Lexeme(BOOLEAN, firstOperand.intValue > secondOperand.intValue, root.getLineNumber());
-                                    break;
-                                case FLOAT:
-                                    firstOperand = new Lexeme(BOOLEAN, firstOperand.intValue > secondOperand.doubleValue, root.getLineNumber());
-                                    break;
-                                case BOOLEAN:
-                                    firstOperand = new Lexeme(BOOLEAN, firstOperand.intValue > ((secondOperand.booleanValue) ? 1 : 0), root.getLineNumber());
-                                    break;
-                                case CHARACTER:
-                                    firstOperand = new Lexeme(BOOLEAN, firstOperand.intValue > (int) (secondOperand.characterValue), root.getLineNumber());
-                                    break;
-                                default:
-                                    Forest.error(root.getLineNumber(), "invalid operation: " + operator.getType() + " between types " + firstOperand.getType() + " and " + secondOperand.getType());
-                                    return null;
-                            }
-                            break;
-                        case FLOAT:
-                            switch (secondOperand.getType()) {
-                                case INTEGER:
-                                    firstOperand = new Lexeme(BOOLEAN, firstOperand.doubleValue > secondOperand.intValue, root.getLineNumber());
-                                    break;
-                                case FLOAT:
-                                    firstOperand = new Lexeme(BOOLEAN, firstOperand.doubleValue > secondOperand.doubleValue, root.getLineNumber());
-                                    break;
-                                case BOOLEAN:
-                                    firstOperand = new Lexeme(BOOLEAN, firstOperand.doubleValue > ((secondOperand.booleanValue) ? 1 : 0), root.getLineNumber());
-                                    break;
-                                case CHARACTER:
-                                    firstOperand = new Lexeme(BOOLEAN, firstOperand.doubleValue > (int) (secondOperand.characterValue), root.getLineNumber());
-                                    break;
-                                default:
-                                    Forest.error(root.getLineNumber(), "invalid operation: " + operator.getType() + " between types " + firstOperand.getType() + " and " + secondOperand.getType());
-                                    return null;
-                            }
-                            break;
-                        case BOOLEAN:
-                            switch (secondOperand.getType()) {
-                                case INTEGER:
-                                    firstOperand = new Lexeme(BOOLEAN, ((firstOperand.booleanValue) ? 1 : 0) > secondOperand.intValue, root.getLineNumber());
-                                    break;
-                                case FLOAT:
-                                    firstOperand = new Lexeme(BOOLEAN, ((firstOperand.booleanValue) ? 1 : 0) > secondOperand.doubleValue, root.getLineNumber());
-                                    break;
-                                case BOOLEAN:
-                                    firstOperand = new Lexeme(BOOLEAN, ((firstOperand.booleanValue) ? 1 : 0) > ((secondOperand.booleanValue) ? 1 : 0), root.getLineNumber());
-                                    break;
-                                case CHARACTER:
-                                    firstOperand = new Lexeme(BOOLEAN, ((firstOperand.booleanValue) ? 1 : 0) > (int) (secondOperand.characterValue), root.getLineNumber());
-                                    break;
-                                default:
-                                    Forest.error(root.getLineNumber(), "invalid operation: " + operator.getType() + " between types " + firstOperand.getType() + " and " + secondOperand.getType());
-                                    return null;
-                            }
-                            break;
-                        case CHARACTER:
-                            switch (secondOperand.getType()) {
-                                case INTEGER:
-                                    firstOperand = new Lexeme(BOOLEAN, ((int) (firstOperand.characterValue)) > secondOperand.intValue, root.getLineNumber());
-                                    break;
-                                case FLOAT:
-                                    firstOperand = new Lexeme(BOOLEAN, ((int) (firstOperand.characterValue)) > secondOperand.doubleValue, root.getLineNumber());
-                                    break;
-                                case BOOLEAN:
-                                    firstOperand = new Lexeme(BOOLEAN, ((int) (firstOperand.characterValue)) > ((secondOperand.booleanValue) ? 1 : 0), root.getLineNumber());
-                                    break;
-                                case CHARACTER:
-                                    firstOperand = new Lexeme(BOOLEAN, ((int) (firstOperand.characterValue)) > (int) (secondOperand.characterValue), root.getLineNumber());
-                                    break;
-                                default:
-                                    Forest.error(root.getLineNumber(), "invalid operation: " + operator.getType() + " between types " + firstOperand.getType() + " and " + secondOperand.getType());
-                                    return null;
-                            }
-                            break;
-                        default:
-                            Forest.error(root.getLineNumber(), "invalid operation: " + operator.getType() + " between types " + firstOperand.getType() + " and " + secondOperand.getType());
-                            return null;
-                    }
-                    break;
-                case GREATER_THAN_OR_EQUAL:
-                    switch (firstOperand.getType()) {
-                        case INTEGER:
-                            switch (secondOperand.getType()) {
-                                case INTEGER:
-                                    firstOperand = new Lexeme(BOOLEAN, firstOperand.intValue >= secondOperand.intValue, root.getLineNumber());
-                                    break;
-                                case FLOAT:
-                                    firstOperand = new Lexeme(BOOLEAN, firstOperand.intValue >= secondOperand.doubleValue, root.getLineNumber());
-                                    break;
-                                case BOOLEAN:
-                                    firstOperand = new Lexeme(BOOLEAN, firstOperand.intValue >= ((secondOperand.booleanValue) ? 1 : 0), root.getLineNumber());
-                                    break;
-                                case CHARACTER:
-                                    firstOperand = new Lexeme(BOOLEAN, firstOperand.intValue >= (int) (secondOperand.characterValue), root.getLineNumber());
-                                    break;
-                                default:
-                                    Forest.error(root.getLineNumber(), "invalid operation: " + operator.getType() + " between types " + firstOperand.getType() + " and " + secondOperand.getType());
-                                    return null;
-                            }
-                            break;
-                        case FLOAT:
-                            switch (secondOperand.getType()) {
-                                case INTEGER:
-                                    firstOperand = new Lexeme(BOOLEAN, firstOperand.doubleValue >= secondOperand.intValue, root.getLineNumber());
-                                    break;
-                                case FLOAT:
-                                    firstOperand = new Lexeme(BOOLEAN, firstOperand.doubleValue >= secondOperand.doubleValue, root.getLineNumber());
-                                    break;
-                                case BOOLEAN:
-                                    firstOperand = new Lexeme(BOOLEAN, firstOperand.doubleValue >= ((secondOperand.booleanValue) ? 1 : 0), root.getLineNumber());
-                                    break;
-                                case CHARACTER:
-                                    firstOperand = new Lexeme(BOOLEAN, firstOperand.doubleValue >= (int) (secondOperand.characterValue), root.getLineNumber());
-                                    break;
-                                default:
-                                    Forest.error(root.getLineNumber(), "invalid operation: " + operator.getType() + " between types " + firstOperand.getType() + " and " + secondOperand.getType());
-                                    return null;
-                            }
-                            break;
-                        case BOOLEAN:
-                            switch (secondOperand.getType()) {
-                                case INTEGER:
-                                    firstOperand = new Lexeme(BOOLEAN, ((firstOperand.booleanValue) ? 1 : 0) >= secondOperand.intValue, root.getLineNumber());
-                                    break;
-                                case FLOAT:
-                                    firstOperand = new Lexeme(BOOLEAN, ((firstOperand.booleanValue) ? 1 : 0) >= secondOperand.doubleValue, root.getLineNumber());
-                                    break;
-                                case BOOLEAN:
-                                    firstOperand = new Lexeme(BOOLEAN, ((firstOperand.booleanValue) ? 1 : 0) >= ((secondOperand.booleanValue) ? 1 : 0), root.getLineNumber());
-                                    break;
-                                case CHARACTER:
-                                    firstOperand = new Lexeme(BOOLEAN, ((firstOperand.booleanValue) ? 1 : 0) >= (int) (secondOperand.characterValue), root.getLineNumber());
-                                    break;
-                                default:
-                                    Forest.error(root.getLineNumber(), "invalid operation: " + operator.getType() + " between types " + firstOperand.getType() + " and " + secondOperand.getType());
-                                    return null;
-                            }
-                            break;
-                        case CHARACTER:
-                            switch (secondOperand.getType()) {
-                                case INTEGER:
-                                    firstOperand = new Lexeme(BOOLEAN, ((int) (firstOperand.characterValue)) >= secondOperand.intValue, root.getLineNumber());
-                                    break;
-                                case FLOAT:
-                                    firstOperand = new Lexeme(BOOLEAN, ((int) (firstOperand.characterValue)) >= secondOperand.doubleValue, root.getLineNumber());
-                                    break;
-                                case BOOLEAN:
-                                    firstOperand = new Lexeme(BOOLEAN, ((int) (firstOperand.characterValue)) >= ((secondOperand.booleanValue) ? 1 : 0), root.getLineNumber());
-                                    break;
-                                case CHARACTER:
-                                    firstOperand = new Lexeme(BOOLEAN, ((int) (firstOperand.characterValue)) >= (int) (secondOperand.characterValue), root.getLineNumber());
-                                    break;
-                                default:
-                                    Forest.error(root.getLineNumber(), "invalid operation: " + operator.getType() + " between types " + firstOperand.getType() + " and " + secondOperand.getType());
-                                    return null;
-                            }
-                            break;
-                        default:
-                            Forest.error(root.getLineNumber(), "invalid operation: " + operator.getType() + " between types " + firstOperand.getType() + " and " + secondOperand.getType());
-                            return null;
-                    }
-                    break;
-                case LESS_THAN:
-                    switch (firstOperand.getType()) {
-                        case INTEGER:
-                            switch (secondOperand.getType()) {
-                                case INTEGER:
-                                    firstOperand = new Lexeme(BOOLEAN, firstOperand.intValue < secondOperand.intValue, root.getLineNumber());
-                                    break;
-                                case FLOAT:
-                                    firstOperand = new Lexeme(BOOLEAN, firstOperand.intValue < secondOperand.doubleValue, root.getLineNumber());
-                                    break;
-                                case BOOLEAN:
-                                    firstOperand = new Lexeme(BOOLEAN, firstOperand.intValue < ((secondOperand.booleanValue) ? 1 : 0), root.getLineNumber());
-                                    break;
-                                case CHARACTER:
-                                    firstOperand = new Lexeme(BOOLEAN, firstOperand.intValue < (int) (secondOperand.characterValue), root.getLineNumber());
-                                    break;
-                                default:
-                                    Forest.error(root.getLineNumber(), "invalid operation: " + operator.getType() + " between types " + firstOperand.getType() + " and " + secondOperand.getType());
-                                    return null;
-                            }
-                            break;
-                        case FLOAT:
-                            switch (secondOperand.getType()) {
-                                case INTEGER:
-                                    firstOperand = new Lexeme(BOOLEAN, firstOperand.doubleValue < secondOperand.intValue, root.getLineNumber());
-                                    break;
-                                case FLOAT:
-                                    firstOperand = new Lexeme(BOOLEAN, firstOperand.doubleValue < secondOperand.doubleValue, root.getLineNumber());
-                                    break;
-                                case BOOLEAN:
-                                    firstOperand = new Lexeme(BOOLEAN, firstOperand.doubleValue < ((secondOperand.booleanValue) ? 1 : 0), root.getLineNumber());
-                                    break;
-                                case CHARACTER:
-                                    firstOperand = new Lexeme(BOOLEAN, firstOperand.doubleValue < (int) (secondOperand.characterValue), root.getLineNumber());
-                                    break;
-                                default:
-                                    Forest.error(root.getLineNumber(), "invalid operation: " + operator.getType() + " between types " + firstOperand.getType() + " and " + secondOperand.getType());
-                                    return null;
-                            }
-                            break;
-                        case BOOLEAN:
-                            switch (secondOperand.getType()) {
-                                case INTEGER:
-                                    firstOperand = new Lexeme(BOOLEAN, ((firstOperand.booleanValue) ? 1 : 0) < secondOperand.intValue, root.getLineNumber());
-                                    break;
-                                case FLOAT:
-                                    firstOperand = new Lexeme(BOOLEAN, ((firstOperand.booleanValue) ? 1 : 0) < secondOperand.doubleValue, root.getLineNumber());
-                                    break;
-                                case BOOLEAN:
-                                    firstOperand = new Lexeme(BOOLEAN, ((firstOperand.booleanValue) ? 1 : 0) < ((secondOperand.booleanValue) ? 1 : 0), root.getLineNumber());
-                                    break;
-                                case CHARACTER:
-                                    firstOperand = new Lexeme(BOOLEAN, ((firstOperand.booleanValue) ? 1 : 0) < (int) (secondOperand.characterValue), root.getLineNumber());
-                                    break;
-                                default:
-                                    Forest.error(root.getLineNumber(), "invalid operation: " + operator.getType() + " between types " + firstOperand.getType() + " and " + secondOperand.getType());
-                                    return null;
-                            }
-                            break;
-                        case CHARACTER:
-                            switch (secondOperand.getType()) {
-                                case INTEGER:
-                                    firstOperand = new Lexeme(BOOLEAN, ((int) (firstOperand.characterValue)) < secondOperand.intValue, root.getLineNumber());
-                                    break;
-                                case FLOAT:
-                                    firstOperand = new Lexeme(BOOLEAN, ((int) (firstOperand.characterValue)) < secondOperand.doubleValue, root.getLineNumber());
-                                    break;
-                                case BOOLEAN:
-                                    firstOperand = new Lexeme(BOOLEAN, ((int) (firstOperand.characterValue)) < ((secondOperand.booleanValue) ? 1 : 0), root.getLineNumber());
-                                    break;
-                                case CHARACTER:
-                                    firstOperand = new Lexeme(BOOLEAN, ((int) (firstOperand.characterValue)) < (int) (secondOperand.characterValue), root.getLineNumber());
-                                    break;
-                                default:
-                                    Forest.error(root.getLineNumber(), "invalid operation: " + operator.getType() + " between types " + firstOperand.getType() + " and " + secondOperand.getType());
-                                    return null;
-                            }
-                            break;
-                        default:
-                            Forest.error(root.getLineNumber(), "invalid operation: " + operator.getType() + " between types " + firstOperand.getType() + " and " + secondOperand.getType());
-                            return null;
-                    }
-                    break;
-                case LESS_THAN_OR_EQUAL:
-                    switch (firstOperand.getType()) {
-                        case INTEGER:
-                            switch (secondOperand.getType()) {
-                                case INTEGER:
-                                    firstOperand = new Lexeme(BOOLEAN, firstOperand.intValue <= secondOperand.intValue, root.getLineNumber());
-                                    break;
-                                case FLOAT:
-                                    firstOperand = new Lexeme(BOOLEAN, firstOperand.intValue <= secondOperand.doubleValue, root.getLineNumber());
-                                    break;
-                                case BOOLEAN:
-                                    firstOperand = new Lexeme(BOOLEAN, firstOperand.intValue <= ((secondOperand.booleanValue) ? 1 : 0), root.getLineNumber());
-                                    break;
-                                case CHARACTER:
-                                    firstOperand = new Lexeme(BOOLEAN, firstOperand.intValue <= (int) (secondOperand.characterValue), root.getLineNumber());
-                                    break;
-                                default:
-                                    Forest.error(root.getLineNumber(), "invalid operation: " + operator.getType() + " between types " + firstOperand.getType() + " and " + secondOperand.getType());
-                                    return null;
-                            }
-                            break;
-                        case FLOAT:
-                            switch (secondOperand.getType()) {
-                                case INTEGER:
-                                    firstOperand = new Lexeme(BOOLEAN, firstOperand.doubleValue <= secondOperand.intValue, root.getLineNumber());
-                                    break;
-                                case FLOAT:
-                                    firstOperand = new Lexeme(BOOLEAN, firstOperand.doubleValue <= secondOperand.doubleValue, root.getLineNumber());
-                                    break;
-                                case BOOLEAN:
-                                    firstOperand = new Lexeme(BOOLEAN, firstOperand.doubleValue <= ((secondOperand.booleanValue) ? 1 : 0), root.getLineNumber());
-                                    break;
-                                case CHARACTER:
-                                    firstOperand = new Lexeme(BOOLEAN, firstOperand.doubleValue <= (int) (secondOperand.characterValue), root.getLineNumber());
-                                    break;
-                                default:
-                                    Forest.error(root.getLineNumber(), "invalid operation: " + operator.getType() + " between types " + firstOperand.getType() + " and " + secondOperand.getType());
-                                    return null;
-                            }
-                            break;
-                        case BOOLEAN:
-                            switch (secondOperand.getType()) {
-                                case INTEGER:
-                                    firstOperand = new Lexeme(BOOLEAN, ((firstOperand.booleanValue) ? 1 : 0) <= secondOperand.intValue, root.getLineNumber());
-                                    break;
-                                case FLOAT:
-                                    firstOperand = new Lexeme(BOOLEAN, ((firstOperand.booleanValue) ? 1 : 0) <= secondOperand.doubleValue, root.getLineNumber());
-                                    break;
-                                case BOOLEAN:
-                                    firstOperand = new Lexeme(BOOLEAN, ((firstOperand.booleanValue) ? 1 : 0) <= ((secondOperand.booleanValue) ? 1 : 0), root.getLineNumber());
-                                    break;
-                                case CHARACTER:
-                                    firstOperand = new Lexeme(BOOLEAN, ((firstOperand.booleanValue) ? 1 : 0) <= (int) (secondOperand.characterValue), root.getLineNumber());
-                                    break;
-                                default:
-                                    Forest.error(root.getLineNumber(), "invalid operation: " + operator.getType() + " between types " + firstOperand.getType() + " and " + secondOperand.getType());
-                                    return null;
-                            }
-                            break;
-                        case CHARACTER:
-                            switch (secondOperand.getType()) {
-                                case INTEGER:
-                                    firstOperand = new Lexeme(BOOLEAN, ((int) (firstOperand.characterValue)) <= secondOperand.intValue, root.getLineNumber());
-                                    break;
-                                case FLOAT:
-                                    firstOperand = new Lexeme(BOOLEAN, ((int) (firstOperand.characterValue)) <= secondOperand.doubleValue, root.getLineNumber());
-                                    break;
-                                case BOOLEAN:
-                                    firstOperand = new Lexeme(BOOLEAN, ((int) (firstOperand.characterValue)) <= ((secondOperand.booleanValue) ? 1 : 0), root.getLineNumber());
-                                    break;
-                                case CHARACTER:
-                                    firstOperand = new Lexeme(BOOLEAN, ((int) (firstOperand.characterValue)) <= (int) (secondOperand.characterValue), root.getLineNumber());
-                                    break;
-                                default:
-                                    Forest.error(root.getLineNumber(), "invalid operation: " + operator.getType() + " between types " + firstOperand.getType() + " and " + secondOperand.getType());
-                                    return null;
-                            }
-                            break;
-                        default:
-                            Forest.error(root.getLineNumber(), "invalid operation: " + operator.getType() + " between types " + firstOperand.getType() + " and " + secondOperand.getType());
-                            return null;
-                    }
-                    break;
-                case EQUALS:
-                    switch (firstOperand.getType()) {
-                        case INTEGER:
-                            switch (secondOperand.getType()) {
-                                case INTEGER:
-                                    firstOperand = new Lexeme(BOOLEAN, firstOperand.intValue == secondOperand.intValue, root.getLineNumber());
-                                    break;
-                                case FLOAT:
-                                    firstOperand = new Lexeme(BOOLEAN, firstOperand.intValue.doubleValue() == secondOperand.doubleValue, root.getLineNumber());
-                                    break;
-                                case BOOLEAN:
-                                    firstOperand = new Lexeme(BOOLEAN, firstOperand.intValue == ((secondOperand.booleanValue) ? 1 : 0), root.getLineNumber());
-                                    break;
-                                case CHARACTER:
-                                    firstOperand = new Lexeme(BOOLEAN, firstOperand.intValue == (int) (secondOperand.characterValue), root.getLineNumber());
-                                    break;
-                                default:
-                                    Forest.error(root.getLineNumber(), "invalid operation: " + operator.getType() + " between types " + firstOperand.getType() + " and " + secondOperand.getType());
-                                    return null;
-                            }
-                            break;
-                        case FLOAT:
-                            switch (secondOperand.getType()) {
-                                case INTEGER:
-                                    firstOperand = new Lexeme(BOOLEAN, firstOperand.doubleValue == secondOperand.intValue.doubleValue(), root.getLineNumber());
-                                    break;
-                                case FLOAT:
-                                    firstOperand = new Lexeme(BOOLEAN, firstOperand.doubleValue == secondOperand.doubleValue, root.getLineNumber());
-                                    break;
-                                case BOOLEAN:
-                                    firstOperand = new Lexeme(BOOLEAN, firstOperand.doubleValue == ((secondOperand.booleanValue) ? 1 : 0), root.getLineNumber());
-                                    break;
-                                case CHARACTER:
-                                    firstOperand = new Lexeme(BOOLEAN, firstOperand.doubleValue == (double) (int) (secondOperand.characterValue), root.getLineNumber());
-                                    break;
-                                default:
-                                    Forest.error(root.getLineNumber(), "invalid operation: " + operator.getType() + " between types " + firstOperand.getType() + " and " + secondOperand.getType());
-                                    return null;
-                            }
-                            break;
-                        case BOOLEAN:
-                            switch (secondOperand.getType()) {
-                                case INTEGER:
-                                    firstOperand = new Lexeme(BOOLEAN, ((firstOperand.booleanValue) ? 1 : 0) == secondOperand.intValue, root.getLineNumber());
-                                    break;
-                                case FLOAT:
-                                    firstOperand = new Lexeme(BOOLEAN, ((firstOperand.booleanValue) ? 1 : 0) == secondOperand.doubleValue, root.getLineNumber());
-                                    break;
-                                case BOOLEAN:
-                                    firstOperand = new Lexeme(BOOLEAN, ((firstOperand.booleanValue) ? 1 : 0) == ((secondOperand.booleanValue) ? 1 : 0), root.getLineNumber());
-                                    break;
-                                case CHARACTER:
-                                    firstOperand = new Lexeme(BOOLEAN, ((firstOperand.booleanValue) ? 1 : 0) == (int) (secondOperand.characterValue), root.getLineNumber());
-                                    break;
-                                default:
-                                    Forest.error(root.getLineNumber(), "invalid operation: " + operator.getType() + " between types " + firstOperand.getType() + " and " + secondOperand.getType());
-                                    return null;
-                            }
-                            break;
-                        case STRING:
-                            switch (secondOperand.getType()) {
-                                case STRING:
-                                    firstOperand = new Lexeme(BOOLEAN, firstOperand.stringValue.equals(secondOperand.stringValue), root.getLineNumber());
-                                    break;
-                                default:
-                                    Forest.error(root.getLineNumber(), "invalid operation: " + operator.getType() + " between types " + firstOperand.getType() + " and " + secondOperand.getType());
-                                    return null;
-                            }
-                            break;
-                        case CHARACTER:
-                            switch (secondOperand.getType()) {
-                                case INTEGER:
-                                    firstOperand = new Lexeme(BOOLEAN, ((int) (firstOperand.characterValue)) == secondOperand.intValue, root.getLineNumber());
-                                    break;
-                                case FLOAT:
-                                    firstOperand = new Lexeme(BOOLEAN, ((int) (firstOperand.characterValue)) == secondOperand.doubleValue, root.getLineNumber());
-                                    break;
-                                case BOOLEAN:
-                                    firstOperand = new Lexeme(BOOLEAN, ((int) (firstOperand.characterValue)) == ((secondOperand.booleanValue) ? 1 : 0), root.getLineNumber());
-                                    break;
-                                case CHARACTER:
-                                    firstOperand = new Lexeme(BOOLEAN, ((int) (firstOperand.characterValue)) == (int) (secondOperand.characterValue), root.getLineNumber());
-                                    break;
-                                default:
-                                    Forest.error(root.getLineNumber(), "invalid operation: " + operator.getType() + " between types " + firstOperand.getType() + " and " + secondOperand.getType());
-                                    return null;
-                            }
-                            break;
-                        default:
-                            Forest.error(root.getLineNumber(), "invalid operation: " + operator.getType() + " between types " + firstOperand.getType() + " and " + secondOperand.getType());
-                            return null;
-                    }
-                    break;
-                case AND:
-                    switch (firstOperand.getType()) {
-                        case BOOLEAN:
-                            switch (secondOperand.getType()) {
-                                case BOOLEAN:
-                                    firstOperand = new Lexeme(BOOLEAN, firstOperand.booleanValue && secondOperand.booleanValue, secondOperand.getLineNumber());
-                                    break;
-                                default:
-                                    Forest.error(root.getLineNumber(), "invalid operation: " + operator.getType() + " between types " + firstOperand.getType() + " and " + secondOperand.getType());
-                                    return null;
-                            }
-                            break;
-                        default:
-                            Forest.error(root.getLineNumber(), "invalid operation: " + operator.getType() + " between types " + firstOperand.getType() + " and " + secondOperand.getType());
-                            return null;
-                    }
-                    break;
-                case OR:
-                    switch (firstOperand.getType()) {
-                        case BOOLEAN:
-                            switch (secondOperand.getType()) {
-                                case BOOLEAN:
-                                    firstOperand = new Lexeme(BOOLEAN, firstOperand.booleanValue || secondOperand.booleanValue, secondOperand.getLineNumber());
-                                    break;
-                                default:
-                                    Forest.error(root.getLineNumber(), "invalid operation: " + operator.getType() + " between types " + firstOperand.getType() + " and " + secondOperand.getType());
-                                    return null;
-                            }
-                            break;
-                        default:
-                            Forest.error(root.getLineNumber(), "invalid operation: " + operator.getType() + " between types " + firstOperand.getType() + " and " + secondOperand.getType());
-                            return null;
-                    }
-                    break;
-                default:
-                    Forest.error(firstOperand.getLineNumber(), "operator " + firstOperand.getType() + " not supported");
-            }
+            firstOperand = Operators.binary(operator.getType(), firstOperand, secondOperand, root.getLineNumber());
+            if (firstOperand == null) return null;
         }
         if (nextOpList != null) {
-            Lexeme nextRoot = new Lexeme(VARIADIC_OPERATION, root.getLineNumber());
+            Lexeme nextRoot = new Node(VARIADIC_OPERATION, root.getLineNumber());
             nextRoot.setLeft(nextOpList);
-            nextRoot.setRight(new Lexeme(EXPRESSION_LIST, root.getLineNumber()));
+            nextRoot.setRight(new Node(EXPRESSION_LIST, root.getLineNumber()));
             nextRoot.getRight().setLeft(firstOperand);
+            //the operation stops here like on the compiled engines, there is nothing left for the next operator
+            if (numOfExpressions >= expressionValues.size()) {
+                Forest.error(root.getLineNumber(), " not enough expression values");
+                return null;
+            }
+            //function calls can give more values than there are expressions, the list then ends early
             Lexeme expressionList = root.getRight();
-            for (int i = 0; i < numOfExpressions; i++) {
+            for (int i = 0; i < numOfExpressions && expressionList != null; i++) {
                 expressionList = expressionList.getRight();
             }
             nextRoot.getRight().setRight(expressionList);
-            if (numOfExpressions >= expressionValues.size()) {
-                Forest.error(expressionList.getLineNumber(), " not enough expression values");
-            }
             expressionValues.add(numOfExpressions, firstOperand); //TODO effiency, might change to linked list
             return variadicOperation(nextRoot, environment, expressionValues.subList(numOfExpressions, expressionValues.size()));
         }
@@ -1296,11 +575,4 @@ public class Evaluator {
         valList.add(firstOperand);
         return valList;
     }
-
-    private static Lexeme intDivision(Lexeme a, Lexeme b) {
-        if (a.intValue % b.intValue == 0) {
-            return new Lexeme(INTEGER, a.intValue / b.intValue, a.getLineNumber());
-        }
-        return new Lexeme(FLOAT, (double) a.intValue / b.intValue, a.getLineNumber());
-    }
 }
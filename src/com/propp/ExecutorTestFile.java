@@ -0,0 +1,101 @@
+package com.propp;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+//stress test of the ForestExecutor, runs the same independent programs on 1, 2, 4 ... threads up to the number of cores,
+//checks every run printed, returned and reported exactly what it does when run alone and prints the runs per second,
+//a last round on four threads per core only adds contention, so it mostly checks that the runs stay apart
+//programs with errors in them are also run on every engine, which has to print and report exactly what the Evaluator does
+public class ExecutorTestFile {
+    private static final String SOURCE =
+            "func sq(x) { return *(x,x); };\n" +
+            "0->i;\n" +
+            "0->s;\n" +
+            "while(<(i,limit)) {\n" +
+            "    +(s,sq(i))->s;\n" +
+            "    +(i,1)->i;\n" +
+            "};\n" +
+            "print(name, s);\n" +
+            "print(undeclared);\n" +
+            "s;\n";
+    private static final int RUNS = 2000;
+    //operator chains that run out of values stop with an error and produce no value,
+    //array accesses past the end or the dimensions of an array and conditions on values that are not booleans
+    private static final String[] ERRORS = {
+            "print(+3$*(1,2,3,4));\nprint(5);\n",
+            "func f() { return 1,2,3; };\nprint(+3$*(f()));\nprint(+2$*(f(),1));\nprint(+$*(1));\nprint(7);\n",
+            "[](3)->a;\n[](2,2)->b;\n5->a[1];\n7->b[1][0];\nprint(a[1], b[1][0], b[0][1]);\nprint(a[5]);\nprint(a[1][0]);\nprint(a[0][0]);\n" +
+                    "if(a[1]) { print(1); };\nif(==(a[1],5)) { print(2); };\n",
+    };
+
+    public static void main(String[] args) throws Exception {
+        for (String source : ERRORS) sameAsEvaluator(source);
+        for (Engine engine : Engine.values()) {
+            ForestEngine forest = new ForestEngine(engine);
+            ForestEngine.Program program = forest.compile(SOURCE);
+            String[] expected = new String[RUNS];
+            try (ForestExecutor executor = new ForestExecutor(forest, Executors.newSingleThreadExecutor())) {
+                for (int i = 0; i < RUNS; i++) expected[i] = describe(executor.submit(program, bindings(i)).get());
+            }
+            System.out.println(engine + ": " + expected[RUNS - 1].replace('\n', ' '));
+            int cores = Runtime.getRuntime().availableProcessors();
+            for (int threads = 1; ; threads = Math.min(threads * 2, cores)) {
+                run(forest, program, expected, threads);
+                if (threads == cores) break;
+            }
+            run(forest, program, expected, cores * 4);
+        }
+        ForestEngine forest = new ForestEngine();
+        try (ForestExecutor executor = new ForestExecutor(forest)) {
+            ForestExecutor.Result result = executor.submit("print(+(1,2));\n+(1, nothere);\n", new HashMap<String, Object>()).get();
+            System.out.println("default executor: " + describe(result).replace('\n', ' '));
+        }
+    }
+
+    private static void sameAsEvaluator(String source) throws Exception {
+        String expected = null;
+        for (Engine engine : Engine.values()) {
+            String actual;
+            try (ForestExecutor executor = new ForestExecutor(new ForestEngine(engine), Executors.newSingleThreadExecutor())) {
+                actual = describe(executor.submit(source, new HashMap<String, Object>()).get());
+            }
+            if (expected == null) expected = actual;
+            else if (!actual.equals(expected)) throw new AssertionError(engine + " on " + source + ": " + actual + " instead of " + expected);
+        }
+        System.out.println("every engine: " + expected.replace('\n', ' '));
+    }
+
+    private static void run(ForestEngine forest, ForestEngine.Program program, String[] expected, int threads) throws Exception {
+        long start = System.nanoTime();
+        List<Future<ForestExecutor.Result>> results = new ArrayList<Future<ForestExecutor.Result>>();
+        try (ForestExecutor executor = new ForestExecutor(forest, Executors.newFixedThreadPool(threads))) {
+            for (int i = 0; i < RUNS; i++) results.add(executor.submit(program, bindings(i)));
+            for (int i = 0; i < RUNS; i++) {
+                String actual = describe(results.get(i).get());
+                if (!actual.equals(expected[i])) throw new AssertionError("run " + i + " on " + threads + " threads: " + actual + " instead of " + expected[i]);
+            }
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.out.println(String.format("%3d threads %10.0f runs/s", threads, RUNS / seconds));
+    }
+
+    private static Map<String, Object> bindings(int run) {
+        Map<String, Object> bindings = new HashMap<String, Object>();
+        bindings.put("name", "run" + run);
+        bindings.put("limit", 1000 + run % 7);
+        return bindings;
+    }
+
+    private static String describe(ForestExecutor.Result result) {
+        StringBuilder str = new StringBuilder(result.getOutput());
+        for (Lexeme value : result.getValues()) str.append(value.getValueString()).append('\n');
+        for (Diagnostics.Diagnostic diagnostic : result.getDiagnostics()) str.append(diagnostic).append('\n');
+        if (result.getFailure() != null) str.append(result.getFailure()).append('\n');
+        return str.toString();
+    }
+}
@@ -0,0 +1,118 @@
+package com.propp;
+
+import static com.propp.TokenType.*;
+
+//shapes of resolved expressions the BytecodeCompiler and the ChunkCompiler both compile by,
+//and the truth test and array indexing every engine evaluates the same way
+final class Expressions {
+    private static final Lexeme TRUE = new BooleanValue(true, 0);
+    private static final OperatorChain CONDITION = OperatorChain.of(EQUALS, 0);
+
+    private Expressions() {
+    }
+
+    //everything but a function call produces at most one value
+    static boolean isSingle(Lexeme expression) {
+        return expression.getType() != FUNC_CALL;
+    }
+
+    //undeclared variables still take up a place in expression lists
+    static boolean keepsNull(Lexeme expression) {
+        return expression.getType() == VARIABLE;
+    }
+
+    //the line errors about the values of expression are reported on, the same one the Evaluator reports
+    static int lineNumber(Lexeme expression) {
+        switch (expression.getType()) {
+            case VARIABLE:
+                return expression.getLeft().getLineNumber();
+            case FUNC_CALL:
+                Lexeme identifier = expression.getLeft();
+                if (identifier.stringValue().equals("print") && identifier.getLeft() != null) return identifier.getLeft().getLineNumber();
+                return identifier.getLineNumber();
+            default:
+                return expression.getLineNumber();
+        }
+    }
+
+    static boolean isLiteral(Lexeme expression) {
+        switch (expression.getType()) {
+            case INTEGER:
+            case FLOAT:
+            case STRING:
+            case BOOLEAN:
+            case CHARACTER:
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    static boolean isPrint(Lexeme expression) {
+        return expression.getType() == FUNC_CALL && expression.getLeft().stringValue().equals("print");
+    }
+
+    //values needs one free place after size for the true it is compared against
+    static boolean isTrue(Lexeme[] values, int size, int lineNumber) {
+        values[size++] = TRUE;
+        Lexeme result = CONDITION.apply(values, size);
+        if (result == null) {
+            Forest.error(lineNumber, " found no value in conditional");
+            return false;
+        }
+        return result.booleanValue();
+    }
+
+    //stores value in an element of the array held by identifier, false if an error was reported
+    static boolean assignElement(Environment environment, Lexeme identifier, Lexeme[] indices, Lexeme value) {
+        if (indices[0].getType() != INTEGER) {
+            Forest.error(indices[0].getLineNumber(), "expected Integer for array location found " + indices[0].getType());
+            return false;
+        }
+        if (!environment.variableExists(identifier)) {
+            Forest.error(identifier.getLineNumber(), "array not instatiated");
+            return false;
+        }
+        Lexeme array = environment.getVariableValue(identifier);
+        for (int i = 0; i < indices.length; i++) {
+            int index = indices[i].intValue();
+            if (array == null || array.getType() != ARRAY) {
+                Forest.error(identifier.getLineNumber(), identifier.stringValue() + " is not an array of required dimension");
+                return false;
+            }
+            if (array.arrayValue().length <= index) {
+                Forest.error(identifier.getLineNumber(), "Array index out of bounds. Length:" + array.arrayValue().length + " Value:" + index);
+                return false;
+            }
+            if (i == indices.length - 1) array.arrayValue()[index] = value;
+            else array = array.arrayValue()[index];
+        }
+        return true;
+    }
+
+    //indices holds null where the position is not an integer literal
+    static Lexeme arrayElement(Lexeme arr, Lexeme[] indices, int lineNumber) {
+        for (Lexeme index : indices) {
+            if (!canIndex(arr, index, lineNumber)) return null;
+            arr = arr.arrayValue()[index.intValue()];
+        }
+        return arr;
+    }
+
+    //whether arr has an element at index, reports why not otherwise
+    static boolean canIndex(Lexeme arr, Lexeme index, int lineNumber) {
+        if (arr == null || arr.getType() != ARRAY) {
+            Forest.error(lineNumber, "not enough dimensions for array");
+            return false;
+        }
+        if (index == null || index.getType() != INTEGER) {
+            Forest.error(lineNumber, "must have integer position for array");
+            return false;
+        }
+        if (arr.arrayValue().length <= index.intValue()) {
+            Forest.error(lineNumber, "Array index out of bounds. Length:" + arr.arrayValue().length + " Value:" + index.intValue());
+            return false;
+        }
+        return true;
+    }
+}
@@ -0,0 +1,22 @@
+package com.propp;
+
+public final class FloatValue extends Value {
+    private final double value;
+
+    public FloatValue(double value, int lineNumber) {
+        super(lineNumber);
+        this.value = value;
+    }
+
+    public TokenType getType() {
+        return TokenType.FLOAT;
+    }
+
+    public double doubleValue() {
+        return this.value;
+    }
+
+    public String getValueString() {
+        return Double.toString(this.value);
+    }
+}
@@ -1,57 +1,230 @@
 package com.propp;
 
 import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.charset.Charset;
-import java.nio.file.Files;
 import java.nio.file.Paths;
-import java.util.ArrayList;
+import java.nio.file.StandardOpenOption;
+import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
 
 public class Forest {
+    private static final AtomicLong errorCount = new AtomicLong(); //errors reported so far, by every thread
+
     public static void main(String[] args) throws IOException {
+        Options options = Options.parse(args);
+        if (options == null) {
+            System.out.println(Options.USAGE);
+            System.exit(64);
+        }
         try {
-            if (singlePathProvided(args)) runFile(args[0]);
-            else {
-                System.out.println(("Usage: forest [path to .tree file]"));
-                System.exit(64);
-            }
+            runFile(options.getPath(), options);
         } catch (IOException e) {
             throw new IOException(e.toString());
         }
     }
 
-    private static boolean singlePathProvided(String[] args) {
-        return args.length == 1;
+    public static void runFile(String path) throws IOException {
+        runFile(path, Engine.EVALUATOR);
     }
 
-    public static void runFile(String path) throws IOException {
-        String soruceCode = getSourceCodeFromFile(path);
-        run(soruceCode);
+    public static void runFile(String path, Engine engine) throws IOException {
+        runFile(path, new Options().setEngine(engine));
     }
 
-    private static String getSourceCodeFromFile(String path) throws IOException {
-        byte[] bytes = Files.readAllBytes(Paths.get(path));
-        return new String(bytes, Charset.defaultCharset());
+    //the file is lexed straight from a memory mapping instead of being read into a String first,
+    //files that fit in one mapping are scanned as bytes into a packed TokenStream when the default charset allows it
+    //with a cache directory the tree of an unchanged file is loaded instead of lexing and parsing it again
+    public static void runFile(String path, Options options) throws IOException {
+        Timings timings = new Timings();
+        Lexeme root;
+        try (FileChannel channel = FileChannel.open(Paths.get(path), StandardOpenOption.READ)) {
+            if (channel.size() <= Integer.MAX_VALUE) {
+                root = parse(channel, channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()), options, timings);
+            } else {
+                root = parse(new Lexer(channel), options, timings);
+            }
+        }
+        run(root, options, timings);
+    }
+
+    //the tokens are not kept in the cache, so they are always lexed when they are to be printed
+    private static Lexeme parse(FileChannel channel, ByteBuffer source, Options options, Timings timings) throws IOException {
+        Charset charset = Charset.defaultCharset();
+        ProgramCache cache = (options.getCacheDirectory() == null || options.printTokens()) ? null : new ProgramCache(Paths.get(options.getCacheDirectory()));
+        if (cache != null) {
+            timings.start("load cache");
+            Lexeme root = cache.load(source, charset);
+            timings.stop();
+            if (root != null) return root;
+        }
+        long errors = errorCount.get();
+        Lexeme root;
+        if (ByteScanner.supports(charset)) {
+            timings.start("lex");
+            long start = System.nanoTime();
+            TokenStream tokens = new ByteScanner(source.duplicate(), charset).scan();
+            ForestMetrics.lexed(tokens.size(), System.nanoTime() - start);
+            root = parse(tokens, options, timings);
+        } else {
+            root = parse(new Lexer(channel), options, timings);
+        }
+        //a tree with errors is not stored, so the errors are reported again on the next run
+        if (cache != null && errorCount.get() == errors) {
+            timings.start("store cache");
+            try {
+                cache.store(source, charset, root);
+            } catch (IOException e) {
+                //the cache only saves time, the program still runs without it
+            }
+            timings.stop();
+        }
+        return root;
     }
 
     public static void run(String sourceCode) throws IOException {
-        Lexer lexer = new Lexer(sourceCode);
-        ArrayList<Lexeme> lexemes = lexer.lex();
-        for (Lexeme lex : lexemes) {
-            System.out.println(lex);
+        run(sourceCode, Engine.EVALUATOR);
+    }
+
+    public static void run(String sourceCode, Engine engine) throws IOException {
+        run(sourceCode, new Options().setEngine(engine));
+    }
+
+    public static void run(String sourceCode, Options options) throws IOException {
+        Timings timings = new Timings();
+        run(parse(new Lexer(sourceCode), options, timings), options, timings);
+    }
+
+    //tokens are lexed as the Parser pulls them, so lexing is timed as part of parsing
+    private static Lexeme parse(TokenSource lexer, Options options, Timings timings) throws IOException {
+        try {
+            timings.start("lex and parse");
+            long start = System.nanoTime();
+            Parser rec;
+            Lexeme root;
+            if (!options.printTokens()) {
+                rec = new Parser(lexer);
+                root = rec.program();
+            } else {
+                PrintedLexemes lexemes = new PrintedLexemes(lexer);
+                rec = new Parser(lexemes);
+                root = rec.program();
+                lexemes.finish();
+            }
+            ForestMetrics.lexed(rec.getTokenCount(), System.nanoTime() - start);
+            return root;
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        } finally {
+            timings.stop();
+        }
+    }
+
+    private static Lexeme parse(TokenStream lexemes, Options options, Timings timings) {
+        timings.stop();
+        if (options.printTokens()) {
+            for (int i = 0; i < lexemes.size(); i++) {
+                System.out.println(lexemes.lexeme(i));
+            }
         }
+        timings.start("parse");
         Parser rec = new Parser(lexemes);
         Lexeme root = rec.program();
-        Parser.printTree(root);
-        Evaluator evaluator = new Evaluator();
-        List<Lexeme> output = evaluator.eval(root, new Environment(null));
-        for (Lexeme lex : output) {
-            System.out.println(lex.getValueString());
+        timings.stop();
+        return root;
+    }
+
+    //everything the program prints, and the values it ends with, go to the sink of the options,
+    //which is flushed when the program stops even if it stops with an exception
+    private static void run(Lexeme root, Options options, Timings timings) throws IOException {
+        if (options.printTree()) Parser.printTree(root);
+        timings.start("optimize");
+        Optimizer optimizer = new Optimizer();
+        root = optimizer.optimize(root);
+        timings.stop();
+        if (options.printOptimizerReport()) {
+            for (String folded : optimizer.getReport()) {
+                System.out.println(folded);
+            }
+        }
+        timings.start("resolve");
+        Scope global = new Resolver().resolve(root);
+        timings.stop();
+        if (options.printDisassembly()) disassemble(root);
+        timings.start("compile");
+        ForestEngine engine = new ForestEngine(options.getEngine(), false);
+        Profiler profiler = options.printProfile() ? new Profiler() : null;
+        SamplingProfiler sampler = (options.getSampleOutput() == null) ? null : new SamplingProfiler();
+        ForestEngine.Program program;
+        if (profiler != null) program = engine.profile(root, global, profiler);
+        else if (sampler != null) program = engine.profile(root, global, sampler);
+        else program = engine.compile(root, global);
+        timings.stop();
+        OutputSink sink = options.openOutput();
+        OutputSink previous = OutputSink.use(sink);
+        try {
+            timings.start("run");
+            if (sampler != null) sampler.start(options.getSampleInterval());
+            List<Lexeme> output;
+            try {
+                output = engine.execute(program, Collections.<String, Object>emptyMap());
+            } finally {
+                if (sampler != null) stopSampling(sampler, options);
+            }
+            timings.stop();
+            for (Lexeme lex : output) {
+                sink.println(lex.getValueString());
+            }
+        } finally {
+            OutputSink.use(previous);
+            sink.close();
+        }
+        if (options.printTimings()) timings.print(System.err);
+        if (profiler != null) profiler.print(System.err);
+    }
+
+    //compiled apart from the engine that runs the program, so the dump does not depend on --engine
+    private static void disassemble(Lexeme root) {
+        ChunkCompiler.CompiledProgram chunks = new ChunkCompiler().compile(root);
+        if (chunks == null) System.out.println("the program can not be compiled for the vm");
+        else System.out.print(Disassembler.disassemble(chunks));
+    }
+
+    //the samples of a run that stopped with an exception are still written, they show where it was going
+    private static void stopSampling(SamplingProfiler sampler, Options options) throws IOException {
+        try {
+            sampler.stop();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
         }
+        sampler.write(Paths.get(options.getSampleOutput()));
     }
 
-    private static void printLexemes(ArrayList<Lexeme> lexemes) {
-        for (Lexeme lexeme : lexemes) System.out.println(lexeme.toString());
+    //prints every token as the Parser pulls it, the rest are printed once parsing stops,
+    //so the same tokens come out as when the whole list was printed before parsing
+    private static class PrintedLexemes implements TokenSource {
+        private final TokenSource lexemes;
+        private boolean ended;
+
+        PrintedLexemes(TokenSource lexemes) {
+            this.lexemes = lexemes;
+            this.ended = false;
+        }
+
+        @Override
+        public Lexeme next() {
+            Lexeme lexeme = this.lexemes.next();
+            if (!this.ended) System.out.println(lexeme);
+            if (lexeme.getType() == TokenType.FILE_END) this.ended = true;
+            return lexeme;
+        }
+
+        void finish() {
+            while (!this.ended) next();
+        }
     }
 
     public static void error(int lineNumber, String msg) {
@@ -62,7 +235,11 @@ public class Forest {
         error(lexeme.getLineNumber(), msg);
     }
 
+    //to the Diagnostics of the calling thread, System.err unless it chose other ones
     private static void report(int lineNumber, String msg) {
-        System.err.println("line:" + lineNumber + " " + msg);
+        errorCount.incrementAndGet();
+        ForestMetrics.error();
+        if (ForestEvents.recording()) ForestEvents.error(lineNumber, msg);
+        Diagnostics.current().report(lineNumber, msg);
     }
 }
\ No newline at end of file
@@ -0,0 +1,224 @@
+package com.propp;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+//embedding API, a source is compiled once into a Program that can then be executed any number of times,
+//from any number of threads at once, every execution gets its own Environments and engine state
+//input variables are bound in the global Environment of an execution, so they never need the source again
+//every execution is counted in ForestMetrics and recorded as a Flight Recorder event while the recorder runs
+public class ForestEngine {
+    private final Engine engine;
+
+    public ForestEngine() {
+        this(Engine.EVALUATOR);
+    }
+
+    public ForestEngine(Engine engine) {
+        this(engine, true);
+    }
+
+    //register is false for the command line, which has no use for JMX
+    ForestEngine(Engine engine, boolean register) {
+        this.engine = engine;
+        if (register) ForestMetrics.register();
+    }
+
+    public Engine getEngine() {
+        return this.engine;
+    }
+
+    //a compiled program, only ever read after it is made
+    public static final class Program {
+        private final Engine engine;
+        private final Scope global;
+        private final Runner runner;
+
+        private Program(Engine engine, Scope global, Runner runner) {
+            this.engine = engine;
+            this.global = global;
+            this.runner = runner;
+        }
+
+        //the engine the program runs on, EVALUATOR where BYTECODE or VM could not compile it
+        public Engine getEngine() {
+            return this.engine;
+        }
+    }
+
+    //one execution of a compiled program in a fresh global Environment
+    private interface Runner {
+        List<Lexeme> run(Environment environment);
+    }
+
+    //lexes, parses, optimizes, resolves and compiles source, errors are reported like they are for Forest.run
+    //the phases are only Flight Recorder events here, nothing is measured unless a recording is running
+    public Program compile(String source) {
+        boolean recording = ForestEvents.recording();
+        Object phase = recording ? ForestEvents.beginPhase() : null;
+        long start = System.nanoTime();
+        Parser parser = new Parser(new Lexer(source));
+        Lexeme root = parser.program();
+        ForestMetrics.lexed(parser.getTokenCount(), System.nanoTime() - start);
+        if (recording) phase = nextPhase(phase, "lex and parse");
+        root = new Optimizer().optimize(root);
+        if (recording) phase = nextPhase(phase, "optimize");
+        Scope global = new Resolver().resolve(root);
+        if (recording) phase = nextPhase(phase, "resolve");
+        Program program = compile(root, global);
+        if (phase != null) ForestEvents.endPhase(phase, "compile");
+        return program;
+    }
+
+    //ends the event of the phase that just ran, null if it was not enabled, and begins the one of the next phase
+    private static Object nextPhase(Object began, String phase) {
+        if (began != null) ForestEvents.endPhase(began, phase);
+        return ForestEvents.beginPhase();
+    }
+
+    //root is optimized and resolved, global is the Scope the Resolver made for it
+    Program compile(Lexeme root, Scope global) {
+        switch (this.engine) {
+            case CLOSURE:
+                ClosureCompiler.Program program = new ClosureCompiler().compile(root);
+                return new Program(Engine.CLOSURE, global, program::run);
+            case BYTECODE:
+                BytecodeCompiler.CompiledProgram compiled = new BytecodeCompiler().compile(root);
+                if (compiled != null) return new Program(Engine.BYTECODE, global, compiled::run);
+                break;
+            case VM:
+                ChunkCompiler.CompiledProgram chunks = new ChunkCompiler().compile(root);
+                if (chunks != null) return new Program(Engine.VM, global, environment -> new VirtualMachine(chunks).run(environment));
+                break;
+            case ARENA:
+                AstArena arena = new ArenaCompiler().compile(root);
+                return new Program(Engine.ARENA, global, environment -> new ArenaEvaluator(arena).run(environment));
+            default:
+                break;
+        }
+        return new Program(Engine.EVALUATOR, global, environment -> new Evaluator().eval(root, environment));
+    }
+
+    //a program of root that a profiling Evaluator walks, whatever engine this one compiles for
+    Program profile(Lexeme root, Scope global, Evaluator profiler) {
+        return new Program(Engine.EVALUATOR, global, environment -> profiler.eval(root, environment));
+    }
+
+    //runs program with bindings as global variables and returns the values its top level statements produced,
+    //print writes to the OutputSink of the calling thread
+    public List<Lexeme> execute(Program program, Map<String, ?> bindings) {
+        return run(program, environment(program, bindings));
+    }
+
+    //print writes to output, which is flushed but left open
+    public List<Lexeme> execute(Program program, Map<String, ?> bindings, OutputSink output) {
+        OutputSink previous = OutputSink.use(output);
+        try {
+            return execute(program, bindings);
+        } finally {
+            OutputSink.use(previous);
+            output.flush();
+        }
+    }
+
+    //a fresh global Environment for program with bindings stored in it, bindings with a name no program uses
+    //can never be read and are left out instead of interning their names
+    Environment environment(Program program, Map<String, ?> bindings) {
+        Environment global = new Environment(null, program.global);
+        for (Map.Entry<String, ?> binding : bindings.entrySet()) {
+            int symbol = Symbols.find(binding.getKey());
+            if (symbol >= 0) global.addVariable(new Node(TokenType.IDENTIFIER, symbol, 0), value(binding.getValue()));
+        }
+        return global;
+    }
+
+    List<Lexeme> run(Program program, Environment global) {
+        Object event = ForestEvents.recording() ? ForestEvents.beginExecution() : null;
+        long allocation = Timings.allocated();
+        long start = System.nanoTime();
+        boolean failed = true;
+        try {
+            List<Lexeme> values = program.runner.run(global);
+            failed = false;
+            return values;
+        } finally {
+            long nanos = System.nanoTime() - start;
+            long allocated = (allocation < 0) ? -1 : Timings.allocated() - allocation;
+            ForestMetrics.executed(nanos, allocated, failed);
+            if (event != null) ForestEvents.endExecution(event, program.engine, allocated, failed);
+        }
+    }
+
+    //calls the function a run of a program left under name in its global Environment, null if there is none,
+    //the body is walked by the Evaluator whatever engine ran the program, they all store functions the same way
+    List<Lexeme> call(Environment global, String name, List<Lexeme> arguments) {
+        if (name.equals("print")) {
+            OutputSink.current().printValues(arguments, 0);
+            return new ArrayList<Lexeme>();
+        }
+        int symbol = Symbols.find(name);
+        if (symbol < 0) return null;
+        Lexeme identifier = new Node(TokenType.IDENTIFIER, symbol, 0);
+        if (!global.variableExists(identifier)) return null;
+        Lexeme body = global.getVariableValue(identifier);
+        if (body == null || body.getType() != TokenType.STATEMENT_LIST) return null;
+        List<Lexeme> parameters = new ArrayList<Lexeme>();
+        for (Lexeme node = global.getIdentifier(identifier).getLeft(); node != null; node = node.getRight()) {
+            if (node.getLeft() != null) parameters.add(node.getLeft());
+        }
+        if (parameters.size() != arguments.size()) {
+            throw new IllegalArgumentException("wrong number of parameters for function " + name + " expected " + parameters.size() + " but found " + arguments.size());
+        }
+        Environment environment = new Environment(global, body.getScope());
+        for (int i = 0; i < arguments.size(); i++) environment.addVariable(parameters.get(i), arguments.get(i));
+        List<Lexeme> values = new Evaluator().call(body, environment);
+        return (values == null) ? new ArrayList<Lexeme>() : values;
+    }
+
+    //the Forest value of a host value, Lexemes are taken as they are, strings get the quotes the Lexer keeps on string literals,
+    //arrays and lists become arrays with their elements converted and null elements left empty
+    public static Lexeme value(Object value) {
+        if (value == null || value instanceof Lexeme) return (Lexeme) value;
+        if (value instanceof Integer || value instanceof Short || value instanceof Byte) return new IntegerValue(((Number) value).intValue(), 0);
+        if (value instanceof Double || value instanceof Float) return new FloatValue(((Number) value).doubleValue(), 0);
+        if (value instanceof Boolean) return new BooleanValue((Boolean) value, 0);
+        if (value instanceof Character) return new CharacterValue((Character) value, 0);
+        if (value instanceof CharSequence) return new StringValue("\"" + value + "\"", 0);
+        if (value instanceof List) value = ((List<?>) value).toArray();
+        if (value instanceof Object[]) {
+            Object[] elements = (Object[]) value;
+            Lexeme[] array = new Lexeme[elements.length];
+            for (int i = 0; i < elements.length; i++) array[i] = value(elements[i]);
+            return new ArrayValue(array, 0);
+        }
+        throw new IllegalArgumentException(value.getClass().getName() + " can not be a Forest value");
+    }
+
+    //the host value of a Forest value, the reverse of value, strings lose the quotes around them,
+    //arrays become Object arrays and anything that is not a value, like a function, stays the Lexeme it is
+    public static Object hostValue(Lexeme value) {
+        if (value == null) return null;
+        switch (value.getType()) {
+            case INTEGER:
+                return value.intValue();
+            case FLOAT:
+                return value.doubleValue();
+            case BOOLEAN:
+                return value.booleanValue();
+            case CHARACTER:
+                return value.characterValue();
+            case STRING:
+                String string = value.stringValue();
+                boolean quoted = string.length() >= 2 && string.charAt(0) == '"' && string.charAt(string.length() - 1) == '"';
+                return quoted ? string.substring(1, string.length() - 1) : string;
+            case ARRAY:
+                Lexeme[] elements = value.arrayValue();
+                Object[] array = new Object[elements.length];
+                for (int i = 0; i < elements.length; i++) array[i] = hostValue(elements[i]);
+                return array;
+            default:
+                return value;
+        }
+    }
+}
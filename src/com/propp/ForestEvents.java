@@ -0,0 +1,137 @@
+package com.propp;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.FlightRecorder;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+//Flight Recorder events of Forest runs, the phases of a run, whole executions, slow function calls and reported errors
+//loading an event class starts up the recorder's machinery, a couple of hundred milliseconds, so nothing here is
+//touched before the recorder is running, callers check recording() and keep the event they began as an Object
+//while recording the settings of the recording decide which events are kept, function calls below 20 ms are not
+final class ForestEvents {
+    private ForestEvents() {
+    }
+
+    @Name("com.propp.Phase")
+    @Label("Forest Phase")
+    @Category("Forest")
+    @Description("One phase of a Forest run, lexing, parsing, optimizing, resolving, compiling or running")
+    @StackTrace(false)
+    static final class Phase extends Event {
+        @Label("Phase")
+        String phase;
+    }
+
+    @Name("com.propp.Execution")
+    @Label("Forest Execution")
+    @Category("Forest")
+    @Description("One execution of a compiled Forest program")
+    @StackTrace(false)
+    static final class Execution extends Event {
+        @Label("Engine")
+        String engine;
+
+        @Label("Allocated")
+        @DataAmount
+        long allocated;
+
+        @Label("Failed")
+        @Description("The engine threw instead of running the program to its end")
+        boolean failed;
+    }
+
+    @Name("com.propp.FunctionCall")
+    @Label("Forest Function Call")
+    @Category("Forest")
+    @Description("A call of a Forest function that took longer than the threshold")
+    @Threshold("20 ms")
+    @StackTrace(false)
+    static final class FunctionCall extends Event {
+        @Label("Function")
+        String function;
+
+        @Label("Line")
+        int line;
+    }
+
+    @Name("com.propp.Error")
+    @Label("Forest Error")
+    @Category("Forest")
+    @Description("An error reported through Forest.error")
+    static final class Report extends Event {
+        @Label("Line")
+        int line;
+
+        @Label("Message")
+        String message;
+    }
+
+    //true once the recorder has started in this JVM, from then on events are made and the recording filters them
+    static boolean recording() {
+        return FlightRecorder.isInitialized();
+    }
+
+    //null when the event is not enabled in any recording
+    static Object beginPhase() {
+        Phase event = new Phase();
+        if (!event.isEnabled()) return null;
+        event.begin();
+        return event;
+    }
+
+    static void endPhase(Object began, String phase) {
+        Phase event = (Phase) began;
+        event.end();
+        if (!event.shouldCommit()) return;
+        event.phase = phase;
+        event.commit();
+    }
+
+    static Object beginExecution() {
+        Execution event = new Execution();
+        if (!event.isEnabled()) return null;
+        event.begin();
+        return event;
+    }
+
+    //allocated is -1 where the JVM does not count allocated bytes
+    static void endExecution(Object began, Engine engine, long allocated, boolean failed) {
+        Execution event = (Execution) began;
+        event.end();
+        if (!event.shouldCommit()) return;
+        event.engine = engine.name();
+        event.allocated = allocated;
+        event.failed = failed;
+        event.commit();
+    }
+
+    static Object beginCall() {
+        FunctionCall event = new FunctionCall();
+        if (!event.isEnabled()) return null;
+        event.begin();
+        return event;
+    }
+
+    static void endCall(Object began, String function, int line) {
+        FunctionCall event = (FunctionCall) began;
+        event.end();
+        if (!event.shouldCommit()) return;
+        event.function = function;
+        event.line = line;
+        event.commit();
+    }
+
+    static void error(int line, String message) {
+        Report event = new Report();
+        if (!event.shouldCommit()) return;
+        event.line = line;
+        event.message = message;
+        event.commit();
+    }
+}
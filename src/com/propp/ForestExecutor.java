@@ -0,0 +1,124 @@
+package com.propp;
+
+import java.io.StringWriter;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+//runs many Forest programs at once, every run gets its own Environments and engine state from the ForestEngine,
+//its own OutputSink and its own Diagnostics, so runs share nothing but the compiled Programs
+//by default every run gets a virtual thread when the JVM has them, a thread of a pool with one per core otherwise
+public class ForestExecutor implements AutoCloseable {
+    private final ForestEngine engine;
+    private final ExecutorService executor;
+
+    //what one run left behind
+    public static final class Result {
+        private final List<Lexeme> values;
+        private final String output;
+        private final List<Diagnostics.Diagnostic> diagnostics;
+        private final Throwable failure;
+
+        private Result(List<Lexeme> values, String output, List<Diagnostics.Diagnostic> diagnostics, Throwable failure) {
+            this.values = values;
+            this.output = output;
+            this.diagnostics = diagnostics;
+            this.failure = failure;
+        }
+
+        //the values the top level statements produced, empty if the run failed
+        public List<Lexeme> getValues() {
+            return this.values;
+        }
+
+        //everything printed, null if the run printed to an OutputSink it was given
+        public String getOutput() {
+            return this.output;
+        }
+
+        public List<Diagnostics.Diagnostic> getDiagnostics() {
+            return this.diagnostics;
+        }
+
+        //what a program that crashed the engine threw, null if it ran to the end
+        public Throwable getFailure() {
+            return this.failure;
+        }
+    }
+
+    public ForestExecutor(ForestEngine engine) {
+        this(engine, defaultExecutor());
+    }
+
+    //the executor is shut down by close
+    public ForestExecutor(ForestEngine engine, ExecutorService executor) {
+        this.engine = engine;
+        this.executor = executor;
+    }
+
+    //looked up by name so the interpreter still builds and runs on JDKs from before virtual threads
+    private static ExecutorService defaultExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+        }
+    }
+
+    public ForestEngine getEngine() {
+        return this.engine;
+    }
+
+    //compiles and runs source, errors in the source are in the diagnostics of the result
+    public Future<Result> submit(String source, Map<String, ?> bindings) {
+        return this.executor.submit(() -> run(null, source, bindings, null));
+    }
+
+    public Future<Result> submit(ForestEngine.Program program, Map<String, ?> bindings) {
+        return this.executor.submit(() -> run(program, null, bindings, null));
+    }
+
+    //prints to output instead of keeping what is printed in the result, output is flushed but not closed
+    public Future<Result> submit(ForestEngine.Program program, Map<String, ?> bindings, OutputSink output) {
+        return this.executor.submit(() -> run(program, null, bindings, output));
+    }
+
+    //the thread's own sink and diagnostics are put back afterwards, pool threads go on to run other programs
+    private Result run(ForestEngine.Program program, String source, Map<String, ?> bindings, OutputSink output) {
+        StringWriter printed = (output == null) ? new StringWriter() : null;
+        OutputSink sink = (output == null) ? OutputSink.writer(printed, OutputSink.FlushPolicy.EXIT, 0) : output;
+        Diagnostics diagnostics = new Diagnostics();
+        Diagnostics previousDiagnostics = Diagnostics.use(diagnostics);
+        List<Lexeme> values = Collections.<Lexeme>emptyList();
+        Throwable failure = null;
+        try {
+            if (program == null) program = this.engine.compile(source);
+            values = this.engine.execute(program, bindings, sink);
+        } catch (RuntimeException | StackOverflowError e) {
+            failure = e;
+        } finally {
+            Diagnostics.use(previousDiagnostics);
+            sink.flush();
+        }
+        return new Result(values, (printed == null) ? null : printed.toString(), diagnostics.getDiagnostics(), failure);
+    }
+
+    //waits for the runs already submitted to finish, an interrupt while waiting stops the runs instead
+    //and leaves the thread interrupted, like ExecutorService.close does on newer JDKs
+    @Override
+    public void close() {
+        this.executor.shutdown();
+        try {
+            while (!this.executor.awaitTermination(1, TimeUnit.MINUTES)) {
+                //keep waiting, a run only ends when its program does
+            }
+        } catch (InterruptedException e) {
+            this.executor.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,178 @@
+package com.propp;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+//counters of every Forest run in this JVM, always kept, a run adds to a few LongAdders and one histogram bucket
+//latencies go into buckets of an eighth of a power of two of nanoseconds, so a percentile is at most 12.5% high
+//the counters are registered with the platform MBeanServer by the first ForestEngine an application makes,
+//the command line does not register them, its run is over before a JMX client could look
+public final class ForestMetrics implements ForestMetricsMBean {
+    public static final String NAME = "com.propp:type=Forest";
+
+    private static final ForestMetrics INSTANCE = new ForestMetrics();
+    private static final int SUB_BUCKETS = 8; //per power of two
+
+    private final LongAdder executed, failed, errors, tokens, lexNanos, latencyNanos, allocated;
+    private final AtomicLongArray latencies; //counts by bucket
+    private volatile boolean registered;
+
+    private ForestMetrics() {
+        this.executed = new LongAdder();
+        this.failed = new LongAdder();
+        this.errors = new LongAdder();
+        this.tokens = new LongAdder();
+        this.lexNanos = new LongAdder();
+        this.latencyNanos = new LongAdder();
+        this.allocated = new LongAdder();
+        this.latencies = new AtomicLongArray(64 * SUB_BUCKETS);
+        this.registered = false;
+    }
+
+    public static ForestMetrics get() {
+        return INSTANCE;
+    }
+
+    //registers the counters once, creating the platform MBeanServer takes a while the first time,
+    //a JVM that does not allow it still counts, the counters are only not seen through JMX
+    public static void register() {
+        if (INSTANCE.registered) return;
+        synchronized (INSTANCE) {
+            if (INSTANCE.registered) return;
+            INSTANCE.registered = true;
+            try {
+                ManagementFactory.getPlatformMBeanServer().registerMBean(INSTANCE, new ObjectName(NAME));
+            } catch (JMException | SecurityException e) {
+                //another copy of the classes registered first, or there is no MBeanServer to register with
+            }
+        }
+    }
+
+    //allocated is -1 where the JVM does not count allocated bytes
+    static void executed(long nanos, long allocated, boolean failed) {
+        ForestMetrics metrics = INSTANCE;
+        metrics.executed.increment();
+        if (failed) metrics.failed.increment();
+        metrics.latencyNanos.add(nanos);
+        metrics.allocated.add(allocated);
+        metrics.latencies.incrementAndGet(bucket(nanos));
+    }
+
+    static void lexed(long tokens, long nanos) {
+        INSTANCE.tokens.add(tokens);
+        INSTANCE.lexNanos.add(nanos);
+    }
+
+    static void error() {
+        INSTANCE.errors.increment();
+    }
+
+    //the power of two below nanos picks the row, the next three bits the bucket in it
+    private static int bucket(long nanos) {
+        if (nanos < SUB_BUCKETS) return (int) Math.max(nanos, 0);
+        int power = 63 - Long.numberOfLeadingZeros(nanos);
+        int sub = (int) (nanos >>> (power - 3)) & (SUB_BUCKETS - 1);
+        return (power - 2) * SUB_BUCKETS + sub;
+    }
+
+    //the largest latency that falls in bucket
+    private static long upperBound(int bucket) {
+        if (bucket < SUB_BUCKETS) return bucket;
+        int power = bucket / SUB_BUCKETS + 2;
+        long sub = bucket % SUB_BUCKETS;
+        return ((SUB_BUCKETS + sub + 1) << (power - 3)) - 1;
+    }
+
+    private double percentile(double fraction) {
+        long[] counts = new long[this.latencies.length()];
+        long total = 0;
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] = this.latencies.get(i);
+            total += counts[i];
+        }
+        if (total == 0) return 0;
+        long rank = (long) Math.ceil(fraction * total);
+        long seen = 0;
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen >= rank && counts[i] > 0) return upperBound(i) / 1e6;
+        }
+        return 0;
+    }
+
+    @Override
+    public long getScriptsExecuted() {
+        return this.executed.sum();
+    }
+
+    @Override
+    public long getScriptsFailed() {
+        return this.failed.sum();
+    }
+
+    @Override
+    public long getErrorsReported() {
+        return this.errors.sum();
+    }
+
+    @Override
+    public double getLatencyMeanMillis() {
+        long executed = this.executed.sum();
+        return (executed == 0) ? 0 : this.latencyNanos.sum() / 1e6 / executed;
+    }
+
+    @Override
+    public double getLatencyP50Millis() {
+        return percentile(0.5);
+    }
+
+    @Override
+    public double getLatencyP90Millis() {
+        return percentile(0.9);
+    }
+
+    @Override
+    public double getLatencyP99Millis() {
+        return percentile(0.99);
+    }
+
+    @Override
+    public double getLatencyMaxMillis() {
+        return percentile(1);
+    }
+
+    @Override
+    public long getTokensLexed() {
+        return this.tokens.sum();
+    }
+
+    @Override
+    public double getTokensLexedPerSecond() {
+        long nanos = this.lexNanos.sum();
+        return (nanos == 0) ? 0 : this.tokens.sum() * 1e9 / nanos;
+    }
+
+    @Override
+    public double getAllocatedBytesPerRun() {
+        if (Timings.allocated() < 0) return -1;
+        long executed = this.executed.sum();
+        return (executed == 0) ? 0 : (double) this.allocated.sum() / executed;
+    }
+
+    //runs going on while the counters are reset may be half counted
+    @Override
+    public void reset() {
+        this.executed.reset();
+        this.failed.reset();
+        this.errors.reset();
+        this.tokens.reset();
+        this.lexNanos.reset();
+        this.latencyNanos.reset();
+        this.allocated.reset();
+        for (int i = 0; i < this.latencies.length(); i++) this.latencies.set(i, 0);
+    }
+}
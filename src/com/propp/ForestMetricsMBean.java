@@ -0,0 +1,32 @@
+package com.propp;
+
+//what JMX clients see of ForestMetrics, registered as com.propp:type=Forest
+//latencies are of executions of compiled programs, from ForestEngine, ForestExecutor and the script engine alike
+public interface ForestMetricsMBean {
+    long getScriptsExecuted();
+
+    //executions the engine threw out of instead of running them to their end
+    long getScriptsFailed();
+
+    long getErrorsReported();
+
+    double getLatencyMeanMillis();
+
+    double getLatencyP50Millis();
+
+    double getLatencyP90Millis();
+
+    double getLatencyP99Millis();
+
+    double getLatencyMaxMillis();
+
+    long getTokensLexed();
+
+    //over the time spent lexing and parsing, the Parser pulls tokens from the Lexer as it goes
+    double getTokensLexedPerSecond();
+
+    //-1 where the JVM does not count allocated bytes
+    double getAllocatedBytesPerRun();
+
+    void reset();
+}
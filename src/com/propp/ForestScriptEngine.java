@@ -0,0 +1,255 @@
+package com.propp;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.script.AbstractScriptEngine;
+import javax.script.Bindings;
+import javax.script.Compilable;
+import javax.script.CompiledScript;
+import javax.script.Invocable;
+import javax.script.ScriptContext;
+import javax.script.ScriptEngine;
+import javax.script.ScriptEngineFactory;
+import javax.script.ScriptException;
+import javax.script.SimpleBindings;
+
+//javax.script engine over a ForestEngine, sources are compiled once and kept, so evaluating one again skips
+//the Lexer, Parser, Optimizer and Resolver, the bindings of the context are the global variables of a run,
+//print writes to the writer of the context and errors to its error writer
+//invokeFunction calls the functions the last evaluation declared without running the program again
+public class ForestScriptEngine extends AbstractScriptEngine implements Compilable, Invocable {
+    private static final int CACHED_SCRIPTS = 64;
+
+    private final ScriptEngineFactory factory;
+    private final ForestEngine engine;
+    private final LinkedHashMap<String, Script> scripts; //the most recently compiled sources, least recently used first
+    private volatile Environment global; //of the last evaluation, for invokeFunction
+
+    ForestScriptEngine(ScriptEngineFactory factory, ForestEngine engine) {
+        this.factory = factory;
+        this.engine = engine;
+        this.scripts = new LinkedHashMap<String, Script>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Script> eldest) {
+                return size() > CACHED_SCRIPTS;
+            }
+        };
+        this.global = null;
+    }
+
+    //a compiled program, evaluating it only runs it
+    private static final class Script extends CompiledScript {
+        private final ForestScriptEngine engine;
+        private final ForestEngine.Program program;
+
+        private Script(ForestScriptEngine engine, ForestEngine.Program program) {
+            this.engine = engine;
+            this.program = program;
+        }
+
+        @Override
+        public Object eval(ScriptContext context) throws ScriptException {
+            return this.engine.run(this.program, context);
+        }
+
+        @Override
+        public ScriptEngine getEngine() {
+            return this.engine;
+        }
+    }
+
+    @Override
+    public Object eval(String script, ScriptContext context) throws ScriptException {
+        return compile(script).eval(context);
+    }
+
+    @Override
+    public Object eval(Reader reader, ScriptContext context) throws ScriptException {
+        return eval(read(reader), context);
+    }
+
+    @Override
+    public CompiledScript compile(Reader script) throws ScriptException {
+        return compile(read(script));
+    }
+
+    //errors in the source are thrown all together, with the line of the first
+    @Override
+    public CompiledScript compile(String script) throws ScriptException {
+        synchronized (this.scripts) {
+            Script compiled = this.scripts.get(script);
+            if (compiled != null) return compiled;
+        }
+        Diagnostics diagnostics = new Diagnostics();
+        Diagnostics previous = Diagnostics.use(diagnostics);
+        ForestEngine.Program program;
+        try {
+            program = this.engine.compile(script);
+        } finally {
+            Diagnostics.use(previous);
+        }
+        List<Diagnostics.Diagnostic> errors = diagnostics.getDiagnostics();
+        if (!errors.isEmpty()) {
+            StringBuilder message = new StringBuilder();
+            for (Diagnostics.Diagnostic error : errors) {
+                if (message.length() > 0) message.append('\n');
+                message.append(error);
+            }
+            throw new ScriptException(message.toString(), (String) get(ScriptEngine.FILENAME), errors.get(0).getLineNumber());
+        }
+        Script compiled = new Script(this, program);
+        synchronized (this.scripts) {
+            this.scripts.put(script, compiled);
+        }
+        return compiled;
+    }
+
+    private static String read(Reader reader) throws ScriptException {
+        StringBuilder source = new StringBuilder();
+        char[] buffer = new char[8192];
+        try {
+            for (int count = reader.read(buffer); count >= 0; count = reader.read(buffer)) source.append(buffer, 0, count);
+        } catch (IOException e) {
+            throw new ScriptException(e);
+        }
+        return source.toString();
+    }
+
+    //the value of the last top level statement that had one
+    private Object run(ForestEngine.Program program, ScriptContext context) throws ScriptException {
+        Environment global = this.engine.environment(program, bindings(context));
+        List<Lexeme> values = inContext(context, () -> this.engine.run(program, global));
+        this.global = global;
+        return values.isEmpty() ? null : ForestEngine.hostValue(values.get(values.size() - 1));
+    }
+
+    //the global scope first so the engine scope hides it, values that have no Forest value are left out
+    private static Map<String, Lexeme> bindings(ScriptContext context) {
+        Map<String, Lexeme> bindings = new HashMap<String, Lexeme>();
+        for (int scope : new int[]{ScriptContext.GLOBAL_SCOPE, ScriptContext.ENGINE_SCOPE}) {
+            Bindings values = context.getBindings(scope);
+            if (values == null) continue;
+            for (Map.Entry<String, Object> binding : values.entrySet()) {
+                try {
+                    bindings.put(binding.getKey(), ForestEngine.value(binding.getValue()));
+                } catch (IllegalArgumentException e) {
+                    //a host object Forest can not use, like anything else it put in the context
+                }
+            }
+        }
+        return bindings;
+    }
+
+    private interface Run {
+        List<Lexeme> run();
+    }
+
+    //prints to the writer of the context and reports errors to its error writer once the run is over
+    private static List<Lexeme> inContext(ScriptContext context, Run run) throws ScriptException {
+        OutputSink output = (context.getWriter() == null) ? OutputSink.current() : OutputSink.writer(context.getWriter(), OutputSink.FlushPolicy.SIZE, OutputSink.DEFAULT_SIZE);
+        OutputSink previousOutput = OutputSink.use(output);
+        Diagnostics diagnostics = new Diagnostics();
+        Diagnostics previousDiagnostics = Diagnostics.use(diagnostics);
+        List<Lexeme> values;
+        try {
+            values = run.run();
+        } catch (RuntimeException | StackOverflowError e) {
+            ScriptException exception = new ScriptException(e.toString());
+            exception.initCause(e);
+            throw exception;
+        } finally {
+            OutputSink.use(previousOutput);
+            Diagnostics.use(previousDiagnostics);
+            output.flush();
+            report(diagnostics, context.getErrorWriter());
+        }
+        return values;
+    }
+
+    private static void report(Diagnostics diagnostics, Writer errors) {
+        if (errors == null) return;
+        try {
+            for (Diagnostics.Diagnostic diagnostic : diagnostics.getDiagnostics()) {
+                errors.write(diagnostic + System.lineSeparator());
+            }
+            errors.flush();
+        } catch (IOException e) {
+            //the run is over, there is nowhere left to report that reporting failed
+        }
+    }
+
+    @Override
+    public Bindings createBindings() {
+        return new SimpleBindings();
+    }
+
+    @Override
+    public ScriptEngineFactory getFactory() {
+        return this.factory;
+    }
+
+    // Invocable
+
+    //a single returned value as its host value, several as an array of them, null for none
+    @Override
+    public Object invokeFunction(String name, Object... args) throws ScriptException, NoSuchMethodException {
+        Environment global = this.global;
+        if (global == null) throw new NoSuchMethodException(name);
+        List<Lexeme> arguments = new ArrayList<Lexeme>();
+        for (Object arg : (args == null) ? new Object[0] : args) {
+            try {
+                arguments.add(ForestEngine.value(arg));
+            } catch (IllegalArgumentException e) {
+                throw new ScriptException(e.getMessage());
+            }
+        }
+        List<Lexeme> values = inContext(this.context, () -> this.engine.call(global, name, arguments));
+        if (values == null) throw new NoSuchMethodException(name);
+        if (values.isEmpty()) return null;
+        if (values.size() == 1) return ForestEngine.hostValue(values.get(0));
+        Object[] results = new Object[values.size()];
+        for (int i = 0; i < results.length; i++) results[i] = ForestEngine.hostValue(values.get(i));
+        return results;
+    }
+
+    @Override
+    public Object invokeMethod(Object thiz, String name, Object... args) {
+        throw new IllegalArgumentException("Forest values have no methods");
+    }
+
+    //every method of the interface calls the function with its name, null if the last evaluation did not declare one of them
+    @Override
+    public <T> T getInterface(Class<T> clasz) {
+        if (clasz == null || !clasz.isInterface()) throw new IllegalArgumentException(clasz + " is not an interface");
+        Environment global = this.global;
+        if (global == null) return null;
+        for (Method method : clasz.getMethods()) {
+            if (method.isDefault() || java.lang.reflect.Modifier.isStatic(method.getModifiers())) continue;
+            int symbol = Symbols.find(method.getName());
+            if (symbol < 0 || !global.variableExists(new Node(TokenType.IDENTIFIER, symbol, 0))) return null;
+        }
+        InvocationHandler handler = new InvocationHandler() {
+            @Override
+            public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+                if (method.getDeclaringClass() == Object.class) return method.invoke(this, args);
+                return invokeFunction(method.getName(), args);
+            }
+        };
+        return clasz.cast(Proxy.newProxyInstance(clasz.getClassLoader(), new Class<?>[]{clasz}, handler));
+    }
+
+    @Override
+    public <T> T getInterface(Object thiz, Class<T> clasz) {
+        throw new IllegalArgumentException("Forest values have no methods");
+    }
+}
@@ -0,0 +1,104 @@
+package com.propp;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import javax.script.ScriptEngine;
+import javax.script.ScriptEngineFactory;
+
+//makes Forest a javax.script language, found by ScriptEngineManager through META-INF/services
+public class ForestScriptEngineFactory implements ScriptEngineFactory {
+    private static final List<String> NAMES = Collections.unmodifiableList(Arrays.asList("forest", "Forest"));
+    private static final List<String> EXTENSIONS = Collections.singletonList("tree");
+
+    private final Engine engine;
+
+    public ForestScriptEngineFactory() {
+        this(Engine.EVALUATOR);
+    }
+
+    //the engine every ScriptEngine of this factory compiles for
+    public ForestScriptEngineFactory(Engine engine) {
+        this.engine = engine;
+    }
+
+    @Override
+    public String getEngineName() {
+        return "Forest";
+    }
+
+    @Override
+    public String getEngineVersion() {
+        return "1.0";
+    }
+
+    @Override
+    public List<String> getExtensions() {
+        return EXTENSIONS;
+    }
+
+    @Override
+    public List<String> getMimeTypes() {
+        return Collections.emptyList();
+    }
+
+    @Override
+    public List<String> getNames() {
+        return NAMES;
+    }
+
+    @Override
+    public String getLanguageName() {
+        return "Forest";
+    }
+
+    @Override
+    public String getLanguageVersion() {
+        return "1.0";
+    }
+
+    //every evaluation runs in its own Environments, only the functions invokeFunction calls are shared
+    @Override
+    public Object getParameter(String key) {
+        switch (key) {
+            case ScriptEngine.ENGINE:
+                return getEngineName();
+            case ScriptEngine.ENGINE_VERSION:
+                return getEngineVersion();
+            case ScriptEngine.NAME:
+                return NAMES.get(0);
+            case ScriptEngine.LANGUAGE:
+                return getLanguageName();
+            case ScriptEngine.LANGUAGE_VERSION:
+                return getLanguageVersion();
+            case "THREADING":
+                return "MULTITHREADED";
+            default:
+                return null;
+        }
+    }
+
+    //Forest has no objects, so a method call is a function call
+    @Override
+    public String getMethodCallSyntax(String obj, String m, String... args) {
+        return m + "(" + String.join(",", args) + ")";
+    }
+
+    @Override
+    public String getOutputStatement(String toDisplay) {
+        return "print(\"" + toDisplay + "\")";
+    }
+
+    @Override
+    public String getProgram(String... statements) {
+        StringBuilder program = new StringBuilder();
+        for (String statement : statements) program.append(statement).append(";\n");
+        return program.toString();
+    }
+
+    @Override
+    public ScriptEngine getScriptEngine() {
+        return new ForestScriptEngine(this, new ForestEngine(this.engine));
+    }
+}
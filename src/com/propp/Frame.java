@@ -0,0 +1,126 @@
+package com.propp;
+
+import java.util.Arrays;
+
+//array-backed variable storage for one Environment, indexed by the slots of its Scope
+public class Frame {
+    private static final Scope EMPTY_SCOPE = new Scope(null, null);
+
+    private final Scope scope;
+    private final Lexeme[] identifiers; //the identifier a slot was first declared with (kept for function parameters)
+    private final Lexeme[] values;
+    //names outside the static layout, an open addressing table like the one of Scope, only allocated if needed
+    private int[] overflowSymbols; //-1 where empty
+    private Lexeme[] overflowIdentifiers; //the identifier of the symbol at the same index
+    private Lexeme[] overflow; //the value of the symbol at the same index
+    private int overflowCount;
+
+    public Frame(Scope scope) {
+        this.scope = (scope == null) ? EMPTY_SCOPE : scope;
+        this.identifiers = new Lexeme[this.scope.size()];
+        this.values = new Lexeme[this.scope.size()];
+        this.overflowSymbols = null;
+        this.overflowIdentifiers = null;
+        this.overflow = null;
+        this.overflowCount = 0;
+    }
+
+    public boolean isSet(int slot) {
+        return this.identifiers[slot] != null;
+    }
+
+    public Lexeme get(int slot) {
+        return this.values[slot];
+    }
+
+    public void set(int slot, Lexeme identifier, Lexeme value) {
+        if (this.identifiers[slot] == null) this.identifiers[slot] = identifier;
+        this.values[slot] = value;
+    }
+
+    public boolean contains(Lexeme identifier) {
+        int slot = this.scope.slotOf(identifier.symbol());
+        if (slot >= 0) return this.identifiers[slot] != null;
+        return overflowIndex(identifier.symbol()) >= 0;
+    }
+
+    public Lexeme get(Lexeme identifier) {
+        int slot = this.scope.slotOf(identifier.symbol());
+        if (slot >= 0) return this.values[slot];
+        int index = overflowIndex(identifier.symbol());
+        return (index < 0) ? null : this.overflow[index];
+    }
+
+    public void put(Lexeme identifier, Lexeme value) {
+        int symbol = identifier.symbol();
+        int slot = this.scope.slotOf(symbol);
+        if (slot >= 0) {
+            set(slot, identifier, value);
+            return;
+        }
+        if (this.overflowSymbols == null) {
+            this.overflowSymbols = new int[8];
+            this.overflowIdentifiers = new Lexeme[8];
+            this.overflow = new Lexeme[8];
+            Arrays.fill(this.overflowSymbols, -1);
+        }
+        int index = indexOf(symbol);
+        if (this.overflowSymbols[index] != symbol) {
+            //like a slot, the identifier a name was first stored with is kept
+            this.overflowSymbols[index] = symbol;
+            this.overflowIdentifiers[index] = identifier;
+            this.overflowCount++;
+        }
+        this.overflow[index] = value;
+        if (this.overflowCount * 2 > this.overflowSymbols.length) grow();
+    }
+
+    public Lexeme getIdentifier(Lexeme identifier) {
+        int slot = this.scope.slotOf(identifier.symbol());
+        if (slot >= 0) return this.identifiers[slot];
+        int index = overflowIndex(identifier.symbol());
+        return (index < 0) ? null : this.overflowIdentifiers[index];
+    }
+
+    //where symbol is in the overflow table, -1 if it is not
+    private int overflowIndex(int symbol) {
+        if (this.overflowSymbols == null || symbol < 0) return -1;
+        int index = indexOf(symbol);
+        return (this.overflowSymbols[index] == symbol) ? index : -1;
+    }
+
+    //where symbol is in the overflow table, or the empty entry it would go in
+    private int indexOf(int symbol) {
+        int mask = this.overflowSymbols.length - 1;
+        int index = symbol & mask;
+        while (this.overflowSymbols[index] != symbol && this.overflowSymbols[index] != -1) index = (index + 1) & mask;
+        return index;
+    }
+
+    private void grow() {
+        int[] oldSymbols = this.overflowSymbols;
+        Lexeme[] oldIdentifiers = this.overflowIdentifiers;
+        Lexeme[] oldValues = this.overflow;
+        this.overflowSymbols = new int[oldSymbols.length * 2];
+        this.overflowIdentifiers = new Lexeme[oldSymbols.length * 2];
+        this.overflow = new Lexeme[oldSymbols.length * 2];
+        Arrays.fill(this.overflowSymbols, -1);
+        for (int i = 0; i < oldSymbols.length; i++) {
+            if (oldSymbols[i] == -1) continue;
+            int index = indexOf(oldSymbols[i]);
+            this.overflowSymbols[index] = oldSymbols[i];
+            this.overflowIdentifiers[index] = oldIdentifiers[i];
+            this.overflow[index] = oldValues[i];
+        }
+    }
+
+    public void print() {
+        for (int i = 0; i < this.values.length; i++) {
+            if (this.identifiers[i] != null) System.out.println(this.scope.nameOf(i) + ":" + this.values[i]);
+        }
+        if (this.overflowSymbols == null) return;
+        for (int i = 0; i < this.overflowSymbols.length; i++) {
+            if (this.overflowSymbols[i] != -1) System.out.println(Symbols.name(this.overflowSymbols[i]) + ":" + this.overflow[i]);
+        }
+    }
+}
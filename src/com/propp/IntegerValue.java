@@ -0,0 +1,22 @@
+package com.propp;
+
+public final class IntegerValue extends Value {
+    private final int value;
+
+    public IntegerValue(int value, int lineNumber) {
+        super(lineNumber);
+        this.value = value;
+    }
+
+    public TokenType getType() {
+        return TokenType.INTEGER;
+    }
+
+    public int intValue() {
+        return this.value;
+    }
+
+    public String getValueString() {
+        return Integer.toString(this.value);
+    }
+}
@@ -1,174 +1,107 @@
 package com.propp;
 
-import static com.propp.TokenType.PARAMETER_LIST;
-
-public class Lexeme {
-    private final TokenType type;
+//common type of everything the lexer, parser and engines pass around
+//Nodes make up the parse tree, Values are the data a program computes with and only hold their primitive and a line
+public abstract sealed class Lexeme permits Node, Value {
     private final int lineNumber;
 
-    public final Lexeme[] arrayValue;
-    public final String stringValue;
-    public final Integer intValue;
-    public final Double doubleValue;
-    public final Boolean booleanValue;
-    public final Character characterValue;
+    Lexeme(int lineNumber) {
+        this.lineNumber = lineNumber;
+    }
 
-    private Lexeme left, right;
+    public abstract TokenType getType();
 
-    public Lexeme(TokenType type, int lineNumber) {
-        this.type = type;
-        this.lineNumber = lineNumber;
-        this.stringValue = null;
-        this.intValue = null;
-        this.doubleValue = null;
-        this.booleanValue = null;
-        this.characterValue = null;
-        this.arrayValue = null;
-        constructerHelper();
+    public int getLineNumber() {
+        return this.lineNumber;
     }
 
-    public Lexeme(TokenType type, String stringValue, int lineNumber) {
-        this.type = type;
-        this.lineNumber = lineNumber;
-        this.stringValue = stringValue;
-        this.intValue = null;
-        this.doubleValue = null;
-        this.booleanValue = null;
-        this.characterValue = null;
-        this.arrayValue = null;
-        constructerHelper();
+    //values are always leaves of the tree
+    public Lexeme getLeft() {
+        return null;
     }
 
-    public Lexeme(TokenType type, int intValue, int lineNumber) {
-        this.type = type;
-        this.lineNumber = lineNumber;
-        this.intValue = Integer.valueOf(intValue);
-        this.stringValue = null;
-        this.doubleValue = null;
-        this.booleanValue = null;
-        this.characterValue = null;
-        this.arrayValue = null;
-        constructerHelper();
+    public Lexeme getRight() {
+        return null;
     }
 
-    public Lexeme(TokenType type, double doubleValue, int lineNumber) {
-        this.type = type;
-        this.lineNumber = lineNumber;
-        this.doubleValue = Double.valueOf(doubleValue);
-        this.stringValue = null;
-        this.intValue = null;
-        this.booleanValue = null;
-        this.characterValue = null;
-        this.arrayValue = null;
-        constructerHelper();
+    public void setLeft(Lexeme child) {
+        throw new UnsupportedOperationException(getType() + " can not have children");
     }
 
-    public Lexeme(TokenType type, boolean booleanValue, int lineNumber) {
-        this.type = type;
-        this.lineNumber = lineNumber;
-        this.booleanValue = Boolean.valueOf(booleanValue);
-        this.stringValue = null;
-        this.intValue = null;
-        this.doubleValue = null;
-        this.characterValue = null;
-        this.arrayValue = null;
-        constructerHelper();
+    public void setRight(Lexeme child) {
+        throw new UnsupportedOperationException(getType() + " can not have children");
     }
 
-    public Lexeme(TokenType type, char characterValue, int lineNumber) {
-        this.type = type;
-        this.lineNumber = lineNumber;
-        this.booleanValue = null;
-        this.stringValue = null;
-        this.intValue = null;
-        this.doubleValue = null;
-        this.characterValue = Character.valueOf(characterValue);
-        this.arrayValue = null;
-        constructerHelper();
+    //the statements of a PROGRAM or STATEMENT_LIST chain in order, set on its first node by the Parser
+    public Lexeme[] getStatements() {
+        return null;
     }
 
-    public Lexeme(TokenType type, Lexeme[] arrayValue, int lineNumber) {
-        this.type = type;
-        this.lineNumber = lineNumber;
-        this.booleanValue = null;
-        this.stringValue = null;
-        this.intValue = null;
-        this.doubleValue = null;
-        this.characterValue = null;
-        this.arrayValue = arrayValue;
-        constructerHelper();
+    public void setStatements(Lexeme[] statements) {
+        throw new UnsupportedOperationException(getType() + " has no statements");
     }
 
-    private void constructerHelper() {
-        this.left = null;
-        this.right = null;
+    //filled in by the Resolver, only identifiers are ever resolved
+    public Scope getScope() {
+        return null;
     }
 
-    public TokenType getType() {
-        return this.type;
+    public void setScope(Scope scope) {
+        throw new UnsupportedOperationException(getType() + " has no scope");
     }
 
-    public void setLeft(Lexeme child) {
-        this.left = child;
+    public void resolve(int depth, int slot) {
+        throw new UnsupportedOperationException(getType() + " can not be resolved");
     }
 
-    public void setRight(Lexeme child) {
-        this.right = child;
+    public boolean isResolved() {
+        return false;
     }
 
-    public Lexeme getLeft() {
-        return this.left;
+    public int getDepth() {
+        return -1;
     }
 
-    public Lexeme getRight() {
-        return this.right;
+    public int getSlot() {
+        return -1;
     }
 
-    public int getLineNumber() {
-        return this.lineNumber;
+    //each Value overrides the accessor of its own type, identifiers also have a string
+    public String stringValue() {
+        return null;
+    }
+
+    //the id of an identifier's name in Symbols, -1 for anything without a name
+    public int symbol() {
+        return -1;
+    }
+
+    public int intValue() {
+        throw new IllegalStateException(getType() + " is not an integer");
+    }
+
+    public double doubleValue() {
+        throw new IllegalStateException(getType() + " is not a float");
+    }
+
+    public boolean booleanValue() {
+        throw new IllegalStateException(getType() + " is not a boolean");
+    }
+
+    public char characterValue() {
+        throw new IllegalStateException(getType() + " is not a character");
+    }
+
+    public Lexeme[] arrayValue() {
+        return null;
     }
 
     public String getValueString() {
-        String str = "";
-        if (this.stringValue != null) str = this.stringValue;
-        if (this.intValue != null) str = this.intValue.toString();
-        if (this.doubleValue != null) str = this.doubleValue.toString();
-        if (this.booleanValue != null) str = this.booleanValue.toString();
-        if (this.characterValue != null) str = this.characterValue.toString();
-        return str;
+        return "";
     }
 
     public String toString() {
-        String str = "";
-        if (this.stringValue != null) str = this.stringValue;
-        if (this.intValue != null) str = this.intValue.toString();
-        if (this.doubleValue != null) str = this.doubleValue.toString();
-        if (this.booleanValue != null) str = this.booleanValue.toString();
-        if (this.characterValue != null) str = this.characterValue.toString();
-        return this.type.toString() + ((str.length() > 0) ? ":" : "") + str + " [line " + lineNumber + "]";
-    }
-
-    public int getParamExpresListLength() {
-        if (this.type != PARAMETER_LIST && this.type != PARAMETER_LIST) return 0;
-        Lexeme node = this;
-        int counter = 0;
-        while (node != null) {
-            counter++;
-            node = this.getRight();
-        }
-        return counter;
-    }
-
-    @Override
-    public int hashCode() { //TODO fix
-        if (this.stringValue == null) return 1;
-        return (this.stringValue).hashCode() + getParamExpresListLength();
-    }
-
-    @Override
-    public boolean equals(Object o) {
-        if (o.getClass() != Lexeme.class) return false;
-        Lexeme lex = (Lexeme) o;
-        return lex.type == this.type && lex.stringValue.equals(this.stringValue) && this.getParamExpresListLength() == ((Lexeme) o).getParamExpresListLength();
+        String str = getValueString();
+        return getType().toString() + ((str.length() > 0) ? ":" : "") + str + " [line " + this.lineNumber + "]";
     }
 }
@@ -1,12 +1,19 @@
 package com.propp;
 
 import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
 import java.util.ArrayList;
 import java.util.HashMap;
 
 import static com.propp.TokenType.*;
 
-public class Lexer {
+//characters are pulled from a Reader through a small buffer and tokens are made one at a time when the Parser asks,
+//so neither the source nor the token list is ever held whole, only the text of the token being read
+public class Lexer implements TokenSource {
     private static final HashMap<String, TokenType> keywords;
 
     static {
@@ -22,28 +29,62 @@ public class Lexer {
         keywords.put("false", BOOLEAN);
     }
 
-    private final String source;
-    private final ArrayList<Lexeme> lexemes = new ArrayList<Lexeme>();
-    private int currentPosition, startOfCurrentLexeme, lineNumber;
+    private final Reader source;
+    private final char[] buffer;
+    private int currentPosition, bufferEnd, lineNumber; //the characters not read yet are buffer[currentPosition, bufferEnd)
+    private boolean sourceEnded;
+    private final StringBuilder currentLexeme; //the characters of the token being read
+    private boolean fileEnded;
 
     public Lexer(String sourceCode) {
-        this.source = sourceCode;
+        this(new StringReader(sourceCode));
+    }
+
+    //the file is read through memory mapped windows, it is decoded with the default charset
+    public Lexer(FileChannel channel) throws IOException {
+        this(new MappedFileReader(channel, Charset.defaultCharset()));
+    }
+
+    public Lexer(Reader source) {
+        this.source = source;
+        this.buffer = new char[8192];
         this.currentPosition = 0;
-        this.startOfCurrentLexeme = 1;
+        this.bufferEnd = 0;
         this.lineNumber = 1;
+        this.sourceEnded = false;
+        this.currentLexeme = new StringBuilder();
+        this.fileEnded = false;
     }
 
+    //all tokens at once, for callers that want the whole list
     public ArrayList<Lexeme> lex() throws IOException {
+        ArrayList<Lexeme> lexemes = new ArrayList<Lexeme>();
+        try {
+            Lexeme lexeme;
+            do {
+                lexeme = next();
+                lexemes.add(lexeme);
+            } while (lexeme.getType() != FILE_END);
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        return lexemes;
+    }
+
+    //read errors are rethrown unchecked, the Parser pulls tokens from places that cannot throw
+    @Override
+    public Lexeme next() {
+        if (this.fileEnded) return new Node(FILE_END, this.lineNumber);
         while (!isAtEnd()) {
-            startOfCurrentLexeme = currentPosition;
+            this.currentLexeme.setLength(0);
             Lexeme nextLexeme = this.getNextLexeme();
-            if (nextLexeme != null) this.lexemes.add(nextLexeme);
+            if (nextLexeme != null) return nextLexeme;
         }
-        this.lexemes.add(new Lexeme(FILE_END, this.lineNumber));
-        return this.lexemes;
+        this.fileEnded = true;
+        return new Node(FILE_END, this.lineNumber);
     }
 
-    private Lexeme getNextLexeme() throws IOException {
+    private Lexeme getNextLexeme() {
         char c = this.advance();
         switch (c) {
             //ignore whitespace
@@ -54,52 +95,54 @@ public class Lexer {
                 return null;
             //single character tokens
             case '(':
-                return new Lexeme(O_OPREN, this.lineNumber);
+                return new Node(O_OPREN, this.lineNumber);
             case ')':
-                return new Lexeme(C_OPREN, this.lineNumber);
+                return new Node(C_OPREN, this.lineNumber);
             case '{':
-                return new Lexeme(O_CURLY, this.lineNumber);
+                return new Node(O_CURLY, this.lineNumber);
             case '}':
-                return new Lexeme(C_CURLY, this.lineNumber);
+                return new Node(C_CURLY, this.lineNumber);
             case '[':
-                if (match(']')) return new Lexeme(ARRAY_CREATION, this.lineNumber);
-                return new Lexeme(O_SQUARE, this.lineNumber);
+                if (match(']')) return new Node(ARRAY_CREATION, this.lineNumber);
+                return new Node(O_SQUARE, this.lineNumber);
             case ']':
-                return new Lexeme(C_SQUARE, this.lineNumber);
+                return new Node(C_SQUARE, this.lineNumber);
             case '_':
-                return new Lexeme(UNDERSCORE, this.lineNumber);
+                return new Node(UNDERSCORE, this.lineNumber);
             case ',':
-                return new Lexeme(COMMA, this.lineNumber);
+                return new Node(COMMA, this.lineNumber);
             case '$':
-                return new Lexeme(DOLLAR_SIGN, this.lineNumber);
+                return new Node(DOLLAR_SIGN, this.lineNumber);
             case '+':
-                return new Lexeme(PLUS, this.lineNumber);
+                return new Node(PLUS, this.lineNumber);
             case ';':
-                return new Lexeme(SEMICOLON, this.lineNumber);
+                return new Node(SEMICOLON, this.lineNumber);
             //one or two character tokens
             case '-':
-                return new Lexeme(match('>') ? ASSIGN : MINUS, this.lineNumber); //check
+                return new Node(match('>') ? ASSIGN : MINUS, this.lineNumber); //check
             case '*':
-                return new Lexeme(match('*') ? POWER : TIMES, this.lineNumber);
+                return new Node(match('*') ? POWER : TIMES, this.lineNumber);
             case '/':
                 if (match('/')) return lexComment();
-                return new Lexeme(DIVIDE, this.lineNumber);
+                return new Node(DIVIDE, this.lineNumber);
             case '!':
-                return new Lexeme(match('=') ? NOT_EQUAL : NOT, this.lineNumber);
+                return new Node(match('=') ? NOT_EQUAL : NOT, this.lineNumber);
             case '>':
-                return new Lexeme(match('=') ? GREATER_THAN_OR_EQUAL : GREATER_THAN, this.lineNumber);
+                return new Node(match('=') ? GREATER_THAN_OR_EQUAL : GREATER_THAN, this.lineNumber);
             case '<':
-                return new Lexeme(match('=') ? LESS_THAN_OR_EQUAL : LESS_THAN, this.lineNumber);
+                return new Node(match('=') ? LESS_THAN_OR_EQUAL : LESS_THAN, this.lineNumber);
             //two character tokens
             case '=':
-                if (match('=')) return new Lexeme(EQUALS, this.lineNumber);
-                return new Lexeme(EQUAL, this.lineNumber);
+                if (match('=')) return new Node(EQUALS, this.lineNumber);
+                return new Node(EQUAL, this.lineNumber);
             case '|':
-                if (match('|')) return new Lexeme(OR, this.lineNumber);
+                if (match('|')) return new Node(OR, this.lineNumber);
                 Forest.error(this.lineNumber, "Missing second '|'");
+                return null;
             case '&':
-                if (match('&')) return new Lexeme(AND, this.lineNumber);
+                if (match('&')) return new Node(AND, this.lineNumber);
                 Forest.error(this.lineNumber, "Missing second '&'");
+                return null;
             case '"':
                 return lexString();
             case '\'':
@@ -114,30 +157,53 @@ public class Lexer {
     }
 
     private char peek() {
-        if (this.isAtEnd()) return '\0';
-        return source.charAt(currentPosition);
+        if (!fill(1)) return '\0';
+        return buffer[currentPosition];
     } //checks the next character to see if its the end of the file, and if not returns the character
 
     private char peekNext() {
-        if (currentPosition + 1 >= source.length()) return '\0';
-        return source.charAt(currentPosition + 1);
+        if (!fill(2)) return '\0';
+        return buffer[currentPosition + 1];
     }
 
     private boolean match(char expected) {
-        if (isAtEnd() || source.charAt(currentPosition) != expected) return false;
+        if (!fill(1) || buffer[currentPosition] != expected) return false;
+        currentLexeme.append(expected);
         currentPosition++;
         return true;
     }
 
+    //past the end of the file there is nothing to advance over
     private char advance() {
-        char currentChar = source.charAt(currentPosition);
+        if (!fill(1)) return '\0';
+        char currentChar = buffer[currentPosition];
         if (currentChar == '\n' || currentChar == '\r') lineNumber++;
+        currentLexeme.append(currentChar);
         currentPosition++;
         return currentChar;
     }
 
     private boolean isAtEnd() {
-        return currentPosition >= source.length();
+        return !fill(1);
+    }
+
+    //makes sure count characters are buffered, moving the unread ones to the front before reading more
+    private boolean fill(int count) {
+        while (bufferEnd - currentPosition < count && !sourceEnded) {
+            if (currentPosition > 0) {
+                System.arraycopy(buffer, currentPosition, buffer, 0, bufferEnd - currentPosition);
+                bufferEnd -= currentPosition;
+                currentPosition = 0;
+            }
+            try {
+                int read = source.read(buffer, bufferEnd, buffer.length - bufferEnd);
+                if (read < 0) sourceEnded = true;
+                else bufferEnd += read;
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        return bufferEnd - currentPosition >= count;
     }
 
     private boolean isDigit(char c) {
@@ -153,7 +219,7 @@ public class Lexer {
         return isAlpha(c) || isDigit(c);
     }
 
-    private Lexeme lexNumber() throws IOException {
+    private Lexeme lexNumber() {
         boolean isInteger = true;
         while (isDigit(peek())) {
             advance();
@@ -169,22 +235,20 @@ public class Lexer {
                 advance();
             }
         }
-        String numberString = source.substring(this.startOfCurrentLexeme, this.currentPosition);
+        String numberString = this.currentLexeme.toString();
         if (isInteger) {
             int number = Integer.parseInt(numberString);
-            return new Lexeme(INTEGER, number, this.lineNumber);
+            return new IntegerValue(number, this.lineNumber);
         }
         double number = Double.parseDouble(numberString);
-        return new Lexeme(FLOAT, number, this.lineNumber);
+        return new FloatValue(number, this.lineNumber);
     }
 
-    private Lexeme lexString() throws IOException {
+    private Lexeme lexString() {
         while (!isAtEnd()) {
-            char val = peek();
-            String test = val + " ";
             if (peek() == '\"') {
                 advance();
-                return new Lexeme(STRING, source.substring(this.startOfCurrentLexeme, this.currentPosition), this.lineNumber);
+                return new StringValue(this.currentLexeme.toString(), this.lineNumber);
             }
             advance();
         }
@@ -192,12 +256,12 @@ public class Lexer {
         return null;
     }
 
-    private Lexeme lexChar() throws IOException {
+    private Lexeme lexChar() {
         if (peekNext() != '\'') Forest.error(this.lineNumber, "Missing closing '");
         char character = peek();
         advance();
         advance();
-        return new Lexeme(CHARACTER, character, this.lineNumber);
+        return new CharacterValue(character, this.lineNumber);
     }
 
     private Lexeme lexComment() {
@@ -209,15 +273,15 @@ public class Lexer {
 
     private Lexeme lexIdentifierOrKeyword() {
         while (isAlphaNumeric(peek())) advance();
-        String text = source.substring(this.startOfCurrentLexeme, this.currentPosition);
+        String text = this.currentLexeme.toString();
         //see if the suspected identifier is actually a keyword
         TokenType type = keywords.get(text);
         //if not, it is a user-defiend identifier
-        if (type == null) return new Lexeme(IDENTIFIER, text, this.lineNumber);
+        if (type == null) return new Node(IDENTIFIER, text, this.lineNumber);
         if (type == BOOLEAN) {
-            if (text.equals("true")) return new Lexeme(type, true, this.lineNumber);
-            return new Lexeme(type, false, this.lineNumber);
+            if (text.equals("true")) return new BooleanValue(true, this.lineNumber);
+            return new BooleanValue(false, this.lineNumber);
         }
-        return new Lexeme(type, this.lineNumber);
+        return new Node(type, this.lineNumber);
     }
 }
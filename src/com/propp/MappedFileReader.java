@@ -0,0 +1,64 @@
+package com.propp;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+
+//reads a file through memory mapped windows, so only the window being decoded is mapped at a time
+//and files larger than the 2GB a single mapping can hold are read the same way
+class MappedFileReader extends Reader {
+    private static final long WINDOW = 1L << 26;
+
+    private final FileChannel channel;
+    private final long size;
+    private final CharsetDecoder decoder;
+    private long position; //where the current window starts in the file
+    private ByteBuffer window;
+    private boolean underflow; //the window is used up, apart from the start of a character that continues in the next one
+
+    MappedFileReader(FileChannel channel, Charset charset) throws IOException {
+        this.channel = channel;
+        this.size = channel.size();
+        //malformed input is replaced like it is when the whole file is decoded into a String
+        this.decoder = charset.newDecoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        this.position = 0;
+        this.window = null;
+        this.underflow = true;
+    }
+
+    @Override
+    public int read(char[] buffer, int offset, int length) throws IOException {
+        if (length == 0) return 0;
+        CharBuffer out = CharBuffer.wrap(buffer, offset, length);
+        while (out.position() == offset) {
+            if (this.underflow) {
+                //the next window starts at the first byte not decoded yet
+                if (this.window != null) this.position += this.window.position();
+                if (this.position >= this.size) return -1;
+                this.window = this.channel.map(FileChannel.MapMode.READ_ONLY, this.position, Math.min(WINDOW, this.size - this.position));
+            }
+            boolean last = this.position + this.window.limit() >= this.size;
+            CoderResult result = this.decoder.decode(this.window, out, last);
+            if (result.isError()) result.throwException();
+            this.underflow = result.isUnderflow();
+            if (last && this.underflow && !this.window.hasRemaining()) {
+                this.decoder.flush(out);
+            }
+        }
+        return out.position() - offset;
+    }
+
+    @Override
+    public void close() throws IOException {
+        this.window = null;
+        this.channel.close();
+    }
+}
@@ -0,0 +1,130 @@
+package com.propp;
+
+import static com.propp.TokenType.PARAMETER_LIST;
+
+//node of the parse tree, also used for tokens that are not values
+public final class Node extends Lexeme {
+    private final TokenType type;
+    private final String stringValue;
+    private final int symbol; //id of the name in Symbols, -1 for nodes without a name
+
+    private Lexeme left, right;
+    private Lexeme[] statements;
+
+    //filled in by the Resolver
+    private Scope scope;
+    private int depth, slot;
+
+    public Node(TokenType type, int lineNumber) {
+        this(type, null, lineNumber);
+    }
+
+    public Node(TokenType type, String stringValue, int lineNumber) {
+        this(type, (stringValue == null) ? -1 : Symbols.intern(stringValue), lineNumber);
+    }
+
+    //for names that are already interned
+    Node(TokenType type, int symbol, int lineNumber) {
+        super(lineNumber);
+        this.type = type;
+        this.symbol = symbol;
+        this.stringValue = (symbol < 0) ? null : Symbols.name(symbol);
+        this.left = null;
+        this.right = null;
+        this.statements = null;
+        this.scope = null;
+        this.depth = -1;
+        this.slot = -1;
+    }
+
+    public TokenType getType() {
+        return this.type;
+    }
+
+    public void setLeft(Lexeme child) {
+        this.left = child;
+    }
+
+    public void setRight(Lexeme child) {
+        this.right = child;
+    }
+
+    public Lexeme getLeft() {
+        return this.left;
+    }
+
+    public Lexeme getRight() {
+        return this.right;
+    }
+
+    public Lexeme[] getStatements() {
+        return this.statements;
+    }
+
+    public void setStatements(Lexeme[] statements) {
+        this.statements = statements;
+    }
+
+    public Scope getScope() {
+        return this.scope;
+    }
+
+    public void setScope(Scope scope) {
+        this.scope = scope;
+    }
+
+    public void resolve(int depth, int slot) {
+        this.depth = depth;
+        this.slot = slot;
+    }
+
+    public boolean isResolved() {
+        return this.slot >= 0;
+    }
+
+    public int getDepth() {
+        return this.depth;
+    }
+
+    public int getSlot() {
+        return this.slot;
+    }
+
+    public String stringValue() {
+        return this.stringValue;
+    }
+
+    public int symbol() {
+        return this.symbol;
+    }
+
+    public String getValueString() {
+        return (this.stringValue == null) ? "" : this.stringValue;
+    }
+
+    public int getParamExpresListLength() {
+        if (this.type != PARAMETER_LIST) return 0;
+        Lexeme node = this;
+        int counter = 0;
+        while (node != null) {
+            counter++;
+            node = node.getRight();
+        }
+        return counter;
+    }
+
+    //named nodes are equal when their type and symbol are, any other node only to itself
+    @Override
+    public int hashCode() {
+        if (this.symbol < 0) return System.identityHashCode(this);
+        return this.symbol;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof Node)) return false;
+        Node lex = (Node) o;
+        return this.symbol >= 0 && lex.type == this.type && lex.symbol == this.symbol;
+    }
+}
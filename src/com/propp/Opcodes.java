@@ -0,0 +1,52 @@
+package com.propp;
+
+//instruction set of the VirtualMachine
+//an instruction is its opcode followed by its operands, all stored in the int[] code of a Chunk
+//a, b and c are registers, k is an index into the constant pool, m is a mark holding where a list of values starts
+//on the value stack, e is an Environment slot and j is a jump target
+final class Opcodes {
+    private Opcodes() {
+    }
+
+    static final int LOADK = 0;      // a k            R[a] = K[k]
+    static final int GETVAR = 1;     // a k            R[a] = value of variable K[k]
+    static final int SETVAR = 2;     // a k            variable K[k] = R[a]
+    static final int SETELEM = 3;    // a k k2 j       element K[k2] of array K[k] = R[a], jump to j if that fails
+    static final int NOVALUE = 4;    // a n line j     if R[a] is no value report a mismatch with n variables, jump to j
+    static final int BINARY = 5;     // a b c k f      R[a] = chain K[k] on R[b], R[c], f has bit 1 (2) set if b (c) keeps null
+    static final int APPLY = 6;      // a k m          R[a] = chain K[k] on list m, pops m
+    static final int UNARY = 7;      // a b k f        R[a] = unary operation K[k] on R[b], f is 1 if b keeps null
+    static final int UNARYL = 8;     // a k m          R[a] = unary operation K[k] on list m, pops m
+    static final int INDEX = 9;      // a b k line     R[a] = element K[k] of array R[b]
+    static final int INDEXL = 10;    // a m k line     R[a] = element K[k] of the array in list m, pops m
+    static final int MARK = 11;      // m              start list m at the top of the value stack
+    static final int PUSH = 12;      // a              push R[a]
+    static final int PUSHV = 13;     // a              push R[a] if it is a value
+    static final int GETLIST = 14;   // a m n          R[a] = value n of list m
+    static final int POP = 15;       // m              pop list m
+    static final int CHECKCOUNT = 16;// m n line j     if list m does not hold n values report a mismatch and jump to j
+    static final int PRINT = 17;     // m line         print list m, pops m
+    static final int OUTPUT = 18;    // m              append list m to the values of the program, pops m
+    static final int TEST = 19;      // a f line j     jump to j if R[a] is not true, f is 1 if a keeps null
+    static final int TESTL = 20;     // m line j       jump to j if list m is not true, pops m
+    static final int JUMP = 21;      // j
+    static final int ENVNEW = 22;    // e k            E[e] = new Environment(current, scope K[k])
+    static final int ENVSET = 23;    // e              current = E[e]
+    static final int DECLARE = 24;   // k k2 line o    variable K[k] = function body K[k2], o is 1 if the body is a program value
+    static final int LOOKUP = 25;    // a k j          R[a] = function of call site K[k], jump to j if there is none
+    static final int CALL = 26;      // a k m          call function R[a] through call site K[k] with list m, the results replace m
+    static final int RET = 27;       // m              return list m
+    static final int RET0 = 28;      //                return no values
+
+    static final String[] NAMES = {
+            "LOADK", "GETVAR", "SETVAR", "SETELEM", "NOVALUE", "BINARY", "APPLY", "UNARY", "UNARYL", "INDEX", "INDEXL",
+            "MARK", "PUSH", "PUSHV", "GETLIST", "POP", "CHECKCOUNT", "PRINT", "OUTPUT", "TEST", "TESTL", "JUMP",
+            "ENVNEW", "ENVSET", "DECLARE", "LOOKUP", "CALL", "RET", "RET0"
+    };
+
+    static final int[] OPERANDS = {
+            2, 2, 2, 4, 4, 5, 3, 4, 3, 4, 4,
+            1, 1, 1, 3, 1, 4, 2, 1, 4, 3, 1,
+            2, 1, 4, 3, 3, 1, 0
+    };
+}
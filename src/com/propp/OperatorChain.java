@@ -0,0 +1,140 @@
+package com.propp;
+
+import java.util.Arrays;
+
+import static com.propp.TokenType.*;
+
+//the operators of a VARIADIC_OPERATION with their operand counts read once from the OPERATOR_LIST/GLUE nodes
+public class OperatorChain {
+    //chains of one operator without a count share their arrays, they are never written to
+    private static final TokenType[][] SINGLE = new TokenType[TokenType.values().length][];
+    private static final int[] NO_COUNT = {-1};
+
+    static {
+        for (TokenType operator : TokenType.values()) SINGLE[operator.ordinal()] = new TokenType[]{operator};
+    }
+
+    private final TokenType[] operators;
+    private final int[] counts; //operands given with the operator, -1 if no count was specified
+    private final int lineNumber;
+    private final int expressionLineNumber;
+
+    private OperatorChain(TokenType[] operators, int[] counts, int lineNumber, int expressionLineNumber) {
+        this.operators = operators;
+        this.counts = counts;
+        this.lineNumber = lineNumber;
+        this.expressionLineNumber = expressionLineNumber;
+    }
+
+    public static OperatorChain of(Lexeme variadicOperation) {
+        int length = 0;
+        for (Lexeme opList = variadicOperation.getLeft(); opList != null; opList = opList.getRight().getLeft()) {
+            length++;
+        }
+        Lexeme count = variadicOperation.getLeft().getRight().getRight();
+        if (length == 1 && count == null) {
+            TokenType operator = variadicOperation.getLeft().getLeft().getType();
+            return new OperatorChain(SINGLE[operator.ordinal()], NO_COUNT, variadicOperation.getLineNumber(), variadicOperation.getRight().getLineNumber());
+        }
+        TokenType[] operators = new TokenType[length];
+        int[] counts = new int[length];
+        int i = 0;
+        for (Lexeme opList = variadicOperation.getLeft(); opList != null; opList = opList.getRight().getLeft()) {
+            operators[i] = opList.getLeft().getType();
+            count = opList.getRight().getRight();
+            counts[i] = (count == null) ? -1 : count.intValue();
+            i++;
+        }
+        return new OperatorChain(operators, counts, variadicOperation.getLineNumber(), variadicOperation.getRight().getLineNumber());
+    }
+
+    public static OperatorChain of(TokenType operator, int lineNumber) {
+        return new OperatorChain(SINGLE[operator.ordinal()], NO_COUNT, lineNumber, lineNumber);
+    }
+
+    public int getLineNumber() {
+        return this.lineNumber;
+    }
+
+    public TokenType getOperator(int stage) {
+        return this.operators[stage];
+    }
+
+    public int getCount(int stage) {
+        return this.counts[stage];
+    }
+
+    public int length() {
+        return this.operators.length;
+    }
+
+    //applies the chain to values[0..size), the array is used as scratch space
+    public Lexeme apply(Lexeme[] values, int size) {
+        return apply(values, 0, size);
+    }
+
+    //applies the chain to values[from..end)
+    //every operator but the last takes its count (or 2) operands and passes its result on, the last takes the rest
+    public Lexeme apply(Lexeme[] values, int from, int end) {
+        return apply(values, from, end, true);
+    }
+
+    //applies the chain to constant values[0..size) at compile time, null if applying it would report an error
+    public Lexeme fold(Lexeme[] values, int size) {
+        return apply(values, 0, size, false);
+    }
+
+    private Lexeme apply(Lexeme[] values, int from, int end, boolean report) {
+        int start = from;
+        for (int stage = 0; stage < this.operators.length; stage++) {
+            TokenType operator = this.operators[stage];
+            boolean last = stage == this.operators.length - 1;
+            int remaining = end - start;
+            int numOfExpressions;
+            if (!last) numOfExpressions = (this.counts[stage] < 0) ? 2 : this.counts[stage] + 1;
+            else {
+                numOfExpressions = remaining;
+                if (this.counts[stage] >= 0 && numOfExpressions != this.counts[stage] + 1) {
+                    if (!report) return null;
+                    Forest.error((stage == 0) ? this.expressionLineNumber : this.lineNumber, "wrong number of operands for given operation, expected:" + (this.counts[stage] + 1) + " found:" + numOfExpressions);
+                }
+            }
+            if (remaining == 0) {
+                if (!report) return null;
+                Forest.error(this.lineNumber, "no expressions found");
+                return null;
+            }
+            Lexeme firstOperand = values[start];
+            //arrays are never folded since each creation has to give a new array
+            if (operator == ARRAY_CREATION) return report ? Evaluator.createArray(Arrays.asList(values).subList(start, end)) : null;
+            if (firstOperand != null && operator == MINUS && numOfExpressions == 1) {
+                return (report || Operators.canNegate(firstOperand)) ? Operators.negate(firstOperand) : null;
+            }
+            for (int i = 1; i < numOfExpressions; i++) {
+                if (start + i >= end) {
+                    if (!report) return null;
+                    Forest.error(this.lineNumber, " not enough expression values");
+                    return null;
+                }
+                Lexeme secondOperand = values[start + i];
+                if (firstOperand == null || secondOperand == null) {
+                    if (!report) return null;
+                    Forest.error((firstOperand == null) ? this.lineNumber : firstOperand.getLineNumber(), "not enough operands for given operation, found null value");
+                    return null;
+                }
+                if (!report && !Operators.isDefined(operator, firstOperand, secondOperand)) return null;
+                firstOperand = Operators.binary(operator, firstOperand, secondOperand, this.lineNumber);
+                if (firstOperand == null) return null;
+            }
+            if (last) return firstOperand;
+            if (numOfExpressions >= remaining) {
+                if (!report) return null;
+                Forest.error(this.lineNumber, " not enough expression values");
+                return null;
+            }
+            start += numOfExpressions - 1;
+            values[start] = firstOperand;
+        }
+        return null;
+    }
+}
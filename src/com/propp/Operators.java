@@ -0,0 +1,235 @@
+package com.propp;
+
+import static com.propp.TokenType.*;
+
+//binary operations between values, looked up in a table by operator and the types of both operands
+//booleans count as 0 or 1 and characters as their code, a FLOAT on either side makes the result a FLOAT
+final class Operators {
+    private Operators() {
+    }
+
+    interface BinaryOperation {
+        Lexeme apply(Lexeme a, Lexeme b, int lineNumber);
+    }
+
+    private static final TokenType[] NUMBERS = {INTEGER, FLOAT, BOOLEAN, CHARACTER};
+    private static final int TYPES = 5; //NUMBERS and STRING
+
+    private static final BinaryOperation[][][] TABLE = new BinaryOperation[TokenType.values().length][TYPES][TYPES];
+
+    static {
+        for (TokenType first : NUMBERS) {
+            for (TokenType second : NUMBERS) {
+                if (first == FLOAT || second == FLOAT) {
+                    define(PLUS, first, second, (a, b, line) -> new FloatValue(number(a) + number(b), line));
+                    define(MINUS, first, second, (a, b, line) -> new FloatValue(number(a) - number(b), line));
+                    define(TIMES, first, second, (a, b, line) -> new FloatValue(number(a) * number(b), line));
+                    define(DIVIDE, first, second, (a, b, line) -> new FloatValue(number(a) / number(b), line));
+                    define(POWER, first, second, (a, b, line) -> new FloatValue(Math.pow(number(a), number(b)), line));
+                    define(GREATER_THAN, first, second, (a, b, line) -> new BooleanValue(number(a) > number(b), line));
+                    define(GREATER_THAN_OR_EQUAL, first, second, (a, b, line) -> new BooleanValue(number(a) >= number(b), line));
+                    define(LESS_THAN, first, second, (a, b, line) -> new BooleanValue(number(a) < number(b), line));
+                    define(LESS_THAN_OR_EQUAL, first, second, (a, b, line) -> new BooleanValue(number(a) <= number(b), line));
+                    define(EQUALS, first, second, (a, b, line) -> new BooleanValue(number(a) == number(b), line));
+                } else {
+                    define(PLUS, first, second, (a, b, line) -> new IntegerValue(integer(a) + integer(b), line));
+                    define(MINUS, first, second, (a, b, line) -> new IntegerValue(integer(a) - integer(b), line));
+                    define(TIMES, first, second, (a, b, line) -> new IntegerValue(integer(a) * integer(b), line));
+                    define(DIVIDE, first, second, (a, b, line) -> intDivision(integer(a), integer(b), a.getLineNumber()));
+                    define(POWER, first, second, (a, b, line) -> power(integer(a), integer(b), line));
+                    define(GREATER_THAN, first, second, (a, b, line) -> new BooleanValue(integer(a) > integer(b), line));
+                    define(GREATER_THAN_OR_EQUAL, first, second, (a, b, line) -> new BooleanValue(integer(a) >= integer(b), line));
+                    define(LESS_THAN, first, second, (a, b, line) -> new BooleanValue(integer(a) < integer(b), line));
+                    define(LESS_THAN_OR_EQUAL, first, second, (a, b, line) -> new BooleanValue(integer(a) <= integer(b), line));
+                    define(EQUALS, first, second, (a, b, line) -> new BooleanValue(integer(a) == integer(b), line));
+                }
+            }
+            //anything added to a string is appended as it would be printed
+            define(PLUS, first, STRING, Operators::concatenate);
+            define(PLUS, STRING, first, Operators::concatenate);
+        }
+        define(PLUS, STRING, STRING, Operators::concatenate);
+        define(EQUALS, STRING, STRING, (a, b, line) -> new BooleanValue(a.stringValue().equals(b.stringValue()), line));
+
+        //between two booleans + and - are exclusive or, * is and, dividing by true leaves the boolean
+        define(PLUS, BOOLEAN, BOOLEAN, (a, b, line) -> new BooleanValue(a.booleanValue() ^ b.booleanValue(), line));
+        define(MINUS, BOOLEAN, BOOLEAN, (a, b, line) -> new BooleanValue(a.booleanValue() ^ b.booleanValue(), line));
+        define(TIMES, BOOLEAN, BOOLEAN, (a, b, line) -> new BooleanValue(a.booleanValue() && b.booleanValue(), line));
+        define(DIVIDE, BOOLEAN, BOOLEAN, (a, b, line) -> new BooleanValue(a.booleanValue(), line));
+        define(AND, BOOLEAN, BOOLEAN, (a, b, line) -> new BooleanValue(a.booleanValue() && b.booleanValue(), b.getLineNumber()));
+        define(OR, BOOLEAN, BOOLEAN, (a, b, line) -> new BooleanValue(a.booleanValue() || b.booleanValue(), b.getLineNumber()));
+
+        //adding or subtracting two characters gives a character
+        define(PLUS, CHARACTER, CHARACTER, (a, b, line) -> new CharacterValue((char) (a.characterValue() + b.characterValue()), line));
+        define(MINUS, CHARACTER, CHARACTER, (a, b, line) -> new CharacterValue((char) (byte) (a.characterValue() - b.characterValue()), line));
+    }
+
+    private static void define(TokenType operator, TokenType first, TokenType second, BinaryOperation operation) {
+        TABLE[operator.ordinal()][index(first)][index(second)] = operation;
+    }
+
+    private static int index(TokenType type) {
+        switch (type) {
+            case INTEGER:
+                return 0;
+            case FLOAT:
+                return 1;
+            case BOOLEAN:
+                return 2;
+            case CHARACTER:
+                return 3;
+            case STRING:
+                return 4;
+            default:
+                return -1;
+        }
+    }
+
+    static Lexeme binary(TokenType operator, Lexeme firstOperand, Lexeme secondOperand, int lineNumber) {
+        TokenType first = firstOperand.getType();
+        TokenType second = secondOperand.getType();
+        //int/int and float/float are computed without going through the table
+        if (first == INTEGER && second == INTEGER) {
+            int a = firstOperand.intValue();
+            int b = secondOperand.intValue();
+            switch (operator) {
+                case PLUS:
+                    return new IntegerValue(a + b, lineNumber);
+                case MINUS:
+                    return new IntegerValue(a - b, lineNumber);
+                case TIMES:
+                    return new IntegerValue(a * b, lineNumber);
+                case DIVIDE:
+                    if (b != 0) return intDivision(a, b, firstOperand.getLineNumber());
+                    break;
+                case GREATER_THAN:
+                    return new BooleanValue(a > b, lineNumber);
+                case GREATER_THAN_OR_EQUAL:
+                    return new BooleanValue(a >= b, lineNumber);
+                case LESS_THAN:
+                    return new BooleanValue(a < b, lineNumber);
+                case LESS_THAN_OR_EQUAL:
+                    return new BooleanValue(a <= b, lineNumber);
+                case EQUALS:
+                    return new BooleanValue(a == b, lineNumber);
+                default:
+                    break;
+            }
+        } else if (first == FLOAT && second == FLOAT) {
+            double a = firstOperand.doubleValue();
+            double b = secondOperand.doubleValue();
+            switch (operator) {
+                case PLUS:
+                    return new FloatValue(a + b, lineNumber);
+                case MINUS:
+                    return new FloatValue(a - b, lineNumber);
+                case TIMES:
+                    return new FloatValue(a * b, lineNumber);
+                case DIVIDE:
+                    if (b != 0.0) return new FloatValue(a / b, lineNumber);
+                    break;
+                case GREATER_THAN:
+                    return new BooleanValue(a > b, lineNumber);
+                case GREATER_THAN_OR_EQUAL:
+                    return new BooleanValue(a >= b, lineNumber);
+                case LESS_THAN:
+                    return new BooleanValue(a < b, lineNumber);
+                case LESS_THAN_OR_EQUAL:
+                    return new BooleanValue(a <= b, lineNumber);
+                case EQUALS:
+                    return new BooleanValue(a == b, lineNumber);
+                default:
+                    break;
+            }
+        }
+        if (operator == DIVIDE && isZero(secondOperand)) {
+            Forest.error(lineNumber, "divide by 0");
+            return null;
+        }
+        int firstIndex = index(first);
+        int secondIndex = index(second);
+        BinaryOperation operation = (firstIndex < 0 || secondIndex < 0) ? null : TABLE[operator.ordinal()][firstIndex][secondIndex];
+        if (operation == null) {
+            Forest.error(lineNumber, "invalid operation: " + operator + " between types " + first + " and " + second);
+            return null;
+        }
+        return operation.apply(firstOperand, secondOperand, lineNumber);
+    }
+
+    //true if binary would give a value without reporting an error
+    static boolean isDefined(TokenType operator, Lexeme firstOperand, Lexeme secondOperand) {
+        if (operator == DIVIDE && isZero(secondOperand)) return false;
+        int firstIndex = index(firstOperand.getType());
+        int secondIndex = index(secondOperand.getType());
+        return firstIndex >= 0 && secondIndex >= 0 && TABLE[operator.ordinal()][firstIndex][secondIndex] != null;
+    }
+
+    static boolean canNegate(Lexeme operand) {
+        return index(operand.getType()) >= 0 && operand.getType() != STRING;
+    }
+
+    static Lexeme negate(Lexeme operand) {
+        switch (operand.getType()) {
+            case INTEGER:
+                return new IntegerValue(-operand.intValue(), operand.getLineNumber());
+            case FLOAT:
+                return new FloatValue(-operand.doubleValue(), operand.getLineNumber());
+            case BOOLEAN:
+            case CHARACTER:
+                return new IntegerValue(-integer(operand), operand.getLineNumber());
+            default:
+                Forest.error(operand.getLineNumber(), "invalid operation: " + MINUS + " between types " + operand.getType());
+                return null;
+        }
+    }
+
+    private static int integer(Lexeme value) {
+        switch (value.getType()) {
+            case BOOLEAN:
+                return value.booleanValue() ? 1 : 0;
+            case CHARACTER:
+                return value.characterValue();
+            default:
+                return value.intValue();
+        }
+    }
+
+    private static double number(Lexeme value) {
+        return (value.getType() == FLOAT) ? value.doubleValue() : integer(value);
+    }
+
+    private static boolean isZero(Lexeme value) {
+        switch (value.getType()) {
+            case INTEGER:
+            case BOOLEAN:
+            case CHARACTER:
+                return integer(value) == 0;
+            case FLOAT:
+                return value.doubleValue() == 0.0;
+            default:
+                return false;
+        }
+    }
+
+    private static Lexeme concatenate(Lexeme a, Lexeme b, int lineNumber) {
+        return new StringValue(a.getValueString() + b.getValueString(), lineNumber);
+    }
+
+    //stays an integer if the division has no remainder
+    private static Lexeme intDivision(int a, int b, int lineNumber) {
+        if (a % b == 0) return new IntegerValue(a / b, lineNumber);
+        return new FloatValue((double) a / b, lineNumber);
+    }
+
+    //stays an integer unless the exponent is negative
+    private static Lexeme power(int base, int exponent, int lineNumber) {
+        if (exponent < 0) return new FloatValue(Math.pow(base, exponent), lineNumber);
+        int result = 1;
+        while (exponent > 0) {
+            if ((exponent & 1) != 0) result *= base;
+            base *= base;
+            exponent >>= 1;
+        }
+        return new IntegerValue(result, lineNumber);
+    }
+}
@@ -0,0 +1,206 @@
+package com.propp;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+
+import static com.propp.TokenType.*;
+
+//constant folding and propagation over the parse tree, run between the Parser and the Resolver
+//operations whose operands are all literals are replaced by the literal they compute, reads of a variable that is
+//bound once, at the top level and from a literal, are replaced by that literal in every statement after it
+//nothing that would report an error is folded, so a program prints exactly what it printed before
+public class Optimizer {
+    private static final boolean debug = false;
+
+    private final HashMap<String, Integer> bindings; //how often each name is assigned, declared or used as a parameter
+    private final HashMap<String, Lexeme> constants;
+    private final List<String> report;
+
+    public Optimizer() {
+        this.bindings = new HashMap<String, Integer>();
+        this.constants = new HashMap<String, Lexeme>();
+        this.report = new ArrayList<String>();
+    }
+
+    public Lexeme optimize(Lexeme program) {
+        countBindings(program);
+        //a constant is only known to statements after its assignment, so the top level is walked in order
+        for (Lexeme node = program; node != null; node = node.getRight()) {
+            if (node.getLeft() == null) continue;
+            statement(node.getLeft());
+            if (node.getLeft().getType() == ASSIGN) recordConstants(node.getLeft());
+        }
+        return program;
+    }
+
+    //what was folded and propagated, one line each
+    public List<String> getReport() {
+        return this.report;
+    }
+
+    //statements are rewritten in place, they stay where they are in their chain and in the Parser's statement arrays
+    private void statement(Lexeme tree) {
+        switch (tree.getType()) {
+            case ASSIGN:
+                tree.setRight(expression(tree.getRight()));
+                break;
+            case RETURN:
+                tree.setLeft(expression(tree.getLeft()));
+                break;
+            case FUNCTION_DECL:
+                statementList(tree.getRight());
+                break;
+            case WHILE:
+                tree.setLeft(condition(tree.getLeft()));
+                statementList(tree.getRight());
+                break;
+            case IF:
+            case ELIF:
+                tree.setLeft(condition(tree.getLeft()));
+                statementList(tree.getRight().getLeft());
+                if (tree.getRight().getRight() != null) statement(tree.getRight().getRight());
+                break;
+            case ELSE:
+                statementList(tree.getLeft());
+                break;
+            case STATEMENT_LIST:
+                statementList(tree);
+                break;
+            default:
+                expression(tree);
+        }
+    }
+
+    private void statementList(Lexeme statementList) {
+        for (Lexeme node = statementList; node != null; node = node.getRight()) {
+            if (node.getLeft() != null) statement(node.getLeft());
+        }
+    }
+
+    //a condition that is not a boolean reports an error with the line of its expression, so it is only folded to booleans
+    private Lexeme condition(Lexeme tree) {
+        return expression(tree, true);
+    }
+
+    private Lexeme expression(Lexeme tree) {
+        return expression(tree, false);
+    }
+
+    private Lexeme expression(Lexeme tree, boolean booleanOnly) {
+        if (tree == null) return null;
+        switch (tree.getType()) {
+            case EXPRESSION_LIST:
+                for (Lexeme node = tree; node != null; node = node.getRight()) node.setLeft(expression(node.getLeft()));
+                return tree;
+            case VARIADIC_OPERATION:
+                tree.setRight(expression(tree.getRight()));
+                return foldVariadic(tree, booleanOnly);
+            case UNARY_OPERATION:
+                return foldUnary(tree, booleanOnly);
+            case FUNC_CALL:
+                tree.getLeft().setLeft(expression(tree.getLeft().getLeft()));
+                return tree;
+            case ARRAY_ACCESS:
+                //indices are only accepted as integer literals written in the source, so they are left alone
+                tree.setLeft(expression(tree.getLeft()));
+                return tree;
+            case VARIABLE:
+                return propagate(tree, booleanOnly);
+            default:
+                return tree;
+        }
+    }
+
+    private Lexeme foldVariadic(Lexeme tree, boolean booleanOnly) {
+        List<Lexeme> operands = new ArrayList<Lexeme>();
+        for (Lexeme node = tree.getRight(); node != null; node = node.getRight()) {
+            if (node.getLeft() == null) continue;
+            if (!isConstant(node.getLeft())) return tree;
+            operands.add(node.getLeft());
+        }
+        OperatorChain chain = OperatorChain.of(tree);
+        Lexeme value = chain.fold(operands.toArray(new Lexeme[operands.size() + 1]), operands.size());
+        if (value == null || (booleanOnly && value.getType() != BOOLEAN)) return tree;
+        StringBuilder operators = new StringBuilder();
+        for (int i = 0; i < chain.length(); i++) {
+            if (i > 0) operators.append(" $ ");
+            operators.append(chain.getOperator(i));
+        }
+        folded(tree.getLineNumber(), "folded " + operators + " of " + operands.size() + " constants to " + value.getValueString());
+        return value;
+    }
+
+    private Lexeme foldUnary(Lexeme tree, boolean booleanOnly) {
+        //the operand keeps the line it had before being folded, the result of the operation is given that line
+        int operandLineNumber = tree.getRight().getLineNumber();
+        tree.setRight(expression(tree.getRight()));
+        Lexeme operator = tree.getLeft();
+        Lexeme operand = tree.getRight();
+        if (!isConstant(operand)) return tree;
+        if (operator.getType() != EQUAL && !(operator.getType() == NOT && operand.getType() == BOOLEAN)) return tree;
+        if (booleanOnly && operand.getType() != BOOLEAN) return tree;
+        Lexeme value = Evaluator.unaryOperation(operator, operand, tree.getLineNumber(), operandLineNumber);
+        folded(tree.getLineNumber(), "folded " + operator.getType() + " of a constant to " + value.getValueString());
+        return value;
+    }
+
+    private Lexeme propagate(Lexeme tree, boolean booleanOnly) {
+        Lexeme identifier = tree.getLeft();
+        Lexeme value = this.constants.get(identifier.stringValue());
+        if (value == null || (booleanOnly && value.getType() != BOOLEAN)) return tree;
+        folded(tree.getLineNumber(), "propagated " + identifier.stringValue() + " = " + value.getValueString());
+        return value;
+    }
+
+    //top level assignments of literals to names that are never bound anywhere else
+    private void recordConstants(Lexeme assign) {
+        List<Lexeme> targets = new ArrayList<Lexeme>();
+        for (Lexeme node = assign.getLeft(); node != null; node = node.getRight()) {
+            if (node.getLeft() != null) targets.add(node.getLeft());
+        }
+        List<Lexeme> values = new ArrayList<Lexeme>();
+        for (Lexeme node = assign.getRight(); node != null; node = node.getRight()) {
+            if (node.getLeft() == null) continue;
+            if (!isConstant(node.getLeft())) return;
+            values.add(node.getLeft());
+        }
+        if (targets.size() != values.size()) return;
+        for (int i = 0; i < targets.size(); i++) {
+            Lexeme target = targets.get(i);
+            if (target.getLeft() != null || this.bindings.get(target.stringValue()) != 1) continue;
+            this.constants.put(target.stringValue(), values.get(i));
+        }
+    }
+
+    //right children are followed in a loop, statement chains can be longer than the stack is deep
+    private void countBindings(Lexeme tree) {
+        for (; tree != null; tree = tree.getRight()) {
+            if (tree.getType() == ASSIGN) {
+                for (Lexeme node = tree.getLeft(); node != null; node = node.getRight()) {
+                    if (node.getLeft() != null) bind(node.getLeft());
+                }
+            } else if (tree.getType() == FUNCTION_DECL) {
+                bind(tree.getLeft());
+                for (Lexeme node = tree.getLeft().getLeft(); node != null; node = node.getRight()) {
+                    if (node.getLeft() != null) bind(node.getLeft());
+                }
+            }
+            countBindings(tree.getLeft());
+        }
+    }
+
+    private void bind(Lexeme identifier) {
+        Integer count = this.bindings.get(identifier.stringValue());
+        this.bindings.put(identifier.stringValue(), (count == null) ? 1 : count + 1);
+    }
+
+    private static boolean isConstant(Lexeme tree) {
+        return tree instanceof Value && tree.getType() != ARRAY;
+    }
+
+    private void folded(int lineNumber, String msg) {
+        if (debug) System.out.println("-- " + msg + " --");
+        this.report.add("line:" + lineNumber + " " + msg);
+    }
+}
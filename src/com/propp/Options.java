@@ -0,0 +1,238 @@
+package com.propp;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+
+//how Forest runs a program, by default it only executes it and prints its output
+//the dumps of the tokens, the tree, the optimizer report and the VirtualMachine code, the per phase timings and the profiles are opt in
+//printed lines go to standard output in 64K batches unless told to flush otherwise or to write to a file
+//parse trees are only cached when a cache directory is given
+public class Options {
+    public static final String USAGE = "Usage: forest [--engine=evaluator|closure|bytecode|vm|arena] [--tokens] [--tree] [--optimizer-report] [--disassemble] [--timings] [--profile] [--sample=path] [--sample-interval=ms] [--output=path] [--flush=line|size[:chars]|interval[:ms]|exit] [--cache=directory] [path to .tree file]";
+
+    private Engine engine;
+    private boolean tokens, tree, optimizerReport, disassemble, timings, profile;
+    private String output;
+    private OutputSink.FlushPolicy flushPolicy;
+    private long flushLimit;
+    private String cacheDirectory;
+    private String sampleOutput;
+    private long sampleInterval;
+    private String path;
+
+    public Options() {
+        this.engine = Engine.EVALUATOR;
+        this.tokens = false;
+        this.tree = false;
+        this.optimizerReport = false;
+        this.disassemble = false;
+        this.timings = false;
+        this.profile = false;
+        this.output = null;
+        this.flushPolicy = OutputSink.FlushPolicy.SIZE;
+        this.flushLimit = OutputSink.DEFAULT_SIZE;
+        this.cacheDirectory = null;
+        this.sampleOutput = null;
+        this.sampleInterval = SamplingProfiler.DEFAULT_INTERVAL;
+        this.path = null;
+    }
+
+    //the options of a command line, null if it is not valid, the path comes last
+    public static Options parse(String[] args) {
+        Options options = new Options();
+        for (int i = 0; i < args.length; i++) {
+            String arg = args[i];
+            if (i == args.length - 1 && !arg.startsWith("--")) options.path = arg;
+            else if (arg.startsWith("--engine=")) {
+                options.engine = engine(arg.substring("--engine=".length()));
+                if (options.engine == null) return null;
+            }
+            else if (arg.equals("--tokens")) options.tokens = true;
+            else if (arg.equals("--tree")) options.tree = true;
+            else if (arg.equals("--optimizer-report")) options.optimizerReport = true;
+            else if (arg.equals("--disassemble")) options.disassemble = true;
+            else if (arg.equals("--timings")) options.timings = true;
+            else if (arg.equals("--profile")) options.profile = true;
+            else if (arg.startsWith("--output=") && arg.length() > "--output=".length()) options.output = arg.substring("--output=".length());
+            else if (arg.startsWith("--cache=") && arg.length() > "--cache=".length()) options.cacheDirectory = arg.substring("--cache=".length());
+            else if (arg.startsWith("--sample=") && arg.length() > "--sample=".length()) options.sampleOutput = arg.substring("--sample=".length());
+            else if (arg.startsWith("--sample-interval=")) {
+                try {
+                    options.sampleInterval = Long.parseLong(arg.substring("--sample-interval=".length()));
+                } catch (NumberFormatException e) {
+                    return null;
+                }
+                if (options.sampleInterval <= 0) return null;
+            }
+            else if (arg.startsWith("--flush=")) {
+                if (!options.flush(arg.substring("--flush=".length()))) return null;
+            }
+            else return null;
+        }
+        //the counters of --profile would be all the samples see
+        if (options.profile && options.sampleOutput != null) return null;
+        return (options.path == null) ? null : options;
+    }
+
+    //a policy name optionally followed by its limit, size:4096 or interval:250
+    private boolean flush(String policy) {
+        int colon = policy.indexOf(':');
+        String name = (colon < 0) ? policy : policy.substring(0, colon);
+        OutputSink.FlushPolicy flushPolicy = null;
+        for (OutputSink.FlushPolicy candidate : OutputSink.FlushPolicy.values()) {
+            if (candidate.name().equalsIgnoreCase(name)) flushPolicy = candidate;
+        }
+        if (flushPolicy == null) return false;
+        long limit = (flushPolicy == OutputSink.FlushPolicy.INTERVAL) ? OutputSink.DEFAULT_INTERVAL : OutputSink.DEFAULT_SIZE;
+        if (colon >= 0) {
+            if (flushPolicy != OutputSink.FlushPolicy.SIZE && flushPolicy != OutputSink.FlushPolicy.INTERVAL) return false;
+            try {
+                limit = Long.parseLong(policy.substring(colon + 1));
+            } catch (NumberFormatException e) {
+                return false;
+            }
+            if (limit <= 0) return false;
+        }
+        this.flushPolicy = flushPolicy;
+        this.flushLimit = limit;
+        return true;
+    }
+
+    private static Engine engine(String name) {
+        for (Engine engine : Engine.values()) {
+            if (engine.name().equalsIgnoreCase(name)) return engine;
+        }
+        return null;
+    }
+
+    public Engine getEngine() {
+        return this.engine;
+    }
+
+    public Options setEngine(Engine engine) {
+        this.engine = engine;
+        return this;
+    }
+
+    public boolean printTokens() {
+        return this.tokens;
+    }
+
+    public Options setPrintTokens(boolean tokens) {
+        this.tokens = tokens;
+        return this;
+    }
+
+    public boolean printTree() {
+        return this.tree;
+    }
+
+    public Options setPrintTree(boolean tree) {
+        this.tree = tree;
+        return this;
+    }
+
+    public boolean printOptimizerReport() {
+        return this.optimizerReport;
+    }
+
+    public Options setPrintOptimizerReport(boolean optimizerReport) {
+        this.optimizerReport = optimizerReport;
+        return this;
+    }
+
+    //the Chunks the ChunkCompiler makes of the program, printed whatever engine then runs it
+    public boolean printDisassembly() {
+        return this.disassemble;
+    }
+
+    public Options setPrintDisassembly(boolean disassemble) {
+        this.disassemble = disassemble;
+        return this;
+    }
+
+    public boolean printTimings() {
+        return this.timings;
+    }
+
+    public Options setPrintTimings(boolean timings) {
+        this.timings = timings;
+        return this;
+    }
+
+    //a profiled program runs on the Evaluator whatever the engine, the Profiler counts what it walks
+    public boolean printProfile() {
+        return this.profile;
+    }
+
+    public Options setPrintProfile(boolean profile) {
+        this.profile = profile;
+        return this;
+    }
+
+    //the file the collapsed stacks of a sampled run are written to, null when the run is not sampled,
+    //a sampled program also runs on the Evaluator, the only engine that keeps the stack of Forest calls
+    public String getSampleOutput() {
+        return this.sampleOutput;
+    }
+
+    public Options setSampleOutput(String sampleOutput) {
+        this.sampleOutput = sampleOutput;
+        return this;
+    }
+
+    //milliseconds between samples
+    public long getSampleInterval() {
+        return this.sampleInterval;
+    }
+
+    public Options setSampleInterval(long sampleInterval) {
+        this.sampleInterval = sampleInterval;
+        return this;
+    }
+
+    //null for standard output
+    public String getOutput() {
+        return this.output;
+    }
+
+    public Options setOutput(String output) {
+        this.output = output;
+        return this;
+    }
+
+    public OutputSink.FlushPolicy getFlushPolicy() {
+        return this.flushPolicy;
+    }
+
+    public long getFlushLimit() {
+        return this.flushLimit;
+    }
+
+    //limit is in chars for SIZE and in milliseconds for INTERVAL
+    public Options setFlush(OutputSink.FlushPolicy flushPolicy, long limit) {
+        this.flushPolicy = flushPolicy;
+        this.flushLimit = limit;
+        return this;
+    }
+
+    //the sink printed lines go to, standard output is flushed but never closed by it
+    public OutputSink openOutput() throws IOException {
+        if (this.output == null) return OutputSink.standardOutput(this.flushPolicy, this.flushLimit);
+        return OutputSink.file(Paths.get(this.output), this.flushPolicy, this.flushLimit);
+    }
+
+    //null when trees are not cached
+    public String getCacheDirectory() {
+        return this.cacheDirectory;
+    }
+
+    public Options setCacheDirectory(String cacheDirectory) {
+        this.cacheDirectory = cacheDirectory;
+        return this;
+    }
+
+    public String getPath() {
+        return this.path;
+    }
+}
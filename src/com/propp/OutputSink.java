@@ -0,0 +1,242 @@
+package com.propp;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+//where print writes, lines are formatted into one reusable StringBuilder that is written out when the flush policy says so
+//each thread prints to the sink it last chose with use, which is a line flushed System.out until it chooses one
+//INTERVAL sinks are flushed by a shared daemon thread, so output does not wait for the next line while a program computes
+public class OutputSink implements Closeable {
+    public enum FlushPolicy {
+        LINE,     //after every line
+        SIZE,     //once the buffer holds limit chars
+        INTERVAL, //every limit milliseconds while there is output waiting, until the sink is closed
+        EXIT      //only when the sink is flushed or closed
+    }
+
+    public static final int DEFAULT_SIZE = 1 << 16;
+    public static final int DEFAULT_INTERVAL = 100;
+
+    private static final OutputSink STANDARD = new OutputSink(null, FlushPolicy.LINE, 0);
+    private static final ThreadLocal<OutputSink> current = ThreadLocal.withInitial(() -> STANDARD);
+    private static ScheduledThreadPoolExecutor flusher; //started by the first INTERVAL sink
+
+    private final Writer writer; //null for System.out, which is looked up on every flush so redirecting it is followed
+    private final FlushPolicy policy;
+    private final long limit;
+    private final StringBuilder buffer;
+    private final List<Lexeme[]> openArrays; //arrays being printed, to stop at an array that contains itself
+    private final ScheduledFuture<?> timer; //null unless the policy is INTERVAL
+    private boolean closed;
+
+    private OutputSink(Writer writer, FlushPolicy policy, long limit) {
+        this.writer = writer;
+        this.policy = policy;
+        this.limit = limit;
+        this.buffer = new StringBuilder();
+        this.openArrays = new ArrayList<Lexeme[]>();
+        this.closed = false;
+        this.timer = (policy == FlushPolicy.INTERVAL) ? flusher().scheduleWithFixedDelay(this::tick, limit, limit, TimeUnit.MILLISECONDS) : null;
+    }
+
+    private static synchronized ScheduledThreadPoolExecutor flusher() {
+        if (flusher == null) {
+            flusher = new ScheduledThreadPoolExecutor(1, runnable -> {
+                Thread thread = Executors.defaultThreadFactory().newThread(runnable);
+                thread.setName("forest-output-flusher");
+                thread.setDaemon(true);
+                return thread;
+            });
+            flusher.setRemoveOnCancelPolicy(true); //closed sinks are dropped at once instead of on their next tick
+        }
+        return flusher;
+    }
+
+    //limit is the buffer size in chars for SIZE and the interval in milliseconds for INTERVAL, it is ignored otherwise
+    public static OutputSink standardOutput(FlushPolicy policy, long limit) {
+        return new OutputSink(null, policy, limit);
+    }
+
+    //the file is created or truncated and written with the default charset
+    public static OutputSink file(Path path, FlushPolicy policy, long limit) throws IOException {
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING);
+        return new OutputSink(new OutputStreamWriter(Channels.newOutputStream(channel), Charset.defaultCharset()), policy, limit);
+    }
+
+    //for anything else to print to, a StringWriter to keep the output of a run in memory, closing the sink closes writer
+    public static OutputSink writer(Writer writer, FlushPolicy policy, long limit) {
+        return new OutputSink(writer, policy, limit);
+    }
+
+    public static OutputSink current() {
+        return current.get();
+    }
+
+    //makes sink the one this thread prints to and returns the one it printed to before
+    public static OutputSink use(OutputSink sink) {
+        OutputSink previous = current.get();
+        current.set(sink);
+        return previous;
+    }
+
+    //the values separated by commas, nothing at all if one of them is missing
+    //a missing value is looked for first, a large array before it may already have been written out otherwise
+    public synchronized void printValues(List<Lexeme> values, int lineNumber) {
+        int missing = values.indexOf(null);
+        for (int i = 0; i < values.size(); i++) {
+            Lexeme value = values.get(i);
+            if (i == missing) return;
+            if (missing >= 0) {
+                if (value.getType() != TokenType.ARRAY && !isScalar(value)) unsupported(value, lineNumber);
+                continue;
+            }
+            if (value.getType() == TokenType.ARRAY) {
+                printArray(value.arrayValue());
+            } else if (!printScalar(value)) {
+                unsupported(value, lineNumber);
+            }
+            if (i < values.size() - 1) this.buffer.append(',');
+        }
+        endLine();
+    }
+
+    public synchronized void println(CharSequence line) {
+        this.buffer.append(line);
+        endLine();
+    }
+
+    private static void unsupported(Lexeme value, int lineNumber) {
+        Forest.error(lineNumber, "unsupported type " + value.getType() + "for print statement");
+    }
+
+    private static boolean isScalar(Lexeme value) {
+        switch (value.getType()) {
+            case INTEGER:
+            case FLOAT:
+            case STRING:
+            case BOOLEAN:
+            case CHARACTER:
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    private boolean printScalar(Lexeme value) {
+        switch (value.getType()) {
+            case INTEGER:
+                this.buffer.append(value.intValue());
+                return true;
+            case FLOAT:
+                this.buffer.append(value.doubleValue());
+                return true;
+            case STRING:
+                this.buffer.append(value.stringValue());
+                return true;
+            case BOOLEAN:
+                this.buffer.append(value.booleanValue());
+                return true;
+            case CHARACTER:
+                this.buffer.append(value.characterValue());
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    //elements are appended one at a time, so a large array is written out in pieces under the SIZE policy
+    //empty slots print as nothing and anything else that is not a value as its type
+    private void printArray(Lexeme[] elements) {
+        for (Lexeme[] open : this.openArrays) {
+            if (open == elements) {
+                this.buffer.append("[...]");
+                return;
+            }
+        }
+        this.openArrays.add(elements);
+        this.buffer.append('[');
+        for (int i = 0; i < elements.length; i++) {
+            if (i > 0) this.buffer.append(',');
+            Lexeme element = elements[i];
+            if (element == null) continue;
+            if (element.getType() == TokenType.ARRAY) printArray(element.arrayValue());
+            else if (!printScalar(element)) this.buffer.append(element.getType());
+            if (this.policy == FlushPolicy.SIZE && this.buffer.length() >= this.limit) write();
+        }
+        this.buffer.append(']');
+        this.openArrays.remove(this.openArrays.size() - 1);
+    }
+
+    private void endLine() {
+        this.buffer.append(System.lineSeparator());
+        switch (this.policy) {
+            case LINE:
+                flush();
+                break;
+            case SIZE:
+                if (this.buffer.length() >= this.limit) flush();
+                break;
+            default:
+                break;
+        }
+    }
+
+    //hands the buffer to the destination without flushing it
+    private void write() {
+        try {
+            if (this.writer == null) System.out.append(this.buffer);
+            else this.writer.append(this.buffer);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        this.buffer.setLength(0);
+    }
+
+    public synchronized void flush() {
+        write();
+        try {
+            if (this.writer == null) System.out.flush();
+            else this.writer.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    //run by the flusher, a failed write is left for the next flush of the program to report
+    private synchronized void tick() {
+        if (this.closed || this.buffer.length() == 0) return;
+        try {
+            flush();
+        } catch (UncheckedIOException e) {
+            //the buffer is kept, so the output is not lost
+        }
+    }
+
+    //System.out is flushed but stays open
+    @Override
+    public synchronized void close() {
+        if (this.timer != null) this.timer.cancel(false);
+        this.closed = true;
+        flush();
+        if (this.writer == null) return;
+        try {
+            this.writer.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -1,56 +1,141 @@
 package com.propp;
 
+import java.io.BufferedWriter;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.nio.charset.Charset;
 import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
 
 import static com.propp.TokenType.*;
 
 public class Parser {
     private static final boolean debug = false;
 
-    private ArrayList<Lexeme> lexemes;
-    private int nextLexemeIndex;
-    private Lexeme currentLexeme;
+    private final TokenCursor lexemes;
+    private int consumedLexemes; //how many tokens have been advanced over
 
-    public Parser(ArrayList<Lexeme> lexemes) {
-        this.lexemes = lexemes; //not cloning (make sure this you don't mess with Lexer arraylist again)
-        this.nextLexemeIndex = 0;
-        advance();
+    public Parser(List<Lexeme> lexemes) {
+        this(tokens(lexemes));
+    }
+
+    //tokens are pulled as they are parsed, with a Lexer as the source the token list is never built
+    public Parser(TokenSource lexemes) {
+        this(new Lookahead(lexemes));
+    }
+
+    //tokens are read from the packed arrays, Lexemes are only made for the tokens that go into the tree
+    public Parser(TokenStream lexemes) {
+        this(lexemes.cursor());
+    }
+
+    private Parser(TokenCursor lexemes) {
+        this.lexemes = lexemes;
+        this.consumedLexemes = 0;
+    }
+
+    private static TokenSource tokens(List<Lexeme> lexemes) {
+        Iterator<Lexeme> iterator = lexemes.iterator();
+        return iterator::next;
+    }
+
+    //one token of lookahead over a TokenSource
+    private static class Lookahead implements TokenCursor {
+        private final TokenSource lexemes;
+        private Lexeme currentLexeme;
+        private Lexeme nextLexeme; //null once the current token is FILE_END
+
+        Lookahead(TokenSource lexemes) {
+            this.lexemes = lexemes;
+            this.currentLexeme = lexemes.next();
+            this.nextLexeme = (this.currentLexeme.getType() == FILE_END) ? null : lexemes.next();
+        }
+
+        @Override
+        public TokenType type() {
+            return this.currentLexeme.getType();
+        }
+
+        @Override
+        public TokenType nextType() {
+            return (this.nextLexeme == null) ? null : this.nextLexeme.getType();
+        }
+
+        @Override
+        public int lineNumber() {
+            return this.currentLexeme.getLineNumber();
+        }
+
+        @Override
+        public Lexeme take() {
+            Lexeme lexeme = this.currentLexeme;
+            skip();
+            return lexeme;
+        }
+
+        //nothing is pulled past the end of the file
+        @Override
+        public void skip() {
+            if (this.nextLexeme == null) return;
+            this.currentLexeme = this.nextLexeme;
+            this.nextLexeme = (this.currentLexeme.getType() == FILE_END) ? null : this.lexemes.next();
+        }
     }
 
     // utility methods
     private boolean check(TokenType expected) {
-        return this.currentLexeme.getType() == expected;
+        return this.lexemes.type() == expected;
     }
 
     private boolean checkNext(TokenType expected) {
-        if (this.lexemes.size() <= this.nextLexemeIndex) return false;
-        return this.lexemes.get(this.nextLexemeIndex).getType() == expected;
+        return this.lexemes.nextType() == expected;
     }
 
     private Lexeme consume(TokenType expected) {
         if (check(expected)) {
-            Lexeme consumed = this.currentLexeme;
-            advance();
-            return consumed;
+            this.consumedLexemes++;
+            return this.lexemes.take();
         }
-        Forest.error(currentLexeme, "expected " + expected);
+        Forest.error(this.lexemes.lineNumber(), "expected " + expected);
         return null;
     }
 
-    private void advance() {
-        this.currentLexeme = lexemes.get(this.nextLexemeIndex);
-        nextLexemeIndex++;
+    //consume for tokens that are not kept
+    private void skip(TokenType expected) {
+        if (check(expected)) {
+            this.consumedLexemes++;
+            this.lexemes.skip();
+            return;
+        }
+        Forest.error(this.lexemes.lineNumber(), "expected " + expected);
+    }
+
+    //the chain is built in a loop and its statements are also kept in an array on the first node,
+    //so neither parsing nor running a program takes a stack frame per statement
+    //tokens taken from the source so far
+    public int getTokenCount() {
+        return this.consumedLexemes;
     }
 
     public Lexeme program() {
         if (debug) System.out.println("-- program --");
-        Lexeme root = new Lexeme(PROGRAM, 0); //should line number be 0?
-        if (statementPending()) {
-            root.setLeft(statement());
-        }
-        if (statementPending()) {
-            root.setRight(program());
+        Lexeme root = new Node(PROGRAM, 0); //should line number be 0?
+        ArrayList<Lexeme> statements = new ArrayList<Lexeme>();
+        Lexeme node = null;
+        while (statementPending()) {
+            if (node == null) {
+                node = root;
+            } else {
+                node.setRight(new Node(PROGRAM, 0));
+                node = node.getRight();
+            }
+            int start = this.consumedLexemes;
+            node.setLeft(statement());
+            statements.add(node.getLeft());
+            if (this.consumedLexemes == start) break; //nothing could be parsed, the error is already reported
         }
+        root.setStatements(statements.toArray(new Lexeme[0]));
         return root;
     }
 
@@ -65,14 +150,14 @@ public class Parser {
             root = expressionList();
             if (check(ASSIGN)) root = instantiation(root, true);
         }
-        consume(SEMICOLON);
+        skip(SEMICOLON);
         return root;
     }
 
     private Lexeme returnStatement() {
         if (debug) System.out.println("-- return --");
         Lexeme temp = consume(RETURN);
-        Lexeme root = new Lexeme(RETURN, temp.getLineNumber());
+        Lexeme root = new Node(RETURN, temp.getLineNumber());
         root.setLeft(expressionList());
         return root;
     }
@@ -81,33 +166,42 @@ public class Parser {
         if (debug) System.out.println("-- expression --");
         if (expressionPending()) {
             Lexeme exp = expression();
-            Lexeme root = new Lexeme(EXPRESSION_LIST, exp.getLineNumber());
+            Lexeme root = new Node(EXPRESSION_LIST, exp.getLineNumber());
             root.setLeft(exp);
             if (check(COMMA)) {
-                consume(COMMA);
+                skip(COMMA);
                 root.setRight(expressionList());
             }
             return root;
         }
-        return new Lexeme(EXPRESSION_LIST, 0);
+        return new Node(EXPRESSION_LIST, 0);
     }
 
     private Lexeme block() {
         if (debug) System.out.println("-- block --");
         int line = consume(O_CURLY).getLineNumber();
         Lexeme root = statementList(line);
-        consume(C_CURLY);
+        skip(C_CURLY);
         return root;
     }
 
     public Lexeme statementList(int lineNumber) {
-        Lexeme root = new Lexeme(STATEMENT_LIST, lineNumber);
-        if (statementPending()) {
-            root.setLeft(statement());
-        }
-        if (statementPending()) {
-            root.setRight(statementList(root.getLeft().getLineNumber()));
+        Lexeme root = new Node(STATEMENT_LIST, lineNumber);
+        ArrayList<Lexeme> statements = new ArrayList<Lexeme>();
+        Lexeme node = null;
+        while (statementPending()) {
+            if (node == null) {
+                node = root;
+            } else {
+                node.setRight(new Node(STATEMENT_LIST, node.getLeft().getLineNumber()));
+                node = node.getRight();
+            }
+            int start = this.consumedLexemes;
+            node.setLeft(statement());
+            statements.add(node.getLeft());
+            if (this.consumedLexemes == start) break; //nothing could be parsed, the error is already reported
         }
+        root.setStatements(statements.toArray(new Lexeme[0]));
         return root;
     }
 
@@ -120,10 +214,10 @@ public class Parser {
     private Lexeme whileStatement() {
         if (debug) System.out.println("-- while --");
         int line = consume(WHILE).getLineNumber();
-        Lexeme root = new Lexeme(WHILE, line);
-        consume(O_OPREN);
+        Lexeme root = new Node(WHILE, line);
+        skip(O_OPREN);
         root.setLeft(expression());
-        consume(C_OPREN);
+        skip(C_OPREN);
         root.setRight(block());
         return root;
     }
@@ -131,11 +225,11 @@ public class Parser {
     private Lexeme ifStatement() {
         if (debug) System.out.println("-- if --");
         int line = consume(IF).getLineNumber();
-        Lexeme root = new Lexeme(IF, line);
-        consume(O_OPREN);
+        Lexeme root = new Node(IF, line);
+        skip(O_OPREN);
         root.setLeft(expression());
         line = consume(C_OPREN).getLineNumber();
-        root.setRight(new Lexeme(GLUE, line));
+        root.setRight(new Node(GLUE, line));
         root.getRight().setLeft(block());
         if (elifStatementPending()) root.getRight().setRight(elifStatement());
         else if (elseStatementPending()) root.getRight().setRight(elseStatement());
@@ -145,11 +239,11 @@ public class Parser {
     private Lexeme elifStatement() {
         if (debug) System.out.println("-- elif --");
         int line = consume(ELIF).getLineNumber();
-        Lexeme root = new Lexeme(ELIF, line);
-        consume(O_OPREN);
+        Lexeme root = new Node(ELIF, line);
+        skip(O_OPREN);
         root.setLeft(expression());
         line = consume(C_OPREN).getLineNumber();
-        root.setRight(new Lexeme(GLUE, line));
+        root.setRight(new Node(GLUE, line));
         root.getRight().setLeft(block());
         if (elifStatementPending()) root.getRight().setRight(elifStatement());
         else if (elseStatementPending()) root.getRight().setRight(elseStatement());
@@ -159,7 +253,7 @@ public class Parser {
     private Lexeme elseStatement() {
         if (debug) System.out.println("-- else --");
         int line = consume(ELSE).getLineNumber();
-        Lexeme root = new Lexeme(ELSE, line);
+        Lexeme root = new Node(ELSE, line);
         root.setLeft(block());
         return root;
     }
@@ -167,11 +261,11 @@ public class Parser {
     private Lexeme funcDeclaration() {
         if (debug) System.out.println("-- func decl --");
         int line = consume(FUNCTION_DECL).getLineNumber();
-        Lexeme root = new Lexeme(FUNCTION_DECL, line);
+        Lexeme root = new Node(FUNCTION_DECL, line);
         root.setLeft(consume(IDENTIFIER));
-        consume(O_OPREN);
+        skip(O_OPREN);
         root.getLeft().setLeft(parameterList());
-        consume(C_OPREN);
+        skip(C_OPREN);
         root.setRight(block());
         return root;
     }
@@ -180,17 +274,22 @@ public class Parser {
         if (debug) System.out.println("-- parameter list --");
         if (!check(IDENTIFIER)) return null;
         Lexeme lex = consume(IDENTIFIER);
-        Lexeme root = new Lexeme(PARAMETER_LIST, lex.getLineNumber());
+        Lexeme root = new Node(PARAMETER_LIST, lex.getLineNumber());
         root.setLeft(lex);
         Lexeme node = root.getLeft();
         while (check(O_SQUARE)) {
-            consume(O_SQUARE);
-            node.setLeft(consume(INTEGER));
-            consume(C_SQUARE);
-            node = node.getLeft();
+            skip(O_SQUARE);
+            //each dimension is a GLUE holding the index on its right, the next dimension on its left
+            Lexeme index = consume(INTEGER);
+            if (index != null) {
+                node.setLeft(new Node(GLUE, index.getLineNumber()));
+                node = node.getLeft();
+                node.setRight(index);
+            }
+            skip(C_SQUARE);
         }
         if (check(COMMA)) {
-            consume(COMMA);
+            skip(COMMA);
             root.setRight(parameterList());
         }
         return root;
@@ -199,9 +298,9 @@ public class Parser {
     private Lexeme instantiation(Lexeme expressionTemp, boolean alreadyConsumedExpression) {
         if (debug) System.out.println("-- instantiation --");
         if (!alreadyConsumedExpression) expressionTemp = expressionList();
-        Lexeme root = new Lexeme(ASSIGN, expressionTemp.getLineNumber());
+        Lexeme root = new Node(ASSIGN, expressionTemp.getLineNumber());
         root.setRight(expressionTemp);
-        consume(ASSIGN);
+        skip(ASSIGN);
         root.setLeft(parameterList());
         return root;
     }
@@ -211,18 +310,18 @@ public class Parser {
         Lexeme root = null;
         if (operatorListPending()) {
             Lexeme opList = operatorList();
-            root = new Lexeme(VARIADIC_OPERATION, opList.getLineNumber());
+            root = new Node(VARIADIC_OPERATION, opList.getLineNumber());
             root.setLeft(opList);
-            consume(O_OPREN);
+            skip(O_OPREN);
             root.setRight(expressionList());
-            consume(C_OPREN);
+            skip(C_OPREN);
         } else if (unaryOperatorPending()) {
             Lexeme unOp = unaryOperator();
-            root = new Lexeme(UNARY_OPERATION, unOp.getLineNumber());
+            root = new Node(UNARY_OPERATION, unOp.getLineNumber());
             root.setLeft(unOp);
-            consume(O_OPREN);
+            skip(O_OPREN);
             root.setRight(expression());
-            consume(C_OPREN);
+            skip(C_OPREN);
         } else if (funcCallPending()) return funcCall();
         else return primary();
         return root;
@@ -231,11 +330,11 @@ public class Parser {
     private Lexeme funcCall() {
         if (debug) System.out.println("-- func call --");
         Lexeme identifier = consume(IDENTIFIER);
-        Lexeme root = new Lexeme(FUNC_CALL, identifier.getLineNumber());
+        Lexeme root = new Node(FUNC_CALL, identifier.getLineNumber());
         root.setLeft(identifier);
-        consume(O_OPREN);
+        skip(O_OPREN);
         root.getLeft().setLeft(expressionList());
-        consume(C_OPREN);
+        skip(C_OPREN);
         return root;
     }
 
@@ -261,10 +360,10 @@ public class Parser {
     private Lexeme variable() {
         if (debug) System.out.println("-- varaible --");
         Lexeme identifier = consume(IDENTIFIER);
-        Lexeme root = new Lexeme(VARIABLE, identifier.getLineNumber());
+        Lexeme root = new Node(VARIABLE, identifier.getLineNumber());
         root.setLeft(identifier);
         if (check(UNDERSCORE)) {
-            consume(UNDERSCORE);
+            skip(UNDERSCORE);
             root.setRight(variable());
         }
         return root;
@@ -273,18 +372,18 @@ public class Parser {
     private Lexeme arrayAccess(Lexeme var, boolean alreadyConsumedVariable) {
         if (debug) System.out.println("-- arrayAccess --");
         if (!alreadyConsumedVariable) var = variable();
-        Lexeme root = new Lexeme(ARRAY_ACCESS, var.getLineNumber());
+        Lexeme root = new Node(ARRAY_ACCESS, var.getLineNumber());
         root.setLeft(var);
         int line = consume(O_SQUARE).getLineNumber();
-        root.setRight(new Lexeme(GLUE, line));
+        root.setRight(new Node(GLUE, line));
         root.getRight().setLeft(expression());
-        consume(C_SQUARE);
+        skip(C_SQUARE);
         Lexeme node = root.getRight();
         while (check(O_SQUARE)) {
             line = consume(O_SQUARE).getLineNumber();
-            node.setRight(new Lexeme(GLUE, line));
+            node.setRight(new Node(GLUE, line));
             node.getRight().setLeft(expression());
-            consume(C_SQUARE);
+            skip(C_SQUARE);
             node = node.getRight();
         }
         return root;
@@ -293,9 +392,9 @@ public class Parser {
     private Lexeme operatorList() {
         if (debug) System.out.println("-- operator --");
         Lexeme op = variadicOperator();
-        Lexeme root = new Lexeme(OPERATOR_LIST, op.getLineNumber());
+        Lexeme root = new Node(OPERATOR_LIST, op.getLineNumber());
         root.setLeft(op);
-        root.setRight(new Lexeme(GLUE, op.getLineNumber()));
+        root.setRight(new Node(GLUE, op.getLineNumber()));
         if (!((check(INTEGER) || check(DOLLAR_SIGN)))) {
             return root;
         }
@@ -303,7 +402,7 @@ public class Parser {
             root.getRight().setRight(consume(INTEGER));
         }
         if (check(DOLLAR_SIGN)) {
-            consume(DOLLAR_SIGN);
+            skip(DOLLAR_SIGN);
         }
         root.getRight().setLeft(operatorList());
         return root;
@@ -316,7 +415,7 @@ public class Parser {
         else if (booleanOperatorPending()) return booleanOperator();
         else if (check(ARRAY_CREATION)) return consume(ARRAY_CREATION);
         else {
-            Forest.error(currentLexeme.getLineNumber(), " invalid operator " + currentLexeme.getType());
+            Forest.error(this.lexemes.lineNumber(), " invalid operator " + this.lexemes.type());
             return null;
         }
     }
@@ -326,7 +425,7 @@ public class Parser {
         if (check(NOT)) return consume(NOT);
         else if (check(EQUAL)) return consume(EQUAL);
         else {
-            Forest.error(currentLexeme.getLineNumber(), " invalid operator " + currentLexeme.getType());
+            Forest.error(this.lexemes.lineNumber(), " invalid operator " + this.lexemes.type());
             return null;
         }
     }
@@ -339,7 +438,7 @@ public class Parser {
         else if (check(LESS_THAN_OR_EQUAL)) return consume(LESS_THAN_OR_EQUAL);
         else if (check(EQUALS)) return consume(EQUALS);
         else {
-            Forest.error(currentLexeme.getLineNumber(), " invalid comparator " + currentLexeme.getType());
+            Forest.error(this.lexemes.lineNumber(), " invalid comparator " + this.lexemes.type());
             return null;
         }
     }
@@ -352,7 +451,7 @@ public class Parser {
         else if (check(DIVIDE)) return consume(DIVIDE);
         else if (check(POWER)) return consume(POWER);
         else {
-            Forest.error(currentLexeme.getLineNumber(), " invalid operator " + currentLexeme.getType());
+            Forest.error(this.lexemes.lineNumber(), " invalid operator " + this.lexemes.type());
             return null;
         }
     }
@@ -362,7 +461,7 @@ public class Parser {
         if (check(OR)) return consume(OR);
         else if (check(AND)) return consume(AND);
         else {
-            Forest.error(currentLexeme.getLineNumber(), " invalid operator " + currentLexeme.getType());
+            Forest.error(this.lexemes.lineNumber(), " invalid operator " + this.lexemes.type());
             return null;
         }
     }
@@ -477,22 +576,41 @@ public class Parser {
         return variablePending();
     }
 
+    //every node on its own line in the order they are visited, then the tree with each level of nesting indented
+    //the tree is written as it is walked instead of being built into one String first
     public static void printTree(Lexeme root) {
-        String printableTree = getPrintableTree(root, 1);
-        System.out.println(printableTree);
+        PrintWriter out = new PrintWriter(new BufferedWriter(new OutputStreamWriter(System.out, Charset.defaultCharset())), false);
+        printNodes(out, root);
+        writeTree(out, root, 1);
+        out.println();
+        out.flush();
+    }
+
+    //right children are followed in a loop, statement chains can be longer than the stack is deep
+    private static void printNodes(PrintWriter out, Lexeme root) {
+        for (Lexeme node = root; node != null; node = node.getRight()) {
+            out.println(node.toString());
+            if (node.getLeft() != null) printNodes(out, node.getLeft());
+        }
     }
 
-    private static String getPrintableTree(Lexeme root, int level) {
-        String treeString = root.toString();
-        System.out.println(treeString);
-        StringBuilder spacer = new StringBuilder("\n");
-        spacer.append("\t".repeat(level));
-
-        if (root.getLeft() != null)
-            treeString += spacer + "with left child: " + getPrintableTree(root.getLeft(), level + 1);
-        if (root.getRight() != null)
-            treeString += spacer + "and right child: " + getPrintableTree(root.getRight(), level + 1);
+    private static void writeTree(PrintWriter out, Lexeme root, int level) {
+        for (Lexeme node = root; node != null; node = node.getRight(), level++) {
+            out.print(node.toString());
+            if (node.getLeft() != null) {
+                newLine(out, level);
+                out.print("with left child: ");
+                writeTree(out, node.getLeft(), level + 1);
+            }
+            if (node.getRight() != null) {
+                newLine(out, level);
+                out.print("and right child: ");
+            }
+        }
+    }
 
-        return treeString;
+    private static void newLine(PrintWriter out, int level) {
+        out.print('\n');
+        for (int i = 0; i < level; i++) out.print('\t');
     }
 }
@@ -0,0 +1,203 @@
+package com.propp;
+
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+
+//an Evaluator that counts what it runs, with --profile the program runs on one of these instead of on its engine
+//every function by name, every source line with statements on it and every operator gets its number of executions,
+//its total time and its self time, the total time without what ran in the functions, lines or operators nested in it
+//operators also get the bytes the running thread allocated while they ran, again without the operators nested in them
+//a function called from inside itself only adds to its total time once, for the outermost call
+//nothing is counted by a plain Evaluator, the hooks are only overridden here
+public class Profiler extends Evaluator {
+    private static final int ROWS = 25; //of each table of the report
+
+    private final Category functions;
+    private final Category lines;
+    private final Category operators;
+    private final HashMap<String, Counter> functionCounters;
+    private Counter[] lineCounters; //by line number, so counting a line boxes nothing
+    private final EnumMap<TokenType, Counter> operatorCounters;
+
+    public Profiler() {
+        this.functions = new Category(false);
+        this.lines = new Category(false);
+        this.operators = new Category(true);
+        this.functionCounters = new HashMap<String, Counter>();
+        this.lineCounters = new Counter[256];
+        this.operatorCounters = new EnumMap<TokenType, Counter>(TokenType.class);
+    }
+
+    private static final class Counter {
+        private final String name;
+        private long count, total, self, bytes;
+        private int active; //calls of it running now
+
+        private Counter(String name) {
+            this.name = name;
+        }
+    }
+
+    //the counters running now in one table, each keeps the time and bytes of the ones nested in it apart
+    private static final class Category {
+        private final boolean allocations;
+        private Counter[] running;
+        private long[] starts, children, startBytes, childBytes;
+        private int depth;
+
+        private Category(boolean allocations) {
+            this.allocations = allocations;
+            this.running = new Counter[64];
+            this.starts = new long[64];
+            this.children = new long[64];
+            this.startBytes = new long[64];
+            this.childBytes = new long[64];
+            this.depth = 0;
+        }
+
+        private void enter(Counter counter) {
+            if (this.depth == this.running.length) grow();
+            this.running[this.depth] = counter;
+            this.children[this.depth] = 0;
+            this.childBytes[this.depth] = 0;
+            counter.active++;
+            this.startBytes[this.depth] = this.allocations ? Timings.allocated() : 0;
+            this.starts[this.depth++] = System.nanoTime();
+        }
+
+        private void exit() {
+            long nanos = System.nanoTime() - this.starts[--this.depth];
+            long bytes = this.allocations ? Timings.allocated() - this.startBytes[this.depth] : 0;
+            Counter counter = this.running[this.depth];
+            this.running[this.depth] = null;
+            counter.count++;
+            counter.self += nanos - this.children[this.depth];
+            counter.bytes += bytes - this.childBytes[this.depth];
+            if (--counter.active == 0) counter.total += nanos;
+            if (this.depth > 0) {
+                this.children[this.depth - 1] += nanos;
+                this.childBytes[this.depth - 1] += bytes;
+            }
+        }
+
+        private void grow() {
+            int length = this.running.length * 2;
+            this.running = Arrays.copyOf(this.running, length);
+            this.starts = Arrays.copyOf(this.starts, length);
+            this.children = Arrays.copyOf(this.children, length);
+            this.startBytes = Arrays.copyOf(this.startBytes, length);
+            this.childBytes = Arrays.copyOf(this.childBytes, length);
+        }
+    }
+
+    //the program itself counts as a function, so the time of top level code is in the report
+    @Override
+    public List<Lexeme> eval(Lexeme tree, Environment environment) {
+        if (tree == null || tree.getType() != TokenType.PROGRAM) return super.eval(tree, environment);
+        this.functions.enter(function("<program>"));
+        try {
+            return super.eval(tree, environment);
+        } finally {
+            this.functions.exit();
+        }
+    }
+
+    //a tail call is made once the function that made it is over, its time is not in that function's total
+    @Override
+    List<Lexeme> functionCall(Lexeme root, Environment environment) {
+        this.functions.enter(function(root.getLeft().stringValue()));
+        try {
+            return super.functionCall(root, environment);
+        } finally {
+            this.functions.exit();
+        }
+    }
+
+    @Override
+    List<Lexeme> statement(Lexeme statement, Environment environment, List<Lexeme> values) {
+        this.lines.enter(line(statement.getLineNumber()));
+        try {
+            return super.statement(statement, environment, values);
+        } finally {
+            this.lines.exit();
+        }
+    }
+
+    @Override
+    Lexeme evalUnaryOperation(Lexeme root, Environment environment) {
+        this.operators.enter(operator(root.getLeft().getType()));
+        try {
+            return super.evalUnaryOperation(root, environment);
+        } finally {
+            this.operators.exit();
+        }
+    }
+
+    //a chain of operators counts as its first
+    @Override
+    Lexeme variadicOperation(Lexeme root, Environment environment) {
+        this.operators.enter(operator(root.getLeft().getLeft().getType()));
+        try {
+            return super.variadicOperation(root, environment);
+        } finally {
+            this.operators.exit();
+        }
+    }
+
+    private Counter function(String name) {
+        Counter counter = this.functionCounters.get(name);
+        if (counter == null) {
+            counter = new Counter(name);
+            this.functionCounters.put(name, counter);
+        }
+        return counter;
+    }
+
+    private Counter line(int line) {
+        if (line < 0) line = 0;
+        if (line >= this.lineCounters.length) this.lineCounters = Arrays.copyOf(this.lineCounters, Math.max(line + 1, this.lineCounters.length * 2));
+        Counter counter = this.lineCounters[line];
+        if (counter == null) {
+            counter = new Counter("line " + line);
+            this.lineCounters[line] = counter;
+        }
+        return counter;
+    }
+
+    private Counter operator(TokenType type) {
+        Counter counter = this.operatorCounters.get(type);
+        if (counter == null) {
+            counter = new Counter(type.name());
+            this.operatorCounters.put(type, counter);
+        }
+        return counter;
+    }
+
+    //every table sorted by self time, the most expensive first
+    public void print(PrintStream out) {
+        List<Counter> lines = new ArrayList<Counter>();
+        for (Counter counter : this.lineCounters) {
+            if (counter != null) lines.add(counter);
+        }
+        print(out, "functions", new ArrayList<Counter>(this.functionCounters.values()), false);
+        print(out, "lines", lines, false);
+        print(out, "operators", new ArrayList<Counter>(this.operatorCounters.values()), Timings.allocated() >= 0);
+    }
+
+    private static void print(PrintStream out, String title, List<Counter> counters, boolean allocations) {
+        counters.sort((a, b) -> Long.compare(b.self, a.self));
+        String header = String.format("%-24s %12s %12s %12s", title, "count", "total ms", "self ms");
+        out.println(allocations ? header + String.format(" %14s %10s", "self KB", "bytes/op") : header);
+        for (int i = 0; i < Math.min(ROWS, counters.size()); i++) {
+            Counter counter = counters.get(i);
+            String row = String.format("%-24s %12d %12.3f %12.3f", counter.name, counter.count, counter.total / 1e6, counter.self / 1e6);
+            if (allocations) row += String.format(" %14.1f %10.1f", counter.bytes / 1024.0, (double) counter.bytes / counter.count);
+            out.println(row);
+        }
+        if (counters.size() > ROWS) out.println("... " + (counters.size() - ROWS) + " more");
+    }
+}
@@ -0,0 +1,429 @@
+package com.propp;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+
+//parse trees of earlier runs, one file per source in a directory, named after a hash of the source, the charset and VERSION
+//a file holds a copy of its source, which a load compares byte for byte so a hash collision is only a miss,
+//then a string table of UTF-8 strings, every lexeme of the tree in preorder and the children and statements of every node
+//numbers are varints and children are counted back from their parent, so most links take a byte,
+//and the statements of a chain stay the same lexemes as the left children of its nodes
+public final class ProgramCache {
+    private static final boolean debug = false;
+
+    //bump whenever the Parser builds different trees or the file layout changes, old files are then never read again
+    public static final int VERSION = 2;
+    private static final int MAGIC = 0x46525354; //FRST
+    private static final TokenType[] TYPES = TokenType.values();
+
+    //tags of the lexeme records
+    private static final byte NODE = 0, NAMED_NODE = 1, INTEGER = 2, FLOAT = 3, STRING = 4, BOOLEAN = 5, CHARACTER = 6;
+
+    private final Path directory;
+
+    public ProgramCache(Path directory) {
+        this.directory = directory;
+    }
+
+    private Path path(ByteBuffer source, Charset charset) {
+        String hash = Long.toHexString(hash(source));
+        StringBuilder name = new StringBuilder(48);
+        for (int i = hash.length(); i < 16; i++) name.append('0');
+        name.append(hash).append('-').append(charset.name()).append(".v").append(VERSION);
+        return this.directory.resolve(name.toString());
+    }
+
+    //64 bits of a multiply and rotate hash, a collision costs a comparison and not a wrong tree
+    private static long hash(ByteBuffer source) {
+        ByteBuffer bytes = source.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+        long hash = bytes.remaining();
+        while (bytes.remaining() >= 8) {
+            hash = Long.rotateLeft(hash ^ (bytes.getLong() * 0x9e3779b97f4a7c15L), 29) * 0xbf58476d1ce4e5b9L;
+        }
+        while (bytes.hasRemaining()) {
+            hash = Long.rotateLeft(hash ^ (bytes.get() * 0x9e3779b97f4a7c15L), 29) * 0xbf58476d1ce4e5b9L;
+        }
+        hash ^= hash >>> 31;
+        hash *= 0x94d049bb133111ebL;
+        return hash ^ (hash >>> 29);
+    }
+
+    //the tree stored for source, null if there is none or it can not be read
+    public Lexeme load(ByteBuffer source, Charset charset) {
+        try (FileChannel channel = FileChannel.open(path(source, charset), StandardOpenOption.READ)) {
+            return read(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()), source);
+        } catch (NoSuchFileException e) {
+            return null;
+        } catch (IOException | RuntimeException e) {
+            //a truncated or foreign file is a miss like any other, it is replaced by the next store
+            if (debug) System.out.println("unreadable cache entry: " + e);
+            return null;
+        }
+    }
+
+    private static Lexeme read(ByteBuffer in, ByteBuffer source) {
+        if (in.getInt() != MAGIC || in.getInt() != VERSION) return null;
+        int sourceLength = in.getInt();
+        if (sourceLength != source.remaining()) return null;
+        if (in.slice(in.position(), sourceLength).mismatch(source) >= 0) return null;
+        in.position(in.position() + sourceLength);
+
+        String[] strings = new String[varint(in)];
+        int[] symbols = new int[strings.length];
+        for (int i = 0; i < strings.length; i++) {
+            byte[] bytes = new byte[varint(in)];
+            in.get(bytes);
+            strings[i] = new String(bytes, StandardCharsets.UTF_8);
+            symbols[i] = -1;
+        }
+
+        Lexeme[] lexemes = new Lexeme[varint(in)];
+        int lineNumber = 0;
+        for (int i = 0; i < lexemes.length; i++) {
+            byte tag = in.get();
+            lineNumber += zigzag(varint(in));
+            switch (tag) {
+                case NODE:
+                    lexemes[i] = new Node(TYPES[in.get()], lineNumber);
+                    break;
+                case NAMED_NODE:
+                    TokenType type = TYPES[in.get()];
+                    int name = varint(in);
+                    if (symbols[name] < 0) symbols[name] = Symbols.intern(strings[name]);
+                    lexemes[i] = new Node(type, symbols[name], lineNumber);
+                    break;
+                case INTEGER:
+                    lexemes[i] = new IntegerValue(zigzag(varint(in)), lineNumber);
+                    break;
+                case FLOAT:
+                    lexemes[i] = new FloatValue(in.getDouble(), lineNumber);
+                    break;
+                case STRING:
+                    lexemes[i] = new StringValue(strings[varint(in)], lineNumber);
+                    break;
+                case BOOLEAN:
+                    lexemes[i] = new BooleanValue(in.get() != 0, lineNumber);
+                    break;
+                case CHARACTER:
+                    lexemes[i] = new CharacterValue((char) varint(in), lineNumber);
+                    break;
+                default:
+                    return null;
+            }
+        }
+
+        for (int i = 0; i < lexemes.length; i++) {
+            if (!(lexemes[i] instanceof Node)) continue;
+            lexemes[i].setLeft(link(lexemes, i, varint(in)));
+            lexemes[i].setRight(link(lexemes, i, varint(in)));
+            int statementCount = varint(in) - 1;
+            if (statementCount < 0) continue;
+            Lexeme[] statements = new Lexeme[statementCount];
+            for (int j = 0; j < statementCount; j++) statements[j] = link(lexemes, i, varint(in));
+            lexemes[i].setStatements(statements);
+        }
+        return (lexemes.length == 0) ? null : lexemes[0];
+    }
+
+    //0 for no lexeme, otherwise one more than the zigzagged distance from the node
+    private static Lexeme link(Lexeme[] lexemes, int node, int link) {
+        return (link == 0) ? null : lexemes[node + zigzag(link - 1)];
+    }
+
+    private static int varint(ByteBuffer in) {
+        int value = 0;
+        for (int shift = 0; ; shift += 7) {
+            byte b = in.get();
+            value |= (b & 0x7f) << shift;
+            if (b >= 0) return value;
+        }
+    }
+
+    private static int zigzag(int value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    //written to a temporary file that is then moved over the entry, so a concurrent load never sees half a tree
+    public void store(ByteBuffer source, Charset charset, Lexeme root) throws IOException {
+        Numbering numbering = new Numbering(root, source.remaining() / 2); //trees come to about a lexeme per two bytes of source
+        Lexeme[] lexemes = numbering.lexemes;
+        int count = numbering.count;
+        //names are looked up by symbol, only string literals need a map
+        List<String> strings = new ArrayList<String>();
+        int[] symbolStrings = new int[Symbols.count()];
+        Arrays.fill(symbolStrings, -1);
+        HashMap<String, Integer> literalStrings = new HashMap<String, Integer>();
+        int[] stringIndices = new int[count]; //the string of every lexeme, -1 for none
+        for (int i = 0; i < count; i++) {
+            Lexeme lexeme = lexemes[i];
+            if (lexeme.getType() == TokenType.ARRAY) return; //the Parser never makes arrays, such a tree is not worth a format
+            stringIndices[i] = -1;
+            if (lexeme instanceof Node) {
+                int symbol = lexeme.symbol();
+                if (symbol < 0) continue;
+                if (symbolStrings[symbol] < 0) {
+                    symbolStrings[symbol] = strings.size();
+                    strings.add(lexeme.stringValue());
+                }
+                stringIndices[i] = symbolStrings[symbol];
+            } else if (lexeme.getType() == TokenType.STRING) {
+                Integer index = literalStrings.get(lexeme.stringValue());
+                if (index == null) {
+                    index = strings.size();
+                    literalStrings.put(lexeme.stringValue(), index);
+                    strings.add(lexeme.stringValue());
+                }
+                stringIndices[i] = index;
+            }
+        }
+
+        Output out = new Output(source.remaining() + count * 8);
+        out.putInt(MAGIC);
+        out.putInt(VERSION);
+        out.putInt(source.remaining());
+        out.put(source.duplicate());
+        out.putVarint(strings.size());
+        for (String string : strings) {
+            byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+            out.putVarint(bytes.length);
+            out.put(bytes);
+        }
+        out.putVarint(count);
+        int lineNumber = 0;
+        for (int i = 0; i < count; i++) {
+            lineNumber = writeLexeme(out, lexemes[i], lineNumber, stringIndices[i]);
+        }
+        int link = 0;
+        for (int i = 0; i < count; i++) {
+            Lexeme lexeme = lexemes[i];
+            if (!(lexeme instanceof Node)) continue;
+            out.putVarint(link(i, numbering.links[link++]));
+            out.putVarint(link(i, numbering.links[link++]));
+            Lexeme[] statements = lexeme.getStatements();
+            out.putVarint((statements == null) ? 0 : statements.length + 1);
+            if (statements == null) continue;
+            for (int j = 0; j < statements.length; j++) out.putVarint(link(i, numbering.links[link++]));
+        }
+
+        Files.createDirectories(this.directory);
+        Path temporary = Files.createTempFile(this.directory, "tree", ".tmp");
+        try {
+            try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.WRITE)) {
+                ByteBuffer bytes = out.bytes();
+                while (bytes.hasRemaining()) channel.write(bytes);
+            }
+            Files.move(temporary, path(source, charset), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temporary);
+        }
+    }
+
+    private static int link(int node, int child) {
+        if (child < 0) return 0;
+        int distance = child - node;
+        return ((distance << 1) ^ (distance >> 31)) + 1;
+    }
+
+    //every lexeme reachable from a root in preorder, with a stack since statement chains are as deep as the program is long
+    //each node gets slots for its left, right and statements in links, in the order the nodes are numbered
+    //the Parser never puts a lexeme under two parents, so a lexeme is numbered when the walk reaches it without looking it up,
+    //only the statements of a node are the left children of its chain again, they are found by scanning the lexemes
+    //numbered after the node, which are the chain in order, so no lexeme is ever hashed
+    private static class Numbering {
+        Lexeme[] lexemes;
+        int count;
+        int[] links; //-1 for no lexeme
+        private int linkCount;
+        private Lexeme[] pending;
+        private int[] slots; //the slot of every pending lexeme, -1 for a root
+
+        //expected is a guess at the number of lexemes, so the arrays do not grow all the way up
+        Numbering(Lexeme root, int expected) {
+            this.lexemes = new Lexeme[Math.max(expected, 64)];
+            this.count = 0;
+            this.links = new int[Math.max(expected * 2, 64)];
+            this.linkCount = 0;
+            this.pending = new Lexeme[64];
+            this.slots = new int[64];
+            walk(root);
+            int link = 0;
+            for (int i = 0; i < this.count; i++) {
+                if (!(this.lexemes[i] instanceof Node)) continue;
+                link += 2;
+                Lexeme[] statements = this.lexemes[i].getStatements();
+                if (statements == null) continue;
+                int from = i + 1;
+                for (Lexeme statement : statements) {
+                    if (statement == null) {
+                        link++;
+                        continue;
+                    }
+                    int index = find(statement, from, this.count);
+                    if (index < 0) index = find(statement, 0, from);
+                    if (index < 0) index = walk(statement); //only reachable through the statements, numbered after everything else
+                    this.links[link++] = index;
+                    from = index + 1;
+                }
+            }
+        }
+
+        //numbers root and everything under it through left and right, returns the index of root
+        private int walk(Lexeme root) {
+            int first = this.count;
+            int size = 0;
+            this.pending[size] = root;
+            this.slots[size++] = -1;
+            while (size > 0) {
+                Lexeme lexeme = this.pending[--size];
+                int slot = this.slots[size];
+                this.pending[size] = null;
+                if (slot >= 0) this.links[slot] = this.count;
+                if (this.count == this.lexemes.length) this.lexemes = Arrays.copyOf(this.lexemes, this.count * 2);
+                this.lexemes[this.count++] = lexeme;
+                if (!(lexeme instanceof Node)) continue;
+                Lexeme[] statements = lexeme.getStatements();
+                int links = reserve(2 + ((statements == null) ? 0 : statements.length));
+                if (size + 2 > this.pending.length) {
+                    this.pending = Arrays.copyOf(this.pending, this.pending.length * 2);
+                    this.slots = Arrays.copyOf(this.slots, this.slots.length * 2);
+                }
+                if (lexeme.getRight() != null) {
+                    this.pending[size] = lexeme.getRight();
+                    this.slots[size++] = links + 1;
+                }
+                if (lexeme.getLeft() != null) {
+                    this.pending[size] = lexeme.getLeft();
+                    this.slots[size++] = links;
+                }
+            }
+            return first;
+        }
+
+        private int find(Lexeme lexeme, int from, int to) {
+            for (int i = from; i < to; i++) {
+                if (this.lexemes[i] == lexeme) return i;
+            }
+            return -1;
+        }
+
+        private int reserve(int count) {
+            if (this.linkCount + count > this.links.length) this.links = Arrays.copyOf(this.links, Math.max(this.links.length * 2, this.linkCount + count));
+            int first = this.linkCount;
+            Arrays.fill(this.links, first, first + count, -1);
+            this.linkCount += count;
+            return first;
+        }
+    }
+
+    //returns the line number of the lexeme, which the next one is written relative to
+    private static int writeLexeme(Output out, Lexeme lexeme, int lineNumber, int string) {
+        byte tag;
+        if (lexeme instanceof Node) tag = (lexeme.stringValue() == null) ? NODE : NAMED_NODE;
+        else if (lexeme.getType() == TokenType.INTEGER) tag = INTEGER;
+        else if (lexeme.getType() == TokenType.FLOAT) tag = FLOAT;
+        else if (lexeme.getType() == TokenType.STRING) tag = STRING;
+        else if (lexeme.getType() == TokenType.BOOLEAN) tag = BOOLEAN;
+        else tag = CHARACTER;
+        out.putByte(tag);
+        out.putSigned(lexeme.getLineNumber() - lineNumber);
+        switch (tag) {
+            case NODE:
+                out.putByte(lexeme.getType().ordinal());
+                break;
+            case NAMED_NODE:
+                out.putByte(lexeme.getType().ordinal());
+                out.putVarint(string);
+                break;
+            case INTEGER:
+                out.putSigned(lexeme.intValue());
+                break;
+            case FLOAT:
+                out.putDouble(lexeme.doubleValue());
+                break;
+            case STRING:
+                out.putVarint(string);
+                break;
+            case BOOLEAN:
+                out.putByte(lexeme.booleanValue() ? 1 : 0);
+                break;
+            default:
+                out.putVarint(lexeme.characterValue());
+                break;
+        }
+        return lexeme.getLineNumber();
+    }
+
+    //a growing big endian byte array, written out in one go
+    private static class Output {
+        private byte[] bytes;
+        private int size;
+
+        Output(int capacity) {
+            this.bytes = new byte[Math.max(capacity, 64)];
+            this.size = 0;
+        }
+
+        private void ensure(int count) {
+            if (this.size + count > this.bytes.length) this.bytes = Arrays.copyOf(this.bytes, Math.max(this.bytes.length * 2, this.size + count));
+        }
+
+        void putByte(int b) {
+            ensure(1);
+            this.bytes[this.size++] = (byte) b;
+        }
+
+        void putInt(int value) {
+            ensure(4);
+            for (int shift = 24; shift >= 0; shift -= 8) this.bytes[this.size++] = (byte) (value >>> shift);
+        }
+
+        void putDouble(double value) {
+            long bits = Double.doubleToRawLongBits(value);
+            putInt((int) (bits >>> 32));
+            putInt((int) bits);
+        }
+
+        void put(byte[] bytes) {
+            ensure(bytes.length);
+            System.arraycopy(bytes, 0, this.bytes, this.size, bytes.length);
+            this.size += bytes.length;
+        }
+
+        void put(ByteBuffer buffer) {
+            ensure(buffer.remaining());
+            int count = buffer.remaining();
+            buffer.get(this.bytes, this.size, count);
+            this.size += count;
+        }
+
+        void putVarint(int value) {
+            ensure(5);
+            while ((value & ~0x7f) != 0) {
+                this.bytes[this.size++] = (byte) ((value & 0x7f) | 0x80);
+                value >>>= 7;
+            }
+            this.bytes[this.size++] = (byte) value;
+        }
+
+        void putSigned(int value) {
+            putVarint((value << 1) ^ (value >> 31));
+        }
+
+        ByteBuffer bytes() {
+            return ByteBuffer.wrap(this.bytes, 0, this.size);
+        }
+    }
+}
@@ -0,0 +1,258 @@
+package com.propp;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static com.propp.TokenType.*;
+
+//static pass between the Parser and the Evaluator that binds identifiers to a (depth, slot) in their Environment chain
+//functions see their caller's variables (the parent of a function Environment is the calling Environment) so a name
+//is only bound when no other Environment that can be on the chain at runtime is able to hold it
+//an assignment only declares its variable in the current Environment if the name is not already defined further up,
+//so names that are definitely defined before a block starts are tracked to tell declarations from updates
+public class Resolver {
+    private static final boolean debug = false;
+
+    //one declaration of a function
+    static class FunctionInfo {
+        private final String name;
+        private final Set<String> calls;
+        private boolean recursive;
+        private boolean seenByCallees; //a name it writes may be read by name before it is written again
+
+        private FunctionInfo(String name) {
+            this.name = name;
+            this.calls = new HashSet<String>();
+            this.recursive = false;
+            this.seenByCallees = false;
+        }
+
+        //whether a return f(...) in it can drop its Environments, what it wrote in them can not be read any more
+        boolean replacedByTailCalls() {
+            return !this.seenByCallees;
+        }
+    }
+
+    private static class Reference {
+        private final Lexeme identifier;
+        private final Scope scope;
+
+        private Reference(Lexeme identifier, Scope scope) {
+            this.identifier = identifier;
+            this.scope = scope;
+        }
+    }
+
+    private final List<Reference> references;
+    private final List<Reference> openReads; //reads in functions of names the function may not have written yet
+    private final HashMap<String, Set<FunctionInfo>> writers; //functions writing each name, null for top level code
+    private final HashMap<String, List<FunctionInfo>> functions;
+
+    public Resolver() {
+        this.references = new ArrayList<Reference>();
+        this.openReads = new ArrayList<Reference>();
+        this.writers = new HashMap<String, Set<FunctionInfo>>();
+        this.functions = new HashMap<String, List<FunctionInfo>>();
+    }
+
+    public Scope resolve(Lexeme program) {
+        Scope global = new Scope(null, null);
+        program.setScope(global);
+        Set<String> defined = new HashSet<String>();
+        for (Lexeme node = program; node != null; node = node.getRight()) {
+            resolveStatement(node.getLeft(), global, defined);
+        }
+        markRecursiveFunctions();
+        int bound = 0;
+        for (Reference reference : this.references) {
+            if (bind(reference)) bound++;
+        }
+        markSeenByCallees();
+        if (debug) System.out.println("resolved " + bound + " of " + this.references.size() + " references");
+        return global;
+    }
+
+    private void resolveStatementList(Lexeme statementList, Scope scope, Set<String> defined) {
+        statementList.setScope(scope);
+        for (Lexeme node = statementList; node != null; node = node.getRight()) {
+            resolveStatement(node.getLeft(), scope, defined);
+        }
+    }
+
+    private void resolveStatement(Lexeme statement, Scope scope, Set<String> defined) {
+        if (statement == null) return;
+        switch (statement.getType()) {
+            case FUNCTION_DECL:
+                resolveFunctionDeclaration(statement, scope, defined);
+                break;
+            case ASSIGN:
+                resolveExpression(statement.getRight(), scope, defined);
+                for (Lexeme node = statement.getLeft(); node != null; node = node.getRight()) {
+                    if (node.getLeft() == null) continue;
+                    if (node.getLeft().getLeft() != null) read(node.getLeft(), scope, defined); //array elements do not declare
+                    else assign(node.getLeft(), scope, defined);
+                }
+                break;
+            case WHILE:
+                resolveExpression(statement.getLeft(), scope, defined);
+                resolveStatementList(statement.getRight(), new Scope(scope, scope.getFunction()), new HashSet<String>(defined));
+                break;
+            case IF:
+                resolveIf(statement, scope, defined);
+                break;
+            case RETURN:
+                resolveExpression(statement.getLeft(), scope, defined);
+                break;
+            case STATEMENT_LIST: //blocks on their own are not evaluated
+                break;
+            default:
+                resolveExpression(statement, scope, defined);
+        }
+    }
+
+    private void resolveIf(Lexeme root, Scope scope, Set<String> defined) {
+        while (root != null) {
+            if (root.getType() == ELSE) {
+                resolveStatementList(root.getLeft(), new Scope(scope, scope.getFunction()), new HashSet<String>(defined));
+                return;
+            }
+            resolveExpression(root.getLeft(), scope, defined);
+            resolveStatementList(root.getRight().getLeft(), new Scope(scope, scope.getFunction()), new HashSet<String>(defined));
+            root = root.getRight().getRight();
+        }
+    }
+
+    private void resolveFunctionDeclaration(Lexeme root, Scope scope, Set<String> defined) {
+        Lexeme identifier = root.getLeft();
+        assign(identifier, scope, defined);
+        FunctionInfo function = new FunctionInfo(identifier.stringValue());
+        if (!this.functions.containsKey(function.name)) this.functions.put(function.name, new ArrayList<FunctionInfo>());
+        this.functions.get(function.name).add(function);
+        Scope body = new Scope(null, function);
+        Set<String> parameters = new HashSet<String>();
+        for (Lexeme node = identifier.getLeft(); node != null; node = node.getRight()) {
+            if (node.getLeft() != null) assign(node.getLeft(), body, parameters);
+        }
+        resolveStatementList(root.getRight(), body, parameters);
+    }
+
+    private void resolveExpression(Lexeme expression, Scope scope, Set<String> defined) {
+        if (expression == null) return;
+        switch (expression.getType()) {
+            case EXPRESSION_LIST:
+                for (Lexeme node = expression; node != null; node = node.getRight()) {
+                    resolveExpression(node.getLeft(), scope, defined);
+                }
+                break;
+            case VARIADIC_OPERATION:
+            case UNARY_OPERATION:
+                resolveExpression(expression.getRight(), scope, defined);
+                break;
+            case FUNC_CALL:
+                if (scope.getFunction() != null) {
+                    scope.getFunction().calls.add(expression.getLeft().stringValue());
+                    if (!defined.contains(expression.getLeft().stringValue())) this.openReads.add(new Reference(expression.getLeft(), scope));
+                }
+                resolveExpression(expression.getLeft().getLeft(), scope, defined);
+                break;
+            case VARIABLE:
+                read(expression.getLeft(), scope, defined);
+                break;
+            case ARRAY_ACCESS:
+                resolveExpression(expression.getLeft(), scope, defined);
+                for (Lexeme node = expression.getRight(); node != null; node = node.getRight()) {
+                    resolveExpression(node.getLeft(), scope, defined);
+                }
+                break;
+            default: //literals
+                break;
+        }
+    }
+
+    //defined holds the names written before this point of every run of the function, parameters first
+    private void read(Lexeme identifier, Scope scope, Set<String> defined) {
+        this.references.add(new Reference(identifier, scope));
+        if (scope.getFunction() != null && !defined.contains(identifier.stringValue())) {
+            this.openReads.add(new Reference(identifier, scope));
+        }
+    }
+
+    //only declares the name in this scope if it is not already defined in an enclosing one
+    private void assign(Lexeme identifier, Scope scope, Set<String> defined) {
+        if (defined.add(identifier.stringValue())) scope.declare(identifier.stringValue());
+        if (!this.writers.containsKey(identifier.stringValue())) {
+            this.writers.put(identifier.stringValue(), new HashSet<FunctionInfo>());
+        }
+        this.writers.get(identifier.stringValue()).add(scope.getFunction());
+        this.references.add(new Reference(identifier, scope));
+    }
+
+    //a function is recursive if it can reach itself, calling an undeclared name could reach anything
+    private void markRecursiveFunctions() {
+        for (List<FunctionInfo> declarations : this.functions.values()) {
+            for (FunctionInfo function : declarations) {
+                function.recursive = reaches(function, function);
+            }
+        }
+    }
+
+    private boolean reaches(FunctionInfo from, FunctionInfo target) {
+        Set<FunctionInfo> visited = new HashSet<FunctionInfo>();
+        List<FunctionInfo> pending = new ArrayList<FunctionInfo>();
+        pending.add(from);
+        while (!pending.isEmpty()) {
+            FunctionInfo function = pending.remove(pending.size() - 1);
+            for (String name : function.calls) {
+                if (name.equals("print")) continue;
+                List<FunctionInfo> callees = this.functions.get(name);
+                if (callees == null) return true;
+                for (FunctionInfo callee : callees) {
+                    if (callee == target) return true;
+                    if (visited.add(callee)) pending.add(callee);
+                }
+            }
+        }
+        return false;
+    }
+
+    //a read by name that comes before the function wrote the name walks up into its callers' Environments, so
+    //every function that writes the name must keep its Environments while it tail calls, the read may see them
+    //a bound read only sees its own function's Environments, and a name the function wrote first is found there
+    //or in the Environment the write went to, the same with or without the Environments of a tail caller
+    private void markSeenByCallees() {
+        for (Reference read : this.openReads) {
+            if (read.identifier.isResolved()) continue;
+            Set<FunctionInfo> owners = this.writers.get(read.identifier.stringValue());
+            if (owners == null) continue;
+            for (FunctionInfo owner : owners) {
+                if (owner != null) owner.seenByCallees = true;
+            }
+        }
+    }
+
+    private boolean bind(Reference reference) {
+        String name = reference.identifier.stringValue();
+        FunctionInfo function = reference.scope.getFunction();
+        if (function != null) { //the caller's Environments must not be able to hold this name
+            Set<FunctionInfo> owners = this.writers.get(name);
+            if (function.recursive || owners == null || owners.size() != 1 || !owners.contains(function)) return false;
+        }
+        Scope target = null;
+        int targetDepth = -1;
+        int depth = 0;
+        for (Scope scope = reference.scope; scope != null; scope = scope.getParent()) {
+            if (scope.declares(name)) {
+                if (target != null) return false; //the declaring Environment depends on execution order
+                target = scope;
+                targetDepth = depth;
+            }
+            depth++;
+        }
+        if (target == null) return false;
+        reference.identifier.resolve(targetDepth, target.slotOf(name));
+        return true;
+    }
+}
@@ -0,0 +1,158 @@
+package com.propp;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.LockSupport;
+
+//an Evaluator that keeps a shadow stack of the Forest functions and while loops it is in, with the line each is at,
+//and a daemon thread that copies the stack every interval, nothing but the stack is touched while the program runs
+//the samples are written as collapsed stacks, one line per distinct stack with the number of times it was seen,
+//frames from the outermost in, separated by ';', so flamegraph.pl and the tools that read its input can draw them
+//a frame is the function name, or while for a loop, and the line it was running, <program>:5;while:7;sq:1
+public class SamplingProfiler extends Evaluator {
+    public static final long DEFAULT_INTERVAL = 10; //milliseconds
+
+    //written only by the evaluating thread, depth is volatile so the sampling thread sees the frames under it
+    private String[] names;
+    private int[] lines;
+    private volatile int depth;
+
+    private final Map<String, long[]> samples; //only used by the sampling thread until it is stopped
+    private Thread sampler;
+    private volatile boolean sampling;
+
+    public SamplingProfiler() {
+        this.names = new String[64];
+        this.lines = new int[64];
+        this.depth = 0;
+        this.samples = new HashMap<String, long[]>();
+        this.sampler = null;
+        this.sampling = false;
+    }
+
+    private void push(String name, int line) {
+        int depth = this.depth;
+        if (depth == this.names.length) {
+            this.names = Arrays.copyOf(this.names, depth * 2);
+            this.lines = Arrays.copyOf(this.lines, depth * 2);
+        }
+        this.names[depth] = name;
+        this.lines[depth] = line;
+        this.depth = depth + 1;
+    }
+
+    private void pop() {
+        this.depth--;
+    }
+
+    @Override
+    public List<Lexeme> eval(Lexeme tree, Environment environment) {
+        if (tree == null || tree.getType() != TokenType.PROGRAM) return super.eval(tree, environment);
+        push("<program>", tree.getLineNumber());
+        try {
+            return super.eval(tree, environment);
+        } finally {
+            pop();
+        }
+    }
+
+    //until its first statement runs a function is at the line it was declared on, the call is the line of the caller
+    @Override
+    List<Lexeme> functionCall(Lexeme root, Environment environment) {
+        Lexeme declared = environment.getIdentifier(root.getLeft());
+        push(root.getLeft().stringValue(), (declared == null) ? root.getLineNumber() : declared.getLineNumber());
+        try {
+            return super.functionCall(root, environment);
+        } finally {
+            pop();
+        }
+    }
+
+    @Override
+    List<Lexeme> evalWhile(Lexeme root, Environment environment) {
+        push("while", root.getLineNumber());
+        try {
+            return super.evalWhile(root, environment);
+        } finally {
+            pop();
+        }
+    }
+
+    @Override
+    List<Lexeme> statement(Lexeme statement, Environment environment, List<Lexeme> values) {
+        int depth = this.depth;
+        if (depth > 0) this.lines[depth - 1] = statement.getLineNumber();
+        return super.statement(statement, environment, values);
+    }
+
+    //samples every interval milliseconds until stop
+    public void start(long interval) {
+        this.sampling = true;
+        this.sampler = new Thread(() -> {
+            long nanos = interval * 1_000_000;
+            while (this.sampling) {
+                LockSupport.parkNanos(nanos);
+                sample();
+            }
+        }, "forest sampler");
+        this.sampler.setDaemon(true);
+        this.sampler.start();
+    }
+
+    public void stop() throws InterruptedException {
+        if (this.sampler == null) return;
+        this.sampling = false;
+        LockSupport.unpark(this.sampler);
+        this.sampler.join();
+        this.sampler = null;
+    }
+
+    //the frames can change while they are copied, the few samples taken just then are a frame or a line off
+    private void sample() {
+        int depth = this.depth;
+        String[] names = this.names;
+        int[] lines = this.lines;
+        depth = Math.min(depth, Math.min(names.length, lines.length));
+        if (depth == 0) return;
+        StringBuilder stack = new StringBuilder();
+        for (int i = 0; i < depth; i++) {
+            String name = names[i];
+            if (name == null) return;
+            if (i > 0) stack.append(';');
+            stack.append(name).append(':').append(lines[i]);
+        }
+        String key = stack.toString();
+        long[] count = this.samples.get(key);
+        if (count == null) this.samples.put(key, new long[]{1});
+        else count[0]++;
+    }
+
+    //only once stopped
+    public long getSampleCount() {
+        long count = 0;
+        for (long[] samples : this.samples.values()) count += samples[0];
+        return count;
+    }
+
+    //the collapsed stacks sorted by stack, so two runs of the same program can be diffed
+    public void write(Path path) throws IOException {
+        List<String> stacks = new ArrayList<String>(this.samples.keySet());
+        stacks.sort(null);
+        try (Writer out = Files.newBufferedWriter(path, StandardCharsets.UTF_8)) {
+            for (String stack : stacks) {
+                out.write(stack);
+                out.write(' ');
+                out.write(Long.toString(this.samples.get(stack)[0]));
+                out.write('\n');
+            }
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package com.propp;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+//static layout of one runtime Environment, built by the Resolver
+public class Scope {
+    private final Scope parent; //null for the global scope and function bodies (their parent is the caller)
+    private final Resolver.FunctionInfo function; //null for top level code
+    private int[] symbols; //open addressing table of the symbols declared here, -1 where empty
+    private int[] slots; //the slot of the symbol at the same index
+    private final List<String> names;
+
+    public Scope(Scope parent, Resolver.FunctionInfo function) {
+        this.parent = parent;
+        this.function = function;
+        this.symbols = new int[8];
+        this.slots = new int[8];
+        Arrays.fill(this.symbols, -1);
+        this.names = new ArrayList<String>();
+    }
+
+    public Scope getParent() {
+        return this.parent;
+    }
+
+    public Resolver.FunctionInfo getFunction() {
+        return this.function;
+    }
+
+    //adds a name written directly in this scope and returns its slot
+    public int declare(String name) {
+        int symbol = Symbols.intern(name);
+        int index = indexOf(symbol);
+        if (this.symbols[index] == symbol) return this.slots[index];
+        int slot = this.names.size();
+        this.symbols[index] = symbol;
+        this.slots[index] = slot;
+        this.names.add(name);
+        if (this.names.size() * 2 > this.symbols.length) grow();
+        return slot;
+    }
+
+    public boolean declares(String name) {
+        return slotOf(name) >= 0;
+    }
+
+    public int slotOf(String name) {
+        return slotOf(Symbols.find(name));
+    }
+
+    public int slotOf(int symbol) {
+        if (symbol < 0) return -1;
+        int index = indexOf(symbol);
+        return (this.symbols[index] == symbol) ? this.slots[index] : -1;
+    }
+
+    //where symbol is in the table, or the empty entry it would go in
+    private int indexOf(int symbol) {
+        int mask = this.symbols.length - 1;
+        int index = symbol & mask;
+        while (this.symbols[index] != symbol && this.symbols[index] != -1) index = (index + 1) & mask;
+        return index;
+    }
+
+    private void grow() {
+        int[] oldSymbols = this.symbols;
+        int[] oldSlots = this.slots;
+        this.symbols = new int[oldSymbols.length * 2];
+        this.slots = new int[oldSlots.length * 2];
+        Arrays.fill(this.symbols, -1);
+        for (int i = 0; i < oldSymbols.length; i++) {
+            if (oldSymbols[i] == -1) continue;
+            int index = indexOf(oldSymbols[i]);
+            this.symbols[index] = oldSymbols[i];
+            this.slots[index] = oldSlots[i];
+        }
+    }
+
+    public String nameOf(int slot) {
+        return this.names.get(slot);
+    }
+
+    public int size() {
+        return this.names.size();
+    }
+}
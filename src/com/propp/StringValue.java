@@ -0,0 +1,22 @@
+package com.propp;
+
+public final class StringValue extends Value {
+    private final String value;
+
+    public StringValue(String value, int lineNumber) {
+        super(lineNumber);
+        this.value = value;
+    }
+
+    public TokenType getType() {
+        return TokenType.STRING;
+    }
+
+    public String stringValue() {
+        return this.value;
+    }
+
+    public String getValueString() {
+        return this.value;
+    }
+}
@@ -0,0 +1,49 @@
+package com.propp;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+
+//interned identifier names, every distinct name gets a dense integer id the first time a Node is made with it
+//identifiers are then compared and looked up by id instead of by string, ids are never reused
+//only names read from a source are interned, names from the host are looked up with find, so the table grows with
+//the distinct names of the programs compiled in this JVM but not with the binding or function names an embedder passes
+public final class Symbols {
+    private static final ConcurrentHashMap<String, Integer> ids = new ConcurrentHashMap<String, Integer>();
+    private static volatile String[] names = new String[256];
+    private static int count = 0;
+
+    private Symbols() {
+    }
+
+    public static int intern(String name) {
+        Integer id = ids.get(name);
+        if (id != null) return id;
+        return add(name);
+    }
+
+    //the id of name if it is interned, -1 otherwise, no identifier of any program has a name that is not
+    public static int find(String name) {
+        Integer id = ids.get(name);
+        return (id == null) ? -1 : id;
+    }
+
+    private static synchronized int add(String name) {
+        Integer id = ids.get(name);
+        if (id != null) return id;
+        String[] table = names;
+        if (count == table.length) table = Arrays.copyOf(table, count * 2);
+        table[count] = name;
+        names = table;
+        ids.put(name, count);
+        return count++;
+    }
+
+    //the interned name of an id, the same String for every identifier with that name
+    public static String name(int id) {
+        return names[id];
+    }
+
+    public static synchronized int count() {
+        return count;
+    }
+}
@@ -0,0 +1,76 @@
+package com.propp;
+
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+
+//wall time and bytes allocated by the running thread for each phase of a run, printed with --timings,
+//every phase is also a Flight Recorder event while the recorder runs
+public class Timings {
+    private static final com.sun.management.ThreadMXBean threads = threads();
+
+    private final List<String> phases;
+    private final List<Long> nanos;
+    private final List<Long> allocations; //-1 where the JVM does not count allocated bytes
+    private String phase;
+    private long startNanos, startAllocation;
+    private Object event; //of the phase running, null when it is not recorded
+
+    public Timings() {
+        this.phases = new ArrayList<String>();
+        this.nanos = new ArrayList<Long>();
+        this.allocations = new ArrayList<Long>();
+        this.phase = null;
+    }
+
+    private static com.sun.management.ThreadMXBean threads() {
+        if (!(ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean)) return null;
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        if (!threads.isThreadAllocatedMemorySupported()) return null;
+        threads.setThreadAllocatedMemoryEnabled(true);
+        return threads;
+    }
+
+    static long allocated() {
+        return (threads == null) ? -1 : threads.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    //ends the phase that is running, if any, and starts the next one
+    public void start(String phase) {
+        stop();
+        this.phase = phase;
+        this.event = ForestEvents.recording() ? ForestEvents.beginPhase() : null;
+        this.startAllocation = allocated();
+        this.startNanos = System.nanoTime();
+    }
+
+    public void stop() {
+        if (this.phase == null) return;
+        long nanos = System.nanoTime() - this.startNanos;
+        long allocation = allocated();
+        if (this.event != null) ForestEvents.endPhase(this.event, this.phase);
+        this.event = null;
+        this.phases.add(this.phase);
+        this.nanos.add(nanos);
+        this.allocations.add((allocation < 0 || this.startAllocation < 0) ? -1 : allocation - this.startAllocation);
+        this.phase = null;
+    }
+
+    public void print(PrintStream out) {
+        stop();
+        long totalNanos = 0;
+        long totalAllocation = 0;
+        for (int i = 0; i < this.phases.size(); i++) {
+            print(out, this.phases.get(i), this.nanos.get(i), this.allocations.get(i));
+            totalNanos += this.nanos.get(i);
+            totalAllocation = (totalAllocation < 0 || this.allocations.get(i) < 0) ? -1 : totalAllocation + this.allocations.get(i);
+        }
+        print(out, "total", totalNanos, totalAllocation);
+    }
+
+    private static void print(PrintStream out, String phase, long nanos, long allocation) {
+        String allocated = (allocation < 0) ? "n/a" : String.format("%.1f KB", allocation / 1024.0);
+        out.println(String.format("%-14s %10.3f ms %14s allocated", phase, nanos / 1e6, allocated));
+    }
+}
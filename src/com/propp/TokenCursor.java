@@ -0,0 +1,17 @@
+package com.propp;
+
+//how the Parser reads its tokens, it sees the token under the cursor and the one after it
+public interface TokenCursor {
+    TokenType type();
+
+    //the type of the token after the current one, null when the current one is FILE_END
+    TokenType nextType();
+
+    int lineNumber();
+
+    //the current token as a Lexeme, the cursor then moves on unless it is at FILE_END
+    Lexeme take();
+
+    //moves on without making a Lexeme for the current token
+    void skip();
+}
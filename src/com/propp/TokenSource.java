@@ -0,0 +1,7 @@
+package com.propp;
+
+//where the Parser takes its tokens from, one at a time and only as far ahead as it looks
+public interface TokenSource {
+    //the next token, the last one is FILE_END
+    Lexeme next();
+}
@@ -0,0 +1,148 @@
+package com.propp;
+
+import java.util.Arrays;
+
+import static com.propp.TokenType.*;
+
+//tokens packed into parallel arrays instead of one Lexeme each, a token is an index
+//integers, booleans and characters are kept in the value array, floats, strings and identifier names in a side table
+//the value array points into, a Lexeme is only made when the Parser takes the token
+public final class TokenStream {
+    private static final TokenType[] TYPES = TokenType.values();
+
+    private byte[] types;
+    private int[] starts; //offset of the token in the source
+    private int[] lengths;
+    private int[] lineNumbers;
+    private int[] values;
+    private int size;
+    private Object[] literals;
+    private int literalCount;
+
+    public TokenStream() {
+        this.types = new byte[256];
+        this.starts = new int[256];
+        this.lengths = new int[256];
+        this.lineNumbers = new int[256];
+        this.values = new int[256];
+        this.size = 0;
+        this.literals = new Object[64];
+        this.literalCount = 0;
+    }
+
+    //literal is the float, string or identifier name of the token, value its integer, boolean (1 or 0) or character
+    public void add(TokenType type, int start, int length, int lineNumber, int value, Object literal) {
+        if (this.size == this.types.length) grow();
+        int token = this.size++;
+        this.types[token] = (byte) type.ordinal();
+        this.starts[token] = start;
+        this.lengths[token] = length;
+        this.lineNumbers[token] = lineNumber;
+        this.values[token] = value;
+        if (literal != null) {
+            if (this.literalCount == this.literals.length) this.literals = Arrays.copyOf(this.literals, Math.max(64, this.literalCount * 2));
+            this.values[token] = this.literalCount;
+            this.literals[this.literalCount++] = literal;
+        }
+    }
+
+    public int size() {
+        return this.size;
+    }
+
+    public TokenType type(int token) {
+        return TYPES[this.types[token]];
+    }
+
+    public int start(int token) {
+        return this.starts[token];
+    }
+
+    public int length(int token) {
+        return this.lengths[token];
+    }
+
+    public int lineNumber(int token) {
+        return this.lineNumbers[token];
+    }
+
+    //a new Lexeme for the token
+    public Lexeme lexeme(int token) {
+        TokenType type = type(token);
+        Object literal = (type == FLOAT || type == STRING || type == IDENTIFIER) ? this.literals[this.values[token]] : null;
+        return lexeme(type, this.lineNumbers[token], this.values[token], literal);
+    }
+
+    static Lexeme lexeme(TokenType type, int lineNumber, int value, Object literal) {
+        switch (type) {
+            case INTEGER:
+                return new IntegerValue(value, lineNumber);
+            case FLOAT:
+                return new FloatValue((Double) literal, lineNumber);
+            case STRING:
+                return new StringValue((String) literal, lineNumber);
+            case CHARACTER:
+                return new CharacterValue((char) value, lineNumber);
+            case BOOLEAN:
+                return new BooleanValue(value != 0, lineNumber);
+            case IDENTIFIER:
+                return new Node(IDENTIFIER, (String) literal, lineNumber);
+            default:
+                return new Node(type, lineNumber);
+        }
+    }
+
+    //drops the room left for more tokens
+    public void trim() {
+        resize(this.size);
+        this.literals = Arrays.copyOf(this.literals, this.literalCount);
+    }
+
+    //a cursor at the first token, the stream has to end with FILE_END
+    public TokenCursor cursor() {
+        return new Cursor();
+    }
+
+    private class Cursor implements TokenCursor {
+        private int position = 0;
+
+        @Override
+        public TokenType type() {
+            return TYPES[types[this.position]];
+        }
+
+        @Override
+        public TokenType nextType() {
+            return (this.position + 1 < size) ? TYPES[types[this.position + 1]] : null;
+        }
+
+        @Override
+        public int lineNumber() {
+            return lineNumbers[this.position];
+        }
+
+        @Override
+        public Lexeme take() {
+            Lexeme lexeme = lexeme(this.position);
+            skip();
+            return lexeme;
+        }
+
+        @Override
+        public void skip() {
+            if (this.position + 1 < size) this.position++;
+        }
+    }
+
+    private void grow() {
+        resize(Math.max(256, this.types.length * 2));
+    }
+
+    private void resize(int capacity) {
+        this.types = Arrays.copyOf(this.types, capacity);
+        this.starts = Arrays.copyOf(this.starts, capacity);
+        this.lengths = Arrays.copyOf(this.lengths, capacity);
+        this.lineNumbers = Arrays.copyOf(this.lineNumbers, capacity);
+        this.values = Arrays.copyOf(this.values, capacity);
+    }
+}
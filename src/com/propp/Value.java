@@ -0,0 +1,10 @@
+package com.propp;
+
+//data computed by a program, kept apart from the parse tree so a value is only its primitive and a line number
+public abstract sealed class Value extends Lexeme
+        permits IntegerValue, FloatValue, BooleanValue, CharacterValue, StringValue, ArrayValue {
+
+    Value(int lineNumber) {
+        super(lineNumber);
+    }
+}
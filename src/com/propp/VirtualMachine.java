@@ -0,0 +1,252 @@
+package com.propp;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static com.propp.Opcodes.*;
+
+//register machine running the Chunks made by the ChunkCompiler
+//registers, lists of values and results of calls share one value stack, a call's frame starts at the top of the
+//stack, so arguments and results are passed without copying them into new objects
+public class VirtualMachine {
+    private final ChunkCompiler.CompiledProgram program;
+    private Lexeme[] stack;
+    private int top; //first free place on the value stack
+    private int[] marks;
+    private Environment[] environments;
+    private List<Lexeme> output;
+
+    public VirtualMachine(ChunkCompiler.CompiledProgram program) {
+        this.program = program;
+        this.stack = new Lexeme[256];
+        this.top = 0;
+        this.marks = new int[64];
+        this.environments = new Environment[16];
+    }
+
+    public List<Lexeme> run(Environment environment) {
+        this.output = new ArrayList<Lexeme>();
+        this.top = 0;
+        execute(this.program.getMain(), environment, 0, 0, 0);
+        return this.output;
+    }
+
+    //runs chunk with its registers starting at base, returns how many values it returned, they are moved to result
+    private int execute(Chunk chunk, Environment environment, int base, int markBase, int environmentBase) {
+        int[] code = chunk.code;
+        Object[] constants = chunk.constants;
+        ensureStack(base + chunk.registers);
+        ensureMarks(markBase + chunk.marks);
+        ensureEnvironments(environmentBase + chunk.environments);
+        Lexeme[] stack = this.stack;
+        int[] marks = this.marks;
+        Environment[] environments = this.environments;
+        this.top = base + chunk.registers;
+        environments[environmentBase] = environment;
+        Environment envir = environment;
+        int pc = 0;
+        while (true) {
+            switch (code[pc]) {
+                case LOADK:
+                    stack[base + code[pc + 1]] = (Lexeme) constants[code[pc + 2]];
+                    pc += 3;
+                    break;
+                case GETVAR:
+                    stack[base + code[pc + 1]] = envir.getVariableValue((Lexeme) constants[code[pc + 2]]);
+                    pc += 3;
+                    break;
+                case SETVAR:
+                    envir.addVariable((Lexeme) constants[code[pc + 2]], stack[base + code[pc + 1]]);
+                    pc += 3;
+                    break;
+                case SETELEM:
+                    if (Expressions.assignElement(envir, (Lexeme) constants[code[pc + 2]], (Lexeme[]) constants[code[pc + 3]], stack[base + code[pc + 1]])) pc += 5;
+                    else pc = code[pc + 4];
+                    break;
+                case NOVALUE:
+                    if (stack[base + code[pc + 1]] != null) pc += 5;
+                    else {
+                        BytecodeRuntime.mismatch(0, code[pc + 2], code[pc + 3]);
+                        pc = code[pc + 4];
+                    }
+                    break;
+                case BINARY: {
+                    Lexeme first = stack[base + code[pc + 2]];
+                    Lexeme second = stack[base + code[pc + 3]];
+                    OperatorChain chain = (OperatorChain) constants[code[pc + 4]];
+                    if (first != null && second != null) {
+                        stack[base + code[pc + 1]] = Operators.binary(chain.getOperator(0), first, second, chain.getLineNumber());
+                    } else {
+                        int flags = code[pc + 5];
+                        stack[base + code[pc + 1]] = BytecodeRuntime.binary(chain, first, second, (flags & 1) != 0, (flags & 2) != 0);
+                    }
+                    pc += 6;
+                    break;
+                }
+                case APPLY: {
+                    int from = marks[markBase + code[pc + 3]];
+                    Lexeme result = ((OperatorChain) constants[code[pc + 2]]).apply(stack, from, this.top);
+                    this.top = from;
+                    stack[base + code[pc + 1]] = result;
+                    pc += 4;
+                    break;
+                }
+                case UNARY:
+                    stack[base + code[pc + 1]] = BytecodeRuntime.unary((Lexeme) constants[code[pc + 3]], stack[base + code[pc + 2]], code[pc + 4] != 0);
+                    pc += 5;
+                    break;
+                case UNARYL:
+                    stack[base + code[pc + 1]] = BytecodeRuntime.unary((Lexeme) constants[code[pc + 2]], popList(marks[markBase + code[pc + 3]]));
+                    pc += 4;
+                    break;
+                case INDEX:
+                    stack[base + code[pc + 1]] = Expressions.arrayElement(stack[base + code[pc + 2]], (Lexeme[]) constants[code[pc + 3]], code[pc + 4]);
+                    pc += 5;
+                    break;
+                case INDEXL:
+                    stack[base + code[pc + 1]] = BytecodeRuntime.arrayElement(popList(marks[markBase + code[pc + 2]]), (Lexeme[]) constants[code[pc + 3]], code[pc + 4]);
+                    pc += 5;
+                    break;
+                case MARK:
+                    marks[markBase + code[pc + 1]] = this.top;
+                    pc += 2;
+                    break;
+                case PUSH:
+                case PUSHV: {
+                    Lexeme value = stack[base + code[pc + 1]];
+                    if (value != null || code[pc] == PUSH) {
+                        if (this.top == stack.length) stack = ensureStack(this.top + 1);
+                        stack[this.top++] = value;
+                    }
+                    pc += 2;
+                    break;
+                }
+                case GETLIST:
+                    stack[base + code[pc + 1]] = stack[marks[markBase + code[pc + 2]] + code[pc + 3]];
+                    pc += 4;
+                    break;
+                case POP:
+                    this.top = marks[markBase + code[pc + 1]];
+                    pc += 2;
+                    break;
+                case CHECKCOUNT: {
+                    int size = this.top - marks[markBase + code[pc + 1]];
+                    if (size == code[pc + 2]) pc += 5;
+                    else {
+                        BytecodeRuntime.mismatch(size, code[pc + 2], code[pc + 3]);
+                        pc = code[pc + 4];
+                    }
+                    break;
+                }
+                case PRINT: {
+                    int from = marks[markBase + code[pc + 1]];
+                    Evaluator.printValues(Arrays.asList(stack).subList(from, this.top), code[pc + 2]);
+                    this.top = from;
+                    pc += 3;
+                    break;
+                }
+                case OUTPUT: {
+                    int from = marks[markBase + code[pc + 1]];
+                    this.output.addAll(Arrays.asList(stack).subList(from, this.top));
+                    this.top = from;
+                    pc += 2;
+                    break;
+                }
+                case TEST: {
+                    Lexeme value = stack[base + code[pc + 1]];
+                    boolean isTrue = (value != null && value.getType() == TokenType.BOOLEAN) ? value.booleanValue()
+                            : BytecodeRuntime.isTrue(value, code[pc + 2] != 0, code[pc + 3]);
+                    pc = isTrue ? pc + 5 : code[pc + 4];
+                    break;
+                }
+                case TESTL: {
+                    int from = marks[markBase + code[pc + 1]];
+                    int size = this.top - from;
+                    if (this.top == stack.length) stack = ensureStack(this.top + 1);
+                    boolean isTrue = Expressions.isTrue(Arrays.copyOfRange(stack, from, this.top + 1), size, code[pc + 2]);
+                    this.top = from;
+                    pc = isTrue ? pc + 4 : code[pc + 3];
+                    break;
+                }
+                case JUMP:
+                    pc = code[pc + 1];
+                    break;
+                case ENVNEW:
+                    environments[environmentBase + code[pc + 1]] = new Environment(envir, (Scope) constants[code[pc + 2]]);
+                    pc += 3;
+                    break;
+                case ENVSET:
+                    envir = environments[environmentBase + code[pc + 1]];
+                    pc += 2;
+                    break;
+                case DECLARE: {
+                    List<Lexeme> values = BytecodeRuntime.declare(envir, (Lexeme) constants[code[pc + 1]], (Lexeme) constants[code[pc + 2]], code[pc + 3]);
+                    if (values != null && code[pc + 4] != 0) this.output.addAll(values);
+                    pc += 5;
+                    break;
+                }
+                case LOOKUP: {
+                    Lexeme body = ((BytecodeRuntime.CallSite) constants[code[pc + 2]]).lookup(envir);
+                    stack[base + code[pc + 1]] = body;
+                    pc = (body == null) ? code[pc + 3] : pc + 4;
+                    break;
+                }
+                case CALL: {
+                    Lexeme body = stack[base + code[pc + 1]];
+                    int from = marks[markBase + code[pc + 3]];
+                    BytecodeRuntime.CallSite site = (BytecodeRuntime.CallSite) constants[code[pc + 2]];
+                    Environment callEnvir = site.enter(envir, body, stack, from, this.top);
+                    int results = 0;
+                    if (callEnvir != null) {
+                        Chunk function = this.program.functionFor(body);
+                        Object event = ForestEvents.recording() ? ForestEvents.beginCall() : null;
+                        results = execute(function, callEnvir, this.top, markBase + chunk.marks, environmentBase + chunk.environments);
+                        if (event != null) ForestEvents.endCall(event, site.getName(), site.getLineNumber());
+                        //the callee may have grown the stacks
+                        stack = this.stack;
+                        marks = this.marks;
+                        environments = this.environments;
+                        System.arraycopy(stack, this.top, stack, from, results);
+                    }
+                    this.top = from + results;
+                    pc += 4;
+                    break;
+                }
+                case RET: {
+                    int from = marks[markBase + code[pc + 1]];
+                    int results = this.top - from;
+                    //results are left at the start of the frame for the caller to move
+                    System.arraycopy(stack, from, stack, base, results);
+                    this.top = base;
+                    return results;
+                }
+                case RET0:
+                    this.top = base;
+                    return 0;
+                default:
+                    throw new IllegalStateException("unknown opcode " + code[pc]);
+            }
+        }
+    }
+
+    //removes list from the value stack and returns a copy of its values
+    private ArrayList<Lexeme> popList(int from) {
+        ArrayList<Lexeme> values = new ArrayList<Lexeme>(Arrays.asList(this.stack).subList(from, this.top));
+        this.top = from;
+        return values;
+    }
+
+    private Lexeme[] ensureStack(int size) {
+        if (size > this.stack.length) this.stack = Arrays.copyOf(this.stack, Math.max(size, this.stack.length * 2));
+        return this.stack;
+    }
+
+    private void ensureMarks(int size) {
+        if (size > this.marks.length) this.marks = Arrays.copyOf(this.marks, Math.max(size, this.marks.length * 2));
+    }
+
+    private void ensureEnvironments(int size) {
+        if (size > this.environments.length) this.environments = Arrays.copyOf(this.environments, Math.max(size, this.environments.length * 2));
+    }
+}